@@ -0,0 +1,32 @@
+package com.divergentthoughtsgames.colonies;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the Colonies benchmarks with the GC profiler enabled, so that allocation
+ * rates are reported alongside the timings. Accepts the standard JMH command line
+ * options; for example, to run only the tick benchmarks on the largest grid:
+ * 
+ * 	BenchmarkMain TickBenchmark -p gridSize=1024x1024
+ * 
+ * @author Christopher D. Canfield
+ */
+public final class BenchmarkMain
+{
+	private BenchmarkMain() {}
+	
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException
+	{
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
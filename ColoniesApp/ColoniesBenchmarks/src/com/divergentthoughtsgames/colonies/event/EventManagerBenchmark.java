@@ -0,0 +1,185 @@
+package com.divergentthoughtsgames.colonies.event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.platform.Log;
+
+/**
+ * Compares the ring buffer EventManager with the previous ConcurrentLinkedQueue design. Each
+ * invocation is one game tick's worth of events at the specified event rate: the events are 
+ * sent, and then dispatched to two subscribers. Run with the GC profiler to compare allocation.
+ * @author Christopher D. Canfield
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EventManagerBenchmark
+{
+	@Param({"10000", "100000", "1000000"})
+	public int eventsPerSecond;
+	
+	private EventManager ringBuffer;
+	private LinkedQueueEventManager linkedQueue;
+	
+	// The events sent each tick. They are created during setup, so that only the
+	// event queues' own allocation is measured.
+	private GameEvent<?>[] events;
+	
+	private CountingListener listener;
+	
+	@Setup
+	public void setUp()
+	{
+		final int eventsPerTick = (int)(this.eventsPerSecond / GameManager.FRAMES_PER_SECOND);
+		this.events = new GameEvent<?>[eventsPerTick];
+		for (int i = 0; i < eventsPerTick; ++i)
+		{
+			this.events[i] = (i % 2 == 0) ? new OrganismHappinessChangedEvent(null) : new OrganismDiedEvent(null);
+		}
+		
+		this.listener = new CountingListener();
+		this.ringBuffer = new EventManager();
+		this.linkedQueue = new LinkedQueueEventManager();
+		long[] eventIds = { OrganismHappinessChangedEvent.ID, OrganismDiedEvent.ID, GamePausedEvent.ID };
+		for (long eventId : eventIds)
+		{
+			this.ringBuffer.subscribe(eventId, this.listener);
+			this.ringBuffer.subscribe(eventId, new CountingListener());
+			this.linkedQueue.subscribe(eventId, this.listener);
+			this.linkedQueue.subscribe(eventId, new CountingListener());
+		}
+	}
+	
+	@Benchmark
+	public int tick_ringBuffer()
+	{
+		final GameEvent<?>[] events = this.events;
+		for (int i = 0; i < events.length; ++i)
+		{
+			this.ringBuffer.notify(events[i]);
+		}
+		while (this.ringBuffer.hasPendingEvents())
+		{
+			this.ringBuffer.update(1);
+		}
+		return this.listener.count;
+	}
+	
+	@Benchmark
+	public int tick_linkedQueue()
+	{
+		final GameEvent<?>[] events = this.events;
+		for (int i = 0; i < events.length; ++i)
+		{
+			this.linkedQueue.notify(events[i]);
+		}
+		while (this.linkedQueue.hasPendingEvents())
+		{
+			this.linkedQueue.update(1);
+		}
+		return this.listener.count;
+	}
+	
+	
+	private static final class CountingListener implements EventListener
+	{
+		int count;
+		
+		@Override
+		public void notify(GameEvent<?> event)
+		{
+			++this.count;
+		}
+	}
+	
+	/**
+	 * The previous EventManager: a ConcurrentLinkedQueue of events, and subscriber lists 
+	 * that are locked for every event dispatched. Log messages are built whether or not
+	 * debug logging is enabled.
+	 */
+	private static final class LinkedQueueEventManager
+	{
+		private final Map<Long, List<EventListener>> subscribers = new HashMap<Long, List<EventListener>>();
+		private final Map<Long, List<EventListener>> nonSerializableSubscribers = new HashMap<Long, List<EventListener>>();
+		private final Queue<GameEvent<?>> eventQueue = new ConcurrentLinkedQueue<GameEvent<?>>();
+		
+		void update(long gameTicks)
+		{
+			final int MAX_LOOPS_PER_TICK = 5;
+			for (int i = 0; i < MAX_LOOPS_PER_TICK; ++i)
+			{
+				final GameEvent<?> event = this.eventQueue.poll();
+				if (event != null)
+				{
+					Log.d("EventManager", "found event: " + event.toString());
+					synchronized(this.subscribers)
+					{
+						List<EventListener> eventSubscribers = this.subscribers.get(event.getEventId());
+						if (eventSubscribers != null)
+						{
+							for (final EventListener subscriber : eventSubscribers)
+							{
+								Log.d("EventManager", "Notifying subscriber " + subscriber.getClass().getName());
+								subscriber.notify(event);
+							}
+						}
+					}
+					
+					synchronized(this.nonSerializableSubscribers)
+					{
+						List<EventListener> eventSubscribers = this.nonSerializableSubscribers.get(event.getEventId());
+						if (eventSubscribers != null)
+						{
+							for (final EventListener subscriber : eventSubscribers)
+							{
+								Log.d("EventManager", "Notifying unserializable subscriber " + subscriber.getClass().getName());
+								subscriber.notify(event);
+							}
+						}
+					}
+				}
+			}
+		}
+		
+		void notify(GameEvent<?> event)
+		{
+			Log.d("EventManager", "Event received: " + event.toString());
+			this.eventQueue.add(event);
+		}
+		
+		boolean hasPendingEvents()
+		{
+			return !this.eventQueue.isEmpty();
+		}
+		
+		void subscribe(Long eventType, EventListener subscriber)
+		{
+			synchronized(this.nonSerializableSubscribers)
+			{
+				List<EventListener> eventSubscribers = this.nonSerializableSubscribers.get(eventType);
+				if (eventSubscribers == null)
+				{
+					eventSubscribers = new ArrayList<EventListener>();
+					this.nonSerializableSubscribers.put(eventType, eventSubscribers);
+				}
+				eventSubscribers.add(subscriber);
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Benchmarks the per-colony and per-organism steps of a game tick.
+ * @author Christopher D. Canfield
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrganismBenchmark
+{
+	private int cursor;
+	
+	@Benchmark
+	public void organismManager_update(WorldState world)
+	{
+		List<OrganismManager> colonies = world.logicManager.getColonies();
+		colonies.get(this.cursor++ % colonies.size()).update(world.nextTick());
+	}
+	
+	@Benchmark
+	public void organism_update(WorldState world)
+	{
+		world.organisms.get(this.cursor++ % world.organisms.size()).update(world.gameTicks);
+	}
+	
+	/**
+	 * The neighbor count read by Organism.update, which is maintained by the WorldGrid.
+	 */
+	@Benchmark
+	public int organism_getNeighborCount(WorldState world)
+	{
+		return world.worldGrid.getNeighborCount(world.cellIndexes[this.cursor++ % world.cellIndexes.length]);
+	}
+	
+	/**
+	 * A full recount of the eight neighbors, as Organism.update did before neighbor counts were maintained.
+	 */
+	@Benchmark
+	public int organism_countNeighbors(WorldState world)
+	{
+		return world.worldGrid.countNeighbors(world.cellIndexes[this.cursor++ % world.cellIndexes.length]);
+	}
+	
+	/**
+	 * The lookup used by OrganismInfoRequestedEvent and OrganismPoppedEvent, which goes through the 
+	 * world grid, so its cost does not depend on the size of the colony.
+	 */
+	@Benchmark
+	public Organism organismManager_findOrganism(WorldState world)
+	{
+		return world.largestColony.findOrganism(world.organisms.get(this.cursor++ % world.organisms.size()).getPosition());
+	}
+	
+	/**
+	 * The lookup that routes OrganismInfoRequestedEvent and OrganismPoppedEvent to the colony that 
+	 * owns the position, so that a request is handled by one colony rather than by every colony.
+	 */
+	@Benchmark
+	public OrganismManager gameLogicManager_findColony(WorldState world)
+	{
+		return world.logicManager.findColony(world.organisms.get(this.cursor++ % world.organisms.size()).getPosition());
+	}
+	
+	@Benchmark
+	public StaticAttributes staticAttributes_calculateAverage(WorldState world)
+	{
+		return StaticAttributes.calculateAverage(world.largestColony.getOrganisms());
+	}
+}
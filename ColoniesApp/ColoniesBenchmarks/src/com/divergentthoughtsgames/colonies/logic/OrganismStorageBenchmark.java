@@ -0,0 +1,114 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.GameEvent;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+
+/**
+ * Compares a full update pass over one colony's Organisms stored as Organism objects with
+ * the same pass over the Organisms stored in OrganismArrays. The heap used by each form, 
+ * per Organism, is printed at the start of each trial.
+ * @author Christopher D. Canfield
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrganismStorageBenchmark
+{
+	// The number of Organisms in the colony: half of the grid is filled.
+	@Param({"100000", "1000000"})
+	public int organisms;
+	
+	private List<Organism> objects;
+	private OrganismArrays arrays;
+	private final List<GameEvent<?>> events = new ArrayList<GameEvent<?>>();
+	private final HappinessChanges happinessChanges = new HappinessChanges();
+	private long gameTicks;
+	
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		final int rows = (int)Math.sqrt(this.organisms * 2);
+		final int columns = this.organisms * 2 / rows;
+		
+		GameManager gameManager = new GameManager(new ArrayList<String>(), rows, columns, 42);
+		GameLogicManager logicManager = gameManager.getGameLogicManager();
+		StaticAttributes attributes = StaticAttributes.fromSettings(4, 3, 3, 5, "Colony", 2);
+		logicManager.notify(new NewColonyPlacedEvent(
+				new NewColonyPlacedData(attributes, new GridPosition(rows / 2, columns / 2), 9, 0)));
+		
+		final long heapBefore = usedHeap();
+		logicManager.populate(0.5, new Random(42), 0);
+		while (gameManager.getEventManager().hasPendingEvents())
+		{
+			gameManager.getEventManager().update(0);
+		}
+		final long heapObjects = usedHeap();
+		this.objects = logicManager.getColonies().get(0).getOrganisms();
+		
+		this.arrays = new OrganismArrays(attributes, gameManager.getEventManager(), logicManager.getWorldGrid());
+		for (Organism org : this.objects)
+		{
+			this.arrays.add(org);
+		}
+		final long heapArrays = usedHeap();
+		
+		// The names are shared by both forms, so are only counted with the objects.
+		System.out.println(this.objects.size() + " Organisms: objects " + 
+				(heapObjects - heapBefore) / this.objects.size() + " bytes each (with grid and names), arrays " + 
+				(heapArrays - heapObjects) / this.objects.size() + " bytes each");
+		
+		this.gameTicks = 1;
+	}
+	
+	@Benchmark
+	public int objects_update()
+	{
+		final long ticks = ++this.gameTicks;
+		for (int i = 0; i < this.objects.size(); ++i)
+		{
+			this.objects.get(i).update(ticks, this.events, this.happinessChanges);
+		}
+		final int eventCount = this.events.size() + this.happinessChanges.size();
+		this.events.clear();
+		this.happinessChanges.clear();
+		return eventCount;
+	}
+	
+	@Benchmark
+	public int arrays_update()
+	{
+		this.arrays.update(++this.gameTicks, this.events, this.happinessChanges);
+		final int eventCount = this.events.size() + this.happinessChanges.size();
+		this.events.clear();
+		this.happinessChanges.clear();
+		return eventCount;
+	}
+	
+	private static long usedHeap()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; ++i)
+		{
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
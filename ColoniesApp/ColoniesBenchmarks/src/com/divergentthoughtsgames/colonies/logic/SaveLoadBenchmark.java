@@ -0,0 +1,54 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.persistence.GameStateSerializer;
+
+/**
+ * Benchmarks saving and loading the game state through the same serialization
+ * path as App.saveGameState and App.loadGameState.
+ * @author Christopher D. Canfield
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SaveLoadBenchmark
+{
+	private ByteArrayOutputStream buffer;
+	private byte[] savedState;
+	
+	@Setup(Level.Trial)
+	public void setUp(WorldState world) throws IOException
+	{
+		this.buffer = new ByteArrayOutputStream();
+		GameStateSerializer.save(world.gameManager, this.buffer);
+		this.savedState = this.buffer.toByteArray();
+	}
+	
+	@Benchmark
+	public int save(WorldState world) throws IOException
+	{
+		this.buffer.reset();
+		GameStateSerializer.save(world.gameManager, this.buffer);
+		return this.buffer.size();
+	}
+	
+	@Benchmark
+	public GameManager load() throws IOException
+	{
+		return GameStateSerializer.load(new ByteArrayInputStream(this.savedState));
+	}
+}
@@ -0,0 +1,42 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import com.divergentthoughtsgames.colonies.event.OrganismInfoRequestedEvent;
+
+/**
+ * Benchmarks a complete game tick, and the EventManager's share of it.
+ * @author Christopher D. Canfield
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TickBenchmark
+{
+	private int cursor;
+	
+	@Benchmark
+	public void gameManager_processUpdates(WorldState world)
+	{
+		world.gameManager.processUpdates();
+	}
+	
+	/**
+	 * Sends one OrganismInfoRequestedEvent, which is broadcast to every colony, and
+	 * processes the event queue once.
+	 */
+	@Benchmark
+	public void eventManager_update(WorldState world)
+	{
+		if (!world.organisms.isEmpty())
+		{
+			Organism org = world.organisms.get(this.cursor++ % world.organisms.size());
+			world.eventManager.notify(new OrganismInfoRequestedEvent(org.getPosition()));
+		}
+		world.eventManager.update(world.gameTicks);
+	}
+}
@@ -0,0 +1,87 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.EventManager;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+
+/**
+ * Measures how the update of a single colony scales with the number of update threads,
+ * on a fully populated 1024x1024 world. Reproduction is disabled by the lack of empty
+ * positions, so every tick updates the same Organisms.
+ * @author Christopher D. Canfield
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TiledUpdateBenchmark
+{
+	private static final int ROWS = 1024;
+	private static final int COLUMNS = 1024;
+	
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+	
+	@Param({"32", "64", "128"})
+	public int tileSize;
+	
+	private GameManager gameManager;
+	private GameLogicManager logicManager;
+	private long gameTicks;
+	
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		this.gameManager = new GameManager(new ArrayList<String>(), ROWS, COLUMNS, 42);
+		this.logicManager = this.gameManager.getGameLogicManager();
+		
+		StaticAttributes attributes = StaticAttributes.fromSettings(3, 3, 3, 5, "Colony", 2);
+		this.logicManager.notify(new NewColonyPlacedEvent(
+				new NewColonyPlacedData(attributes, new GridPosition(ROWS / 2, COLUMNS / 2), 9, 0)));
+		this.logicManager.populate(1, new Random(42), 0);
+		
+		this.logicManager.setUpdateThreads(this.threads);
+		this.logicManager.setTileSize(this.tileSize);
+		this.gameTicks = 1;
+	}
+	
+	/**
+	 * Discards the events raised during the iteration, which nothing consumes.
+	 */
+	@TearDown(Level.Iteration)
+	public void drainEvents()
+	{
+		EventManager eventManager = this.gameManager.getEventManager();
+		while (eventManager.hasPendingEvents())
+		{
+			eventManager.update(this.gameTicks);
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		this.logicManager.setUpdateThreads(1);
+	}
+	
+	@Benchmark
+	public void gameLogicManager_update()
+	{
+		this.logicManager.update(++this.gameTicks);
+	}
+}
@@ -0,0 +1,165 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares neighbor probing on the chunked WorldGrid against the previous
+ * HashMap<GridPosition, WorldGridEntity> storage.
+ * @author Christopher D. Canfield
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WorldGridBenchmark
+{
+	// The number of cells whose neighbors are counted per benchmark invocation.
+	private static final int PROBES = 4096;
+	
+	@Param({"10x7", "64x64", "256x256", "1024x1024", "2048x2048"})
+	public String gridSize;
+	
+	@Param({"0.5"})
+	public double density;
+	
+	private WorldGrid grid;
+	private HashMapGrid hashMapGrid;
+	private int rows;
+	private int columns;
+	
+	// The rows and columns that are probed, chosen at random during setup.
+	private int[] probeRows;
+	private int[] probeColumns;
+	
+	@Setup
+	public void setUp()
+	{
+		String[] dimensions = this.gridSize.split("x");
+		this.rows = Integer.parseInt(dimensions[0]);
+		this.columns = Integer.parseInt(dimensions[1]);
+		
+		this.grid = new WorldGrid(this.rows, this.columns);
+		this.hashMapGrid = new HashMapGrid();
+		
+		Random rand = new Random(42);
+		for (int row = 0; row < this.rows; ++row)
+		{
+			for (int column = 0; column < this.columns; ++column)
+			{
+				if (rand.nextDouble() < this.density)
+				{
+					WorldGridEntity entity = new WorldGridEntity(rand.nextLong()) {
+						private static final long serialVersionUID = 1L;
+					};
+					GridPosition gp = new GridPosition(row, column);
+					this.grid.setGridEntity(gp, entity);
+					this.hashMapGrid.setGridEntity(gp, entity);
+				}
+			}
+		}
+		
+		this.probeRows = new int[PROBES];
+		this.probeColumns = new int[PROBES];
+		for (int i = 0; i < PROBES; ++i)
+		{
+			this.probeRows[i] = rand.nextInt(this.rows);
+			this.probeColumns[i] = rand.nextInt(this.columns);
+		}
+	}
+	
+	/**
+	 * Reads the neighbor counts that the WorldGrid maintains as entities are added and removed.
+	 */
+	@Benchmark
+	public int neighborCount_stored()
+	{
+		final WorldGrid grid = this.grid;
+		int total = 0;
+		for (int i = 0; i < PROBES; ++i)
+		{
+			total += grid.getNeighborCount(grid.toIndex(this.probeRows[i], this.probeColumns[i]));
+		}
+		return total;
+	}
+	
+	@Benchmark
+	public int neighborCount_rowColumn()
+	{
+		int total = 0;
+		for (int i = 0; i < PROBES; ++i)
+		{
+			total += countNeighbors(this.grid, this.probeRows[i], this.probeColumns[i]);
+		}
+		return total;
+	}
+	
+	@Benchmark
+	public int neighborCount_hashMap()
+	{
+		int total = 0;
+		for (int i = 0; i < PROBES; ++i)
+		{
+			total += countNeighbors(this.hashMapGrid, this.probeRows[i], this.probeColumns[i]);
+		}
+		return total;
+	}
+	
+	private int countNeighbors(WorldGrid grid, int row, int column)
+	{
+		int count = 0;
+		count += (column < this.columns - 1 && grid.getGridEntity(row, column + 1) != null) ? 1 : 0;
+		count += (column > 0 && grid.getGridEntity(row, column - 1) != null) ? 1 : 0;
+		count += (row < this.rows - 1 && grid.getGridEntity(row + 1, column) != null) ? 1 : 0;
+		count += (row > 0 && grid.getGridEntity(row - 1, column) != null) ? 1 : 0;
+		count += (column < this.columns - 1 && row < this.rows - 1 && grid.getGridEntity(row + 1, column + 1) != null) ? 1 : 0;
+		count += (column < this.columns - 1 && row > 0 && grid.getGridEntity(row - 1, column + 1) != null) ? 1 : 0;
+		count += (column > 0 && row < this.rows - 1 && grid.getGridEntity(row + 1, column - 1) != null) ? 1 : 0;
+		count += (column > 0 && row > 0 && grid.getGridEntity(row - 1, column - 1) != null) ? 1 : 0;
+		return count;
+	}
+	
+	private int countNeighbors(HashMapGrid grid, int row, int column)
+	{
+		int count = 0;
+		count += (column < this.columns - 1 && grid.getGridEntity(row, column + 1) != null) ? 1 : 0;
+		count += (column > 0 && grid.getGridEntity(row, column - 1) != null) ? 1 : 0;
+		count += (row < this.rows - 1 && grid.getGridEntity(row + 1, column) != null) ? 1 : 0;
+		count += (row > 0 && grid.getGridEntity(row - 1, column) != null) ? 1 : 0;
+		count += (column < this.columns - 1 && row < this.rows - 1 && grid.getGridEntity(row + 1, column + 1) != null) ? 1 : 0;
+		count += (column < this.columns - 1 && row > 0 && grid.getGridEntity(row - 1, column + 1) != null) ? 1 : 0;
+		count += (column > 0 && row < this.rows - 1 && grid.getGridEntity(row + 1, column - 1) != null) ? 1 : 0;
+		count += (column > 0 && row > 0 && grid.getGridEntity(row - 1, column - 1) != null) ? 1 : 0;
+		return count;
+	}
+	
+	
+	/**
+	 * The previous WorldGrid storage: a HashMap keyed by GridPosition, with a new
+	 * GridPosition created for every row/column lookup.
+	 */
+	private static final class HashMapGrid
+	{
+		private final Map<GridPosition, WorldGridEntity> entities = new HashMap<GridPosition, WorldGridEntity>();
+		
+		WorldGridEntity getGridEntity(int row, int column)
+		{
+			return this.entities.get(new GridPosition(row, column));
+		}
+		
+		void setGridEntity(GridPosition gp, WorldGridEntity ent)
+		{
+			this.entities.put(gp, ent);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.EventManager;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+
+/**
+ * A populated game world shared by the tick pipeline benchmarks. The world is
+ * parameterized by grid size, colony count and population density.
+ * @author Christopher D. Canfield
+ */
+@State(Scope.Benchmark)
+public class WorldState
+{
+	@Param({"10x7", "256x256", "1024x1024"})
+	public String gridSize;
+	
+	@Param({"2", "20"})
+	public int colonies;
+	
+	@Param({"0.1", "0.5", "0.9"})
+	public double density;
+	
+	GameManager gameManager;
+	GameLogicManager logicManager;
+	EventManager eventManager;
+	WorldGrid worldGrid;
+	
+	// All Organisms in the world, and their cell indexes.
+	List<Organism> organisms;
+	int[] cellIndexes;
+	
+	// The colony with the most Organisms.
+	OrganismManager largestColony;
+	
+	long gameTicks;
+	
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		String[] dimensions = this.gridSize.split("x");
+		final int rows = Integer.parseInt(dimensions[0]);
+		final int columns = Integer.parseInt(dimensions[1]);
+		
+		this.gameManager = new GameManager(new ArrayList<String>(), rows, columns, 42);
+		this.logicManager = this.gameManager.getGameLogicManager();
+		this.eventManager = this.gameManager.getEventManager();
+		this.worldGrid = this.logicManager.getWorldGrid();
+		
+		Random rand = new Random(42);
+		for (int i = 0; i < this.colonies; ++i)
+		{
+			StaticAttributes attributes = StaticAttributes.fromSettings(rand.nextInt(5) + 1, 3, 
+					rand.nextInt(5) + 1, 5, "Colony " + i, rand.nextInt(4) + 1);
+			GridPosition location = new GridPosition(rand.nextInt(rows), rand.nextInt(columns));
+			this.logicManager.notify(new NewColonyPlacedEvent(new NewColonyPlacedData(attributes, location, 9, 0)));
+		}
+		this.logicManager.populate(this.density, rand, 0);
+		
+		// Process the OrganismBornEvents from populating the world, so that they are not 
+		// included in the measurements.
+		while (this.eventManager.hasPendingEvents())
+		{
+			this.eventManager.update(0);
+		}
+		
+		this.organisms = new ArrayList<Organism>();
+		for (OrganismManager colony : this.logicManager.getColonies())
+		{
+			this.organisms.addAll(colony.getOrganisms());
+			if (this.largestColony == null || colony.getOrganismCount() > this.largestColony.getOrganismCount())
+			{
+				this.largestColony = colony;
+			}
+		}
+		
+		this.cellIndexes = new int[this.organisms.size()];
+		for (int i = 0; i < this.cellIndexes.length; ++i)
+		{
+			GridPosition position = this.organisms.get(i).getPosition();
+			this.cellIndexes[i] = this.worldGrid.toIndex(position.getRow(), position.getColumn());
+		}
+		
+		this.gameTicks = 1;
+	}
+	
+	/**
+	 * Advances and returns the game tick count.
+	 * @return The new game tick count.
+	 */
+	long nextTick()
+	{
+		return ++this.gameTicks;
+	}
+}
@@ -0,0 +1,141 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.logic.DynamicAttributes;
+import com.divergentthoughtsgames.colonies.logic.GameLogicManager;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.Organism;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+import com.divergentthoughtsgames.colonies.logic.WorldGrid;
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+
+/**
+ * Measures the cost of a checkpoint, from the snapshot until the write has been synced, 
+ * when 1% of the Organisms have changed since the previous checkpoint. Full checkpoints 
+ * rewrite the whole game; incremental checkpoints append the changes to the log, and take 
+ * a full checkpoint whenever the log is compacted. The sizes written are printed at the 
+ * end of each trial.
+ * @author Christopher D. Canfield
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CheckpointBenchmark
+{
+	// The number of Organisms in the world: the grid is filled completely.
+	@Param({"100000", "1000000"})
+	public int organisms;
+	
+	@Param({"full", "incremental"})
+	public String checkpoints;
+	
+	private static final double CHANGED_FRACTION = 0.01;
+	
+	private GameManager gameManager;
+	private Organism[] allOrganisms;
+	private int nextChanged;
+	
+	private File file;
+	private CheckpointService service;
+	private int checkpointCount;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, InterruptedException, ExecutionException
+	{
+		final int rows = (int)Math.sqrt(this.organisms);
+		final int columns = this.organisms / rows;
+		
+		this.gameManager = new GameManager(new ArrayList<String>(), rows, columns, 42);
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		Random rand = new Random(42);
+		for (int i = 0; i < 8; ++i)
+		{
+			StaticAttributes attributes = StaticAttributes.fromSettings(rand.nextInt(5) + 1, 3, 
+					rand.nextInt(5) + 1, 5, "Colony " + i, rand.nextInt(4) + 1);
+			GridPosition location = new GridPosition(rand.nextInt(rows), rand.nextInt(columns));
+			logicManager.notify(new NewColonyPlacedEvent(new NewColonyPlacedData(attributes, location, 9, 0)));
+		}
+		logicManager.populate(1, rand, 0);
+		for (int tick = 0; tick < 10; ++tick)
+		{
+			this.gameManager.processUpdates();
+		}
+		
+		WorldGrid grid = logicManager.getWorldGrid();
+		List<Organism> found = new ArrayList<Organism>(this.organisms);
+		for (int row = 0; row < grid.getRows(); ++row)
+		{
+			for (int column = 0; column < grid.getColumns(); ++column)
+			{
+				if (grid.getGridEntity(row, column) instanceof Organism)
+				{
+					found.add((Organism)grid.getGridEntity(row, column));
+				}
+			}
+		}
+		this.allOrganisms = found.toArray(new Organism[found.size()]);
+		
+		this.file = File.createTempFile("checkpoint-benchmark", ".colonies");
+		this.service = new CheckpointService(this.file, 
+				this.checkpoints.equals("full") ? 0 : Integer.MAX_VALUE);
+		// The first checkpoint is always full.
+		this.service.checkpoint(this.gameManager).get();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException
+	{
+		this.service.awaitWrites(1, TimeUnit.MINUTES);
+		this.service.shutdown();
+		System.out.println();
+		System.out.println(this.checkpoints + " checkpoints of " + this.allOrganisms.length + " organisms: " + 
+				this.checkpointCount + " checkpoints, checkpoint file " + this.file.length() + " bytes, log " + 
+				this.service.getLogFile().length() + " bytes");
+		this.file.delete();
+		this.service.getLogFile().delete();
+	}
+	
+	@Benchmark
+	public void checkpoint() throws IOException, InterruptedException, ExecutionException
+	{
+		changeOrganisms();
+		this.service.checkpoint(this.gameManager).get();
+		++this.checkpointCount;
+	}
+	
+	/**
+	 * Changes the crowd happiness of the next 1% of the Organisms.
+	 */
+	private void changeOrganisms()
+	{
+		final int count = (int)(this.allOrganisms.length * CHANGED_FRACTION);
+		for (int i = 0; i < count; ++i)
+		{
+			DynamicAttributes attributes = this.allOrganisms[this.nextChanged].getDynamicAttributes();
+			attributes.setCrowdHappiness((attributes.getCrowdHappiness() == Happiness.Happy) ? 
+					Happiness.Unhappy : Happiness.Happy);
+			this.nextChanged = (this.nextChanged + 97) % this.allOrganisms.length;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.logic.GameLogicManager;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+
+/**
+ * Compares the binary saved game format with Java serialization of the GameManager, the
+ * format used by earlier versions, and measures opening a mapped world file. The sizes of 
+ * both formats are printed during setup.
+ * @author Christopher D. Canfield
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SaveFormatBenchmark
+{
+	// The number of Organisms in the world: the grid is filled completely.
+	@Param({"1000", "100000", "1000000"})
+	public int organisms;
+	
+	private GameManager gameManager;
+	private byte[] binaryState;
+	private byte[] serializedState;
+	private File mappedFile;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		final int rows = (int)Math.sqrt(this.organisms);
+		final int columns = this.organisms / rows;
+		
+		this.gameManager = new GameManager(new ArrayList<String>(), rows, columns, 42);
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		Random rand = new Random(42);
+		for (int i = 0; i < 8; ++i)
+		{
+			StaticAttributes attributes = StaticAttributes.fromSettings(rand.nextInt(5) + 1, 3, 
+					rand.nextInt(5) + 1, 5, "Colony " + i, rand.nextInt(4) + 1);
+			GridPosition location = new GridPosition(rand.nextInt(rows), rand.nextInt(columns));
+			logicManager.notify(new NewColonyPlacedEvent(new NewColonyPlacedData(attributes, location, 9, 0)));
+		}
+		logicManager.populate(1, rand, 0);
+		for (int tick = 0; tick < 10; ++tick)
+		{
+			this.gameManager.processUpdates();
+		}
+		
+		this.binaryState = saveBinary().toByteArray();
+		this.serializedState = saveSerialized().toByteArray();
+		System.out.println();
+		System.out.println(logicManager.getOrganismCount() + " organisms: binary format " + this.binaryState.length + 
+				" bytes, Java serialization " + this.serializedState.length + " bytes");
+		
+		this.mappedFile = File.createTempFile("save-format-benchmark", ".colonies");
+		MappedWorldFile.save(this.gameManager, this.mappedFile);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		this.mappedFile.delete();
+	}
+	
+	@Benchmark
+	public ByteArrayOutputStream save_binary() throws IOException
+	{
+		return saveBinary();
+	}
+	
+	@Benchmark
+	public ByteArrayOutputStream save_serialized() throws IOException
+	{
+		return saveSerialized();
+	}
+	
+	@Benchmark
+	public GameManager load_binary() throws IOException
+	{
+		return GameStateSerializer.load(new ByteArrayInputStream(this.binaryState));
+	}
+	
+	@Benchmark
+	public GameManager load_serialized() throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(this.serializedState));
+		return (GameManager)in.readObject();
+	}
+	
+	@Benchmark
+	public float open_mapped() throws IOException
+	{
+		MappedWorldFile mapped = MappedWorldFile.open(this.mappedFile);
+		try
+		{
+			return mapped.getHealth(mapped.getRows() / 2, mapped.getColumns() / 2);
+		}
+		finally
+		{
+			mapped.close();
+		}
+	}
+	
+	private ByteArrayOutputStream saveBinary() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(this.organisms * 32, 1024));
+		GameStateSerializer.save(this.gameManager, out);
+		return out;
+	}
+	
+	private ByteArrayOutputStream saveSerialized() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(this.organisms * 32, 1024));
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(this.gameManager);
+		oos.flush();
+		return out;
+	}
+}
@@ -1,6 +1,12 @@
 package com.divergentthoughtsgames.colonies.event;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
 
 import com.divergentthoughtsgames.colonies.GameManager;
 import com.divergentthoughtsgames.colonies.sound.SoundManager;
@@ -119,7 +125,244 @@ public class EventManagerTests extends TestCase
 		this.em.update(1);
 		assertFalse(et.getReceivedEvent());
 	}
+
+	
+	public void testConstructor_invalidCapacity()
+	{
+		try {
+			new EventManager(0);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testHasPendingEvents()
+	{
+		assertFalse(this.em.hasPendingEvents());
+		this.em.notify(new GamePausedEvent());
+		assertTrue(this.em.hasPendingEvents());
+		this.em.update(1);
+		assertFalse(this.em.hasPendingEvents());
+	}
+	
+	public void testEventFlow_orderKeptAcrossRingWrap()
+	{
+		this.em = new EventManager(4);
+		EventRecorder recorder = new EventRecorder(this.em);
+		
+		List<GameEvent<?>> sent = new ArrayList<GameEvent<?>>();
+		for (int i = 0; i < 20; ++i)
+		{
+			GameEvent<?> event = (i % 2 == 0) ? new GamePausedEvent() : new GameUnpausedEvent();
+			sent.add(event);
+			this.em.notify(event);
+			if (i % 3 == 2)
+			{
+				this.em.update(1);
+			}
+		}
+		drain(this.em);
+		
+		assertEquals(sent, recorder.events);
+	}
+	
+	public void testEventFlow_orderKeptWhenRingOverflows()
+	{
+		this.em = new EventManager(4);
+		EventRecorder recorder = new EventRecorder(this.em);
+		
+		List<GameEvent<?>> sent = new ArrayList<GameEvent<?>>();
+		for (int i = 0; i < 11; ++i)
+		{
+			GameEvent<?> event = new GamePausedEvent();
+			sent.add(event);
+			this.em.notify(event);
+		}
+		// Frees ring slots while events remain in the overflow queue.
+		this.em.update(1);
+		for (int i = 0; i < 3; ++i)
+		{
+			GameEvent<?> event = new GameUnpausedEvent();
+			sent.add(event);
+			this.em.notify(event);
+		}
+		drain(this.em);
+		
+		assertEquals(sent, recorder.events);
+	}
 	
+	public void testEventFlow_subscribeDuringDispatch()
+	{
+		final EventTester late = new EventTester();
+		this.em.subscribe(GamePausedEvent.ID, new EventListener() {
+			@Override
+			public void notify(GameEvent<?> event)
+			{
+				EventManagerTests.this.em.subscribe(GamePausedEvent.ID, late);
+			}
+		});
+		
+		this.em.notify(new GamePausedEvent());
+		this.em.update(1);
+		assertFalse(late.getReceivedEvent());
+		
+		this.em.notify(new GamePausedEvent());
+		this.em.update(1);
+		assertTrue(late.getReceivedEvent());
+	}
+	
+	public void testSerialization_keepsPendingEventsAndSerializableSubscribers() throws Exception
+	{
+		this.em = new EventManager(2);
+		this.em.subscribe(GamePausedEvent.ID, new SerializableEventTester());
+		for (int i = 0; i < 3; ++i)
+		{
+			this.em.notify(new GamePausedEvent());
+		}
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(this.em);
+		out.close();
+		EventManager restored = (EventManager)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		
+		EventRecorder recorder = new EventRecorder(restored);
+		drain(restored);
+		assertEquals(3, recorder.events.size());
+	}
+	
+	public void testUpdate_drainAllDispatchesQueuedEvents()
+	{
+		EventRecorder recorder = new EventRecorder(this.em);
+		for (int i = 0; i < 100; ++i)
+		{
+			this.em.notify(new GamePausedEvent());
+		}
+		this.em.update(1);
+		assertEquals(100, recorder.events.size());
+		assertFalse(this.em.hasPendingEvents());
+	}
+	
+	public void testUpdate_drainAllLeavesEventsSentDuringDispatch()
+	{
+		this.em.subscribe(GamePausedEvent.ID, new EventListener() {
+			@Override
+			public void notify(GameEvent<?> event)
+			{
+				EventManagerTests.this.em.notify(new GamePausedEvent());
+			}
+		});
+		this.em.notify(new GamePausedEvent());
+		this.em.update(1);
+		assertEquals(1, this.em.getQueueDepth());
+	}
+	
+	public void testUpdate_fixedCount()
+	{
+		this.em.setDispatchPolicy(DispatchPolicy.fixedCount(5));
+		EventRecorder recorder = new EventRecorder(this.em);
+		for (int i = 0; i < 12; ++i)
+		{
+			this.em.notify(new GamePausedEvent());
+		}
+		this.em.update(1);
+		assertEquals(5, recorder.events.size());
+		assertEquals(7, this.em.getQueueDepth());
+	}
+	
+	public void testUpdate_timeBudgetDispatchesAtLeastOneEvent()
+	{
+		this.em.setDispatchPolicy(DispatchPolicy.timeBudget(1));
+		EventRecorder recorder = new EventRecorder(this.em);
+		for (int i = 0; i < 3; ++i)
+		{
+			this.em.notify(new GamePausedEvent());
+		}
+		this.em.update(1);
+		assertTrue(recorder.events.size() >= 1);
+		drain(this.em);
+		assertEquals(3, recorder.events.size());
+	}
+	
+	public void testSetDispatchPolicy_invalidPolicy()
+	{
+		try {
+			this.em.setDispatchPolicy(null);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testDispatchPolicy_invalidLimits()
+	{
+		try {
+			DispatchPolicy.fixedCount(0);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+		try {
+			DispatchPolicy.timeBudget(0);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testGetMetrics()
+	{
+		this.em = new EventManager(4);
+		this.em.setDispatchPolicy(DispatchPolicy.fixedCount(4));
+		new EventRecorder(this.em);
+		for (int i = 0; i < 10; ++i)
+		{
+			this.em.notify(new GamePausedEvent());
+		}
+		assertEquals(10, this.em.getMetrics().getQueueDepth());
+		
+		this.em.update(1);
+		EventQueueMetrics metrics = this.em.getMetrics();
+		assertEquals(6, metrics.getQueueDepth());
+		assertEquals(10, metrics.getMaxQueueDepth());
+		assertEquals(4, metrics.getDispatchedEventCount());
+		assertTrue(metrics.getMaxLatencyNanos() >= metrics.getMeanLatencyNanos());
+		
+		drain(this.em);
+		assertEquals(0, this.em.getMetrics().getQueueDepth());
+		assertEquals(10, this.em.getMetrics().getDispatchedEventCount());
+		
+		this.em.resetMetrics();
+		assertEquals(0, this.em.getMetrics().getDispatchedEventCount());
+		assertEquals(0, this.em.getMetrics().getMaxQueueDepth());
+	}
+	
+	
+	private static void drain(EventManager em)
+	{
+		while (em.hasPendingEvents())
+		{
+			em.update(1);
+		}
+	}
+	
+	private static class EventRecorder implements EventListener
+	{
+		private final List<GameEvent<?>> events = new ArrayList<GameEvent<?>>();
+		
+		public EventRecorder(EventManager em)
+		{
+			em.subscribe(GamePausedEvent.ID, this);
+			em.subscribe(GameUnpausedEvent.ID, this);
+		}
+		
+		@Override
+		public void notify(GameEvent<?> event)
+		{
+			this.events.add(event);
+		}
+	}
+	
+	private static class SerializableEventTester implements EventListener, Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public void notify(GameEvent<?> event) {}
+	}
 	
 	private static class EventTester implements EventListener
 	{
@@ -130,6 +373,10 @@ public class EventManagerTests extends TestCase
 			return this.receivedEvent;
 		}
 		
+		public EventTester()
+		{
+		}
+		
 		public EventTester(EventManager em)
 		{
 			em.subscribe(GamePausedEvent.ID, this);
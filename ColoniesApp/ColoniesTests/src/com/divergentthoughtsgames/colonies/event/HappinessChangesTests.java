@@ -0,0 +1,83 @@
+package com.divergentthoughtsgames.colonies.event;
+
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+
+import junit.framework.TestCase;
+
+public class HappinessChangesTests extends TestCase
+{
+	public void testAdd()
+	{
+		HappinessChanges changes = new HappinessChanges(1);
+		changes.add(7, Happiness.Happy);
+		changes.add(3, Happiness.Unhappy);
+		changes.add(5, Happiness.Neutral);
+		
+		assertEquals(3, changes.size());
+		assertEquals(7, changes.getCell(0));
+		assertEquals(Happiness.Happy, changes.getHappiness(0));
+		assertEquals(3, changes.getCell(1));
+		assertEquals(Happiness.Unhappy, changes.getHappiness(1));
+		assertEquals(5, changes.getCell(2));
+		assertEquals(Happiness.Neutral, changes.getHappiness(2));
+	}
+	
+	public void testAdd_nullHappiness()
+	{
+		try {
+			new HappinessChanges().add(1, null);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testGetCell_invalid()
+	{
+		HappinessChanges changes = new HappinessChanges();
+		changes.add(1, Happiness.Happy);
+		try {
+			changes.getCell(1);
+			fail("Exception expected, but none encountered.");
+		} catch (IndexOutOfBoundsException e) {}
+	}
+	
+	public void testAddAll()
+	{
+		HappinessChanges first = new HappinessChanges(0);
+		first.add(1, Happiness.Happy);
+		HappinessChanges second = new HappinessChanges();
+		for (int i = 0; i < 40; ++i)
+		{
+			second.add(100 + i, Happiness.Unhappy);
+		}
+		
+		first.addAll(second);
+		assertEquals(41, first.size());
+		assertEquals(1, first.getCell(0));
+		assertEquals(139, first.getCell(40));
+		assertEquals(Happiness.Unhappy, first.getHappiness(40));
+	}
+	
+	public void testSortByCell()
+	{
+		HappinessChanges changes = new HappinessChanges();
+		changes.add(Integer.MAX_VALUE, Happiness.Unhappy);
+		changes.add(9, Happiness.Happy);
+		changes.add(0, Happiness.Neutral);
+		
+		changes.sortByCell();
+		assertEquals(0, changes.getCell(0));
+		assertEquals(Happiness.Neutral, changes.getHappiness(0));
+		assertEquals(9, changes.getCell(1));
+		assertEquals(Happiness.Happy, changes.getHappiness(1));
+		assertEquals(Integer.MAX_VALUE, changes.getCell(2));
+		assertEquals(Happiness.Unhappy, changes.getHappiness(2));
+	}
+	
+	public void testClear()
+	{
+		HappinessChanges changes = new HappinessChanges();
+		changes.add(1, Happiness.Happy);
+		changes.clear();
+		assertEquals(0, changes.size());
+	}
+}
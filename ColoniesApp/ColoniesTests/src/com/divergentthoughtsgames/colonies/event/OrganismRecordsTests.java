@@ -0,0 +1,83 @@
+package com.divergentthoughtsgames.colonies.event;
+
+import java.util.ArrayList;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.Organism;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+import com.divergentthoughtsgames.colonies.logic.WorldGrid;
+
+import junit.framework.TestCase;
+
+public class OrganismRecordsTests extends TestCase
+{
+	private WorldGrid worldGrid;
+	private Organism organism;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		
+		GameManager gameManager = new GameManager(new ArrayList<String>(), 10, 10, 3);
+		StaticAttributes attributes = StaticAttributes.fromSettings(2, 2, 2, 2, "Test", 2);
+		gameManager.getGameLogicManager().notify(new NewColonyPlacedEvent(
+				new NewColonyPlacedData(attributes, new GridPosition(2, 3), 2, 0)));
+		this.worldGrid = gameManager.getGameLogicManager().getWorldGrid();
+		this.organism = (Organism)this.worldGrid.getGridEntity(2, 3);
+		this.organism.setName("Name");
+		this.organism.getDynamicAttributes().addChild();
+	}
+	
+	public void testConstructor_negativeCapacity()
+	{
+		try {
+			new OrganismRecords(-1, 0);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testAdd()
+	{
+		OrganismRecords records = new OrganismRecords(2, 10);
+		records.add(this.organism);
+		
+		assertEquals(1, records.size());
+		assertEquals(10, records.getGameTick());
+		assertEquals(this.worldGrid.toIndex(2, 3), records.getCell(0));
+		assertEquals("Name", records.getName(0));
+		assertSame(this.organism.getStaticAttributes(), records.getStaticAttributes(0));
+		assertEquals(this.organism.getMaxAgeTicks(), records.getMaxAgeTicks(0));
+		assertEquals(1, records.getChildCount(0));
+		assertEquals(this.organism.getDynamicAttributes().getHappiness(), records.getHappiness(0));
+		assertFalse(records.isDead(0));
+	}
+	
+	public void testAdd_isASnapshot()
+	{
+		OrganismRecords records = new OrganismRecords(1, 0);
+		records.add(this.organism);
+		this.organism.getDynamicAttributes().addChild();
+		assertEquals(1, records.getChildCount(0));
+	}
+	
+	public void testAdd_full()
+	{
+		OrganismRecords records = new OrganismRecords(1, 0);
+		records.add(this.organism);
+		try {
+			records.add(this.organism);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalStateException e) {}
+	}
+	
+	public void testGetCell_invalid()
+	{
+		OrganismRecords records = new OrganismRecords(1, 0);
+		try {
+			records.getCell(0);
+			fail("Exception expected, but none encountered.");
+		} catch (IndexOutOfBoundsException e) {}
+	}
+}
@@ -0,0 +1,117 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class CellSetTests extends TestCase
+{
+	private CellSet set;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		this.set = new CellSet();
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		this.set = null;
+	}
+	
+	public void testAdd()
+	{
+		assertTrue(this.set.add(7));
+		assertFalse(this.set.add(7));
+		assertTrue(this.set.contains(7));
+		assertFalse(this.set.contains(8));
+		assertEquals(1, this.set.size());
+		assertEquals(7, this.set.get(0));
+	}
+	
+	public void testRemove()
+	{
+		this.set.add(1);
+		this.set.add(2);
+		this.set.add(3);
+		
+		assertTrue(this.set.remove(1));
+		assertFalse(this.set.remove(1));
+		assertFalse(this.set.contains(1));
+		assertEquals(2, this.set.size());
+		// The last cell is moved into the removed cell's position.
+		assertEquals(3, this.set.get(0));
+		assertEquals(2, this.set.get(1));
+	}
+	
+	public void testGet_invalid()
+	{
+		this.set.add(1);
+		try {
+			this.set.get(1);
+			fail("Exception expected, but none encountered.");
+		} catch (IndexOutOfBoundsException e) {}
+	}
+	
+	public void testSamplePosition_empty()
+	{
+		assertEquals(-1, this.set.samplePosition(new Random(1)));
+	}
+	
+	public void testClear()
+	{
+		for (int i = 0; i < 100; ++i)
+		{
+			this.set.add(i * 31);
+		}
+		this.set.clear();
+		assertEquals(0, this.set.size());
+		assertFalse(this.set.contains(31));
+		assertTrue(this.set.add(31));
+	}
+	
+	/**
+	 * Applies random additions and removals to the set and to a HashSet, and checks that they
+	 * hold the same cells.
+	 */
+	public void testMatchesHashSet()
+	{
+		Random random = new Random(3);
+		Set<Integer> expected = new HashSet<Integer>();
+		for (int i = 0; i < 200000; ++i)
+		{
+			// Clustered cells, as in a colony's frontier, so that probe sequences collide.
+			final int cell = random.nextInt(4096) * ((i & 1) == 0 ? 1 : 1024);
+			final int operation = random.nextInt(3);
+			if (operation == 0)
+			{
+				assertEquals(expected.add(cell), this.set.add(cell));
+			}
+			else if (operation == 1)
+			{
+				assertEquals(expected.remove(cell), this.set.remove(cell));
+			}
+			else if (this.set.size() > 0)
+			{
+				final int position = this.set.samplePosition(random);
+				assertTrue(expected.remove(this.set.get(position)));
+				this.set.removeAt(position);
+			}
+			assertEquals(expected.size(), this.set.size());
+		}
+		
+		for (Integer cell : expected)
+		{
+			assertTrue(this.set.contains(cell));
+		}
+		for (int position = 0; position < this.set.size(); ++position)
+		{
+			assertTrue(expected.contains(this.set.get(position)));
+		}
+	}
+}
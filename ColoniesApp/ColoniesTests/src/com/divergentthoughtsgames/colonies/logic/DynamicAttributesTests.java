@@ -4,6 +4,7 @@ import com.divergentthoughtsgames.colonies.logic.attributes.Action;
 import com.divergentthoughtsgames.colonies.logic.attributes.Diet;
 import com.divergentthoughtsgames.colonies.logic.attributes.FoodType;
 import com.divergentthoughtsgames.colonies.logic.attributes.Frequency;
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
 import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
 
 import junit.framework.TestCase;
@@ -121,6 +122,21 @@ public class DynamicAttributesTests extends TestCase
 	{
 		assertEquals(this.da.getLastActionChangedTicks(), 100);
 	}
+	
+	public void testCalculateHappiness()
+	{
+		assertEquals(Happiness.Unhappy, DynamicAttributes.calculateHappiness(DynamicAttributes.UNHAPPY_HUNGER, Happiness.Happy));
+		assertEquals(Happiness.Happy, DynamicAttributes.calculateHappiness(DynamicAttributes.UNHAPPY_HUNGER - 1, Happiness.Happy));
+	}
+	
+	public void testGetDueHappinessReport()
+	{
+		assertEquals(DynamicAttributes.CHANGE_REPORT, DynamicAttributes.getDueHappinessReport(100, true, 101));
+		assertEquals(DynamicAttributes.NO_REPORT, DynamicAttributes.getDueHappinessReport(100, true, 100));
+		assertEquals(DynamicAttributes.NO_REPORT, DynamicAttributes.getDueHappinessReport(100, false, 101));
+		assertEquals(DynamicAttributes.PERIODIC_REPORT, 
+				DynamicAttributes.getDueHappinessReport(100, false, 101 + DynamicAttributes.HAPPINESS_START_AGE));
+	}
 
 	//TODO (2013-04-09): implement these.
 //	public void testGetCrowdHappiness()
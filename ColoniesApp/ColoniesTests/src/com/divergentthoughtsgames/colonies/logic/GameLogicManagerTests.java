@@ -0,0 +1,519 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.AllOrganismsRequestedEvent;
+import com.divergentthoughtsgames.colonies.event.AllOrganismsRequestedResponse;
+import com.divergentthoughtsgames.colonies.event.EventListener;
+import com.divergentthoughtsgames.colonies.event.EventManager;
+import com.divergentthoughtsgames.colonies.event.GameEvent;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismDecayedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismDiedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismHappinessChangedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismInfo;
+import com.divergentthoughtsgames.colonies.event.OrganismInfoRequestedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismInfoRequestedResponse;
+import com.divergentthoughtsgames.colonies.event.OrganismPoppedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismRecords;
+import com.divergentthoughtsgames.colonies.logic.attributes.Diet;
+import com.divergentthoughtsgames.colonies.logic.attributes.FoodType;
+import com.divergentthoughtsgames.colonies.logic.attributes.Frequency;
+import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
+import com.divergentthoughtsgames.colonies.persistence.GameStateSerializer;
+
+import junit.framework.TestCase;
+
+public class GameLogicManagerTests extends TestCase
+{
+	private GameManager gameManager;
+	
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		this.gameManager = new GameManager(new ArrayList<String>(), 40, 40, 17);
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		this.gameManager.getGameLogicManager().setUpdateThreads(1);
+		this.gameManager = null;
+	}
+	
+	public void testSetUpdateThreads_invalid()
+	{
+		try {
+			this.gameManager.getGameLogicManager().setUpdateThreads(0);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testSetUpdateThreads()
+	{
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		assertEquals(1, logicManager.getUpdateThreads());
+		logicManager.setUpdateThreads(4);
+		assertEquals(4, logicManager.getUpdateThreads());
+		logicManager.setUpdateThreads(1);
+		assertEquals(1, logicManager.getUpdateThreads());
+	}
+	
+	public void testPopulate()
+	{
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		assertEquals(0, logicManager.populate(0.5, new Random(1), 0));
+		
+		placeColonies(this.gameManager, 2, Frequency.VeryInfrequent);
+		int placed = logicManager.getOrganismCount();
+		int added = logicManager.populate(1, new Random(1), 0);
+		assertEquals(40 * 40, logicManager.getOrganismCount());
+		assertEquals(40 * 40 - placed, added);
+	}
+	
+	public void testSetTileSize_invalid()
+	{
+		try {
+			this.gameManager.getGameLogicManager().setTileSize(0);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testSetDecayTicks_invalid()
+	{
+		try {
+			this.gameManager.getGameLogicManager().setDecayTicks(0);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testUpdate_decayedOrganismsAreRemoved()
+	{
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		logicManager.setDecayTicks(20);
+		placeColonies(this.gameManager, 3, Frequency.VeryFrequent);
+		logicManager.populate(0.3, new Random(5), 0);
+		
+		final List<GridPosition> decayed = new ArrayList<GridPosition>();
+		this.gameManager.getEventManager().subscribe(OrganismDecayedEvent.ID, new EventListener() {
+			@Override
+			public void notify(GameEvent<?> event)
+			{
+				decayed.add(((OrganismDecayedEvent)event).getData());
+			}
+		});
+		
+		// A long run on a small grid: the grid would fill with dead Organisms if they were not removed.
+		for (int i = 0; i < 20; ++i)
+		{
+			for (int tick = 0; tick < 250; ++tick)
+			{
+				this.gameManager.processUpdates();
+			}
+			drainEvents(this.gameManager.getEventManager());
+			assertNoDecayedOrganisms(logicManager, 20);
+		}
+		assertFalse(decayed.isEmpty());
+	}
+	
+	public void testUpdate_decayContinuesAfterLoad() throws Exception
+	{
+		placeColonies(this.gameManager, 3, Frequency.VeryFrequent);
+		this.gameManager.getGameLogicManager().populate(0.3, new Random(5), 0);
+		run(this.gameManager, 700);
+		
+		GameManager loaded = copy(this.gameManager);
+		assertEquals(run(this.gameManager, 600), run(loaded, 600));
+		assertEquals(this.gameManager.getGameLogicManager().getOrganismCount(), 
+				loaded.getGameLogicManager().getOrganismCount());
+		assertNoDecayedOrganisms(loaded.getGameLogicManager(), GameLogicManager.DEFAULT_DECAY_TICKS);
+	}
+	
+	public void testUpdate_happinessChangesAreSentOncePerTick()
+	{
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		placeColonies(this.gameManager, 3, Frequency.VeryInfrequent);
+		logicManager.populate(0.5, new Random(5), 0);
+		
+		final List<HappinessChanges> sent = new ArrayList<HappinessChanges>();
+		this.gameManager.getEventManager().subscribe(OrganismHappinessChangedEvent.ID, new EventListener() {
+			@Override
+			public void notify(GameEvent<?> event)
+			{
+				sent.add(((OrganismHappinessChangedEvent)event).getData());
+			}
+		});
+		
+		int changeCount = 0;
+		for (int tick = 0; tick < 600; ++tick)
+		{
+			this.gameManager.processUpdates();
+			drainEvents(this.gameManager.getEventManager());
+			assertTrue(sent.size() <= 1);
+			
+			for (HappinessChanges changes : sent)
+			{
+				assertTrue(changes.size() > 0);
+				for (int i = 0; i < changes.size(); ++i)
+				{
+					assertTrue(logicManager.getWorldGrid().isOccupied(changes.getCell(i)));
+					if (i > 0)
+					{
+						assertTrue(changes.getCell(i - 1) < changes.getCell(i));
+					}
+				}
+				changeCount += changes.size();
+			}
+			sent.clear();
+		}
+		assertTrue(changeCount > 1);
+	}
+	
+	public void testUpdate_parallelMatchesSerial() throws Exception
+	{
+		// Reproduction is too infrequent to occur during the run, so that the results do not 
+		// depend on the random numbers drawn during reproduction.
+		placeColonies(this.gameManager, 12, Frequency.VeryInfrequent);
+		this.gameManager.getGameLogicManager().populate(0.6, new Random(3), 0);
+		
+		assertParallelMatchesSerial(this.gameManager, 4, 1000);
+	}
+	
+	public void testUpdate_tiledMatchesSerial() throws Exception
+	{
+		this.gameManager = new GameManager(new ArrayList<String>(), 100, 100);
+		this.gameManager.getGameLogicManager().setTileSize(16);
+		placeColonies(this.gameManager, 1, Frequency.VeryInfrequent);
+		this.gameManager.getGameLogicManager().populate(1, new Random(3), 0);
+		assertTrue(this.gameManager.getGameLogicManager().getOrganismCount() >= GameLogicManager.MIN_TILED_COLONY_SIZE);
+		
+		assertParallelMatchesSerial(this.gameManager, 3, 700);
+	}
+	
+	public void testUpdate_sameSeedSameResult()
+	{
+		List<String> first = runSeeded(42, 1);
+		List<String> second = runSeeded(42, 1);
+		assertFalse(first.isEmpty());
+		assertEquals(first, second);
+		assertFalse(first.equals(runSeeded(43, 1)));
+	}
+	
+	public void testUpdate_parallelWithReproductionMatchesSerial()
+	{
+		assertEquals(runSeeded(42, 1), runSeeded(42, 4));
+	}
+	
+	public void testUpdate_tiledChoosesSameReproducers() throws Exception
+	{
+		// Almost half of the grid is left empty, so that reproduction does not fail for 
+		// lack of an empty position.
+		this.gameManager = new GameManager(new ArrayList<String>(), 128, 128);
+		this.gameManager.getGameLogicManager().setTileSize(8);
+		placeColonies(this.gameManager, 1, Frequency.VeryFrequent);
+		this.gameManager.getGameLogicManager().populate(0.55, new Random(3), 0);
+		drainEvents(this.gameManager.getEventManager());
+		final int organismCount = this.gameManager.getGameLogicManager().getOrganismCount();
+		assertTrue(organismCount >= GameLogicManager.MIN_TILED_COLONY_SIZE);
+		
+		GameManager serial = copy(this.gameManager);
+		GameManager tiled = copy(this.gameManager);
+		tiled.getGameLogicManager().setUpdateThreads(4);
+		
+		// Each tick after the reproductive timeout, the first two ready Organisms reproduce. The
+		// children are placed at random, so only the parents are compared.
+		run(serial, 320);
+		run(tiled, 320);
+		tiled.getGameLogicManager().setUpdateThreads(1);
+		
+		List<Organism> expected = serial.getGameLogicManager().getColonies().get(0).getOrganisms();
+		List<Organism> actual = tiled.getGameLogicManager().getColonies().get(0).getOrganisms();
+		int parents = 0;
+		for (int i = 0; i < organismCount; ++i)
+		{
+			assertEquals(expected.get(i).getDynamicAttributes().getChildCount(), 
+					actual.get(i).getDynamicAttributes().getChildCount());
+			parents += expected.get(i).getDynamicAttributes().getChildCount();
+		}
+		assertTrue(parents > 0);
+	}
+	
+	public void testUpdate_organismsShareColonyAttributes() throws Exception
+	{
+		placeColonies(this.gameManager, 3, Frequency.VeryFrequent);
+		this.gameManager.getGameLogicManager().populate(0.3, new Random(5), 0);
+		run(this.gameManager, 400);
+		
+		assertOrganismsShareColonyAttributes(this.gameManager);
+		assertOrganismsShareColonyAttributes(copy(this.gameManager));
+	}
+	
+	public void testNotify_popIsRoutedToOwningColony()
+	{
+		placeColonies(this.gameManager, 3, Frequency.VeryInfrequent);
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		OrganismManager owner = logicManager.getColonies().get(1);
+		Organism org = owner.getOrganisms().get(0);
+		final int total = logicManager.getOrganismCount();
+		final int ownerCount = owner.getOrganismCount();
+		
+		assertSame(owner, logicManager.findColony(org.getPosition()));
+		logicManager.notify(new OrganismPoppedEvent(org.getPosition()));
+		
+		assertEquals(total - 1, logicManager.getOrganismCount());
+		assertEquals(ownerCount - 1, owner.getOrganismCount());
+		assertNull(logicManager.getWorldGrid().getGridEntity(org.getPosition()));
+		assertNull(logicManager.findColony(org.getPosition()));
+	}
+	
+	public void testNotify_popOfEmptyPositionRemovesNothing()
+	{
+		placeColonies(this.gameManager, 2, Frequency.VeryInfrequent);
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		final int total = logicManager.getOrganismCount();
+		
+		GridPosition empty = new GridPosition(39, 39);
+		assertNull(logicManager.getWorldGrid().getGridEntity(empty));
+		logicManager.notify(new OrganismPoppedEvent(empty));
+		logicManager.notify(new OrganismPoppedEvent(new GridPosition(100, 100)));
+		
+		assertEquals(total, logicManager.getOrganismCount());
+	}
+	
+	public void testNotify_infoRequestIsAnsweredOnce()
+	{
+		placeColonies(this.gameManager, 3, Frequency.VeryInfrequent);
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		EventManager eventManager = this.gameManager.getEventManager();
+		drainEvents(eventManager);
+		
+		final List<OrganismInfo> responses = new ArrayList<OrganismInfo>();
+		eventManager.subscribe(OrganismInfoRequestedResponse.ID, new EventListener() {
+			@Override
+			public void notify(GameEvent<?> event)
+			{
+				responses.add(((OrganismInfoRequestedResponse)event).getData());
+			}
+		});
+		
+		Organism org = logicManager.getColonies().get(2).getOrganisms().get(1);
+		eventManager.notify(new OrganismInfoRequestedEvent(org.getPosition()));
+		drainEvents(eventManager);
+		
+		assertEquals(1, responses.size());
+		assertEquals(org.getPosition(), responses.get(0).getGridPosition());
+	}
+	
+	public void testNotify_allOrganismsRequestIsAnsweredOnce()
+	{
+		placeColonies(this.gameManager, 3, Frequency.VeryInfrequent);
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		EventManager eventManager = this.gameManager.getEventManager();
+		drainEvents(eventManager);
+		
+		final List<OrganismRecords> responses = new ArrayList<OrganismRecords>();
+		eventManager.subscribe(AllOrganismsRequestedResponse.ID, new EventListener() {
+			@Override
+			public void notify(GameEvent<?> event)
+			{
+				responses.add(((AllOrganismsRequestedResponse)event).getData());
+			}
+		});
+		
+		eventManager.notify(new AllOrganismsRequestedEvent());
+		drainEvents(eventManager);
+		
+		assertEquals(1, responses.size());
+		OrganismRecords records = responses.get(0);
+		assertEquals(logicManager.getOrganismCount(), records.size());
+		int i = 0;
+		for (OrganismManager colony : logicManager.getColonies())
+		{
+			for (Organism org : colony.getOrganisms())
+			{
+				assertEquals(org.getCellIndex(), records.getCell(i));
+				assertEquals(org.getName(), records.getName(i));
+				assertSame(org.getStaticAttributes(), records.getStaticAttributes(i));
+				++i;
+			}
+		}
+	}
+	
+	/**
+	 * Checks that no Organism has been dead for longer than the decay period, and that the 
+	 * occupied grid positions are exactly those of the colonies' Organisms.
+	 */
+	private static void assertNoDecayedOrganisms(GameLogicManager logicManager, long decayTicks)
+	{
+		WorldGrid grid = logicManager.getWorldGrid();
+		int occupied = 0;
+		for (int row = 0; row < grid.getRows(); ++row)
+		{
+			for (int column = 0; column < grid.getColumns(); ++column)
+			{
+				if (grid.isOccupied(row, column))
+				{
+					++occupied;
+				}
+			}
+		}
+		assertEquals(occupied, logicManager.getOrganismCount());
+		
+		for (OrganismManager colony : logicManager.getColonies())
+		{
+			for (Organism org : colony.getOrganisms())
+			{
+				assertFalse(org.hasDecayed(decayTicks));
+				assertSame(org, grid.getGridEntity(org.getPosition()));
+			}
+		}
+	}
+	
+	private static void assertOrganismsShareColonyAttributes(GameManager gameManager)
+	{
+		int organismCount = 0;
+		for (OrganismManager colony : gameManager.getGameLogicManager().getColonies())
+		{
+			StaticAttributes shared = colony.getOrganisms().get(0).getStaticAttributes();
+			for (Organism org : colony.getOrganisms())
+			{
+				assertSame(shared, org.getStaticAttributes());
+				assertTrue(org.getMaxAgeTicks() > 0);
+				++organismCount;
+			}
+		}
+		assertTrue(organismCount > 0);
+	}
+	
+	/**
+	 * Creates and runs a game with frequently reproducing colonies, and returns the events
+	 * it raised followed by the positions of all Organisms.
+	 */
+	private static List<String> runSeeded(long seed, int threads)
+	{
+		GameManager gameManager = new GameManager(new ArrayList<String>(), 40, 40, seed);
+		GameLogicManager logicManager = gameManager.getGameLogicManager();
+		logicManager.setUpdateThreads(threads);
+		placeColonies(gameManager, 6, Frequency.VeryFrequent);
+		logicManager.populate(0.2, new Random(seed), 0);
+		
+		List<String> results = run(gameManager, 1500);
+		logicManager.setUpdateThreads(1);
+		for (OrganismManager colony : logicManager.getColonies())
+		{
+			for (Organism org : colony.getOrganisms())
+			{
+				results.add(org.getId() + " " + org.getPosition().getRow() + "," + org.getPosition().getColumn());
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Runs two copies of the game, one with one update thread and one with the specified
+	 * number of update threads, and checks that they raise the same events and end with
+	 * the same Organism states.
+	 */
+	private static void assertParallelMatchesSerial(GameManager gameManager, int threads, int ticks) throws Exception
+	{
+		drainEvents(gameManager.getEventManager());
+		GameManager serial = copy(gameManager);
+		GameManager parallel = copy(gameManager);
+		parallel.getGameLogicManager().setUpdateThreads(threads);
+		
+		List<String> serialEvents = run(serial, ticks);
+		List<String> parallelEvents = run(parallel, ticks);
+		parallel.getGameLogicManager().setUpdateThreads(1);
+		
+		assertFalse(serialEvents.isEmpty());
+		assertEquals(serialEvents, parallelEvents);
+		
+		List<OrganismManager> serialColonies = serial.getGameLogicManager().getColonies();
+		List<OrganismManager> parallelColonies = parallel.getGameLogicManager().getColonies();
+		for (int colony = 0; colony < serialColonies.size(); ++colony)
+		{
+			List<Organism> expected = serialColonies.get(colony).getOrganisms();
+			List<Organism> actual = parallelColonies.get(colony).getOrganisms();
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); ++i)
+			{
+				DynamicAttributes e = expected.get(i).getDynamicAttributes();
+				DynamicAttributes a = actual.get(i).getDynamicAttributes();
+				assertEquals(e.getAgeTicks(), a.getAgeTicks());
+				assertEquals(e.getCrowdHappiness(), a.getCrowdHappiness());
+				assertEquals(e.getHappiness(), a.getHappiness());
+			}
+		}
+	}
+	
+	/**
+	 * Copies the game by saving and loading it.
+	 */
+	private static GameManager copy(GameManager gameManager) throws Exception
+	{
+		ByteArrayOutputStream savedState = new ByteArrayOutputStream();
+		GameStateSerializer.save(gameManager, savedState);
+		return GameStateSerializer.load(new ByteArrayInputStream(savedState.toByteArray()));
+	}
+	
+	private static void placeColonies(GameManager gameManager, int count, Frequency reproductiveFrequency)
+	{
+		StaticAttributes sa = new StaticAttributes(100, 600L, FoodType.Meat, 
+				Diet.Carnivore, Preference.Like, Preference.Dislike, reproductiveFrequency, "Test");
+		for (int i = 0; i < count; ++i)
+		{
+			GridPosition location = new GridPosition((i * 7) % 40, (i * 13) % 40);
+			gameManager.getGameLogicManager().notify(new NewColonyPlacedEvent(new NewColonyPlacedData(sa, location, 9, 0)));
+		}
+	}
+	
+	private static List<String> run(GameManager gameManager, int ticks)
+	{
+		final List<String> events = new ArrayList<String>();
+		EventListener recorder = new EventListener() {
+			@Override
+			public void notify(GameEvent<?> event)
+			{
+				if (event instanceof OrganismDiedEvent)
+				{
+					GridPosition gp = ((OrganismDiedEvent)event).getData();
+					events.add("Died " + gp.getRow() + "," + gp.getColumn());
+				}
+				else
+				{
+					HappinessChanges changes = ((OrganismHappinessChangedEvent)event).getData();
+					for (int i = 0; i < changes.size(); ++i)
+					{
+						events.add("Happiness " + changes.getCell(i) + " " + changes.getHappiness(i));
+					}
+				}
+			}
+		};
+		gameManager.getEventManager().subscribe(OrganismDiedEvent.ID, recorder);
+		gameManager.getEventManager().subscribe(OrganismHappinessChangedEvent.ID, recorder);
+		
+		for (int tick = 0; tick < ticks; ++tick)
+		{
+			gameManager.processUpdates();
+		}
+		drainEvents(gameManager.getEventManager());
+		return events;
+	}
+	
+	private static void drainEvents(EventManager eventManager)
+	{
+		while (eventManager.hasPendingEvents())
+		{
+			eventManager.update(0);
+		}
+	}
+}
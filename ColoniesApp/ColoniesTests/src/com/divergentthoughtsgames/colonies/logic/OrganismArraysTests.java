@@ -0,0 +1,183 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.GameEvent;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismDiedEvent;
+import com.divergentthoughtsgames.colonies.logic.attributes.Diet;
+import com.divergentthoughtsgames.colonies.logic.attributes.FoodType;
+import com.divergentthoughtsgames.colonies.logic.attributes.Frequency;
+import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
+import com.divergentthoughtsgames.colonies.util.SplitRandom;
+
+import junit.framework.TestCase;
+
+public class OrganismArraysTests extends TestCase
+{
+	private GameManager gameManager;
+	private OrganismManager colony;
+	private OrganismArrays arrays;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		
+		this.gameManager = new GameManager(new ArrayList<String>(), 40, 40, 7);
+		GameLogicManager logicManager = this.gameManager.getGameLogicManager();
+		StaticAttributes attributes = StaticAttributes.fromSettings(4, 3, 3, 1, "Test", 2);
+		logicManager.notify(new NewColonyPlacedEvent(new NewColonyPlacedData(attributes, new GridPosition(20, 20), 9, 0)));
+		logicManager.populate(0.5, new SplitRandom(3), 0);
+		
+		this.colony = logicManager.getColonies().get(0);
+		this.arrays = new OrganismArrays(attributes, this.gameManager.getEventManager(), logicManager.getWorldGrid());
+		for (Organism org : this.colony.getOrganisms())
+		{
+			this.arrays.add(org);
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		this.arrays = null;
+		this.colony = null;
+		this.gameManager = null;
+	}
+	
+	public void testOrganismArrays_invalidAttributes()
+	{
+		try {
+			new OrganismArrays(null, this.gameManager.getEventManager(), new WorldGrid());
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testAdd_otherColony()
+	{
+		StaticAttributes other = new StaticAttributes(100, 50000L, FoodType.Meat, 
+				Diet.Carnivore, Preference.Like, Preference.Dislike, Frequency.Frequent, "Other");
+		Organism org = new Organism(other, this.gameManager.getEventManager(), new WorldGrid(), 
+				new GridPosition(1, 1), 0, new SplitRandom(1));
+		try {
+			this.arrays.add(org);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testToOrganism_matchesOrganism()
+	{
+		List<Organism> organisms = this.colony.getOrganisms();
+		assertEquals(organisms.size(), this.arrays.size());
+		for (int i = 0; i < organisms.size(); ++i)
+		{
+			assertSameState(organisms.get(i), this.arrays.toOrganism(i));
+		}
+	}
+	
+	/**
+	 * Updates the Organisms and the arrays for longer than the Organisms live, and checks that 
+	 * they raise the same events and happiness changes, and end in the same state.
+	 */
+	public void testUpdate_matchesOrganismUpdate()
+	{
+		List<Organism> organisms = this.colony.getOrganisms();
+		List<GameEvent<?>> expected = new ArrayList<GameEvent<?>>();
+		List<GameEvent<?>> actual = new ArrayList<GameEvent<?>>();
+		HappinessChanges expectedChanges = new HappinessChanges();
+		HappinessChanges actualChanges = new HappinessChanges();
+		int diedCount = 0;
+		int happinessCount = 0;
+		
+		for (long tick = 1; tick < 2500; ++tick)
+		{
+			for (Organism org : organisms)
+			{
+				org.update(tick, expected, expectedChanges);
+			}
+			this.arrays.update(tick, actual, actualChanges);
+			
+			assertEquals("Tick " + tick, expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); ++i)
+			{
+				GameEvent<?> e = expected.get(i);
+				GameEvent<?> a = actual.get(i);
+				assertEquals(e.getClass(), a.getClass());
+				assertEquals(e.getData(), a.getData());
+				++diedCount;
+			}
+			assertEquals("Tick " + tick, expectedChanges.size(), actualChanges.size());
+			for (int i = 0; i < expectedChanges.size(); ++i)
+			{
+				assertEquals(expectedChanges.getCell(i), actualChanges.getCell(i));
+				assertEquals(expectedChanges.getHappiness(i), actualChanges.getHappiness(i));
+				++happinessCount;
+			}
+			expected.clear();
+			actual.clear();
+			expectedChanges.clear();
+			actualChanges.clear();
+		}
+		
+		assertEquals(organisms.size(), diedCount);
+		assertTrue(happinessCount > 0);
+		for (int i = 0; i < organisms.size(); ++i)
+		{
+			assertSameState(organisms.get(i), this.arrays.toOrganism(i));
+		}
+	}
+	
+	public void testRemove_movesLastOrganism()
+	{
+		final int count = this.arrays.size();
+		final int lastCell = this.arrays.getCellIndex(count - 1);
+		final int removedCell = this.arrays.getCellIndex(1);
+		
+		this.arrays.remove(1);
+		
+		assertEquals(count - 1, this.arrays.size());
+		assertEquals(lastCell, this.arrays.getCellIndex(1));
+		assertEquals(-1, this.arrays.findSlot(removedCell));
+		assertEquals(1, this.arrays.findSlot(lastCell));
+		assertSameState(this.colony.getOrganisms().get(count - 1), this.arrays.toOrganism(1));
+	}
+	
+	public void testRemove_emptySlot()
+	{
+		try {
+			this.arrays.remove(this.arrays.size());
+			fail("Exception expected, but none encountered.");
+		} catch (IndexOutOfBoundsException e) {}
+	}
+	
+	private static void assertSameState(Organism expected, Organism actual)
+	{
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getPosition(), actual.getPosition());
+		assertEquals(expected.getDeathTime(), actual.getDeathTime());
+		assertEquals(expected.getMaxAgeTicks(), actual.getMaxAgeTicks());
+		assertSame(expected.getStaticAttributes(), actual.getStaticAttributes());
+		
+		DynamicAttributes e = expected.getDynamicAttributes();
+		DynamicAttributes a = actual.getDynamicAttributes();
+		assertEquals(e.getAgeTicks(), a.getAgeTicks());
+		assertEquals(e.getHealth(), a.getHealth());
+		assertEquals(e.getHunger(), a.getHunger());
+		assertEquals(e.getCrowdHappiness(), a.getCrowdHappiness());
+		assertEquals(e.getHeatHappiness(), a.getHeatHappiness());
+		assertEquals(e.getLastHappinessLevel(), a.getLastHappinessLevel());
+		assertEquals(e.getReportHappinessAt(), a.getReportHappinessAt());
+		assertEquals(e.isHappinessChangePending(), a.isHappinessChangePending());
+		assertEquals(e.getLastReproducedTicks(), a.getLastReproducedTicks());
+		assertEquals(e.getChildCount(), a.getChildCount());
+		assertEquals(e.getCurrentAction(), a.getCurrentAction());
+		assertEquals(e.getLastActionChangedTicks(), a.getLastActionChangedTicks());
+	}
+}
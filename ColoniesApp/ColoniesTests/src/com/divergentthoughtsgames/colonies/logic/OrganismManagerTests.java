@@ -5,10 +5,12 @@ import java.util.ArrayList;
 import com.divergentthoughtsgames.colonies.GameManager;
 import com.divergentthoughtsgames.colonies.event.EventManager;
 import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.OrganismPoppedEvent;
 import com.divergentthoughtsgames.colonies.logic.attributes.Diet;
 import com.divergentthoughtsgames.colonies.logic.attributes.FoodType;
 import com.divergentthoughtsgames.colonies.logic.attributes.Frequency;
 import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
+import com.divergentthoughtsgames.colonies.util.SplitRandom;
 
 import junit.framework.TestCase;
 
@@ -16,6 +18,8 @@ public class OrganismManagerTests extends TestCase
 {
 	private OrganismManager om;
 	private NewColonyPlacedData ncpd;
+	private WorldGrid worldGrid;
+	private GameManager gameManager;
 
 	@Override
 	protected void setUp() throws Exception
@@ -24,7 +28,9 @@ public class OrganismManagerTests extends TestCase
 		StaticAttributes sa = new StaticAttributes(100, 50000L, FoodType.Meat, 
 				Diet.Carnivore, Preference.Like, Preference.Dislike, Frequency.Frequent, "Test");
 		this.ncpd = new NewColonyPlacedData(sa, new GridPosition(2, 2), 2, 5);
-		this.om = new OrganismManager(this.ncpd, new WorldGrid(), new GameManager(new ArrayList<String>()));
+		this.worldGrid = new WorldGrid();
+		this.gameManager = new GameManager(new ArrayList<String>());
+		this.om = new OrganismManager(this.ncpd, this.worldGrid, this.gameManager, new SplitRandom(1));
 	}
 
 	@Override
@@ -33,12 +39,14 @@ public class OrganismManagerTests extends TestCase
 		super.tearDown();
 		this.om = null;
 		this.ncpd = null;
+		this.worldGrid = null;
+		this.gameManager = null;
 	}
 
 	public void testOrganismManager_invalidStaticAttributes()
 	{
 		try {
-			new OrganismManager(null, new WorldGrid(), new GameManager(new ArrayList<String>()));
+			new OrganismManager(null, new WorldGrid(), new GameManager(new ArrayList<String>()), new SplitRandom(1));
 			fail("Exception expected, but none encountered.");
 		} catch (Exception e) {}
 	}
@@ -46,7 +54,7 @@ public class OrganismManagerTests extends TestCase
 	public void testOrganismManager_invalidWorldGrid()
 	{
 		try {
-			new OrganismManager(this.ncpd, null, new GameManager(new ArrayList<String>()));
+			new OrganismManager(this.ncpd, null, new GameManager(new ArrayList<String>()), new SplitRandom(1));
 			fail("Exception expected, but none encountered.");
 		} catch (Exception e) {}
 	}
@@ -54,7 +62,7 @@ public class OrganismManagerTests extends TestCase
 	public void testOrganismManager_invalidGameManager()
 	{
 		try {
-			new OrganismManager(this.ncpd, new WorldGrid(), null);
+			new OrganismManager(this.ncpd, new WorldGrid(), null, new SplitRandom(1));
 			fail("Exception expected, but none encountered.");
 		} catch (Exception e) {}
 	}
@@ -64,6 +72,55 @@ public class OrganismManagerTests extends TestCase
 		this.om.update(10);
 	}
 	
+	public void testUpdate_pairsAllReadyOrganisms()
+	{
+		this.worldGrid = new WorldGrid(40, 40);
+		OrganismManager colony = new OrganismManager(new NewColonyPlacedData(this.ncpd.getAttributes(), 
+				new GridPosition(20, 20), 9, 5), this.worldGrid, this.gameManager, new SplitRandom(3));
+		assertEquals(9, colony.getOrganismCount());
+		for (Organism org : colony.getOrganisms())
+		{
+			assertTrue(org.isReadyToReproduce(100000));
+		}
+		
+		colony.update(100000);
+		
+		// Four pairs; the ninth Organism waits for a partner.
+		assertEquals(13, colony.getOrganismCount());
+		for (int i = 9; i < colony.getOrganismCount(); ++i)
+		{
+			Organism child = colony.getOrganisms().get(i);
+			assertSame(child, this.worldGrid.getGridEntity(child.getPosition()));
+			assertTrue(bordersColony(child, colony));
+		}
+	}
+	
+	public void testUpdate_noEmptyPositionsNoBirths()
+	{
+		WorldGrid grid = new WorldGrid(3, 3);
+		OrganismManager colony = fillGrid(grid);
+		
+		colony.update(100000);
+		
+		assertEquals(9, colony.getOrganismCount());
+	}
+	
+	public void testUpdate_poppedPositionIsReused()
+	{
+		WorldGrid grid = new WorldGrid(3, 3);
+		OrganismManager colony = fillGrid(grid);
+		colony.update(6);
+		
+		GridPosition popped = colony.getOrganisms().get(4).getPosition();
+		colony.notify(new OrganismPoppedEvent(popped));
+		assertNull(grid.getGridEntity(popped));
+		
+		colony.update(100000);
+		
+		assertEquals(9, colony.getOrganismCount());
+		assertNotNull(grid.getGridEntity(popped));
+	}
+	
 	public void testUpdate_invalidGameTick()
 	{
 		try {
@@ -72,8 +129,87 @@ public class OrganismManagerTests extends TestCase
 		} catch (Exception e) {}
 	}
 
+	public void testPop_removesOrganismAndKeepsSlots()
+	{
+		Organism first = this.om.getOrganisms().get(0);
+		final int count = this.om.getOrganismCount();
+		
+		this.om.notify(new OrganismPoppedEvent(first.getPosition()));
+		
+		assertEquals(count - 1, this.om.getOrganismCount());
+		assertFalse(this.om.getOrganisms().contains(first));
+		assertNull(this.worldGrid.getGridEntity(first.getPosition()));
+		assertNull(this.om.findOrganism(first.getPosition()));
+		for (int i = 0; i < this.om.getOrganismCount(); ++i)
+		{
+			Organism org = this.om.getOrganisms().get(i);
+			assertEquals(i, org.getSlot());
+			assertSame(org, this.om.findOrganism(org.getPosition()));
+		}
+	}
+	
+	public void testPop_emptyPositionRemovesNothing()
+	{
+		final int count = this.om.getOrganismCount();
+		GridPosition empty = new GridPosition(9, 6);
+		assertNull(this.worldGrid.getGridEntity(empty));
+		
+		this.om.notify(new OrganismPoppedEvent(empty));
+		this.om.notify(new OrganismPoppedEvent(new GridPosition(100, 100)));
+		
+		assertEquals(count, this.om.getOrganismCount());
+	}
+	
+	public void testPop_otherColonysOrganismIsNotRemoved()
+	{
+		OrganismManager other = new OrganismManager(new NewColonyPlacedData(this.ncpd.getAttributes(), 
+				new GridPosition(8, 5), 2, 5), this.worldGrid, this.gameManager, new SplitRandom(2));
+		Organism otherOrg = other.getOrganisms().get(0);
+		final int count = this.om.getOrganismCount();
+		
+		this.om.notify(new OrganismPoppedEvent(otherOrg.getPosition()));
+		
+		assertEquals(count, this.om.getOrganismCount());
+		assertSame(otherOrg, this.worldGrid.getGridEntity(otherOrg.getPosition()));
+		assertNull(this.om.findOrganism(otherOrg.getPosition()));
+	}
+	
 	public void testGetId()
 	{
 		assertTrue(this.om.getId() >= Long.MIN_VALUE && this.om.getId() <= Long.MAX_VALUE);
 	}
+	
+	/**
+	 * Places a colony, and fills the rest of the grid with its Organisms.
+	 */
+	private OrganismManager fillGrid(WorldGrid grid)
+	{
+		OrganismManager colony = new OrganismManager(new NewColonyPlacedData(this.ncpd.getAttributes(), 
+				new GridPosition(1, 1), 2, 5), grid, this.gameManager, new SplitRandom(3));
+		for (int row = 0; row < grid.getRows(); ++row)
+		{
+			for (int column = 0; column < grid.getColumns(); ++column)
+			{
+				if (!grid.isOccupied(row, column))
+				{
+					colony.addOrganism(new GridPosition(row, column), 5);
+				}
+			}
+		}
+		assertEquals(grid.getRows() * grid.getColumns(), colony.getOrganismCount());
+		return colony;
+	}
+	
+	private static boolean bordersColony(Organism org, OrganismManager colony)
+	{
+		for (Organism other : colony.getOrganisms())
+		{
+			if (other != org && Math.abs(other.getPosition().getRow() - org.getPosition().getRow()) <= 1 && 
+					Math.abs(other.getPosition().getColumn() - org.getPosition().getColumn()) <= 1)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
 }
@@ -7,6 +7,7 @@ import com.divergentthoughtsgames.colonies.logic.attributes.Diet;
 import com.divergentthoughtsgames.colonies.logic.attributes.FoodType;
 import com.divergentthoughtsgames.colonies.logic.attributes.Frequency;
 import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
+import com.divergentthoughtsgames.colonies.util.SplitRandom;
 
 import junit.framework.TestCase;
 
@@ -24,7 +25,7 @@ public class OrganismTests extends TestCase
 		this.sa = new StaticAttributes(100, 50000L, FoodType.Meat, 
 				Diet.Carnivore, Preference.Like, Preference.Dislike, Frequency.Frequent, "Test");
 		this.em = new EventManager();
-		this.o = new Organism(this.sa, this.em, new WorldGrid(), new GridPosition(1, 2), 10);
+		this.o = new Organism(this.sa, this.em, new WorldGrid(), new GridPosition(1, 2), 10, new SplitRandom(1));
 	}
 
 	@Override
@@ -40,7 +41,7 @@ public class OrganismTests extends TestCase
 	public void testOrganism_invalidGridPosition()
 	{
 		try {
-			new Organism(this.sa, this.em, new WorldGrid(), null, 10);
+			new Organism(this.sa, this.em, new WorldGrid(), null, 10, new SplitRandom(1));
 			fail("Exception expected, but none encountered.");
 		} catch (Exception e) {}
 	}
@@ -48,7 +49,7 @@ public class OrganismTests extends TestCase
 	public void testOrganism_invalidStaticAttributes()
 	{
 		try {
-			new Organism(null, this.em, new WorldGrid(), new GridPosition(10, 10), 10);
+			new Organism(null, this.em, new WorldGrid(), new GridPosition(10, 10), 10, new SplitRandom(1));
 			fail("Exception expected, but none encountered.");
 		} catch (Exception e) {}
 	}
@@ -56,7 +57,7 @@ public class OrganismTests extends TestCase
 	public void testOrganism_invalidOrganismManager()
 	{
 		try {
-			new Organism(this.sa, null, new WorldGrid(), new GridPosition(10, 10), 10);
+			new Organism(this.sa, null, new WorldGrid(), new GridPosition(10, 10), 10, new SplitRandom(1));
 			fail("Exception expected, but none encountered.");
 		} catch (Exception e) {}
 	}
@@ -64,11 +65,43 @@ public class OrganismTests extends TestCase
 	public void testOrganism_invalidGameTick()
 	{
 		try {
-			new Organism(this.sa, this.em, new WorldGrid(), new GridPosition(10, 10), -10);
+			new Organism(this.sa, this.em, new WorldGrid(), new GridPosition(10, 10), -10, new SplitRandom(1));
 			fail("Exception expected, but none encountered.");
 		} catch (Exception e) {}
 	}
 
+	public void testOrganism_invalidRandom()
+	{
+		try {
+			new Organism(this.sa, this.em, new WorldGrid(), new GridPosition(1, 2), 10, null);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testOrganism_sameSeedSameAttributes()
+	{
+		Organism o1 = new Organism(this.sa, this.em, new WorldGrid(), new GridPosition(1, 2), 10, new SplitRandom(7));
+		Organism o2 = new Organism(this.sa, this.em, new WorldGrid(), new GridPosition(1, 2), 10, new SplitRandom(7));
+		assertEquals(o1.getId(), o2.getId());
+		assertEquals(o1.getMaxAgeTicks(), o2.getMaxAgeTicks());
+	}
+	
+	public void testOrganism_differentSeedsJitterMaxAge()
+	{
+		// The maximum age is within 15% of the colony's, and varies between Organisms.
+		final long colonyMaxAge = this.sa.getMaxAgeTicks();
+		boolean isJittered = false;
+		for (int seed = 1; seed <= 10; ++seed)
+		{
+			Organism o = new Organism(this.sa, this.em, new WorldGrid(), new GridPosition(1, 2), 10, new SplitRandom(seed));
+			assertTrue(o.getMaxAgeTicks() >= colonyMaxAge * 85 / 100);
+			assertTrue(o.getMaxAgeTicks() <= colonyMaxAge * 115 / 100);
+			assertEquals(colonyMaxAge, o.getStaticAttributes().getMaxAgeTicks());
+			isJittered |= (o.getMaxAgeTicks() != colonyMaxAge);
+		}
+		assertTrue(isJittered);
+	}
+
 	public void testGetStaticAttributes()
 	{
 		assertTrue(this.o.getStaticAttributes() != null);
@@ -0,0 +1,223 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.EventManager;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.OrganismPoppedEvent;
+import com.divergentthoughtsgames.colonies.logic.attributes.Diet;
+import com.divergentthoughtsgames.colonies.logic.attributes.FoodType;
+import com.divergentthoughtsgames.colonies.logic.attributes.Frequency;
+import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
+import com.divergentthoughtsgames.colonies.util.SplitRandom;
+
+import junit.framework.TestCase;
+
+public class WorldGridTests extends TestCase
+{
+	private WorldGrid grid;
+	
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		this.grid = new WorldGrid();
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		this.grid = null;
+	}
+	
+	public void testGetGridEntity_empty()
+	{
+		assertNull(this.grid.getGridEntity(new GridPosition(1, 1)));
+		assertNull(this.grid.getGridEntity(1, 1));
+		assertFalse(this.grid.isOccupied(1, 1));
+	}
+	
+	public void testGetGridEntity_invalidRow()
+	{
+		try {
+			this.grid.getGridEntity(this.grid.getRows(), 0);
+			fail("Exception expected, but none encountered.");
+		} catch (Exception e) {}
+	}
+	
+	public void testSetGridEntity()
+	{
+		Organism o = createOrganism(new GridPosition(2, 3));
+		this.grid.setGridEntity(o.getPosition(), o);
+		
+		int index = this.grid.toIndex(2, 3);
+		assertSame(o, this.grid.getGridEntity(2, 3));
+		assertSame(o, this.grid.getGridEntity(index));
+		assertTrue(this.grid.isOccupied(index));
+		assertEquals(2, this.grid.getRow(index));
+		assertEquals(3, this.grid.getColumn(index));
+	}
+	
+	public void testNeighborCount_setAndClear()
+	{
+		GridPosition center = new GridPosition(1, 1);
+		for (int row = 0; row <= 2; ++row)
+		{
+			for (int column = 0; column <= 2; ++column)
+			{
+				GridPosition gp = new GridPosition(row, column);
+				if (!gp.equals(center))
+				{
+					this.grid.setGridEntity(gp, createOrganism(gp));
+				}
+			}
+		}
+		assertEquals(8, this.grid.getNeighborCount(this.grid.toIndex(1, 1)));
+		assertEquals(2, this.grid.getNeighborCount(this.grid.toIndex(0, 0)));
+		
+		this.grid.setGridEntity(new GridPosition(0, 0), null);
+		assertEquals(7, this.grid.getNeighborCount(this.grid.toIndex(1, 1)));
+		assertEquals(-1, this.grid.findInconsistentNeighborCount());
+	}
+	
+	public void testNeighborCount_replaceDoesNotDoubleCount()
+	{
+		GridPosition gp = new GridPosition(0, 0);
+		this.grid.setGridEntity(gp, createOrganism(gp));
+		this.grid.setGridEntity(gp, createOrganism(gp));
+		assertEquals(1, this.grid.getNeighborCount(this.grid.toIndex(0, 1)));
+		assertEquals(-1, this.grid.findInconsistentNeighborCount());
+	}
+	
+	public void testNeighborCount_birthsPopsAndDeaths()
+	{
+		// Short lived, frequently reproducing colonies, so that births and deaths both occur.
+		StaticAttributes sa = new StaticAttributes(100, 1500L, FoodType.Meat, 
+				Diet.Carnivore, Preference.Like, Preference.Dislike, Frequency.VeryFrequent, "Test");
+		GameManager gm = new GameManager(new ArrayList<String>());
+		OrganismManager om1 = new OrganismManager(new NewColonyPlacedData(sa, new GridPosition(2, 2), 9, 0), this.grid, gm, new SplitRandom(1));
+		OrganismManager om2 = new OrganismManager(new NewColonyPlacedData(sa, new GridPosition(7, 4), 9, 0), this.grid, gm, new SplitRandom(1));
+		assertEquals(-1, this.grid.findInconsistentNeighborCount());
+		
+		for (long tick = 1; tick < 3000; ++tick)
+		{
+			om1.update(tick);
+			om2.update(tick);
+			
+			if (tick % 250 == 0)
+			{
+				om1.notify(new OrganismPoppedEvent(new GridPosition(2, 2)));
+				om2.notify(new OrganismPoppedEvent(new GridPosition(7, 4)));
+			}
+			if (tick % 50 == 0)
+			{
+				assertEquals("Inconsistent neighbor count at tick " + tick, -1, this.grid.findInconsistentNeighborCount());
+			}
+		}
+		assertEquals(-1, this.grid.findInconsistentNeighborCount());
+	}
+	
+	public void testWorldGrid_invalidDimensions()
+	{
+		try {
+			new WorldGrid(0, 10);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testContains()
+	{
+		this.grid = new WorldGrid(100, 50);
+		assertTrue(this.grid.contains(new GridPosition(99, 49)));
+		assertFalse(this.grid.contains(new GridPosition(100, 0)));
+		assertFalse(this.grid.contains(new GridPosition(0, 50)));
+		assertFalse(new WorldGrid().contains(new GridPosition(99, 49)));
+	}
+	
+	public void testSetGridEntity_outsideGrid()
+	{
+		try {
+			this.grid.setGridEntity(new GridPosition(this.grid.getRows(), 0), null);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testToIndex_roundTrip()
+	{
+		this.grid = new WorldGrid(1000, 70);
+		for (int row = 0; row < this.grid.getRows(); row += 7)
+		{
+			for (int column = 0; column < this.grid.getColumns(); ++column)
+			{
+				int index = this.grid.toIndex(row, column);
+				assertEquals(row, this.grid.getRow(index));
+				assertEquals(column, this.grid.getColumn(index));
+			}
+		}
+	}
+	
+	public void testGetNeighbors()
+	{
+		this.grid = new WorldGrid(100, 50);
+		int[] neighbors = new int[8];
+		assertEquals(3, this.grid.getNeighbors(this.grid.toIndex(0, 0), neighbors));
+		assertEquals(5, this.grid.getNeighbors(this.grid.toIndex(99, 20), neighbors));
+		assertEquals(8, this.grid.getNeighbors(this.grid.toIndex(63, 31), neighbors));
+		for (int i = 0; i < 8; ++i)
+		{
+			assertTrue(Math.abs(this.grid.getRow(neighbors[i]) - 63) <= 1);
+			assertTrue(Math.abs(this.grid.getColumn(neighbors[i]) - 31) <= 1);
+			assertTrue(neighbors[i] != this.grid.toIndex(63, 31));
+		}
+	}
+	
+	public void testChunks_allocatedOnlyNearEntities()
+	{
+		this.grid = new WorldGrid(1 << 14, 1 << 14);
+		assertEquals(0, this.grid.getAllocatedChunkCount());
+		
+		// A single entity in the interior of a chunk only requires that chunk.
+		GridPosition interior = new GridPosition(5000, 5000);
+		Organism o = createOrganism(interior);
+		this.grid.setGridEntity(interior, o);
+		assertEquals(1, this.grid.getAllocatedChunkCount());
+		assertSame(o, this.grid.getGridEntity(interior));
+		
+		this.grid.setGridEntity(interior, null);
+		assertEquals(0, this.grid.getAllocatedChunkCount());
+		
+		// An entity at the corner of a chunk borders three other chunks.
+		int corner = WorldGrid.CHUNK_SIZE * 10;
+		GridPosition gp = new GridPosition(corner, corner);
+		this.grid.setGridEntity(gp, createOrganism(gp));
+		assertEquals(4, this.grid.getAllocatedChunkCount());
+		assertEquals(1, this.grid.getNeighborCount(this.grid.toIndex(corner - 1, corner - 1)));
+		assertEquals(1, this.grid.getNeighborCount(this.grid.toIndex(corner - 1, corner)));
+		assertEquals(1, this.grid.getNeighborCount(this.grid.toIndex(corner, corner - 1)));
+		
+		this.grid.setGridEntity(gp, null);
+		assertEquals(0, this.grid.getAllocatedChunkCount());
+	}
+	
+	public void testNeighborCount_acrossChunks()
+	{
+		this.grid = new WorldGrid(WorldGrid.CHUNK_SIZE * 3, WorldGrid.CHUNK_SIZE * 3 + 5);
+		Random rand = new Random(7);
+		for (int i = 0; i < 5000; ++i)
+		{
+			GridPosition gp = new GridPosition(rand.nextInt(this.grid.getRows()), rand.nextInt(this.grid.getColumns()));
+			this.grid.setGridEntity(gp, rand.nextBoolean() ? createOrganism(gp) : null);
+		}
+		assertEquals(-1, this.grid.findInconsistentNeighborCount());
+	}
+	
+	private Organism createOrganism(GridPosition gp)
+	{
+		StaticAttributes sa = new StaticAttributes(100, 50000L, FoodType.Meat, 
+				Diet.Carnivore, Preference.Like, Preference.Dislike, Frequency.Frequent, "Test");
+		return new Organism(sa, new EventManager(), this.grid, gp, 10, new SplitRandom(1));
+	}
+}
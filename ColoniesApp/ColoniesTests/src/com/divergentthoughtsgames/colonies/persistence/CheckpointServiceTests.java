@@ -0,0 +1,388 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismPoppedEvent;
+import com.divergentthoughtsgames.colonies.logic.DynamicAttributes;
+import com.divergentthoughtsgames.colonies.logic.GameLogicManager;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.Organism;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+import com.divergentthoughtsgames.colonies.logic.WorldGrid;
+import com.divergentthoughtsgames.colonies.logic.attributes.Action;
+
+import junit.framework.TestCase;
+
+public class CheckpointServiceTests extends TestCase
+{
+	private GameManager gameManager;
+	private File file;
+	private CheckpointService service;
+	
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		this.gameManager = new GameManager(Arrays.asList("Ann", "Bo"), 40, 40, 5);
+		GameLogicManager logic = this.gameManager.getGameLogicManager();
+		for (int i = 0; i < 2; ++i)
+		{
+			StaticAttributes sa = StaticAttributes.fromSettings(i + 1, 3, 2, 1, "Colony " + i, 1);
+			logic.notify(new NewColonyPlacedEvent(new NewColonyPlacedData(sa, new GridPosition(i * 20, i * 20), 9, 0)));
+		}
+		logic.populate(0.3, new Random(7), 0);
+		run(this.gameManager, 50);
+		
+		this.file = File.createTempFile("checkpoint", ".colonies");
+		this.file.delete();
+		this.service = new CheckpointService(this.file);
+	}
+	
+	@Override
+	protected void tearDown() throws Exception
+	{
+		this.service.shutdown();
+		this.file.delete();
+		this.service.getLogFile().delete();
+		new File(this.file.getPath() + ".tmp").delete();
+		new File(this.service.getLogFile().getPath() + ".tmp").delete();
+		super.tearDown();
+	}
+	
+	public void testConstructor_invalidFile()
+	{
+		try {
+			new CheckpointService(null);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testConstructor_invalidMaxIncrementalCheckpoints()
+	{
+		try {
+			new CheckpointService(this.file, -1);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testCheckpoint_invalidGameManager() throws IOException
+	{
+		try {
+			this.service.checkpoint(null);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testCheckpoint_writesFileAndRemovesTemporaryFile() throws Exception
+	{
+		this.service.checkpoint(this.gameManager).get();
+		
+		assertTrue(this.file.exists());
+		assertFalse(new File(this.file.getPath() + ".tmp").exists());
+		assertTrue(Arrays.equals(save(this.gameManager), readFile(this.file)));
+	}
+	
+	public void testCheckpoint_snapshotIsNotAffectedByLaterTicks() throws Exception
+	{
+		final byte[] expected = save(this.gameManager);
+		this.service.checkpoint(this.gameManager);
+		run(this.gameManager, 50);
+		
+		assertTrue(this.service.awaitWrites(10, TimeUnit.SECONDS));
+		assertTrue(Arrays.equals(expected, readFile(this.file)));
+	}
+	
+	public void testCheckpoint_loadReplaysIncrementalCheckpoints() throws Exception
+	{
+		for (int i = 0; i < 10; ++i)
+		{
+			run(this.gameManager, 5);
+			this.service.checkpoint(this.gameManager);
+		}
+		GameManager loaded = this.service.load();
+		
+		assertTrue(this.service.getLogFile().length() > CheckpointLog.HEADER_LENGTH);
+		assertTrue(Arrays.equals(save(this.gameManager), save(loaded)));
+		assertEquals(-1, loaded.getGameLogicManager().getWorldGrid().findInconsistentNeighborCount());
+	}
+	
+	public void testCheckpoint_replaysCurrentActionChanges() throws Exception
+	{
+		this.service.checkpoint(this.gameManager);
+		Organism organism = firstOrganism(this.gameManager);
+		DynamicAttributes da = organism.getDynamicAttributes();
+		Action action = (da.getCurrentAction() == Action.Fighting) ? Action.Sleeping : Action.Fighting;
+		da.setCurrentAction(action, this.gameManager.getGameTicks());
+		this.service.checkpoint(this.gameManager);
+		GameManager loaded = this.service.load();
+	
+		DynamicAttributes loadedDa = firstOrganism(loaded).getDynamicAttributes();
+		assertEquals(action, loadedDa.getCurrentAction());
+		assertEquals(this.gameManager.getGameTicks(), loadedDa.getLastActionChangedTicks());
+		assertTrue(Arrays.equals(save(this.gameManager), save(loaded)));
+	}
+	
+	public void testCheckpoint_loadedGameContinuesIdentically() throws Exception
+	{
+		this.service.checkpoint(this.gameManager);
+		run(this.gameManager, 400);
+		this.service.checkpoint(this.gameManager);
+		GameManager loaded = this.service.load();
+		
+		run(this.gameManager, 200);
+		run(loaded, 200);
+		assertTrue(Arrays.equals(save(this.gameManager), save(loaded)));
+	}
+	
+	public void testCheckpoint_incrementalCheckpointIsSmall() throws Exception
+	{
+		this.service.checkpoint(this.gameManager);
+		run(this.gameManager, 1);
+		this.service.checkpoint(this.gameManager);
+		assertTrue(this.service.awaitWrites(10, TimeUnit.SECONDS));
+		
+		final long recordLength = this.service.getLogFile().length() - CheckpointLog.HEADER_LENGTH;
+		assertTrue(recordLength > 0);
+		assertTrue(recordLength * 4 < this.file.length());
+	}
+	
+	public void testCheckpoint_replaysPopsAndNewColonies() throws Exception
+	{
+		this.service.checkpoint(this.gameManager);
+		
+		GameLogicManager logic = this.gameManager.getGameLogicManager();
+		WorldGrid grid = logic.getWorldGrid();
+		int popped = 0;
+		for (int row = 0; row < grid.getRows() && popped < 3; ++row)
+		{
+			for (int column = 0; column < grid.getColumns() && popped < 3; ++column)
+			{
+				if (grid.getGridEntity(row, column) != null)
+				{
+					this.gameManager.getEventManager().notify(new OrganismPoppedEvent(new GridPosition(row, column)));
+					++popped;
+				}
+			}
+		}
+		StaticAttributes sa = StaticAttributes.fromSettings(4, 1, 3, 2, "Colony 2", 2);
+		logic.notify(new NewColonyPlacedEvent(new NewColonyPlacedData(sa, new GridPosition(35, 5), 9, 0)));
+		run(this.gameManager, 20);
+		this.service.checkpoint(this.gameManager);
+		run(this.gameManager, 20);
+		this.service.checkpoint(this.gameManager);
+		
+		GameManager loaded = this.service.load();
+		assertEquals(3, loaded.getGameLogicManager().getColonyCount());
+		assertTrue(Arrays.equals(save(this.gameManager), save(loaded)));
+	}
+	
+	public void testCheckpoint_replaysPopsOfCheckpointedAndBornOrganisms() throws Exception
+	{
+		this.service.checkpoint(this.gameManager);
+		GameLogicManager logic = this.gameManager.getGameLogicManager();
+		final int checkpointedCount = logic.getOrganismCount();
+		run(this.gameManager, 1250);
+		assertTrue(logic.getOrganismCount() > checkpointedCount);
+		
+		for (int i = 0; i < 3; ++i)
+		{
+			popEvery(this.gameManager, 5 + i);
+			run(this.gameManager, 10);
+			this.service.checkpoint(this.gameManager);
+		}
+		
+		GameManager loaded = this.service.load();
+		assertTrue(Arrays.equals(save(this.gameManager), save(loaded)));
+		assertEquals(-1, loaded.getGameLogicManager().getWorldGrid().findInconsistentNeighborCount());
+	}
+	
+	public void testCheckpoint_compactsLog() throws Exception
+	{
+		CheckpointService service = new CheckpointService(this.file, 2);
+		try
+		{
+			for (int i = 0; i < 3; ++i)
+			{
+				service.checkpoint(this.gameManager);
+				run(this.gameManager, 5);
+			}
+			assertTrue(service.awaitWrites(10, TimeUnit.SECONDS));
+			assertTrue(service.getLogFile().length() > CheckpointLog.HEADER_LENGTH);
+			
+			// The fourth checkpoint exceeds the maximum number of incremental checkpoints.
+			service.checkpoint(this.gameManager).get();
+			assertEquals(CheckpointLog.HEADER_LENGTH, service.getLogFile().length());
+			assertTrue(Arrays.equals(save(this.gameManager), readFile(this.file)));
+		}
+		finally
+		{
+			service.shutdown();
+			service.getLogFile().delete();
+		}
+	}
+	
+	public void testCheckpoint_newGameTakesFullCheckpoint() throws Exception
+	{
+		this.service.checkpoint(this.gameManager);
+		run(this.gameManager, 5);
+		this.service.checkpoint(this.gameManager);
+		
+		GameManager other = new GameManager(Arrays.asList("Cy"), 20, 20, 9);
+		this.service.checkpoint(other).get();
+		
+		assertEquals(CheckpointLog.HEADER_LENGTH, this.service.getLogFile().length());
+		assertTrue(Arrays.equals(save(other), readFile(this.file)));
+	}
+	
+	public void testLoad_ignoresPartlyWrittenRecord() throws Exception
+	{
+		this.service.checkpoint(this.gameManager);
+		run(this.gameManager, 5);
+		this.service.checkpoint(this.gameManager);
+		final byte[] expected = save(this.gameManager);
+		run(this.gameManager, 5);
+		this.service.checkpoint(this.gameManager);
+		assertTrue(this.service.awaitWrites(10, TimeUnit.SECONDS));
+		
+		// Cut the last record short, as if the game had stopped while it was being appended.
+		RandomAccessFile log = new RandomAccessFile(this.service.getLogFile(), "rw");
+		try
+		{
+			log.setLength(log.length() - 3);
+		}
+		finally
+		{
+			log.close();
+		}
+		
+		assertTrue(Arrays.equals(expected, save(this.service.load())));
+	}
+	
+	public void testLoad_ignoresLogOfEarlierFullCheckpoint() throws Exception
+	{
+		this.service.checkpoint(this.gameManager);
+		run(this.gameManager, 5);
+		this.service.checkpoint(this.gameManager);
+		assertTrue(this.service.awaitWrites(10, TimeUnit.SECONDS));
+		
+		// Replace the checkpoint file with a different full save.
+		run(this.gameManager, 5);
+		final byte[] expected = save(this.gameManager);
+		FileOutputStream out = new FileOutputStream(this.file);
+		try
+		{
+			out.write(expected);
+		}
+		finally
+		{
+			out.close();
+		}
+		
+		assertTrue(Arrays.equals(expected, save(this.service.load())));
+	}
+	
+	public void testLoad() throws Exception
+	{
+		this.service.checkpoint(this.gameManager);
+		GameManager loaded = this.service.load();
+		
+		assertEquals(this.gameManager.getGameTicks(), loaded.getGameTicks());
+		assertEquals(this.gameManager.getGameLogicManager().getOrganismCount(), 
+				loaded.getGameLogicManager().getOrganismCount());
+	}
+	
+	public void testLoad_missingFile() throws Exception
+	{
+		try {
+			this.service.load();
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	
+	/**
+	 * Returns the first Organism on the grid, in row order.
+	 */
+	private static Organism firstOrganism(GameManager gameManager)
+	{
+		WorldGrid grid = gameManager.getGameLogicManager().getWorldGrid();
+		for (int row = 0; row < grid.getRows(); ++row)
+		{
+			for (int column = 0; column < grid.getColumns(); ++column)
+			{
+				if (grid.getGridEntity(row, column) instanceof Organism)
+				{
+					return (Organism)grid.getGridEntity(row, column);
+				}
+			}
+		}
+		fail("No Organism on the grid.");
+		return null;
+	}
+	
+	/**
+	 * Pops every nth Organism on the grid, in row order.
+	 */
+	private static void popEvery(GameManager gameManager, int n)
+	{
+		WorldGrid grid = gameManager.getGameLogicManager().getWorldGrid();
+		int occupied = 0;
+		for (int row = 0; row < grid.getRows(); ++row)
+		{
+			for (int column = 0; column < grid.getColumns(); ++column)
+			{
+				if (grid.getGridEntity(row, column) != null && occupied++ % n == 0)
+				{
+					gameManager.getEventManager().notify(new OrganismPoppedEvent(new GridPosition(row, column)));
+				}
+			}
+		}
+		gameManager.getEventManager().update(gameManager.getGameTicks());
+	}
+	
+	private static void run(GameManager gameManager, int ticks)
+	{
+		for (int i = 0; i < ticks; ++i)
+		{
+			gameManager.processUpdates();
+		}
+	}
+	
+	private static byte[] save(GameManager gameManager) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GameStateSerializer.save(gameManager, out);
+		return out.toByteArray();
+	}
+	
+	private static byte[] readFile(File file) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) != -1)
+			{
+				out.write(buffer, 0, count);
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		return out.toByteArray();
+	}
+}
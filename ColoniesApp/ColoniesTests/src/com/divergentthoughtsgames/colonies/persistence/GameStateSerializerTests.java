@@ -0,0 +1,186 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.DispatchPolicy;
+import com.divergentthoughtsgames.colonies.event.EventManager;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.logic.GameLogicManager;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+
+import junit.framework.TestCase;
+
+public class GameStateSerializerTests extends TestCase
+{
+	private GameManager gameManager;
+	
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		this.gameManager = new GameManager(Arrays.asList("Ann", "Bo", "Cy"), 60, 50, 23);
+		GameLogicManager logic = this.gameManager.getGameLogicManager();
+		for (int i = 0; i < 3; ++i)
+		{
+			StaticAttributes sa = StaticAttributes.fromSettings(i + 1, 3, 2, 1, "Colony " + i, 1);
+			logic.notify(new NewColonyPlacedEvent(new NewColonyPlacedData(sa, new GridPosition(i * 20, i * 15), 9, 0)));
+		}
+		logic.populate(0.4, new Random(3), 0);
+		run(this.gameManager, 400);
+	}
+	
+	public void testSave_invalidGameManager() throws IOException
+	{
+		try {
+			GameStateSerializer.save(null, new ByteArrayOutputStream());
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testSaveLoad_restoresWorld() throws Exception
+	{
+		GameManager loaded = copy(this.gameManager);
+		
+		assertEquals(this.gameManager.getGameTicks(), loaded.getGameTicks());
+		GameLogicManager expected = this.gameManager.getGameLogicManager();
+		GameLogicManager actual = loaded.getGameLogicManager();
+		assertEquals(expected.getColonyCount(), actual.getColonyCount());
+		assertEquals(expected.getOrganismCount(), actual.getOrganismCount());
+		assertEquals(expected.getSeed(), actual.getSeed());
+		assertEquals(expected.getWorldGrid().getRows(), actual.getWorldGrid().getRows());
+		assertEquals(expected.getWorldGrid().getColumns(), actual.getWorldGrid().getColumns());
+		assertEquals(-1, actual.getWorldGrid().findInconsistentNeighborCount());
+		
+		// A saved game that is loaded and saved again is unchanged.
+		assertTrue(Arrays.equals(save(this.gameManager), save(loaded)));
+	}
+	
+	public void testSaveLoad_loadedGameContinuesIdentically() throws Exception
+	{
+		GameManager loaded = copy(this.gameManager);
+		run(this.gameManager, 300);
+		run(loaded, 300);
+		
+		assertEquals(this.gameManager.getGameLogicManager().getOrganismCount(), 
+				loaded.getGameLogicManager().getOrganismCount());
+		assertTrue(Arrays.equals(save(this.gameManager), save(loaded)));
+	}
+	
+	public void testSaveLoad_keepsQueuedColonyPlacementAndDispatchPolicy() throws Exception
+	{
+		StaticAttributes sa = StaticAttributes.fromSettings(3, 3, 3, 3, "Late", 2);
+		this.gameManager.getEventManager().notify(
+				new NewColonyPlacedEvent(new NewColonyPlacedData(sa, new GridPosition(30, 30), 4, 400)));
+		this.gameManager.getEventManager().setDispatchPolicy(DispatchPolicy.fixedCount(7));
+		
+		GameManager loaded = copy(this.gameManager);
+		assertEquals(DispatchPolicy.fixedCount(7), loaded.getEventManager().getDispatchPolicy());
+		
+		final int colonies = loaded.getGameLogicManager().getColonyCount();
+		drainEvents(loaded.getEventManager());
+		assertEquals(colonies + 1, loaded.getGameLogicManager().getColonyCount());
+	}
+	
+	public void testSave_smallerThanJavaSerialization() throws Exception
+	{
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(serialized);
+		oos.writeObject(this.gameManager);
+		oos.close();
+		
+		assertTrue(save(this.gameManager).length * 4 < serialized.size());
+	}
+	
+	public void testLoad_javaSerializedGame() throws Exception
+	{
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(serialized);
+		oos.writeObject(this.gameManager);
+		oos.close();
+		
+		try {
+			GameStateSerializer.load(new ByteArrayInputStream(serialized.toByteArray()));
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	public void testLoad_damagedGame() throws Exception
+	{
+		byte[] data = save(this.gameManager);
+		data[data.length / 2] ^= 0x10;
+		try {
+			GameStateSerializer.load(new ByteArrayInputStream(data));
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	public void testLoad_truncatedGame() throws Exception
+	{
+		byte[] data = save(this.gameManager);
+		try {
+			GameStateSerializer.load(new ByteArrayInputStream(data, 0, data.length - 10));
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	public void testLoad_notASavedGame() throws Exception
+	{
+		try {
+			GameStateSerializer.load(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6 }));
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	public void testLoad_newerVersion() throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GameStateWriter writer = new GameStateWriter(bytes);
+		writer.writeInt(GameStateSerializer.MAGIC);
+		writer.writeVarInt(GameStateSerializer.FORMAT_VERSION + 1);
+		writer.finish();
+		try {
+			GameStateSerializer.load(new ByteArrayInputStream(bytes.toByteArray()));
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	
+	private static byte[] save(GameManager gameManager) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GameStateSerializer.save(gameManager, bytes);
+		return bytes.toByteArray();
+	}
+	
+	private static GameManager copy(GameManager gameManager) throws Exception
+	{
+		return GameStateSerializer.load(new ByteArrayInputStream(save(gameManager)));
+	}
+	
+	private static void run(GameManager gameManager, int ticks)
+	{
+		for (int tick = 0; tick < ticks; ++tick)
+		{
+			gameManager.processUpdates();
+		}
+		drainEvents(gameManager.getEventManager());
+	}
+	
+	private static void drainEvents(EventManager eventManager)
+	{
+		while (eventManager.hasPendingEvents())
+		{
+			eventManager.update(0);
+		}
+	}
+}
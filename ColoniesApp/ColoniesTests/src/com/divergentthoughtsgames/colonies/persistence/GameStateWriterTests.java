@@ -0,0 +1,180 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+
+import junit.framework.TestCase;
+
+public class GameStateWriterTests extends TestCase
+{
+	private ByteArrayOutputStream bytes;
+	private GameStateWriter writer;
+	
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		this.bytes = new ByteArrayOutputStream();
+		this.writer = new GameStateWriter(this.bytes);
+	}
+	
+	public void testConstructor_invalidStream()
+	{
+		try {
+			new GameStateWriter((java.io.OutputStream)null);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testRoundTrip_fixedWidthValues() throws IOException
+	{
+		this.writer.writeByte(-3);
+		this.writer.writeBoolean(true);
+		this.writer.writeInt(Integer.MIN_VALUE);
+		this.writer.writeLong(0x0123456789abcdefL);
+		this.writer.writeFloat(12.5f);
+		
+		GameStateReader reader = finish();
+		assertEquals(-3, reader.readByte());
+		assertTrue(reader.readBoolean());
+		assertEquals(Integer.MIN_VALUE, reader.readInt());
+		assertEquals(0x0123456789abcdefL, reader.readLong());
+		assertEquals(12.5f, reader.readFloat());
+		reader.verifyChecksum();
+	}
+	
+	public void testRoundTrip_varints() throws IOException
+	{
+		long[] values = { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1, Long.MIN_VALUE };
+		for (long value : values)
+		{
+			this.writer.writeVarLong(value);
+			this.writer.writeSignedVarLong(value);
+		}
+		this.writer.writeVarInt(300);
+		
+		GameStateReader reader = finish();
+		for (long value : values)
+		{
+			assertEquals(value, reader.readVarLong());
+			assertEquals(value, reader.readSignedVarLong());
+		}
+		assertEquals(300, reader.readVarInt());
+		reader.verifyChecksum();
+	}
+	
+	public void testWriteVarLong_smallValuesAreOneByte() throws IOException
+	{
+		this.writer.writeVarLong(127);
+		this.writer.writeSignedVarLong(-64);
+		assertEquals(2, this.writer.getBytesWritten());
+	}
+	
+	public void testWriteVarInt_negativeValue() throws IOException
+	{
+		try {
+			this.writer.writeVarInt(-1);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testRoundTrip_strings() throws IOException
+	{
+		StringBuilder longString = new StringBuilder();
+		for (int i = 0; i < 100000; ++i)
+		{
+			longString.append((char)('a' + i % 26));
+		}
+		
+		this.writer.writeString(null);
+		this.writer.writeString("");
+		this.writer.writeString("Kolonie \u00fc\u4e16");
+		this.writer.writeString(longString.toString());
+		
+		GameStateReader reader = finish();
+		assertNull(reader.readString());
+		assertEquals("", reader.readString());
+		assertEquals("Kolonie \u00fc\u4e16", reader.readString());
+		assertEquals(longString.toString(), reader.readString());
+		reader.verifyChecksum();
+	}
+	
+	public void testRoundTrip_sharedStrings() throws IOException
+	{
+		this.writer.writeSharedString("Bob");
+		this.writer.writeSharedString("Alice");
+		final long bytesBefore = this.writer.getBytesWritten();
+		this.writer.writeSharedString("Bob");
+		assertEquals(1, this.writer.getBytesWritten() - bytesBefore);
+		this.writer.writeSharedString(null);
+		
+		GameStateReader reader = finish();
+		assertEquals("Bob", reader.readSharedString());
+		assertEquals("Alice", reader.readSharedString());
+		assertEquals("Bob", reader.readSharedString());
+		assertNull(reader.readSharedString());
+		reader.verifyChecksum();
+	}
+	
+	public void testRoundTrip_enums() throws IOException
+	{
+		this.writer.writeEnum(Happiness.Unhappy);
+		this.writer.writeEnum(null);
+		
+		GameStateReader reader = finish();
+		assertEquals(Happiness.Unhappy, reader.readEnum(Happiness.values()));
+		assertNull(reader.readEnum(Happiness.values()));
+	}
+	
+	public void testReadEnum_invalidOrdinal() throws IOException
+	{
+		this.writer.writeVarInt(10);
+		try {
+			finish().readEnum(Happiness.values());
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	public void testVerifyChecksum_damagedData() throws IOException
+	{
+		for (int i = 0; i < 1000; ++i)
+		{
+			this.writer.writeInt(i);
+		}
+		this.writer.finish();
+		byte[] data = this.bytes.toByteArray();
+		data[500] ^= 1;
+		
+		GameStateReader reader = new GameStateReader(new ByteArrayInputStream(data));
+		for (int i = 0; i < 1000; ++i)
+		{
+			reader.readInt();
+		}
+		try {
+			reader.verifyChecksum();
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	public void testRead_pastEnd() throws IOException
+	{
+		this.writer.writeByte(1);
+		GameStateReader reader = finish();
+		reader.readByte();
+		reader.readInt();
+		try {
+			reader.readLong();
+			fail("Exception expected, but none encountered.");
+		} catch (EOFException e) {}
+	}
+	
+	private GameStateReader finish() throws IOException
+	{
+		this.writer.finish();
+		return new GameStateReader(new ByteArrayInputStream(this.bytes.toByteArray()));
+	}
+}
@@ -0,0 +1,222 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.logic.DynamicAttributes;
+import com.divergentthoughtsgames.colonies.logic.GameLogicManager;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.Organism;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+import com.divergentthoughtsgames.colonies.logic.WorldGrid;
+
+import junit.framework.TestCase;
+
+public class MappedWorldFileTests extends TestCase
+{
+	private GameManager gameManager;
+	private File file;
+	
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		this.gameManager = new GameManager(Arrays.asList("Ann", "Bo"), 45, 30, 11);
+		GameLogicManager logic = this.gameManager.getGameLogicManager();
+		for (int i = 0; i < 2; ++i)
+		{
+			StaticAttributes sa = StaticAttributes.fromSettings(i + 1, 3, 2, 1, "Colony " + i, 1);
+			logic.notify(new NewColonyPlacedEvent(new NewColonyPlacedData(sa, new GridPosition(i * 30, i * 20), 9, 0)));
+		}
+		logic.populate(0.5, new Random(5), 0);
+		for (int i = 0; i < 350; ++i)
+		{
+			this.gameManager.processUpdates();
+		}
+		
+		this.file = File.createTempFile("world", ".colonies");
+	}
+	
+	@Override
+	protected void tearDown() throws Exception
+	{
+		this.file.delete();
+		super.tearDown();
+	}
+	
+	public void testSave_invalidArguments() throws IOException
+	{
+		try {
+			MappedWorldFile.save(null, this.file);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+		
+		try {
+			MappedWorldFile.save(this.gameManager, null);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testOpen_readsHeader() throws IOException
+	{
+		final long length = MappedWorldFile.save(this.gameManager, this.file);
+		assertEquals(this.file.length(), length);
+		
+		MappedWorldFile mapped = MappedWorldFile.open(this.file);
+		try
+		{
+			assertEquals(45, mapped.getRows());
+			assertEquals(30, mapped.getColumns());
+			assertEquals(this.gameManager.getGameTicks(), mapped.getGameTicks());
+			assertEquals(MappedWorldFile.HEADER_SIZE + 45 * 30 * MappedWorldFile.RECORD_SIZE + mapped.getSaveLength(), length);
+		}
+		finally
+		{
+			mapped.close();
+		}
+	}
+	
+	public void testOpen_cellsMatchWorld() throws IOException
+	{
+		MappedWorldFile.save(this.gameManager, this.file);
+		MappedWorldFile mapped = MappedWorldFile.open(this.file);
+		try
+		{
+			WorldGrid grid = this.gameManager.getGameLogicManager().getWorldGrid();
+			int occupied = 0;
+			for (int row = 0; row < grid.getRows(); ++row)
+			{
+				for (int column = 0; column < grid.getColumns(); ++column)
+				{
+					Organism org = (Organism)grid.getGridEntity(row, column);
+					assertEquals(org != null, mapped.isOccupied(row, column));
+					if (org == null)
+					{
+						assertEquals(-1, mapped.getColonyIndex(row, column));
+						assertNull(mapped.getHappiness(row, column));
+						continue;
+					}
+					
+					++occupied;
+					DynamicAttributes attributes = org.getDynamicAttributes();
+					assertTrue(mapped.getColonyIndex(row, column) >= 0);
+					assertEquals(attributes.getAgeTicks(), mapped.getAgeTicks(row, column));
+					assertEquals(attributes.getHealth(), mapped.getHealth(row, column));
+					assertEquals(attributes.getHunger(), mapped.getHunger(row, column));
+					assertEquals(attributes.getHappiness(), mapped.getHappiness(row, column));
+				}
+			}
+			assertEquals(this.gameManager.getGameLogicManager().getOrganismCount(), occupied);
+		}
+		finally
+		{
+			mapped.close();
+		}
+	}
+	
+	public void testOpen_invalidPosition() throws IOException
+	{
+		MappedWorldFile.save(this.gameManager, this.file);
+		MappedWorldFile mapped = MappedWorldFile.open(this.file);
+		try
+		{
+			mapped.getHealth(45, 0);
+			fail("Exception expected, but none encountered.");
+		}
+		catch (IndexOutOfBoundsException e) {}
+		finally
+		{
+			mapped.close();
+		}
+	}
+	
+	public void testRestore() throws IOException
+	{
+		MappedWorldFile.save(this.gameManager, this.file);
+		MappedWorldFile mapped = MappedWorldFile.open(this.file);
+		try
+		{
+			GameManager restored = mapped.restore();
+			assertTrue(Arrays.equals(save(this.gameManager), save(restored)));
+		}
+		finally
+		{
+			mapped.close();
+		}
+	}
+	
+	public void testOpen_damagedHeader() throws IOException
+	{
+		MappedWorldFile.save(this.gameManager, this.file);
+		RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+		try
+		{
+			raf.seek(13);
+			raf.write(0x7F);
+		}
+		finally
+		{
+			raf.close();
+		}
+		
+		try {
+			MappedWorldFile.open(this.file).close();
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	public void testOpen_truncatedFile() throws IOException
+	{
+		MappedWorldFile.save(this.gameManager, this.file);
+		RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+		try
+		{
+			raf.setLength(raf.length() - 1);
+		}
+		finally
+		{
+			raf.close();
+		}
+		
+		try {
+			MappedWorldFile.open(this.file).close();
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	public void testOpen_notAMappedWorldFile() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GameStateSerializer.save(this.gameManager, out);
+		FileOutputStream file = new FileOutputStream(this.file);
+		try
+		{
+			out.writeTo(file);
+		}
+		finally
+		{
+			file.close();
+		}
+		
+		try {
+			MappedWorldFile.open(this.file).close();
+			fail("Exception expected, but none encountered.");
+		} catch (IOException e) {}
+	}
+	
+	
+	private static byte[] save(GameManager gameManager) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GameStateSerializer.save(gameManager, out);
+		return out.toByteArray();
+	}
+}
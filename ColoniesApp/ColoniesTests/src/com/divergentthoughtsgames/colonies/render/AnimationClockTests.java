@@ -0,0 +1,156 @@
+package com.divergentthoughtsgames.colonies.render;
+
+import junit.framework.TestCase;
+
+public class AnimationClockTests extends TestCase
+{
+	private AnimationClock clock;
+	// Sprites 10, 11 and 12, shown for 100, 200 and 300 ms.
+	private int looping;
+	// Sprites 20 and 21, shown for 50 ms each.
+	private int oneShot;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		
+		this.clock = new AnimationClock();
+		this.looping = this.clock.addAnimation(new int[] { 10, 11, 12 }, new int[] { 100, 200, 300 }, true);
+		this.oneShot = this.clock.addAnimation(new int[] { 20, 21 }, new int[] { 50, 50 }, false);
+		this.clock.setCellCount(4);
+	}
+	
+	public void testAddAnimation_mismatchedDurations()
+	{
+		try {
+			this.clock.addAnimation(new int[] { 1, 2 }, new int[] { 100 }, true);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testAddAnimation_zeroDuration()
+	{
+		try {
+			this.clock.addAnimation(new int[] { 1 }, new int[] { 0 }, true);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testAddAnimation_manyAnimations()
+	{
+		for (int i = 0; i < 20; ++i)
+		{
+			assertEquals(i + 2, this.clock.addAnimation(new int[] { i, i + 1 }, new int[] { 10, i + 1 }, false));
+		}
+		assertEquals(30, this.clock.getDuration(21));
+		assertEquals(600, this.clock.getDuration(this.looping));
+	}
+	
+	public void testGetDuration()
+	{
+		assertEquals(600, this.clock.getDuration(this.looping));
+		assertEquals(100, this.clock.getDuration(this.oneShot));
+	}
+	
+	public void testNewCellHasNoSprite()
+	{
+		assertFalse(this.clock.isAnimated(0));
+		assertFalse(this.clock.advance(0, 1000));
+		assertEquals(AnimationClock.NO_SPRITE, this.clock.getSprite(0));
+	}
+	
+	public void testStart_invalidAnimation()
+	{
+		try {
+			this.clock.start(0, 5, 0);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testAdvance_loops()
+	{
+		this.clock.start(1, this.looping, 1000);
+		
+		assertTrue(this.clock.advance(1, 1000));
+		assertEquals(10, this.clock.getSprite(1));
+		assertFalse(this.clock.advance(1, 1099));
+		assertTrue(this.clock.advance(1, 1100));
+		assertEquals(11, this.clock.getSprite(1));
+		this.clock.advance(1, 1350);
+		assertEquals(12, this.clock.getSprite(1));
+		this.clock.advance(1, 1650);
+		assertEquals(10, this.clock.getSprite(1));
+	}
+	
+	public void testAdvance_showsTheFirstFrameBeforeTheStartTime()
+	{
+		this.clock.start(1, this.looping, 1000);
+		this.clock.advance(1, 500);
+		assertEquals(10, this.clock.getSprite(1));
+	}
+	
+	public void testAdvance_oneShotHoldsItsLastFrame()
+	{
+		this.clock.start(2, this.oneShot, 0);
+		this.clock.advance(2, 60);
+		assertEquals(21, this.clock.getSprite(2));
+		assertFalse(this.clock.advance(2, 5000));
+		assertEquals(21, this.clock.getSprite(2));
+	}
+	
+	public void testAdvance_cellsHaveTheirOwnPhase()
+	{
+		this.clock.start(0, this.looping, 0);
+		this.clock.start(1, this.looping, 150);
+		this.clock.advance(0, 200);
+		this.clock.advance(1, 200);
+		assertEquals(11, this.clock.getSprite(0));
+		assertEquals(10, this.clock.getSprite(1));
+	}
+	
+	public void testReplace()
+	{
+		this.clock.start(3, this.looping, 0);
+		this.clock.replace(3, this.oneShot, 400);
+		
+		this.clock.advance(3, 399);
+		assertEquals(12, this.clock.getSprite(3));
+		this.clock.advance(3, 400);
+		assertEquals(20, this.clock.getSprite(3));
+		this.clock.advance(3, 460);
+		assertEquals(21, this.clock.getSprite(3));
+	}
+	
+	public void testStart_cancelsThePendingAnimation()
+	{
+		this.clock.start(3, this.looping, 0);
+		this.clock.replace(3, this.oneShot, 400);
+		this.clock.start(3, this.looping, 0);
+		
+		this.clock.advance(3, 450);
+		assertEquals(12, this.clock.getSprite(3));
+	}
+	
+	public void testStop()
+	{
+		this.clock.start(0, this.looping, 0);
+		this.clock.advance(0, 0);
+		this.clock.stop(0);
+		
+		assertFalse(this.clock.isAnimated(0));
+		assertTrue(this.clock.advance(0, 10));
+		assertEquals(AnimationClock.NO_SPRITE, this.clock.getSprite(0));
+	}
+	
+	public void testSetCellCount_clearsTheCells()
+	{
+		this.clock.start(0, this.looping, 0);
+		this.clock.setCellCount(4);
+		assertFalse(this.clock.isAnimated(0));
+		
+		this.clock.setCellCount(9);
+		assertEquals(9, this.clock.getCellCount());
+		assertFalse(this.clock.isAnimated(8));
+	}
+}
@@ -0,0 +1,117 @@
+package com.divergentthoughtsgames.colonies.render;
+
+import junit.framework.TestCase;
+
+public class GridViewportTests extends TestCase
+{
+	public void testConstructor_invalidSize()
+	{
+		try {
+			new GridViewport(10, 0, 10);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testConstructor_invalidMinCellSize()
+	{
+		try {
+			new GridViewport(10, 10, 0);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testSetViewSize_gridFitsTheView()
+	{
+		GridViewport viewport = new GridViewport(10, 7, 10);
+		viewport.setViewSize(720, 1000);
+		
+		assertEquals(100, viewport.getCellSize());
+		assertEquals(0, viewport.getFirstRow());
+		assertEquals(10, viewport.getEndRow());
+		assertEquals(0, viewport.getFirstColumn());
+		assertEquals(7, viewport.getEndColumn());
+	}
+	
+	public void testSetViewSize_smallGridIsCentered()
+	{
+		GridViewport viewport = new GridViewport(10, 7, 10);
+		viewport.setViewSize(720, 1000);
+		
+		assertEquals(10, viewport.getCellLeft(0));
+		assertEquals(0, viewport.getCellTop(0));
+		assertEquals(-1, viewport.getColumnAt(5));
+		assertEquals(0, viewport.getColumnAt(10));
+	}
+	
+	public void testSetViewSize_largeGridUsesTheMinimumCellSize()
+	{
+		GridViewport viewport = new GridViewport(1000, 1000, 20);
+		viewport.setViewSize(400, 600);
+		
+		assertEquals(20, viewport.getCellSize());
+		assertEquals(0, viewport.getFirstRow());
+		assertEquals(30, viewport.getEndRow());
+		assertEquals(0, viewport.getFirstColumn());
+		assertEquals(20, viewport.getEndColumn());
+	}
+	
+	public void testScrollBy()
+	{
+		GridViewport viewport = new GridViewport(1000, 1000, 20);
+		viewport.setViewSize(400, 600);
+		
+		assertTrue(viewport.scrollBy(110, 50));
+		assertEquals(5, viewport.getFirstColumn());
+		assertEquals(26, viewport.getEndColumn());
+		assertEquals(2, viewport.getFirstRow());
+		assertEquals(33, viewport.getEndRow());
+		assertEquals(5, viewport.getColumnAt(0));
+		assertEquals(2, viewport.getRowAt(0));
+	}
+	
+	public void testScrollBy_stopsAtTheEdges()
+	{
+		GridViewport viewport = new GridViewport(100, 100, 20);
+		viewport.setViewSize(400, 600);
+		
+		assertFalse(viewport.scrollBy(-50, -50));
+		assertTrue(viewport.scrollBy(100000, 100000));
+		assertEquals(80, viewport.getFirstColumn());
+		assertEquals(100, viewport.getEndColumn());
+		assertEquals(70, viewport.getFirstRow());
+		assertEquals(100, viewport.getEndRow());
+	}
+	
+	public void testScrollBy_gridFitsTheView()
+	{
+		GridViewport viewport = new GridViewport(10, 7, 10);
+		viewport.setViewSize(720, 1000);
+		assertFalse(viewport.scrollBy(50, 50));
+	}
+	
+	public void testGetRowAt_outsideTheView()
+	{
+		GridViewport viewport = new GridViewport(1000, 1000, 20);
+		viewport.setViewSize(400, 600);
+		
+		assertEquals(-1, viewport.getRowAt(-1));
+		assertEquals(-1, viewport.getRowAt(600));
+		assertEquals(29, viewport.getRowAt(599));
+	}
+	
+	public void testCopyConstructor()
+	{
+		GridViewport viewport = new GridViewport(1000, 1000, 20);
+		viewport.setViewSize(400, 600);
+		viewport.scrollBy(110, 50);
+		
+		GridViewport copy = new GridViewport(viewport);
+		assertEquals(400, copy.getWidth());
+		assertEquals(600, copy.getHeight());
+		assertEquals(viewport.getCellLeft(7), copy.getCellLeft(7));
+		assertEquals(viewport.getCellTop(9), copy.getCellTop(9));
+		
+		viewport.scrollBy(100, 100);
+		assertEquals(5, copy.getFirstColumn());
+	}
+}
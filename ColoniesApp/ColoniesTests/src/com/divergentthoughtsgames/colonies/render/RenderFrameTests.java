@@ -0,0 +1,131 @@
+package com.divergentthoughtsgames.colonies.render;
+
+import junit.framework.TestCase;
+
+public class RenderFrameTests extends TestCase
+{
+	private RenderFrame frame;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		this.frame = new RenderFrame(4, 5);
+	}
+	
+	public void testConstructor_invalidSize()
+	{
+		try {
+			new RenderFrame(0, 5);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testToCell()
+	{
+		final int cell = this.frame.toCell(2, 3);
+		assertEquals(2, this.frame.getRow(cell));
+		assertEquals(3, this.frame.getColumn(cell));
+	}
+	
+	public void testToCell_outOfBounds()
+	{
+		try {
+			this.frame.toCell(4, 0);
+			fail("Exception expected, but none encountered.");
+		} catch (IndexOutOfBoundsException e) {}
+	}
+	
+	public void testNewFrameIsEmpty()
+	{
+		assertEquals(0, this.frame.getDirtyCount());
+		assertEquals(RenderFrame.EMPTY, this.frame.getState(this.frame.toCell(1, 1)));
+	}
+	
+	public void testSetCell()
+	{
+		final int cell = this.frame.toCell(1, 2);
+		this.frame.setCell(cell, 0xff00ff00, RenderFrame.GROWING);
+		
+		assertEquals(0xff00ff00, this.frame.getColor(cell));
+		assertEquals(RenderFrame.GROWING, this.frame.getState(cell));
+		assertEquals(1, this.frame.getDirtyCount());
+		assertEquals(cell, this.frame.getDirtyCell(0));
+	}
+	
+	public void testSetCell_marksACellDirtyOnce()
+	{
+		final int cell = this.frame.toCell(1, 2);
+		this.frame.setCell(cell, 1, RenderFrame.GROWING);
+		this.frame.setState(cell, RenderFrame.HAPPY);
+		assertEquals(1, this.frame.getDirtyCount());
+	}
+	
+	public void testIsDirty()
+	{
+		final int cell = this.frame.toCell(1, 2);
+		assertFalse(this.frame.isDirty(cell));
+		this.frame.setCell(cell, 1, RenderFrame.CONTENT);
+		assertTrue(this.frame.isDirty(cell));
+		this.frame.clearDirty();
+		assertFalse(this.frame.isDirty(cell));
+	}
+	
+	public void testSetCell_unchangedIsNotDirty()
+	{
+		final int cell = this.frame.toCell(1, 2);
+		this.frame.setCell(cell, 1, RenderFrame.CONTENT);
+		this.frame.clearDirty();
+		
+		this.frame.setCell(cell, 1, RenderFrame.CONTENT);
+		assertEquals(0, this.frame.getDirtyCount());
+	}
+	
+	public void testClearDirty()
+	{
+		this.frame.setCell(this.frame.toCell(0, 0), 1, RenderFrame.CONTENT);
+		this.frame.setCell(this.frame.toCell(3, 4), 1, RenderFrame.CONTENT);
+		this.frame.clearDirty();
+		
+		assertEquals(0, this.frame.getDirtyCount());
+		assertEquals(RenderFrame.CONTENT, this.frame.getState(this.frame.toCell(3, 4)));
+	}
+	
+	public void testGetDirtyCell_invalid()
+	{
+		try {
+			this.frame.getDirtyCell(0);
+			fail("Exception expected, but none encountered.");
+		} catch (IndexOutOfBoundsException e) {}
+	}
+	
+	public void testMoveChangesTo()
+	{
+		final int cell = this.frame.toCell(2, 2);
+		this.frame.setCell(cell, 7, RenderFrame.DEAD);
+		this.frame.setGameTick(12);
+		
+		RenderFrame target = new RenderFrame(4, 5);
+		this.frame.moveChangesTo(target);
+		
+		assertEquals(0, this.frame.getDirtyCount());
+		assertEquals(1, target.getDirtyCount());
+		assertEquals(7, target.getColor(cell));
+		assertEquals(RenderFrame.DEAD, target.getState(cell));
+		assertEquals(12, target.getGameTick());
+	}
+	
+	public void testCopyTo()
+	{
+		final int cell = this.frame.toCell(3, 1);
+		this.frame.setCell(cell, 7, RenderFrame.HAPPY);
+		this.frame.clearDirty();
+		
+		RenderFrame target = new RenderFrame(4, 5);
+		this.frame.copyTo(target);
+		
+		assertEquals(1, target.getDirtyCount());
+		assertEquals(cell, target.getDirtyCell(0));
+		assertEquals(RenderFrame.HAPPY, target.getState(cell));
+	}
+}
@@ -0,0 +1,232 @@
+package com.divergentthoughtsgames.colonies.render;
+
+import java.util.ArrayList;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismBornData;
+import com.divergentthoughtsgames.colonies.event.OrganismBornEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismDecayedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismDiedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismHappinessChangedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismPoppedEvent;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+import com.divergentthoughtsgames.colonies.logic.WorldGrid;
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+
+import junit.framework.TestCase;
+
+public class RenderPipelineTests extends TestCase
+{
+	private GameManager gameManager;
+	private RenderPipeline pipeline;
+	private StaticAttributes attributes;
+	private RenderFrame frame;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		
+		this.gameManager = new GameManager(new ArrayList<String>(), 10, 10, 3);
+		this.pipeline = new RenderPipeline(this.gameManager);
+		this.attributes = StaticAttributes.fromSettings(2, 2, 2, 2, "Test", 2);
+		this.frame = this.pipeline.newFrame();
+	}
+	
+	public void testConstructor_null()
+	{
+		try {
+			new RenderPipeline(null);
+			fail("Exception expected, but none encountered.");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	public void testGetSize()
+	{
+		assertEquals(10, this.pipeline.getRows());
+		assertEquals(10, this.pipeline.getColumns());
+	}
+	
+	public void testPull_nothingPublished()
+	{
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, new GridPosition(1, 2))));
+		assertFalse(this.pipeline.pull(this.frame));
+		assertEquals(0, this.frame.getDirtyCount());
+	}
+	
+	public void testPull_born()
+	{
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, new GridPosition(1, 2))));
+		this.pipeline.publish(5);
+		
+		assertTrue(this.pipeline.pull(this.frame));
+		assertEquals(1, this.frame.getDirtyCount());
+		final int cell = this.frame.toCell(1, 2);
+		assertEquals(RenderFrame.GROWING, this.frame.getState(cell));
+		assertEquals(this.attributes.getColor(), this.frame.getColor(cell));
+		assertEquals(5, this.frame.getGameTick());
+	}
+	
+	public void testPull_onlyOncePerPublish()
+	{
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, new GridPosition(1, 2))));
+		this.pipeline.publish(0);
+		
+		assertTrue(this.pipeline.pull(this.frame));
+		assertFalse(this.pipeline.pull(this.frame));
+	}
+	
+	public void testPull_changesBetweenPullsAreCombined()
+	{
+		final GridPosition position = new GridPosition(1, 2);
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, position)));
+		this.pipeline.publish(0);
+		this.pipeline.notify(new OrganismDiedEvent(position));
+		this.pipeline.publish(1);
+		
+		assertTrue(this.pipeline.pull(this.frame));
+		assertEquals(1, this.frame.getDirtyCount());
+		assertEquals(RenderFrame.DEAD, this.frame.getState(this.frame.toCell(1, 2)));
+	}
+	
+	public void testPull_decayed()
+	{
+		final GridPosition position = new GridPosition(3, 3);
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, position)));
+		this.pipeline.notify(new OrganismDiedEvent(position));
+		this.pipeline.notify(new OrganismDecayedEvent(position));
+		this.pipeline.publish(0);
+		
+		assertTrue(this.pipeline.pull(this.frame));
+		assertEquals(1, this.frame.getDirtyCount());
+		assertEquals(RenderFrame.EMPTY, this.frame.getState(this.frame.toCell(3, 3)));
+	}
+	
+	public void testPull_happinessChanged()
+	{
+		WorldGrid worldGrid = this.gameManager.getGameLogicManager().getWorldGrid();
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, new GridPosition(4, 5))));
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, new GridPosition(6, 7))));
+		HappinessChanges changes = new HappinessChanges();
+		changes.add(worldGrid.toIndex(4, 5), Happiness.Happy);
+		changes.add(worldGrid.toIndex(6, 7), Happiness.Unhappy);
+		this.pipeline.notify(new OrganismHappinessChangedEvent(changes));
+		this.pipeline.publish(0);
+		
+		assertTrue(this.pipeline.pull(this.frame));
+		assertEquals(2, this.frame.getDirtyCount());
+		assertEquals(RenderFrame.HAPPY, this.frame.getState(this.frame.toCell(4, 5)));
+		assertEquals(RenderFrame.UNHAPPY, this.frame.getState(this.frame.toCell(6, 7)));
+	}
+	
+	public void testPull_happinessOfEmptyCellIsIgnored()
+	{
+		HappinessChanges changes = new HappinessChanges();
+		changes.add(this.gameManager.getGameLogicManager().getWorldGrid().toIndex(4, 5), Happiness.Happy);
+		this.pipeline.notify(new OrganismHappinessChangedEvent(changes));
+		this.pipeline.publish(0);
+		assertFalse(this.pipeline.pull(this.frame));
+	}
+	
+	public void testPull_happinessAfterDeathIsIgnored()
+	{
+		final GridPosition position = new GridPosition(4, 5);
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, position)));
+		this.pipeline.publish(0);
+		
+		// An Organism reports its happiness on the tick it dies, after its death is sent.
+		HappinessChanges changes = new HappinessChanges();
+		changes.add(this.gameManager.getGameLogicManager().getWorldGrid().toIndex(4, 5), Happiness.Happy);
+		this.pipeline.notify(new OrganismDiedEvent(position));
+		this.pipeline.notify(new OrganismHappinessChangedEvent(changes));
+		this.pipeline.publish(1);
+		
+		assertTrue(this.pipeline.pull(this.frame));
+		assertEquals(RenderFrame.DEAD, this.frame.getState(this.frame.toCell(4, 5)));
+	}
+	
+	public void testPull_happinessAfterPopIsIgnored()
+	{
+		final GridPosition position = new GridPosition(4, 5);
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, position)));
+		HappinessChanges changes = new HappinessChanges();
+		changes.add(this.gameManager.getGameLogicManager().getWorldGrid().toIndex(4, 5), Happiness.Unhappy);
+		this.pipeline.notify(new OrganismPoppedEvent(position));
+		this.pipeline.notify(new OrganismHappinessChangedEvent(changes));
+		this.pipeline.publish(0);
+		
+		assertTrue(this.pipeline.pull(this.frame));
+		assertEquals(RenderFrame.POPPED, this.frame.getState(this.frame.toCell(4, 5)));
+	}
+	
+	public void testPull_poppedOutsideTheGridIsIgnored()
+	{
+		this.pipeline.notify(new OrganismPoppedEvent(new GridPosition(10, 0)));
+		this.pipeline.publish(0);
+		assertFalse(this.pipeline.pull(this.frame));
+	}
+	
+	public void testPull_popped()
+	{
+		final GridPosition position = new GridPosition(2, 2);
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, position)));
+		this.pipeline.notify(new OrganismPoppedEvent(position));
+		this.pipeline.publish(0);
+		
+		assertTrue(this.pipeline.pull(this.frame));
+		assertEquals(RenderFrame.POPPED, this.frame.getState(this.frame.toCell(2, 2)));
+	}
+	
+	public void testPull_poppedEmptyCellIsIgnored()
+	{
+		this.pipeline.notify(new OrganismPoppedEvent(new GridPosition(2, 2)));
+		this.pipeline.publish(0);
+		assertFalse(this.pipeline.pull(this.frame));
+	}
+	
+	public void testNewFrame_holdsThePublishedCells()
+	{
+		this.pipeline.notify(new OrganismBornEvent(new OrganismBornData(this.attributes, new GridPosition(1, 2))));
+		this.pipeline.publish(0);
+		
+		RenderFrame frame = this.pipeline.newFrame();
+		assertEquals(1, frame.getDirtyCount());
+		assertEquals(RenderFrame.GROWING, frame.getState(frame.toCell(1, 2)));
+	}
+	
+	public void testProcessUpdates_publishesTheColony()
+	{
+		this.gameManager.setRenderPipeline(this.pipeline);
+		this.gameManager.getEventManager().notify(new NewColonyPlacedEvent(
+				new NewColonyPlacedData(this.attributes, new GridPosition(5, 5), 4, 0)));
+		for (int i = 0; i < 3; ++i)
+		{
+			this.gameManager.processUpdates();
+		}
+		
+		assertTrue(this.pipeline.pull(this.frame));
+		assertEquals(4, this.frame.getDirtyCount());
+		WorldGrid worldGrid = this.gameManager.getGameLogicManager().getWorldGrid();
+		for (int i = 0; i < this.frame.getDirtyCount(); ++i)
+		{
+			final int cell = this.frame.getDirtyCell(i);
+			assertTrue(worldGrid.isOccupied(worldGrid.toIndex(this.frame.getRow(cell), this.frame.getColumn(cell))));
+			assertFalse(RenderFrame.EMPTY == this.frame.getState(cell));
+		}
+	}
+	
+	public void testSetRenderPipeline_releasesThePreviousPipeline()
+	{
+		this.gameManager.setRenderPipeline(this.pipeline);
+		this.gameManager.setRenderPipeline(null);
+		
+		this.gameManager.getEventManager().notify(new OrganismDiedEvent(new GridPosition(1, 1)));
+		this.gameManager.processUpdates();
+		this.pipeline.publish(1);
+		assertFalse(this.pipeline.pull(this.frame));
+	}
+}
@@ -0,0 +1,74 @@
+package com.divergentthoughtsgames.colonies.util;
+
+import junit.framework.TestCase;
+
+public class SplitRandomTests extends TestCase
+{
+	public void testSameSeedSameSequence()
+	{
+		SplitRandom r1 = new SplitRandom(99);
+		SplitRandom r2 = new SplitRandom(99);
+		for (int i = 0; i < 100; ++i)
+		{
+			assertEquals(r1.nextLong(), r2.nextLong());
+			assertEquals(r1.nextInt(1000), r2.nextInt(1000));
+			assertEquals(r1.nextDouble(), r2.nextDouble());
+		}
+	}
+	
+	public void testDifferentSeedDifferentSequence()
+	{
+		assertFalse(new SplitRandom(1).nextLong() == new SplitRandom(2).nextLong());
+	}
+	
+	public void testSplit_deterministic()
+	{
+		SplitRandom parent1 = new SplitRandom(5);
+		SplitRandom parent2 = new SplitRandom(5);
+		SplitRandom child1 = parent1.split();
+		SplitRandom child2 = parent2.split();
+		for (int i = 0; i < 100; ++i)
+		{
+			assertEquals(child1.nextLong(), child2.nextLong());
+		}
+		assertEquals(parent1.nextLong(), parent2.nextLong());
+	}
+	
+	public void testSplit_independentOfParent()
+	{
+		SplitRandom parent = new SplitRandom(5);
+		SplitRandom child = parent.split();
+		int matches = 0;
+		for (int i = 0; i < 1000; ++i)
+		{
+			if (parent.nextInt(10) == child.nextInt(10))
+			{
+				++matches;
+			}
+		}
+		// About 100 matches are expected from independent sequences.
+		assertTrue("Matches: " + matches, matches > 50 && matches < 150);
+	}
+	
+	public void testNextInt_bounded()
+	{
+		SplitRandom random = new SplitRandom(3);
+		int[] counts = new int[7];
+		for (int i = 0; i < 7000; ++i)
+		{
+			++counts[random.nextInt(7)];
+		}
+		for (int count : counts)
+		{
+			assertTrue("Count: " + count, count > 800 && count < 1200);
+		}
+	}
+	
+	public void testSetSeed_restartsSequence()
+	{
+		SplitRandom random = new SplitRandom(11);
+		long first = random.nextLong();
+		random.setSeed(11);
+		assertEquals(first, random.nextLong());
+	}
+}
@@ -0,0 +1,55 @@
+package com.divergentthoughtsgames.colonies;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import com.divergentthoughtsgames.colonies.platform.LogSink;
+
+import android.util.Log;
+
+
+/**
+ * Forwards simulation log messages to the Android log. Debug messages are written
+ * when the Colonies tag is loggable at the DEBUG level
+ * (adb shell setprop log.tag.Colonies DEBUG).
+ * @author Christopher D. Canfield
+ */
+public class AndroidLogSink implements LogSink
+{
+	private static final String LOG_TAG = "Colonies";
+	
+	@Override
+	public boolean isDebugEnabled()
+	{
+		return Log.isLoggable(LOG_TAG, Log.DEBUG);
+	}
+
+	@Override
+	public void debug(String tag, String message)
+	{
+		Log.d(tag, message);
+	}
+
+	@Override
+	public void error(String tag, String message, Throwable t)
+	{
+		Log.e(tag, message, t);
+	}
+}
@@ -21,24 +21,28 @@ along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
 import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import com.divergentthoughtsgames.colonies.event.EventManager;
+import com.divergentthoughtsgames.colonies.persistence.CheckpointService;
+import com.divergentthoughtsgames.colonies.platform.Log;
+import com.divergentthoughtsgames.colonies.render.RenderPipeline;
+import com.divergentthoughtsgames.colonies.sound.SoundManager;
+
 import android.app.Application;
-import android.content.Context;
 import android.content.res.Resources;
-import android.util.Log;
 
 
 /**
@@ -51,11 +55,18 @@ public class App extends Application
 	// The file name for the saved game state.
 	private static final String GAME_STATE_FILE = "game_state.colonies";
 	
-	private ScheduledExecutorService executor;
+	// The game thread, which runs the game ticks and takes the snapshots of the game.
+	private final ScheduledExecutorService executor;
+	private ScheduledFuture<?> tickTask;
 	private GameManager gameManager;
+	private CheckpointService checkpointService;
+	
+	// The last save that was posted to the game thread, or null if there is none.
+	private Future<Void> pendingSave;
 	
 	public App()
 	{
+		Log.setSink(new AndroidLogSink());
 		this.executor = Executors.newSingleThreadScheduledExecutor();
 	}
 	
@@ -69,21 +80,27 @@ public class App extends Application
 			this.gameManager = new GameManager(loadOrganismNames());
 		}
 		
-		if (this.gameManager.isPaused())
+		if (this.gameManager.getAudioSink() == null)
 		{
-			this.gameManager.unpause();
-			if (this.executor == null || this.executor.isShutdown())
-			{
-				this.executor = Executors.newSingleThreadScheduledExecutor();
-			}
-			this.executor.scheduleAtFixedRate(this.gameManager, 0, GameManager.MILLIS_PER_GAME_TICK, TimeUnit.MILLISECONDS);
+			this.gameManager.setAudioSink(new SoundManager(this.gameManager));
+		}
+		
+		if (this.gameManager.getRenderPipeline() == null)
+		{
+			this.gameManager.setRenderPipeline(new RenderPipeline(this.gameManager));
+		}
+		
+		this.gameManager.unpause();
+		if (this.tickTask == null)
+		{
+			this.tickTask = this.executor.scheduleAtFixedRate(this.gameManager, 0, GameManager.MILLIS_PER_GAME_TICK, TimeUnit.MILLISECONDS);
 		}
 	}
 
 	
 	/**
 	 * Stops the game simulation. Can be started again by calling
-	 * startSimulation().
+	 * startSimulation(). The game tick in progress, if any, is not waited for.
 	 */
 	public void stopSimulation()
 	{
@@ -91,7 +108,11 @@ public class App extends Application
 		{
 			this.gameManager.pause();
 		}
-		this.executor.shutdown();
+		if (this.tickTask != null)
+		{
+			this.tickTask.cancel(false);
+			this.tickTask = null;
+		}
 	}
 
 	/**
@@ -100,6 +121,11 @@ public class App extends Application
 	public void resetSimulation()
 	{
 		stopSimulation();
+		if (this.gameManager != null)
+		{
+			this.gameManager.setAudioSink(null);
+			this.gameManager.setRenderPipeline(null);
+		}
 		this.gameManager = new GameManager(loadOrganismNames());
 		startSimulation();
 	}
@@ -116,78 +142,82 @@ public class App extends Application
 	
 	
 	/**
-	 * Saves the game state to the file system.
+	 * Saves the game state to the file system, without waiting for the save. The save is 
+	 * posted to the game thread, which takes a snapshot of the game once the tick in progress, 
+	 * if any, has finished; the snapshot is written to the file on a background thread. 
+	 * Should be called after stopSimulation().
 	 */
 	public void saveGameState()
 	{
-		ObjectOutputStream oos = null;
-		try
-		{
-			FileOutputStream file = openFileOutput(GAME_STATE_FILE, Context.MODE_PRIVATE);
-			oos = new ObjectOutputStream(file);
-			
-			oos.writeObject(this.gameManager);
-		}
-		catch (IOException e)
+		if (this.gameManager == null)
 		{
-			Log.e(LOG_TAG, "saveGameState Error", e);
-			e.printStackTrace();
+			return;
 		}
-		finally
-		{
-			if (oos != null)
+		
+		final GameManager gameManager = this.gameManager;
+		final CheckpointService checkpointService = getCheckpointService();
+		this.pendingSave = this.executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws IOException
 			{
 				try
 				{
-					oos.close();
+					checkpointService.checkpoint(gameManager);
+					return null;
 				}
 				catch (IOException e)
 				{
-					Log.e(LOG_TAG, "saveGameState Error", e);
-					e.printStackTrace();
+					Log.e(LOG_TAG, "saveGameState Error: the game was not saved.", e);
+					throw e;
 				}
 			}
-		}
+		});
 	}
 	
 	/**
-	 * Restores the state from the file system.
+	 * Restores the state from the file system. If a save is still being taken or written, 
+	 * waits for it to finish. If the last save failed, the game that was saved before it 
+	 * is restored.
 	 */
 	public void loadGameState()
 	{
-		ObjectInputStream ois = null;
-		try
+		if (this.pendingSave != null)
 		{
-			FileInputStream file = openFileInput(GAME_STATE_FILE);
-			ois = new ObjectInputStream(file);
-			
-			this.gameManager = (GameManager)ois.readObject();
+			try
+			{
+				this.pendingSave.get();
+			}
+			catch (ExecutionException e)
+			{
+				Log.e(LOG_TAG, "loadGameState Error: the last save failed, so an earlier save is loaded.", e.getCause());
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			this.pendingSave = null;
 		}
-		catch (IOException e)
+		
+		try
 		{
-			Log.e(LOG_TAG, "loadGameState Error", e);
-			e.printStackTrace();
+			this.gameManager = getCheckpointService().load();
 		}
-		catch (ClassNotFoundException e)
+		catch (IOException e)
 		{
 			Log.e(LOG_TAG, "loadGameState Error", e);
 			e.printStackTrace();
 		}
-		finally
+	}
+	
+	private CheckpointService getCheckpointService()
+	{
+		// Created on first use, because the files directory is not available until the 
+		// Application has been attached to its Context.
+		if (this.checkpointService == null)
 		{
-			if (ois != null)
-			{
-				try
-				{
-					ois.close();
-				}
-				catch (IOException e)
-				{
-					Log.e(LOG_TAG, "loadGameState Error", e);
-					e.printStackTrace();
-				}
-			}
+			this.checkpointService = new CheckpointService(new File(getFilesDir(), GAME_STATE_FILE));
 		}
+		return this.checkpointService;
 	}
 	
 	
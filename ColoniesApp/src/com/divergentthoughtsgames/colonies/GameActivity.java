@@ -21,34 +21,24 @@ along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
 import java.util.Locale;
-import java.util.Random;
 
 import com.divergentthoughtsgames.colonies.event.AllOrganismsRequestedEvent;
-import com.divergentthoughtsgames.colonies.event.AllOrganismsRequestedResponse;
 import com.divergentthoughtsgames.colonies.event.GameEvent;
 import com.divergentthoughtsgames.colonies.event.EventListener;
 import com.divergentthoughtsgames.colonies.event.EventManager;
 import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
 import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
-import com.divergentthoughtsgames.colonies.event.OrganismBornData;
-import com.divergentthoughtsgames.colonies.event.OrganismBornEvent;
-import com.divergentthoughtsgames.colonies.event.OrganismDiedEvent;
-import com.divergentthoughtsgames.colonies.event.OrganismHappinessChangedEvent;
 import com.divergentthoughtsgames.colonies.event.OrganismInfo;
 import com.divergentthoughtsgames.colonies.event.OrganismInfoRequestedEvent;
 import com.divergentthoughtsgames.colonies.event.OrganismInfoRequestedResponse;
 import com.divergentthoughtsgames.colonies.event.OrganismPoppedEvent;
 import com.divergentthoughtsgames.colonies.logic.GridPosition;
 import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
-import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
-import com.divergentthoughtsgames.colonies.util.AnimationUtilities;
 
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.Intent;
-import android.graphics.PorterDuff;
-import android.graphics.drawable.AnimationDrawable;
 import android.os.Bundle;
 import android.os.Handler;
 import android.util.Log;
@@ -56,12 +46,9 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.MenuItem;
 import android.view.View.OnClickListener;
-import android.view.View.OnLongClickListener;
 import android.view.WindowManager;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
-import android.widget.TableLayout;
-import android.widget.TableRow;
 import android.widget.TextView;
 
 /**
@@ -70,19 +57,14 @@ import android.widget.TextView;
  */
 public class GameActivity extends Activity implements EventListener
 {
-	/** The number of rows in the game grid. **/
-	public static final int GRID_ROWS = 10;
-	/** The number of columns in the game grid. **/
-	public static final int GRID_COLUMNS = 7;
-	
 	// Bundle key indicating whether saved data should be loaded.
 	public static final String LOAD_SAVED_DATA = "Load Saved Data";
 	
 	// Recommended by http://developer.android.com/reference/android/util/Log.html
 	private static final String LOG_TAG = "GameActivity";
 	
-	// Lists the Organisms, represented by ImageViews, that are located on the grid.
-	private ImageView[][] gridImageViews;
+	// Draws the world grid, from the RenderPipeline.
+	private GridSurfaceView gridView;
 	
 	// Variables related to placing new colonies.
 	// Specifies whether the next touch should cause a colony to be placed.
@@ -112,7 +94,8 @@ public class GameActivity extends Activity implements EventListener
 		
 		this.app = (App)this.getApplication();
 		
-		this.gridImageViews = new ImageView[GRID_ROWS][GRID_COLUMNS];
+		this.gridView = (GridSurfaceView)findViewById(R.id.gameGridView);
+		this.gridView.setOnCellClickListener(new GridClickListener());
 		
 		// Set the OnClickListeners for the Add New Colony clickables.
 		ImageView addNewColonyImageView = (ImageView)findViewById(R.id.newColonyImage);
@@ -132,8 +115,6 @@ public class GameActivity extends Activity implements EventListener
 			}
 		});
 		
-		setGridClickListeners();
-		
 		boolean loadSavedData = getIntent().hasExtra(LOAD_SAVED_DATA);
 		if (loadSavedData)
 		{
@@ -156,11 +137,7 @@ public class GameActivity extends Activity implements EventListener
 	private void subscribeToEvents()
 	{
 		EventManager manager = this.app.getEventManager();
-		manager.subscribe(OrganismBornEvent.ID, this);
-		manager.subscribe(OrganismDiedEvent.ID, this);
 		manager.subscribe(OrganismInfoRequestedResponse.ID, this);
-		manager.subscribe(AllOrganismsRequestedResponse.ID, this);
-		manager.subscribe(OrganismHappinessChangedEvent.ID, this);
 	}
 	
 	@Override
@@ -186,7 +163,13 @@ public class GameActivity extends Activity implements EventListener
 			
 			Bundle b = data.getBundleExtra(NewColonyActivity.NEW_COLONY_BUNDLE);
 			
-			StaticAttributes att = StaticAttributes.fromBundle(b);
+			StaticAttributes att = StaticAttributes.fromSettings(
+					b.getInt(StaticAttributes.NEW_COLONY_CROWD_PREF),
+					b.getInt(StaticAttributes.NEW_COLONY_HEALTH),
+					b.getInt(StaticAttributes.NEW_COLONY_HEAT_PREF),
+					b.getInt(StaticAttributes.NEW_COLONY_MAX_AGE),
+					b.getString(StaticAttributes.NEW_COLONY_NAME),
+					b.getInt(StaticAttributes.NEW_COLONY_REPRODUCTION_FREQ));
 			this.isPlacingColony = true;
 			this.newColonyAttributes = att;
 			this.numberOfOrganismsToPlace = b.getInt(StaticAttributes.NEW_COLONY_COUNT);
@@ -245,6 +228,7 @@ public class GameActivity extends Activity implements EventListener
 	protected void onResume()
 	{		
 		this.app.startSimulation();
+		this.gridView.setRenderPipeline(this.app.getGameManager().getRenderPipeline());
 		
 		super.onResume();
 	}
@@ -282,90 +266,12 @@ public class GameActivity extends Activity implements EventListener
 			this.uiEventHandler.post(processor);
 			Log.d(LOG_TAG, "OrganismInfoRequestedResponseEvent received");
 		}
-		else if (event instanceof OrganismDiedEvent)
-		{
-			OrganismDiedEventProcessor processor = new OrganismDiedEventProcessor();
-			processor.data = ((OrganismDiedEvent)event).getData();
-			this.uiEventHandler.post(processor);
-			
-		}
-		else if (event instanceof OrganismBornEvent)
-		{
-			OrganismBornEventProcessor processor = new OrganismBornEventProcessor();
-			processor.data = ((OrganismBornEvent)event).getData();
-			this.uiEventHandler.post(processor);
-			Log.d(LOG_TAG, "OrganismBornEvent received");
-		}
-		else if (event instanceof OrganismHappinessChangedEvent)
-		{
-			OrganismHappinessChangedEventProcessor processor = 
-					new OrganismHappinessChangedEventProcessor((OrganismHappinessChangedEvent)event);
-			this.uiEventHandler.post(processor);
-			Log.d(LOG_TAG, "OrganismHapinessChangedEvent received");
-		}
-		else if (event instanceof AllOrganismsRequestedResponse)
-		{
-			AllOrganismsRequestedResponseEventProcessor processor = 
-					new AllOrganismsRequestedResponseEventProcessor((AllOrganismsRequestedResponse)event);
-			this.uiEventHandler.post(processor);
-			Log.d(LOG_TAG, "OrganismRequestedResponseEvent received");
-		}
 		else
 		{
 			throw new IllegalArgumentException("Unhandled event received by notify: " + event);
 		}
 	}
 	
-	/**
-	 * Processes the OrganismBornEvent.
-	 * @author Christopher D Canfield
-	 */
-	private class OrganismBornEventProcessor implements Runnable
-	{
-		public OrganismBornData data;
-		
-		@Override
-		public void run()
-		{
-			final int animationResourceId = AnimationUtilities.getRandomGrowOrganismAnimationId();
-			
-			GridPosition loc = this.data.getLocation();
-			ImageView v = GameActivity.this.gridImageViews[loc.getRow()][loc.getColumn()]; 
-			v.setBackgroundResource(animationResourceId);
-			v.getBackground().mutate().setColorFilter(this.data.getAttributes().getColor(), PorterDuff.Mode.MULTIPLY);
-			
-			// Vary the start times of the animations, to help ensure that they aren't all in sync, which does not look right.
-			final Random rand = new Random();
-			final int startDelay = rand.nextInt(2000);
-			AnimationUtilities.startAnimationInFuture(GameActivity.this.uiEventHandler, v, startDelay);
-			
-			// Replace the growing animation with adult animation once the child animation has completed, plus some
-			// additional time.
-			final long DELAY_TIME_MILLIS = 500;
-			final long adultAnimationDelay = 
-					AnimationUtilities.getAnimationDuration((AnimationDrawable)v.getBackground()) + startDelay + DELAY_TIME_MILLIS;
-			final int adultAnimationId = AnimationUtilities.getRandomContentOrganismAnimationId();
-			
-			AnimationUtilities.replaceAnimationInFuture(
-					GameActivity.this.uiEventHandler, v, adultAnimationId, this.data.getAttributes().getColor(), adultAnimationDelay);
-		}
-	}
-	
-	
-	private class OrganismDiedEventProcessor implements Runnable
-	{
-		public GridPosition data;
-		
-		@Override
-		public void run()
-		{
-			GridPosition loc = this.data;
-			ImageView v = GameActivity.this.gridImageViews[loc.getRow()][loc.getColumn()]; 
-			v.setBackgroundResource(R.drawable.organism_dead);
-			v.getBackground().setColorFilter(null);
-		}
-	}
-	
 	
 	/**
 	 * Processes the OrganismInfoRequestedResponseEvent.
@@ -418,106 +324,6 @@ public class GameActivity extends Activity implements EventListener
 			dialog.show();
 		}
 	}
-	
-	
-	private class OrganismHappinessChangedEventProcessor implements Runnable
-	{
-		OrganismHappinessChangedEvent event;
-		
-		OrganismHappinessChangedEventProcessor(OrganismHappinessChangedEvent event)
-		{
-			this.event = event;
-		}
-		
-		@Override
-		public void run()
-		{
-			Log.d(LOG_TAG, "OrganismHappinessChangedEventProcessor entered");
-			
-			int animationResourceId;
-			final OrganismInfo data = this.event.getData();
-			final Happiness happiness = data.getDynamicAttributes().getHappiness();
-			
-			if (happiness == Happiness.Happy)
-			{
-				animationResourceId = AnimationUtilities.getRandomHappyOrganismAnimationId();
-			}
-			else if (happiness == Happiness.Unhappy)
-			{
-				animationResourceId = AnimationUtilities.getRandomUnhappyOrganismAnimationId();
-			}
-			else
-			{
-				animationResourceId = AnimationUtilities.getRandomContentOrganismAnimationId();
-			}
-		
-			GridPosition loc = data.getGridPosition();
-			ImageView v = GameActivity.this.gridImageViews[loc.getRow()][loc.getColumn()]; 
-			Random rand = new Random();
-			
-			AnimationUtilities.replaceAnimationInFuture(
-					GameActivity.this.uiEventHandler, 
-					v, 
-					animationResourceId, 
-					data.getStaticAttributes().getColor(),
-					rand.nextInt(4500));
-			
-			Log.d(LOG_TAG, "Updated organism appearance (Event): " + happiness.toString());
-		}
-	}
-	
-
-	private class AllOrganismsRequestedResponseEventProcessor implements Runnable
-	{
-		AllOrganismsRequestedResponse event;
-		
-		AllOrganismsRequestedResponseEventProcessor(AllOrganismsRequestedResponse event)
-		{
-			this.event = event;
-		}
-		
-		@Override
-		public void run()
-		{
-			final int animationResourceId = AnimationUtilities.getRandomContentOrganismAnimationId();
-			final OrganismInfo data = this.event.getData();
-			
-			GridPosition loc = data.getGridPosition();
-			ImageView v = GameActivity.this.gridImageViews[loc.getRow()][loc.getColumn()]; 
-			v.setBackgroundResource(animationResourceId);
-			v.getBackground().mutate().setColorFilter(data.getStaticAttributes().getColor(), PorterDuff.Mode.MULTIPLY);
-			
-			// Vary the start times of the animations, to help ensure that they aren't all in sync, which does not look right.
-			final Random rand = new Random();
-			final int startDelay = rand.nextInt(2000);
-			AnimationUtilities.startAnimationInFuture(GameActivity.this.uiEventHandler, v, startDelay);	
-		}
-	}
-	
-	
-	
-	/**
-	 * Sets the OnClickListeners for all grid elements.
-	 */
-	private void setGridClickListeners()
-	{
-		TableLayout layout = (TableLayout)findViewById(R.id.gameGridLayout);
-		
-		for (int row = 0; row < GRID_ROWS; ++row)
-		{
-			TableRow tr = (TableRow)layout.getChildAt(row);
-			
-			for (int column = 0; column < GRID_COLUMNS; ++column)
-			{
-				ImageView v = (ImageView)tr.getChildAt(column);
-				
-				v.setOnClickListener(new GridOnClickListener(row, column));
-				v.setOnLongClickListener(new GridOnLongClickListener(row, column));
-				
-				this.gridImageViews[row][column] = v;
-			}
-		}
-	}
 
 	
 	/**
@@ -537,27 +343,17 @@ public class GameActivity extends Activity implements EventListener
 	 * Click Listener for the game grid.
 	 * @author Christopher D Canfield
 	 */
-	private class GridOnClickListener implements OnClickListener 
+	private class GridClickListener implements GridSurfaceView.OnCellClickListener
 	{
-		private int clickedRow;
-		private int clickedColumn;
-		
-		GridOnClickListener(int row, int column)
-		{
-			this.clickedRow = row;
-			this.clickedColumn = column;
-		}
-		
-		
 		@Override 
-		public void onClick(View v) 
+		public void onCellClick(int row, int column) 
 		{
-			Log.d(LOG_TAG, "Grid clicked: " + this.clickedRow + ", " + this.clickedColumn);
+			Log.d(LOG_TAG, "Grid clicked: " + row + ", " + column);
 			
 			if (GameActivity.this.isPlacingColony && 
 					GameActivity.this.newColonyAttributes != null) 
 			{
-				GridPosition location = new GridPosition(this.clickedRow, this.clickedColumn);
+				GridPosition location = new GridPosition(row, column);
 				NewColonyPlacedData data = new NewColonyPlacedData(GameActivity.this.newColonyAttributes, 
 						location, GameActivity.this.numberOfOrganismsToPlace, GameActivity.this.app.getGameManager().getGameTicks());
 				
@@ -574,14 +370,11 @@ public class GameActivity extends Activity implements EventListener
 			}
 			else if (GameActivity.this.isPoppingOrganism)
 			{
-				GridPosition gp = new GridPosition(this.clickedRow, this.clickedColumn);
+				GridPosition gp = new GridPosition(row, column);
 				OrganismPoppedEvent event = new OrganismPoppedEvent(gp);
 				
 				GameActivity.this.app.getEventManager().notify(event);
 				
-				v.setBackgroundResource(R.anim.organism_pop);
-				((AnimationDrawable)(v.getBackground())).start();
-				
 				GameActivity.this.isPoppingOrganism = false;
 				
 //				TextView popOrganismTextView = (TextView)findViewById(R.id.popOrganismText);
@@ -599,36 +392,15 @@ public class GameActivity extends Activity implements EventListener
 				Log.d(LOG_TAG, "OrganismPoppedEvent fired");
 			}
 		}
-	}
-	
-	/**
-	 * Long Click Listener for the game grid.
-	 * @author Christopher D Canfield
-	 */
-	private class GridOnLongClickListener implements OnLongClickListener
-	{
-		private int clickedRow;
-		private int clickedColumn;
 		
-		GridOnLongClickListener(int row, int column)
-		{
-			this.clickedRow = row;
-			this.clickedColumn = column;
-		}
-
 		@Override
-		public boolean onLongClick(View v)
+		public boolean onCellLongClick(int row, int column)
 		{
-			if (GameActivity.this.gridImageViews[this.clickedRow][this.clickedColumn] != null)
-			{
-				GridPosition location = new GridPosition(this.clickedRow, this.clickedColumn);
-				OrganismInfoRequestedEvent event = new OrganismInfoRequestedEvent(location);
-				
-				GameActivity.this.app.getEventManager().notify(event);
-				return true;
-			}
+			GridPosition location = new GridPosition(row, column);
+			OrganismInfoRequestedEvent event = new OrganismInfoRequestedEvent(location);
 			
-			return false;
+			GameActivity.this.app.getEventManager().notify(event);
+			return true;
 		}
 	}
 }
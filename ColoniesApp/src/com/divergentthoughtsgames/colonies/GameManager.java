@@ -23,19 +23,24 @@ along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Random;
 
 import com.divergentthoughtsgames.colonies.event.EventManager;
 import com.divergentthoughtsgames.colonies.logic.GameLogicManager;
-import com.divergentthoughtsgames.colonies.sound.SoundManager;
-
-import android.util.Log;
+import com.divergentthoughtsgames.colonies.logic.WorldGrid;
+import com.divergentthoughtsgames.colonies.persistence.GameStateReader;
+import com.divergentthoughtsgames.colonies.persistence.GameStateWriter;
+import com.divergentthoughtsgames.colonies.platform.AudioSink;
+import com.divergentthoughtsgames.colonies.platform.Log;
+import com.divergentthoughtsgames.colonies.render.RenderPipeline;
 
 
 /**
- * Used by the primary thread for the Logic and Event systems.
+ * Used by the primary thread for the Logic and Event systems. Has no Android
+ * dependencies; platform services are provided through the platform package.
  * @author Christopher D Canfield
  */
 public class GameManager implements Serializable, Runnable
@@ -53,7 +58,8 @@ public class GameManager implements Serializable, Runnable
 	// The game subsystems.
 	private final EventManager eventManager;
 	private final GameLogicManager gameLogicManager;
-	private transient SoundManager soundManager;
+	private transient AudioSink audioSink;
+	private transient volatile RenderPipeline renderPipeline;
 
 	// The number of game ticks since the game has started. A game tick
 	// is equal to one iteration of the game logic.
@@ -76,15 +82,138 @@ public class GameManager implements Serializable, Runnable
 
 	
 	public GameManager(List<String> organismNames)
+	{
+		this(organismNames, WorldGrid.DEFAULT_ROWS, WorldGrid.DEFAULT_COLUMNS);
+	}
+	
+	/**
+	 * Creates a GameManager whose world grid has the specified size.
+	 * @param organismNames The names given to new Organisms.
+	 * @param rows The number of rows in the world grid.
+	 * @param columns The number of columns in the world grid.
+	 */
+	public GameManager(List<String> organismNames, int rows, int columns)
+	{
+		this(organismNames, rows, columns, System.nanoTime());
+	}
+	
+	/**
+	 * Creates a GameManager whose world grid has the specified size. All of the simulation's 
+	 * random numbers are drawn from generators derived from the seed, so two games created 
+	 * with the same arguments, and given the same events, play out identically.
+	 * @param organismNames The names given to new Organisms.
+	 * @param rows The number of rows in the world grid.
+	 * @param columns The number of columns in the world grid.
+	 * @param seed The seed for the simulation's random number generators.
+	 */
+	public GameManager(List<String> organismNames, int rows, int columns, long seed)
 	{	
 		// Create instances of the non-transient game subsystems.
 		this.eventManager = new EventManager();
 		this.organismNames = organismNames;
-		this.gameLogicManager = new GameLogicManager(this);
+		this.gameLogicManager = new GameLogicManager(this, rows, columns, seed);
 		
 		stateRestore();
 	}
 	
+	/**
+	 * Restores a GameManager that was written by writeState.
+	 */
+	private GameManager(GameStateReader in) throws IOException
+	{
+		this.gameTicks = in.readVarLong();
+		this.isPaused = in.readBoolean();
+		
+		final int nameCount = in.readVarInt();
+		this.organismNames = new ArrayList<String>(nameCount);
+		for (int i = 0; i < nameCount; ++i)
+		{
+			this.organismNames.add(in.readSharedString());
+		}
+		
+		this.eventManager = new EventManager();
+		this.gameLogicManager = GameLogicManager.readState(this, in);
+		this.eventManager.readState(in);
+		
+		stateRestore();
+	}
+	
+	/**
+	 * Writes the game state in the binary saved game format. The Organism names are written 
+	 * first, so that each Organism's name is written as a reference to the list. Must be 
+	 * called between game ticks; use GameStateSerializer to save a complete game.
+	 * @param out The writer.
+	 */
+	public void writeState(GameStateWriter out) throws IOException
+	{
+		out.writeVarLong(this.gameTicks);
+		out.writeBoolean(isPaused());
+		
+		out.writeVarInt(this.organismNames.size());
+		for (String name : this.organismNames)
+		{
+			out.writeSharedString(name);
+		}
+		
+		this.gameLogicManager.writeState(out);
+		this.eventManager.writeState(out);
+	}
+	
+	/**
+	 * Reads a game state that was written by writeState.
+	 * @param in The reader.
+	 * @return The restored GameManager.
+	 */
+	public static GameManager readState(GameStateReader in) throws IOException
+	{
+		if (in == null) throw new IllegalArgumentException("Argument 'in' cannot be null.");
+		return new GameManager(in);
+	}
+	
+	/**
+	 * Marks the current state as checkpointed: writeChanges writes the changes made after the
+	 * last call to this method or to writeChanges. Called after the state has been written by 
+	 * writeState.
+	 */
+	public void markCheckpoint()
+	{
+		this.gameLogicManager.markCheckpoint();
+	}
+	
+	/**
+	 * Writes the changes made since the last checkpoint in the binary saved game format, and 
+	 * marks the current state as checkpointed. The queued events are written in full. Must be 
+	 * called between game ticks; use GameStateSerializer to write a complete record.
+	 * @param out The writer.
+	 */
+	public void writeChanges(GameStateWriter out) throws IOException
+	{
+		out.writeVarLong(this.gameTicks);
+		out.writeBoolean(isPaused());
+		this.gameLogicManager.writeChanges(out);
+		this.eventManager.writeState(out);
+	}
+	
+	/**
+	 * Replays changes that were written by writeChanges. The queued events are replaced by
+	 * the events that were written.
+	 * @param in The reader.
+	 */
+	public void readChanges(GameStateReader in) throws IOException
+	{
+		if (in == null) throw new IllegalArgumentException("Argument 'in' cannot be null.");
+		
+		this.gameTicks = in.readVarLong();
+		final boolean paused = in.readBoolean();
+		synchronized (this)
+		{
+			this.isPaused = paused;
+		}
+		this.gameLogicManager.readChanges(in);
+		this.eventManager.clearPendingEvents();
+		this.eventManager.readState(in);
+	}
+	
 	
 	@Override
 	public void run()
@@ -116,24 +245,24 @@ public class GameManager implements Serializable, Runnable
 		return this.isPaused;
 	}
 	
-	public String getRandomName()
+	/**
+	 * Chooses a name for a new Organism.
+	 * @param random The random number generator used to choose the name.
+	 * @return A name from the list of Organism names, or a random number if the list is empty.
+	 */
+	public String getRandomName(Random random)
 	{
-		Random rand = new Random();
 		if (this.organismNames.size() > 0)
 		{
-			int nameIndex = rand.nextInt(this.organismNames.size());
+			int nameIndex = random.nextInt(this.organismNames.size());
 			return this.organismNames.get(nameIndex);
 		}
-		return Integer.toString(rand.nextInt());
+		return Integer.toString(random.nextInt());
 	}
 	
 	private void stateRestore()
 	{
 		this.calendar = Calendar.getInstance();
-		
-		// Create instances of the transient game subsystems.
-
-		this.soundManager = new SoundManager(this);
 	}
 	
 	public EventManager getEventManager()
@@ -141,6 +270,58 @@ public class GameManager implements Serializable, Runnable
 		return this.eventManager;
 	}
 	
+	public GameLogicManager getGameLogicManager()
+	{
+		return this.gameLogicManager;
+	}
+	
+	/**
+	 * Gets the AudioSink, or null if the game is running without audio. The AudioSink
+	 * is not saved with the game state.
+	 * @return The AudioSink, or null.
+	 */
+	public AudioSink getAudioSink()
+	{
+		return this.audioSink;
+	}
+	
+	/**
+	 * Sets the AudioSink used to play sounds and music. Any previous AudioSink is released.
+	 * @param audioSink The AudioSink, or null to run without audio.
+	 */
+	public void setAudioSink(AudioSink audioSink)
+	{
+		if (this.audioSink != null && this.audioSink != audioSink)
+		{
+			this.audioSink.release();
+		}
+		this.audioSink = audioSink;
+	}
+	
+	/**
+	 * Gets the RenderPipeline, or null if the game is running without a renderer. The 
+	 * RenderPipeline is not saved with the game state.
+	 * @return The RenderPipeline, or null.
+	 */
+	public RenderPipeline getRenderPipeline()
+	{
+		return this.renderPipeline;
+	}
+	
+	/**
+	 * Sets the RenderPipeline, which is published to at the end of each game tick. Any 
+	 * previous RenderPipeline is released.
+	 * @param renderPipeline The RenderPipeline, or null to run without a renderer.
+	 */
+	public synchronized void setRenderPipeline(RenderPipeline renderPipeline)
+	{
+		if (this.renderPipeline != null && this.renderPipeline != renderPipeline)
+		{
+			this.renderPipeline.release();
+		}
+		this.renderPipeline = renderPipeline;
+	}
+	
 	public long getGameTicks()
 	{
 		return this.gameTicks;
@@ -163,14 +344,21 @@ public class GameManager implements Serializable, Runnable
 	}
 
 	/**
-	 * Calls update() on the EventManager and GameLogicManager, and
-	 * increments the game tick counter.
+	 * Calls update() on the EventManager and GameLogicManager, publishes the changes
+	 * to the RenderPipeline, if there is one, and increments the game tick counter. 
+	 * Called once per game tick by run(), and directly by headless runners.
 	 */
-	private void processUpdates()
+	public void processUpdates()
 	{
 		this.eventManager.update(GameManager.this.gameTicks);
 		this.gameLogicManager.update(GameManager.this.gameTicks);
 		
+		final RenderPipeline pipeline = this.renderPipeline;
+		if (pipeline != null)
+		{
+			pipeline.publish(this.gameTicks);
+		}
+		
 		++this.gameTicks;
 	}
 	
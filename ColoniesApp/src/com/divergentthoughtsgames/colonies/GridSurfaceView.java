@@ -0,0 +1,610 @@
+package com.divergentthoughtsgames.colonies;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.divergentthoughtsgames.colonies.render.AnimationClock;
+import com.divergentthoughtsgames.colonies.render.GridViewport;
+import com.divergentthoughtsgames.colonies.render.RenderFrame;
+import com.divergentthoughtsgames.colonies.render.RenderPipeline;
+import com.divergentthoughtsgames.colonies.util.AnimationUtilities;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Rect;
+import android.graphics.drawable.AnimationDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * Draws the world grid in a single view, from the frames published by the RenderPipeline. 
+ * A render thread pulls the cells that changed at most once per frame, and redraws only the 
+ * part of the screen that they cover. Every cell is drawn from one SpriteAtlas, tinted with 
+ * its colony's color, and cells outside the viewport are not drawn, so the cost of drawing is 
+ * bounded by the screen size. Pulling the changed cells and starting their animations is not 
+ * culled, and grows with the number of cells that changed anywhere in the world grid. The 
+ * cells' animations are played by one AnimationClock, which the render thread advances for 
+ * the visible cells each frame. Grids that do not fit the view are scrolled by dragging.
+ * @author Christopher D Canfield
+ */
+public class GridSurfaceView extends SurfaceView implements SurfaceHolder.Callback, Runnable
+{
+	/**
+	 * Receives clicks on the grid's cells. Called on the UI thread.
+	 * @author Christopher D Canfield
+	 */
+	public interface OnCellClickListener
+	{
+		void onCellClick(int row, int column);
+		
+		/**
+		 * @return True if the long click was handled.
+		 */
+		boolean onCellLongClick(int row, int column);
+	}
+	
+	private static final String LOG_TAG = "GridSurfaceView";
+	
+	// The time between frames, in milliseconds.
+	private static final long FRAME_MILLIS = 16;
+	// The smallest size of a cell, in density-independent pixels.
+	private static final int MIN_CELL_SIZE_DIP = 32;
+	private static final int BACKGROUND_COLOR = 0xFF99CC00;
+	
+	// The longest random delay before a new or restored Organism's animation starts, and before 
+	// an Organism's animation changes with its happiness, in milliseconds. The delays keep the 
+	// animations of neighboring Organisms out of step.
+	private static final int MAX_START_DELAY_MILLIS = 2000;
+	private static final int MAX_REPLACE_DELAY_MILLIS = 4500;
+	// The time a grown Organism waits before starting its adult animation, in milliseconds.
+	private static final int ADULT_DELAY_MILLIS = 500;
+	
+	private final SpriteAtlas atlas;
+	// Plays every cell's animation. Each animation resource is loaded into the clock once, and 
+	// its frames into the atlas; these arrays hold the clock's animation numbers, in the order of 
+	// the AnimationUtilities resource ID arrays. One is chosen at random for each Organism.
+	private final AnimationClock clock = new AnimationClock();
+	private final int[] growAnimations;
+	private final int[] contentAnimations;
+	private final int[] happyAnimations;
+	private final int[] unhappyAnimations;
+	private final int popAnimation;
+	private final int deadAnimation;
+	private final GestureDetector gestureDetector;
+	private final int minCellSize;
+	
+	private OnCellClickListener listener;
+	
+	// Guarded by viewportLock. The pipeline and viewport are set by the UI thread, and copied
+	// by the render thread when they change.
+	private final Object viewportLock = new Object();
+	private RenderPipeline pipeline;
+	private GridViewport viewport;
+	private boolean isViewportChanged;
+	private int width;
+	private int height;
+	
+	private Thread renderThread;
+	private volatile boolean isRendering;
+	
+	// Used only by the render thread.
+	private RenderPipeline framePipeline;
+	private RenderFrame frame;
+	private GridViewport drawnViewport;
+	private final Rect dirtyArea = new Rect();
+	private final Rect cellArea = new Rect();
+	private final Paint untintedPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+	private final SparseArray<Paint> tintPaints = new SparseArray<Paint>();
+	private final Random random = new Random();
+	
+	
+	public GridSurfaceView(Context context, AttributeSet attrs)
+	{
+		super(context, attrs);
+		
+		final Resources resources = context.getResources();
+		final List<Drawable> sprites = new ArrayList<Drawable>();
+		final Map<Drawable.ConstantState, Integer> spriteIndexes = new HashMap<Drawable.ConstantState, Integer>();
+		this.growAnimations = loadAnimations(resources, AnimationUtilities.GROW_ANIMATION_IDS, sprites, spriteIndexes);
+		this.contentAnimations = loadAnimations(resources, AnimationUtilities.CONTENT_ANIMATION_IDS, sprites, spriteIndexes);
+		this.happyAnimations = loadAnimations(resources, AnimationUtilities.HAPPY_ANIMATION_IDS, sprites, spriteIndexes);
+		this.unhappyAnimations = loadAnimations(resources, AnimationUtilities.UNHAPPY_ANIMATION_IDS, sprites, spriteIndexes);
+		this.popAnimation = loadAnimation(resources, R.anim.organism_pop, sprites, spriteIndexes);
+		this.deadAnimation = this.clock.addAnimation(
+				new int[] { addSprite(resources.getDrawable(R.drawable.organism_dead), sprites, spriteIndexes) }, 
+				new int[] { 1 }, false);
+		this.atlas = new SpriteAtlas(sprites.toArray(new Drawable[sprites.size()]));
+		this.minCellSize = Math.max(1, (int)(MIN_CELL_SIZE_DIP * resources.getDisplayMetrics().density + 0.5f));
+		
+		this.gestureDetector = new GestureDetector(context, new GridGestureListener());
+		getHolder().addCallback(this);
+	}
+	
+	private int[] loadAnimations(Resources resources, int[] resourceIds, List<Drawable> sprites, 
+			Map<Drawable.ConstantState, Integer> spriteIndexes)
+	{
+		final int[] animations = new int[resourceIds.length];
+		for (int i = 0; i < resourceIds.length; ++i)
+		{
+			animations[i] = loadAnimation(resources, resourceIds[i], sprites, spriteIndexes);
+		}
+		return animations;
+	}
+	
+	/**
+	 * Adds an animation-list resource to the clock, and its frames to the atlas sprites.
+	 * @return The clock's number for the animation.
+	 */
+	private int loadAnimation(Resources resources, int resourceId, List<Drawable> sprites, 
+			Map<Drawable.ConstantState, Integer> spriteIndexes)
+	{
+		final AnimationDrawable drawable = (AnimationDrawable)resources.getDrawable(resourceId);
+		final int frameCount = drawable.getNumberOfFrames();
+		final int[] frameSprites = new int[frameCount];
+		final int[] frameDurations = new int[frameCount];
+		for (int i = 0; i < frameCount; ++i)
+		{
+			frameSprites[i] = addSprite(drawable.getFrame(i), sprites, spriteIndexes);
+			frameDurations[i] = drawable.getDuration(i);
+		}
+		return this.clock.addAnimation(frameSprites, frameDurations, !drawable.isOneShot());
+	}
+	
+	/**
+	 * Adds a sprite for the atlas, unless an image loaded from the same resource was already 
+	 * added; the animations share most of their frames.
+	 * @return The sprite's index in the atlas.
+	 */
+	private static int addSprite(Drawable sprite, List<Drawable> sprites, Map<Drawable.ConstantState, Integer> spriteIndexes)
+	{
+		final Drawable.ConstantState state = sprite.getConstantState();
+		Integer index = (state != null) ? spriteIndexes.get(state) : null;
+		if (index == null)
+		{
+			index = sprites.size();
+			sprites.add(sprite);
+			if (state != null)
+			{
+				spriteIndexes.put(state, index);
+			}
+		}
+		return index;
+	}
+	
+	public void setOnCellClickListener(OnCellClickListener listener)
+	{
+		this.listener = listener;
+	}
+	
+	/**
+	 * Sets the RenderPipeline that the grid is drawn from. The viewport is reset when the
+	 * pipeline changes.
+	 * @param pipeline The RenderPipeline, or null to stop drawing.
+	 */
+	public void setRenderPipeline(RenderPipeline pipeline)
+	{
+		synchronized (this.viewportLock)
+		{
+			if (pipeline == this.pipeline)
+			{
+				return;
+			}
+			
+			this.pipeline = pipeline;
+			if (pipeline != null)
+			{
+				this.viewport = new GridViewport(pipeline.getRows(), pipeline.getColumns(), this.minCellSize);
+				this.viewport.setViewSize(this.width, this.height);
+			}
+			else
+			{
+				this.viewport = null;
+			}
+			this.isViewportChanged = true;
+		}
+	}
+	
+	@Override
+	public boolean onTouchEvent(MotionEvent event)
+	{
+		return this.gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+	}
+	
+	@Override
+	public void surfaceCreated(SurfaceHolder holder)
+	{
+		this.isRendering = true;
+		this.renderThread = new Thread(this, LOG_TAG);
+		this.renderThread.start();
+	}
+	
+	@Override
+	public void surfaceChanged(SurfaceHolder holder, int format, int width, int height)
+	{
+		synchronized (this.viewportLock)
+		{
+			this.width = width;
+			this.height = height;
+			if (this.viewport != null)
+			{
+				this.viewport.setViewSize(width, height);
+			}
+			this.isViewportChanged = true;
+		}
+	}
+	
+	@Override
+	public void surfaceDestroyed(SurfaceHolder holder)
+	{
+		// The surface cannot be drawn on once this method returns.
+		this.isRendering = false;
+		boolean isInterrupted = false;
+		while (this.renderThread != null)
+		{
+			try
+			{
+				this.renderThread.join();
+				this.renderThread = null;
+			}
+			catch (InterruptedException e)
+			{
+				isInterrupted = true;
+			}
+		}
+		if (isInterrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * The render thread's loop.
+	 */
+	@Override
+	public void run()
+	{
+		// The surface starts out blank.
+		synchronized (this.viewportLock)
+		{
+			this.isViewportChanged = true;
+		}
+		
+		while (this.isRendering)
+		{
+			final long frameStartTime = SystemClock.uptimeMillis();
+			renderFrame();
+			
+			final long sleepTime = FRAME_MILLIS - (SystemClock.uptimeMillis() - frameStartTime);
+			if (sleepTime > 0)
+			{
+				SystemClock.sleep(sleepTime);
+			}
+		}
+	}
+	
+	private void renderFrame()
+	{
+		final RenderPipeline pipeline;
+		boolean isRedrawNeeded = false;
+		synchronized (this.viewportLock)
+		{
+			pipeline = this.pipeline;
+			if (this.isViewportChanged)
+			{
+				this.drawnViewport = (this.viewport != null) ? new GridViewport(this.viewport) : null;
+				this.isViewportChanged = false;
+				isRedrawNeeded = true;
+			}
+		}
+		
+		if (pipeline == null || this.drawnViewport == null)
+		{
+			return;
+		}
+		
+		if (pipeline != this.framePipeline)
+		{
+			// A new or loaded game: start from a full copy of the published frame.
+			this.framePipeline = pipeline;
+			this.frame = pipeline.newFrame();
+			this.clock.setCellCount(this.frame.getRows() * this.frame.getColumns());
+			isRedrawNeeded = true;
+		}
+		else
+		{
+			pipeline.pull(this.frame);
+		}
+		
+		final long time = SystemClock.uptimeMillis();
+		startAnimations(time);
+		
+		// The visible cells' animations are advanced even when the whole view is redrawn.
+		final boolean isChanged = findDirtyArea(time);
+		if (isRedrawNeeded || isChanged)
+		{
+			draw(isRedrawNeeded);
+		}
+		this.frame.clearDirty();
+	}
+	
+	/**
+	 * Starts the animation for the new state of each cell that changed.
+	 * @param time The current time, in milliseconds.
+	 */
+	private void startAnimations(long time)
+	{
+		final RenderFrame frame = this.frame;
+		final AnimationClock clock = this.clock;
+		for (int i = 0; i < frame.getDirtyCount(); ++i)
+		{
+			final int cell = frame.getDirtyCell(i);
+			final byte state = frame.getState(cell);
+			if (state == RenderFrame.EMPTY)
+			{
+				clock.stop(cell);
+			}
+			else if (state == RenderFrame.DEAD)
+			{
+				clock.start(cell, this.deadAnimation, time);
+			}
+			else if (state == RenderFrame.POPPED)
+			{
+				clock.start(cell, this.popAnimation, time);
+			}
+			else if (state == RenderFrame.GROWING)
+			{
+				// Once grown, and after a short wait, the Organism becomes content.
+				final int growAnimation = chooseAnimation(this.growAnimations);
+				final long startTime = time + this.random.nextInt(MAX_START_DELAY_MILLIS);
+				clock.start(cell, growAnimation, startTime);
+				clock.replace(cell, chooseAnimation(this.contentAnimations), 
+						startTime + clock.getDuration(growAnimation) + ADULT_DELAY_MILLIS);
+			}
+			else
+			{
+				final int animation;
+				if (state == RenderFrame.HAPPY)
+				{
+					animation = chooseAnimation(this.happyAnimations);
+				}
+				else if (state == RenderFrame.UNHAPPY)
+				{
+					animation = chooseAnimation(this.unhappyAnimations);
+				}
+				else
+				{
+					animation = chooseAnimation(this.contentAnimations);
+				}
+				
+				if (clock.isAnimated(cell))
+				{
+					clock.replace(cell, animation, time + this.random.nextInt(MAX_REPLACE_DELAY_MILLIS));
+				}
+				else
+				{
+					// A restored Organism is shown at once.
+					clock.start(cell, animation, time + this.random.nextInt(MAX_START_DELAY_MILLIS));
+				}
+			}
+		}
+	}
+	
+	private int chooseAnimation(int[] animations)
+	{
+		return animations[this.random.nextInt(animations.length)];
+	}
+	
+	/**
+	 * Advances the animations of the visible cells, and finds the area of the screen covered 
+	 * by those whose sprite or color changed.
+	 * @param time The current time, in milliseconds.
+	 * @return True if any visible cells changed.
+	 */
+	private boolean findDirtyArea(long time)
+	{
+		final GridViewport viewport = this.drawnViewport;
+		final RenderFrame frame = this.frame;
+		final int firstRow = viewport.getFirstRow();
+		final int endRow = viewport.getEndRow();
+		final int firstColumn = viewport.getFirstColumn();
+		final int endColumn = viewport.getEndColumn();
+		final int cellSize = viewport.getCellSize();
+		
+		final Rect area = this.dirtyArea;
+		area.setEmpty();
+		for (int row = firstRow; row < endRow; ++row)
+		{
+			for (int column = firstColumn; column < endColumn; ++column)
+			{
+				final int cell = frame.toCell(row, column);
+				// Both are evaluated, so that the animation is always advanced.
+				if (this.clock.advance(cell, time) | frame.isDirty(cell))
+				{
+					final int left = viewport.getCellLeft(column);
+					final int top = viewport.getCellTop(row);
+					area.union(left, top, left + cellSize, top + cellSize);
+				}
+			}
+		}
+		return !area.isEmpty();
+	}
+	
+	/**
+	 * Draws the visible cells that overlap the dirty area, or the whole view.
+	 * @param isFullRedraw True to draw the whole view.
+	 */
+	private void draw(boolean isFullRedraw)
+	{
+		final GridViewport viewport = this.drawnViewport;
+		final Rect area = this.dirtyArea;
+		final Canvas canvas = getHolder().lockCanvas(isFullRedraw ? null : area);
+		if (canvas == null)
+		{
+			return;
+		}
+		
+		try
+		{
+			if (isFullRedraw)
+			{
+				area.set(0, 0, canvas.getWidth(), canvas.getHeight());
+			}
+			// The canvas is clipped to the area, which lockCanvas may have enlarged.
+			canvas.drawColor(BACKGROUND_COLOR);
+			
+			final int firstRow = Math.max(viewport.getFirstRow(), viewport.toRow(area.top));
+			final int endRow = Math.min(viewport.getEndRow(), viewport.toRow(area.bottom - 1) + 1);
+			final int firstColumn = Math.max(viewport.getFirstColumn(), viewport.toColumn(area.left));
+			final int endColumn = Math.min(viewport.getEndColumn(), viewport.toColumn(area.right - 1) + 1);
+			final int cellSize = viewport.getCellSize();
+			
+			for (int row = firstRow; row < endRow; ++row)
+			{
+				final int top = viewport.getCellTop(row);
+				for (int column = firstColumn; column < endColumn; ++column)
+				{
+					final int cell = this.frame.toCell(row, column);
+					final int sprite = this.clock.getSprite(cell);
+					if (sprite != AnimationClock.NO_SPRITE)
+					{
+						final int left = viewport.getCellLeft(column);
+						this.cellArea.set(left, top, left + cellSize, top + cellSize);
+						this.atlas.draw(canvas, sprite, this.cellArea, 
+								getPaint(this.frame.getState(cell), this.frame.getColor(cell)));
+					}
+				}
+			}
+		}
+		finally
+		{
+			getHolder().unlockCanvasAndPost(canvas);
+		}
+	}
+	
+	/**
+	 * Gets the paint that tints a sprite with its colony's color. Dead and popped Organisms
+	 * are not tinted. The paints are created once per color.
+	 */
+	private Paint getPaint(byte state, int color)
+	{
+		if (state == RenderFrame.DEAD || state == RenderFrame.POPPED)
+		{
+			return this.untintedPaint;
+		}
+		
+		Paint paint = this.tintPaints.get(color);
+		if (paint == null)
+		{
+			paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+			paint.setColorFilter(new PorterDuffColorFilter(color, PorterDuff.Mode.MULTIPLY));
+			this.tintPaints.put(color, paint);
+		}
+		return paint;
+	}
+	
+	
+	/**
+	 * Converts taps, long presses and drags on the view into cell clicks and scrolling.
+	 * @author Christopher D Canfield
+	 */
+	private class GridGestureListener extends GestureDetector.SimpleOnGestureListener
+	{
+		@Override
+		public boolean onDown(MotionEvent e)
+		{
+			return true;
+		}
+		
+		@Override
+		public boolean onSingleTapUp(MotionEvent e)
+		{
+			final OnCellClickListener listener = GridSurfaceView.this.listener;
+			final int row = getRowAt(e);
+			final int column = getColumnAt(e);
+			if (listener != null && row != -1 && column != -1)
+			{
+				listener.onCellClick(row, column);
+				return true;
+			}
+			return false;
+		}
+		
+		@Override
+		public void onLongPress(MotionEvent e)
+		{
+			final OnCellClickListener listener = GridSurfaceView.this.listener;
+			final int row = getRowAt(e);
+			final int column = getColumnAt(e);
+			if (listener != null && row != -1 && column != -1)
+			{
+				listener.onCellLongClick(row, column);
+			}
+		}
+		
+		@Override
+		public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY)
+		{
+			synchronized (GridSurfaceView.this.viewportLock)
+			{
+				final GridViewport viewport = GridSurfaceView.this.viewport;
+				if (viewport != null && viewport.scrollBy((int)distanceX, (int)distanceY))
+				{
+					GridSurfaceView.this.isViewportChanged = true;
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		private int getRowAt(MotionEvent e)
+		{
+			synchronized (GridSurfaceView.this.viewportLock)
+			{
+				final GridViewport viewport = GridSurfaceView.this.viewport;
+				return (viewport != null) ? viewport.getRowAt((int)e.getY()) : -1;
+			}
+		}
+		
+		private int getColumnAt(MotionEvent e)
+		{
+			synchronized (GridSurfaceView.this.viewportLock)
+			{
+				final GridViewport viewport = GridSurfaceView.this.viewport;
+				return (viewport != null) ? viewport.getColumnAt((int)e.getX()) : -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.divergentthoughtsgames.colonies;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * A set of sprites packed into a single bitmap, so that the whole grid is drawn from one 
+ * bitmap, rather than from a Drawable per cell. Every sprite is given a square slot the size 
+ * of the largest sprite.
+ * @author Christopher D Canfield
+ */
+final class SpriteAtlas
+{
+	private final Bitmap bitmap;
+	// The area of the bitmap that holds each sprite.
+	private final Rect[] sources;
+	
+	/**
+	 * Creates an atlas from the sprites, in order.
+	 * @param sprites The sprites. Each is drawn at its intrinsic size.
+	 * @throws IllegalArgumentException if sprites is null or empty.
+	 */
+	SpriteAtlas(Drawable[] sprites)
+	{
+		if (sprites == null || sprites.length == 0)
+			throw new IllegalArgumentException("Argument 'sprites' cannot be null or empty.");
+		
+		int spriteSize = 1;
+		for (Drawable sprite : sprites)
+		{
+			spriteSize = Math.max(spriteSize, Math.max(sprite.getIntrinsicWidth(), sprite.getIntrinsicHeight()));
+		}
+		
+		final int columns = (int)Math.ceil(Math.sqrt(sprites.length));
+		final int rows = (sprites.length + columns - 1) / columns;
+		this.bitmap = Bitmap.createBitmap(columns * spriteSize, rows * spriteSize, Bitmap.Config.ARGB_8888);
+		this.sources = new Rect[sprites.length];
+		
+		final Canvas canvas = new Canvas(this.bitmap);
+		for (int i = 0; i < sprites.length; ++i)
+		{
+			final int left = (i % columns) * spriteSize;
+			final int top = (i / columns) * spriteSize;
+			this.sources[i] = new Rect(left, top, left + spriteSize, top + spriteSize);
+			
+			// Center sprites that are smaller than the slot.
+			final Drawable sprite = sprites[i];
+			final int width = (sprite.getIntrinsicWidth() > 0) ? sprite.getIntrinsicWidth() : spriteSize;
+			final int height = (sprite.getIntrinsicHeight() > 0) ? sprite.getIntrinsicHeight() : spriteSize;
+			final int x = left + (spriteSize - width) / 2;
+			final int y = top + (spriteSize - height) / 2;
+			sprite.setBounds(x, y, x + width, y + height);
+			sprite.draw(canvas);
+		}
+	}
+	
+	/**
+	 * Draws a sprite, scaled to fill the destination.
+	 * @param canvas The canvas to draw on.
+	 * @param sprite The sprite's index.
+	 * @param destination The area to draw the sprite in.
+	 * @param paint The paint, which holds the color filter used to tint the sprite.
+	 */
+	void draw(Canvas canvas, int sprite, Rect destination, Paint paint)
+	{
+		canvas.drawBitmap(this.bitmap, this.sources[sprite], destination, paint);
+	}
+}
@@ -0,0 +1,338 @@
+package com.divergentthoughtsgames.colonies.cli;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.DispatchPolicy;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
+import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.logic.GameLogicManager;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+import com.divergentthoughtsgames.colonies.logic.WorldGrid;
+import com.divergentthoughtsgames.colonies.persistence.CheckpointService;
+import com.divergentthoughtsgames.colonies.persistence.MappedWorldFile;
+import com.divergentthoughtsgames.colonies.platform.ConsoleLogSink;
+import com.divergentthoughtsgames.colonies.platform.Log;
+
+
+/**
+ * Runs the simulation on a plain JVM, without the Android user interface, and
+ * reports the number of ticks processed per second. Usage:
+ * 
+ * 	SimulationRunner [--rows=N] [--columns=N] [--ticks=N] [--colonies=N] 
+ * 		[--density=0..1] [--seed=N] [--threads=N] [--tile-size=N] 
+ * 		[--events-per-tick=N | --event-budget-ns=N] [--checkpoint=FILE [--checkpoint-every=N]] 
+ * 		[--save-mapped=FILE] [--decay-ticks=N] [--report-every=N] [--verbose]
+ * 
+ * With --report-every, the time per tick, Organism count and heap in use are printed every
+ * N ticks, so that long soak runs can be checked for growth in tick time or memory.
+ * 
+ * @author Christopher D. Canfield
+ */
+public final class SimulationRunner
+{
+	private int rows = WorldGrid.DEFAULT_ROWS;
+	private int columns = WorldGrid.DEFAULT_COLUMNS;
+	private long ticks = 10000;
+	private int colonies = 2;
+	private double density = 0;
+	private long seed = System.nanoTime();
+	private int threads = 1;
+	private int tileSize = GameLogicManager.DEFAULT_TILE_SIZE;
+	private DispatchPolicy dispatchPolicy = DispatchPolicy.drainAll();
+	private File checkpointFile = null;
+	private long checkpointEvery = 1000;
+	private File mappedFile = null;
+	private long decayTicks = GameLogicManager.DEFAULT_DECAY_TICKS;
+	private long reportEvery = 0;
+	private boolean verbose = false;
+	
+	private SimulationRunner() {}
+	
+	public static void main(String[] args)
+	{
+		SimulationRunner runner = new SimulationRunner();
+		try
+		{
+			runner.parseArguments(args);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.err.println("Usage: SimulationRunner [--rows=N] [--columns=N] [--ticks=N] [--colonies=N] " +
+					"[--density=0..1] [--seed=N] [--threads=N] [--tile-size=N] [--events-per-tick=N | --event-budget-ns=N] " +
+					"[--checkpoint=FILE [--checkpoint-every=N]] [--save-mapped=FILE] [--decay-ticks=N] [--report-every=N] [--verbose]");
+			System.exit(1);
+		}
+		runner.run();
+	}
+	
+	private void parseArguments(String[] args)
+	{
+		for (String arg : args)
+		{
+			String[] parts = arg.split("=", 2);
+			String name = parts[0];
+			String value = (parts.length > 1) ? parts[1] : null;
+			
+			if (name.equals("--verbose"))
+			{
+				this.verbose = true;
+			}
+			else if (value == null)
+			{
+				throw new IllegalArgumentException("Missing value for argument: " + arg);
+			}
+			else if (name.equals("--rows"))
+			{
+				this.rows = Integer.parseInt(value);
+			}
+			else if (name.equals("--columns"))
+			{
+				this.columns = Integer.parseInt(value);
+			}
+			else if (name.equals("--ticks"))
+			{
+				this.ticks = Long.parseLong(value);
+			}
+			else if (name.equals("--colonies"))
+			{
+				this.colonies = Integer.parseInt(value);
+			}
+			else if (name.equals("--density"))
+			{
+				this.density = Double.parseDouble(value);
+			}
+			else if (name.equals("--seed"))
+			{
+				this.seed = Long.parseLong(value);
+			}
+			else if (name.equals("--threads"))
+			{
+				this.threads = Integer.parseInt(value);
+			}
+			else if (name.equals("--tile-size"))
+			{
+				this.tileSize = Integer.parseInt(value);
+			}
+			else if (name.equals("--events-per-tick"))
+			{
+				this.dispatchPolicy = DispatchPolicy.fixedCount(Integer.parseInt(value));
+			}
+			else if (name.equals("--event-budget-ns"))
+			{
+				this.dispatchPolicy = DispatchPolicy.timeBudget(Long.parseLong(value));
+			}
+			else if (name.equals("--checkpoint"))
+			{
+				this.checkpointFile = new File(value);
+			}
+			else if (name.equals("--checkpoint-every"))
+			{
+				this.checkpointEvery = Long.parseLong(value);
+			}
+			else if (name.equals("--save-mapped"))
+			{
+				this.mappedFile = new File(value);
+			}
+			else if (name.equals("--decay-ticks"))
+			{
+				this.decayTicks = Long.parseLong(value);
+			}
+			else if (name.equals("--report-every"))
+			{
+				this.reportEvery = Long.parseLong(value);
+			}
+			else
+			{
+				throw new IllegalArgumentException("Unknown argument: " + arg);
+			}
+		}
+		
+		if (this.rows <= 0 || this.columns <= 0)
+			throw new IllegalArgumentException("The grid must have at least one row and one column.");
+		if (this.ticks < 0)
+			throw new IllegalArgumentException("The tick count cannot be negative.");
+		if (this.colonies < 0)
+			throw new IllegalArgumentException("The colony count cannot be negative.");
+		if (this.density < 0 || this.density > 1)
+			throw new IllegalArgumentException("The density must be between 0 and 1.");
+		if (this.threads < 1)
+			throw new IllegalArgumentException("The thread count must be at least one.");
+		if (this.tileSize < 1)
+			throw new IllegalArgumentException("The tile size must be at least one.");
+		if (this.checkpointEvery < 1)
+			throw new IllegalArgumentException("The checkpoint interval must be at least one tick.");
+		if (this.decayTicks < 1)
+			throw new IllegalArgumentException("The decay period must be at least one tick.");
+		if (this.reportEvery < 0)
+			throw new IllegalArgumentException("The report interval cannot be negative.");
+	}
+	
+	private void run()
+	{
+		Log.setSink(new ConsoleLogSink(this.verbose));
+		
+		GameManager gameManager = new GameManager(new ArrayList<String>(), this.rows, this.columns, this.seed);
+		GameLogicManager logicManager = gameManager.getGameLogicManager();
+		logicManager.setUpdateThreads(this.threads);
+		logicManager.setTileSize(this.tileSize);
+		logicManager.setDecayTicks(this.decayTicks);
+		gameManager.getEventManager().setDispatchPolicy(this.dispatchPolicy);
+		Random random = new Random(this.seed);
+		
+		for (int i = 0; i < this.colonies; ++i)
+		{
+			StaticAttributes attributes = StaticAttributes.fromSettings(random.nextInt(5) + 1, random.nextInt(3) + 1, 
+					random.nextInt(5) + 1, random.nextInt(5) + 1, "Colony " + i, random.nextInt(4) + 1);
+			GridPosition location = new GridPosition(random.nextInt(this.rows), random.nextInt(this.columns));
+			logicManager.notify(new NewColonyPlacedEvent(new NewColonyPlacedData(attributes, location, 9, 0)));
+		}
+		logicManager.populate(this.density, random, 0);
+		
+		System.out.println("Grid: " + this.rows + "x" + this.columns + ", colonies: " + logicManager.getColonyCount() +
+				", organisms: " + logicManager.getOrganismCount() + ", seed: " + this.seed + 
+				", threads: " + this.threads);
+		
+		final CheckpointService checkpointService = (this.checkpointFile != null) ? 
+				new CheckpointService(this.checkpointFile) : null;
+		long checkpointCount = 0;
+		long snapshotNanos = 0;
+		long maxSnapshotNanos = 0;
+		
+		final long startTime = System.nanoTime();
+		long reportStart = startTime;
+		for (long tick = 0; tick < this.ticks; ++tick)
+		{
+			gameManager.processUpdates();
+			
+			if (this.reportEvery > 0 && (tick + 1) % this.reportEvery == 0)
+			{
+				report(tick + 1, System.nanoTime() - reportStart, logicManager);
+				reportStart = System.nanoTime();
+			}
+			
+			if (checkpointService != null && (tick + 1) % this.checkpointEvery == 0)
+			{
+				final long snapshotStart = System.nanoTime();
+				checkpoint(checkpointService, gameManager);
+				final long nanos = System.nanoTime() - snapshotStart;
+				++checkpointCount;
+				snapshotNanos += nanos;
+				maxSnapshotNanos = Math.max(maxSnapshotNanos, nanos);
+			}
+		}
+		final long elapsedNanos = System.nanoTime() - startTime;
+		
+		final double seconds = elapsedNanos / 1e9;
+		System.out.println("Simulated " + this.ticks + " ticks in " + String.format("%.3f", seconds) + " s: " + 
+				String.format("%.1f", (seconds > 0) ? this.ticks / seconds : 0) + " ticks/second, " + 
+				logicManager.getOrganismCount() + " organisms");
+		System.out.println("Events (" + this.dispatchPolicy + "): " + gameManager.getEventManager().getMetrics());
+		
+		if (checkpointService != null)
+		{
+			awaitCheckpoints(checkpointService);
+			System.out.println("Checkpoints: " + checkpointCount + " to " + this.checkpointFile + " (" + 
+					this.checkpointFile.length() + " bytes, log " + checkpointService.getLogFile().length() + 
+					" bytes), snapshot time: mean " + 
+					String.format("%.3f", (checkpointCount > 0) ? snapshotNanos / 1e6 / checkpointCount : 0.0) + 
+					" ms, max " + String.format("%.3f", maxSnapshotNanos / 1e6) + " ms");
+		}
+		
+		if (this.mappedFile != null)
+		{
+			saveMapped(gameManager);
+		}
+	}
+	
+	private void report(long tick, long intervalNanos, GameLogicManager logicManager)
+	{
+		// Collect first, so that the heap in use is the live set rather than uncollected garbage.
+		final Runtime runtime = Runtime.getRuntime();
+		runtime.gc();
+		final long usedBytes = runtime.totalMemory() - runtime.freeMemory();
+		System.out.println("Tick " + tick + ": " + 
+				String.format("%.3f", intervalNanos / 1e3 / this.reportEvery) + " us/tick, " + 
+				logicManager.getOrganismCount() + " organisms, heap " + (usedBytes >> 20) + " MB");
+	}
+	
+	private void saveMapped(GameManager gameManager)
+	{
+		try
+		{
+			final long saveStart = System.nanoTime();
+			final long length = MappedWorldFile.save(gameManager, this.mappedFile);
+			final long openStart = System.nanoTime();
+			MappedWorldFile mapped = MappedWorldFile.open(this.mappedFile);
+			try
+			{
+				final long restoreStart = System.nanoTime();
+				mapped.restore();
+				final long restoreEnd = System.nanoTime();
+				System.out.println("Mapped world: " + length + " bytes to " + this.mappedFile + ", saved in " + 
+						String.format("%.1f", (openStart - saveStart) / 1e6) + " ms, opened in " + 
+						String.format("%.3f", (restoreStart - openStart) / 1e6) + " ms, restored in " + 
+						String.format("%.1f", (restoreEnd - restoreStart) / 1e6) + " ms");
+			}
+			finally
+			{
+				mapped.close();
+			}
+		}
+		catch (IOException e)
+		{
+			Log.e("SimulationRunner", "Mapped world save failed", e);
+		}
+	}
+	
+	private static void checkpoint(CheckpointService checkpointService, GameManager gameManager)
+	{
+		try
+		{
+			checkpointService.checkpoint(gameManager);
+		}
+		catch (IOException e)
+		{
+			Log.e("SimulationRunner", "Checkpoint failed", e);
+		}
+	}
+	
+	private static void awaitCheckpoints(CheckpointService checkpointService)
+	{
+		try
+		{
+			checkpointService.awaitWrites(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		checkpointService.shutdown();
+	}
+}
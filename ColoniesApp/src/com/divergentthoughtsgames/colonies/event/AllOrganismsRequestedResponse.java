@@ -21,15 +21,16 @@ along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
 /**
- * A response to the AllOrganismsRequestedEvent.
+ * A response to the AllOrganismsRequestedEvent, which holds the records of every Organism 
+ * in every colony.
  * @author Christopher D Canfield
  */
-public final class AllOrganismsRequestedResponse extends GameEvent<OrganismInfo>
+public final class AllOrganismsRequestedResponse extends GameEvent<OrganismRecords>
 {
 	private static final long serialVersionUID = 7079229326380163612L;
 	public static final long ID = serialVersionUID;
 
-	public AllOrganismsRequestedResponse(OrganismInfo data)
+	public AllOrganismsRequestedResponse(OrganismRecords data)
 	{
 		super(ID, data);
 	}
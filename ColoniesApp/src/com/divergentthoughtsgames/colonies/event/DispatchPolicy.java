@@ -0,0 +1,136 @@
+package com.divergentthoughtsgames.colonies.event;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Serializable;
+
+
+/**
+ * Limits the number of events that the EventManager dispatches per game tick. An update 
+ * never dispatches more events than were queued when it started, so events sent by 
+ * subscribers during dispatch are handled on the next tick.
+ * @author Christopher D. Canfield
+ */
+public final class DispatchPolicy implements Serializable
+{
+	private static final long serialVersionUID = -6473326720189404427L;
+	
+	private static final DispatchPolicy DRAIN_ALL = new DispatchPolicy(Integer.MAX_VALUE, Long.MAX_VALUE);
+	
+	private final int maxEventsPerTick;
+	private final long budgetNanosPerTick;
+	
+	private DispatchPolicy(int maxEventsPerTick, long budgetNanosPerTick)
+	{
+		this.maxEventsPerTick = maxEventsPerTick;
+		this.budgetNanosPerTick = budgetNanosPerTick;
+	}
+	
+	/**
+	 * Returns a policy that dispatches every event that is queued at the start of the tick.
+	 * @return The drain-all policy.
+	 */
+	public static DispatchPolicy drainAll()
+	{
+		return DRAIN_ALL;
+	}
+	
+	/**
+	 * Returns a policy that dispatches at most the specified number of events per tick.
+	 * @param eventsPerTick The maximum number of events dispatched per tick.
+	 * @return The fixed count policy.
+	 * @throws IllegalArgumentException if eventsPerTick is less than 1.
+	 */
+	public static DispatchPolicy fixedCount(int eventsPerTick)
+	{
+		if (eventsPerTick < 1) throw new IllegalArgumentException("Argument 'eventsPerTick' must be at least 1.");
+		return new DispatchPolicy(eventsPerTick, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Returns a policy that stops dispatching events once the specified time has passed in a 
+	 * tick. At least one event is dispatched per tick, so the queue always makes progress.
+	 * @param nanosPerTick The time budget per tick, in nanoseconds.
+	 * @return The time budget policy.
+	 * @throws IllegalArgumentException if nanosPerTick is less than 1.
+	 */
+	public static DispatchPolicy timeBudget(long nanosPerTick)
+	{
+		if (nanosPerTick < 1) throw new IllegalArgumentException("Argument 'nanosPerTick' must be at least 1.");
+		return new DispatchPolicy(Integer.MAX_VALUE, nanosPerTick);
+	}
+	
+	/**
+	 * @return The maximum number of events dispatched per tick, or Integer.MAX_VALUE if unlimited.
+	 */
+	public int getMaxEventsPerTick()
+	{
+		return this.maxEventsPerTick;
+	}
+	
+	/**
+	 * @return The time budget per tick, in nanoseconds, or Long.MAX_VALUE if unlimited.
+	 */
+	public long getBudgetNanosPerTick()
+	{
+		return this.budgetNanosPerTick;
+	}
+	
+	/**
+	 * Specifies whether the policy limits the time spent dispatching events.
+	 * @return True if the policy has a time budget.
+	 */
+	public boolean isTimeBudgeted()
+	{
+		return this.budgetNanosPerTick != Long.MAX_VALUE;
+	}
+	
+	@Override
+	public boolean equals(Object o)
+	{
+		if (!(o instanceof DispatchPolicy))
+		{
+			return false;
+		}
+		DispatchPolicy other = (DispatchPolicy)o;
+		return this.maxEventsPerTick == other.maxEventsPerTick && this.budgetNanosPerTick == other.budgetNanosPerTick;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return 31 * this.maxEventsPerTick + (int)(this.budgetNanosPerTick ^ (this.budgetNanosPerTick >>> 32));
+	}
+	
+	@Override
+	public String toString()
+	{
+		if (isTimeBudgeted())
+		{
+			return "DispatchPolicy[budget=" + this.budgetNanosPerTick + "ns]";
+		}
+		else if (this.maxEventsPerTick != Integer.MAX_VALUE)
+		{
+			return "DispatchPolicy[count=" + this.maxEventsPerTick + "]";
+		}
+		return "DispatchPolicy[drainAll]";
+	}
+}
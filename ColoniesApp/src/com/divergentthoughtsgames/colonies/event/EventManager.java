@@ -22,21 +22,51 @@ along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.*;
 
 import com.divergentthoughtsgames.colonies.Updatable;
-
-import android.util.Log;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+import com.divergentthoughtsgames.colonies.persistence.GameStateReader;
+import com.divergentthoughtsgames.colonies.persistence.GameStateWriter;
+import com.divergentthoughtsgames.colonies.platform.Log;
 
 /**
  * Manager used to forward events to subscribed EventListeners.
+ * <p>
+ * Events are queued in a preallocated ring buffer of reusable slots, so notify does not
+ * allocate while the ring has room. Any thread may call notify, but update must only be
+ * called by the game thread. If the ring fills, events spill into an overflow queue until
+ * update has drained it; events from a single thread are always dispatched in the order
+ * they were sent.
+ * <p>
+ * Subscribers are kept in copy-on-write arrays, looked up by event ID, so dispatching an
+ * event takes no locks.
+ * <p>
+ * The number of events dispatched per tick is set by a DispatchPolicy. The queue depth and 
+ * event latency are tracked, and can be read with getMetrics.
  * @author Christopher D Canfield
  */
 public class EventManager implements Updatable, EventListener, Serializable
 {
 	private static final long serialVersionUID = 2159493506231944594L;
+	
+	/** The default number of slots in the event ring buffer. */
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	// The type codes of the events that are written by writeState.
+	private static final int SAVED_NEW_COLONY_PLACED = 1;
+	private static final int SAVED_ORGANISM_POPPED = 2;
+	private static final int SAVED_ORGANISM_INFO_REQUESTED = 3;
+	private static final int SAVED_ALL_ORGANISMS_REQUESTED = 4;
+	private static final int SAVED_GAME_PAUSED = 5;
+	private static final int SAVED_GAME_UNPAUSED = 6;
 
 	// A map of EventTypes with EventListeners (the subscribers to the event).
 	// key: EventType; value: ArrayList of EventListener objects.
@@ -44,64 +74,180 @@ public class EventManager implements Updatable, EventListener, Serializable
 	
 	private final Map<Long, List<EventListener>> subscribers = 
 			new HashMap<Long, List<EventListener>>();
+	
+	// The subscribers used for dispatch, rebuilt whenever a subscriber is added or removed.
+	private transient volatile SubscriberTable subscriberTable;
 
-	// A queue of events that are awaiting processing.
-	private final Queue<GameEvent<?>> eventQueue = new ConcurrentLinkedQueue<GameEvent<?>>();
+	// The ring buffer of events that are awaiting processing. A slot at position pos 
+	// holds an event once its sequence is pos + 1, and is free for position pos + capacity
+	// once its sequence is pos + capacity.
+	private transient GameEvent<?>[] events;
+	// The System.nanoTime at which each event in the ring buffer was received.
+	private transient long[] enqueueTimes;
+	private transient AtomicLongArray sequences;
+	private transient int mask;
+	
+	// The next position to be claimed by notify.
+	private transient AtomicLong tail;
+	// The next position to be read by update. Only written by the game thread.
+	private transient volatile long head;
+	
+	// Events that arrived while the ring buffer was full.
+	private transient Queue<QueuedEvent> overflow;
+	private transient AtomicInteger overflowCount;
+	
+	// The time at which the event most recently returned by poll was received.
+	private transient long polledEnqueueTime;
+	
+	private final int capacity;
+	
+	private volatile DispatchPolicy dispatchPolicy = DispatchPolicy.drainAll();
+	
+	// Queue metrics. Only written by the game thread.
+	private transient volatile int maxQueueDepth;
+	private transient volatile long dispatchedEventCount;
+	private transient volatile long totalLatencyNanos;
+	private transient volatile long maxLatencyNanos;
 	
 	public EventManager() 
 	{
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates an EventManager whose ring buffer has at least the specified number of slots.
+	 * @param capacity The minimum number of events that can be queued without allocation.
+	 * @throws IllegalArgumentException if capacity is less than 1, or greater than 2^30.
+	 */
+	public EventManager(int capacity)
+	{
+		if (capacity < 1 || capacity > (1 << 30)) throw new IllegalArgumentException("Argument 'capacity' must be between 1 and 2^30.");
+		
+		int slots = 1;
+		while (slots < capacity)
+		{
+			slots <<= 1;
+		}
+		this.capacity = slots;
+		
 		this.nonSerializableSubscribers = new HashMap<Long, List<EventListener>>();
+		stateRestore();
 	}
 	
 	/**
-	 * Loops through queued events. 
-	 * Should be called once per game tick.
+	 * Dispatches queued events, as allowed by the dispatch policy. 
+	 * Should be called once per game tick, by the game thread.
 	 */
 	@Override
 	public void update(long gameTicks)
 	{
 		if (gameTicks < 0) throw new IllegalArgumentException("Argument 'gameTicks' cannot be negative.");
 		
-		final int MAX_LOOPS_PER_TICK = 5;
-		for (int i = 0; i < MAX_LOOPS_PER_TICK; ++i)
+		final int queueDepth = getQueueDepth();
+		if (queueDepth == 0)
+		{
+			return;
+		}
+		if (queueDepth > this.maxQueueDepth)
+		{
+			this.maxQueueDepth = queueDepth;
+		}
+		
+		final DispatchPolicy policy = this.dispatchPolicy;
+		final int eventLimit = Math.min(queueDepth, policy.getMaxEventsPerTick());
+		final long budgetNanos = policy.getBudgetNanosPerTick();
+		final long startTime = System.nanoTime();
+		
+		long totalLatency = 0;
+		long maxLatency = this.maxLatencyNanos;
+		int dispatched = 0;
+		while (dispatched < eventLimit)
 		{
-			final GameEvent<?> event = this.eventQueue.poll();
-			if (event != null)
+			final long now = (dispatched == 0) ? startTime : System.nanoTime();
+			if (now - startTime >= budgetNanos)
 			{
-				Log.d("EventManager", "found event: " + event.toString());
-				synchronized(this.subscribers)
-				{
-					List<EventListener> eventSubscribers = this.subscribers.get(event.getEventId());
-					if (eventSubscribers != null)
-					{
-						for (final EventListener subscriber : eventSubscribers)
-						{
-							Log.d("EventManager", "Notifying subscriber " + subscriber.getClass().getName());
-							subscriber.notify(event);
-						}
-					}
-				}
-				
-				synchronized(this.nonSerializableSubscribers)
-				{
-					List<EventListener> eventSubscribers = this.nonSerializableSubscribers.get(event.getEventId());
-					if (eventSubscribers != null)
-					{
-						for (final EventListener subscriber : eventSubscribers)
-						{
-							Log.d("EventManager", "Notifying unserializable subscriber " + subscriber.getClass().getName());
-							subscriber.notify(event);
-						}
-					}
-				}
+				break;
+			}
+			
+			final GameEvent<?> event = poll();
+			if (event == null)
+			{
+				break;
+			}
+			
+			final long latency = now - this.polledEnqueueTime;
+			totalLatency += latency;
+			if (latency > maxLatency)
+			{
+				maxLatency = latency;
 			}
+			++dispatched;
+			
+			dispatch(event);
 		}
+		
+		this.dispatchedEventCount += dispatched;
+		this.totalLatencyNanos += totalLatency;
+		this.maxLatencyNanos = maxLatency;
+	}
+	
+	/**
+	 * Sends the event to each of its subscribers.
+	 * @param event The event.
+	 */
+	private void dispatch(GameEvent<?> event)
+	{
+		final boolean debug = Log.isDebugEnabled();
+		if (debug)
+		{
+			Log.d("EventManager", "found event: " + event.toString());
+		}
+		
+		final EventListener[] eventSubscribers = this.subscriberTable.get(event.getEventId());
+		for (int i = 0; i < eventSubscribers.length; ++i)
+		{
+			final EventListener subscriber = eventSubscribers[i];
+			if (debug)
+			{
+				Log.d("EventManager", "Notifying subscriber " + subscriber.getClass().getName());
+			}
+			subscriber.notify(event);
+		}
+	}
+	
+	/**
+	 * Removes the oldest event from the queue. Must only be called by the game thread.
+	 * @return The oldest event, or null if no events are queued.
+	 */
+	private GameEvent<?> poll()
+	{
+		final long position = this.head;
+		final int index = (int)position & this.mask;
+		if (this.sequences.get(index) == position + 1)
+		{
+			final GameEvent<?> event = this.events[index];
+			this.polledEnqueueTime = this.enqueueTimes[index];
+			this.events[index] = null;
+			this.sequences.set(index, position + this.capacity);
+			this.head = position + 1;
+			return event;
+		}
+		// Events only enter the overflow queue while the ring buffer is full, so every 
+		// event in the ring buffer is older than those in the overflow queue.
+		final QueuedEvent queued = this.overflow.poll();
+		if (queued == null)
+		{
+			return null;
+		}
+		this.overflowCount.decrementAndGet();
+		this.polledEnqueueTime = queued.enqueueTime;
+		return queued.event;
 	}
 	
 	/**
 	 * Notifies the EventManager that an event has occurred. The event
 	 * will be added to the event queue, and eventually propagated to all
-	 * subscribers.
+	 * subscribers. Can be called from any thread.
 	 * @param event The Event that occurred.
 	 * @throws IllegalArgumentException if event is null.
 	 */
@@ -109,8 +255,126 @@ public class EventManager implements Updatable, EventListener, Serializable
 	public void notify(GameEvent<?> event)
 	{
 		if (event == null) throw new IllegalArgumentException("Argument 'event' cannot be null.");
-		Log.d("EventManager", "Event received: " + event.toString());
-		this.eventQueue.add(event);
+		if (Log.isDebugEnabled())
+		{
+			Log.d("EventManager", "Event received: " + event.toString());
+		}
+		
+		final long now = System.nanoTime();
+		if (!this.overflow.isEmpty() || !offer(event, now))
+		{
+			addToOverflow(event, now);
+		}
+	}
+	
+	/**
+	 * Adds the event to the overflow queue.
+	 * @param event The event.
+	 * @param enqueueTime The time at which the event was received.
+	 */
+	private void addToOverflow(GameEvent<?> event, long enqueueTime)
+	{
+		this.overflow.add(new QueuedEvent(event, enqueueTime));
+		this.overflowCount.incrementAndGet();
+	}
+	
+	/**
+	 * Adds the event to the ring buffer.
+	 * @param event The event.
+	 * @param enqueueTime The time at which the event was received.
+	 * @return True if the event was added, or false if the ring buffer is full.
+	 */
+	private boolean offer(GameEvent<?> event, long enqueueTime)
+	{
+		while (true)
+		{
+			final long position = this.tail.get();
+			final int index = (int)position & this.mask;
+			final long sequence = this.sequences.get(index);
+			if (sequence == position)
+			{
+				if (this.tail.compareAndSet(position, position + 1))
+				{
+					this.events[index] = event;
+					this.enqueueTimes[index] = enqueueTime;
+					// Publishes the event to the game thread.
+					this.sequences.set(index, position + 1);
+					return true;
+				}
+			}
+			else if (sequence < position)
+			{
+				// The slot has not yet been read by the game thread.
+				return false;
+			}
+		}
+	}
+	
+	/**
+	 * Specifies whether any events are waiting to be processed by update().
+	 * @return True if the event queue is not empty.
+	 */
+	public boolean hasPendingEvents()
+	{
+		return this.tail.get() != this.head || !this.overflow.isEmpty();
+	}
+	
+	/**
+	 * Removes all events that are waiting to be processed by update(). Must be called on 
+	 * the thread that calls update().
+	 */
+	public void clearPendingEvents()
+	{
+		while (poll() != null) {}
+	}
+	
+	/**
+	 * Returns the number of events waiting to be processed by update().
+	 * @return The number of queued events.
+	 */
+	public int getQueueDepth()
+	{
+		return (int)(this.tail.get() - this.head) + this.overflowCount.get();
+	}
+	
+	/**
+	 * Sets the policy that limits the number of events dispatched per tick. The default 
+	 * policy dispatches every event that is queued at the start of the tick.
+	 * @param policy The dispatch policy.
+	 * @throws IllegalArgumentException if policy is null.
+	 */
+	public void setDispatchPolicy(DispatchPolicy policy)
+	{
+		if (policy == null) throw new IllegalArgumentException("Argument 'policy' cannot be null.");
+		this.dispatchPolicy = policy;
+	}
+	
+	public DispatchPolicy getDispatchPolicy()
+	{
+		return this.dispatchPolicy;
+	}
+	
+	/**
+	 * Returns the current queue depth, and the queue depth and event latency since the 
+	 * EventManager was created or the metrics were last reset.
+	 * @return A snapshot of the event queue metrics.
+	 */
+	public EventQueueMetrics getMetrics()
+	{
+		return new EventQueueMetrics(getQueueDepth(), this.maxQueueDepth, this.dispatchedEventCount,
+				this.totalLatencyNanos, this.maxLatencyNanos);
+	}
+	
+	/**
+	 * Resets the maximum queue depth, dispatched event count and event latencies. Must 
+	 * only be called by the game thread, between updates.
+	 */
+	public void resetMetrics()
+	{
+		this.maxQueueDepth = 0;
+		this.dispatchedEventCount = 0;
+		this.totalLatencyNanos = 0;
+		this.maxLatencyNanos = 0;
 	}
 	
 	/**
@@ -126,33 +390,24 @@ public class EventManager implements Updatable, EventListener, Serializable
 		if (eventType == null) throw new IllegalArgumentException("Argument 'eventType' cannot be null.");
 		if (subscriber == null) throw new IllegalArgumentException("Argument 'subscriber' cannot be null.");
 		
-		if (subscriber instanceof Serializable)
-		{
-			synchronized(this.subscribers)
-			{
-				List<EventListener> eventSubscribers = this.subscribers.get(eventType);
-				if (eventSubscribers == null)
-				{
-					Log.d("EventManager", subscriber.getClass().getName() + " subscribing to " + eventType.toString());
-					eventSubscribers = new ArrayList<EventListener>();
-				}
-				eventSubscribers.add(subscriber);
-				this.subscribers.put(eventType, eventSubscribers);
-			}
-		}
-		else
+		synchronized(this.subscribers)
 		{
-			synchronized(this.nonSerializableSubscribers)
+			Map<Long, List<EventListener>> subscriberMap = (subscriber instanceof Serializable) ?
+					this.subscribers : this.nonSerializableSubscribers;
+			
+			List<EventListener> eventSubscribers = subscriberMap.get(eventType);
+			if (eventSubscribers == null)
 			{
-				List<EventListener> eventSubscribers = this.nonSerializableSubscribers.get(eventType);
-				if (eventSubscribers == null)
+				if (Log.isDebugEnabled())
 				{
 					Log.d("EventManager", subscriber.getClass().getName() + " subscribing to " + eventType.toString());
-					eventSubscribers = new ArrayList<EventListener>();
 				}
-				eventSubscribers.add(subscriber);
-				this.nonSerializableSubscribers.put(eventType, eventSubscribers);
+				eventSubscribers = new ArrayList<EventListener>();
+				subscriberMap.put(eventType, eventSubscribers);
 			}
+			eventSubscribers.add(subscriber);
+			
+			this.subscriberTable = this.subscriberTable.with(eventType, listSubscribers(eventType));
 		}
 	}
 		
@@ -175,25 +430,348 @@ public class EventManager implements Updatable, EventListener, Serializable
 			if (eventSubscribers != null)
 			{
 				eventSubscribers.remove(subscriber);
-				this.subscribers.put(eventType, eventSubscribers);
 			}
+			
+			eventSubscribers = this.nonSerializableSubscribers.get(eventType);
+			if (eventSubscribers != null)
+			{
+				eventSubscribers.remove(subscriber);
+			}
+			
+			this.subscriberTable = this.subscriberTable.with(eventType, listSubscribers(eventType));
 		}
+	}
+	
+	/**
+	 * Returns the subscribers to the event type in dispatch order: serializable subscribers,
+	 * followed by non-serializable subscribers. Must be called while holding the subscribers lock.
+	 * @param eventType The event type.
+	 * @return The subscribers to the event type.
+	 */
+	private EventListener[] listSubscribers(Long eventType)
+	{
+		List<EventListener> serializable = this.subscribers.get(eventType);
+		List<EventListener> nonSerializable = this.nonSerializableSubscribers.get(eventType);
 		
-		synchronized(this.nonSerializableSubscribers)
+		int serializableCount = (serializable != null) ? serializable.size() : 0;
+		int nonSerializableCount = (nonSerializable != null) ? nonSerializable.size() : 0;
+		
+		EventListener[] listeners = new EventListener[serializableCount + nonSerializableCount];
+		for (int i = 0; i < serializableCount; ++i)
 		{
-			List<EventListener> eventSubscribers = this.nonSerializableSubscribers.get(eventType);
-			if (eventSubscribers != null)
+			listeners[i] = serializable.get(i);
+		}
+		for (int i = 0; i < nonSerializableCount; ++i)
+		{
+			listeners[serializableCount + i] = nonSerializable.get(i);
+		}
+		return listeners;
+	}
+	
+	/**
+	 * Creates the transient event queue and subscriber table.
+	 */
+	private void stateRestore()
+	{
+		this.events = new GameEvent<?>[this.capacity];
+		this.enqueueTimes = new long[this.capacity];
+		this.sequences = new AtomicLongArray(this.capacity);
+		for (int i = 0; i < this.capacity; ++i)
+		{
+			this.sequences.set(i, i);
+		}
+		this.mask = this.capacity - 1;
+		this.tail = new AtomicLong();
+		this.head = 0;
+		this.overflow = new ConcurrentLinkedQueue<QueuedEvent>();
+		this.overflowCount = new AtomicInteger();
+		
+		SubscriberTable table = SubscriberTable.EMPTY;
+		synchronized(this.subscribers)
+		{
+			for (Long eventType : this.subscribers.keySet())
 			{
-				eventSubscribers.remove(subscriber);
-				this.nonSerializableSubscribers.put(eventType, eventSubscribers);
+				table = table.with(eventType, listSubscribers(eventType));
+			}
+		}
+		this.subscriberTable = table;
+	}
+	
+	
+	/**
+	 * Returns the queued events, oldest first. Events that are added while the list is
+	 * being built may not be included.
+	 * @return The queued events.
+	 */
+	private List<GameEvent<?>> getPendingEvents()
+	{
+		List<GameEvent<?>> pendingEvents = new ArrayList<GameEvent<?>>();
+		final long tail = this.tail.get();
+		for (long position = this.head; position < tail; ++position)
+		{
+			final int index = (int)position & this.mask;
+			if (this.sequences.get(index) != position + 1)
+			{
+				break;
+			}
+			pendingEvents.add(this.events[index]);
+		}
+		for (QueuedEvent queued : this.overflow)
+		{
+			pendingEvents.add(queued.event);
+		}
+		return pendingEvents;
+	}
+	
+	/**
+	 * Writes the dispatch policy and the queued events in the binary saved game format. 
+	 * Only events that are handled by the game logic are written: requests, colony 
+	 * placements, pops and pauses. Notifications for the user interface, such as 
+	 * OrganismBornEvent, are not saved, since the game screen requests every Organism 
+	 * when it loads a saved game. Subscribers are not written; they subscribe again when
+	 * they are restored.
+	 * @param out The writer.
+	 */
+	public void writeState(GameStateWriter out) throws IOException
+	{
+		final DispatchPolicy policy = this.dispatchPolicy;
+		out.writeVarInt((policy.getMaxEventsPerTick() == Integer.MAX_VALUE) ? 0 : policy.getMaxEventsPerTick());
+		out.writeVarLong(policy.isTimeBudgeted() ? policy.getBudgetNanosPerTick() : 0);
+		
+		List<GameEvent<?>> savedEvents = new ArrayList<GameEvent<?>>();
+		for (GameEvent<?> event : getPendingEvents())
+		{
+			if (getSavedEventType(event) != 0)
+			{
+				savedEvents.add(event);
+			}
+		}
+		
+		out.writeVarInt(savedEvents.size());
+		for (GameEvent<?> event : savedEvents)
+		{
+			final int type = getSavedEventType(event);
+			out.writeByte(type);
+			if (type == SAVED_NEW_COLONY_PLACED)
+			{
+				NewColonyPlacedData data = ((NewColonyPlacedEvent)event).getData();
+				data.getAttributes().writeState(out);
+				writePosition(out, data.getLocation());
+				out.writeVarInt(data.getCount());
+				out.writeVarLong(data.getGameTicks());
+			}
+			else if (type == SAVED_ORGANISM_POPPED)
+			{
+				writePosition(out, ((OrganismPoppedEvent)event).getData());
+			}
+			else if (type == SAVED_ORGANISM_INFO_REQUESTED)
+			{
+				writePosition(out, ((OrganismInfoRequestedEvent)event).getData());
+			}
+		}
+	}
+	
+	/**
+	 * Reads the dispatch policy and queued events that were written by writeState. The events 
+	 * are added to the queue after any events that are already queued.
+	 * @param in The reader.
+	 */
+	public void readState(GameStateReader in) throws IOException
+	{
+		final int maxEventsPerTick = in.readVarInt();
+		final long budgetNanosPerTick = in.readVarLong();
+		if (budgetNanosPerTick > 0)
+		{
+			setDispatchPolicy(DispatchPolicy.timeBudget(budgetNanosPerTick));
+		}
+		else if (maxEventsPerTick > 0)
+		{
+			setDispatchPolicy(DispatchPolicy.fixedCount(maxEventsPerTick));
+		}
+		else
+		{
+			setDispatchPolicy(DispatchPolicy.drainAll());
+		}
+		
+		final int eventCount = in.readVarInt();
+		for (int i = 0; i < eventCount; ++i)
+		{
+			final int type = in.readByte();
+			if (type == SAVED_NEW_COLONY_PLACED)
+			{
+				StaticAttributes attributes = StaticAttributes.readState(in);
+				GridPosition location = readPosition(in);
+				final int count = in.readVarInt();
+				final long gameTicks = in.readVarLong();
+				notify(new NewColonyPlacedEvent(new NewColonyPlacedData(attributes, location, count, gameTicks)));
+			}
+			else if (type == SAVED_ORGANISM_POPPED)
+			{
+				notify(new OrganismPoppedEvent(readPosition(in)));
+			}
+			else if (type == SAVED_ORGANISM_INFO_REQUESTED)
+			{
+				notify(new OrganismInfoRequestedEvent(readPosition(in)));
+			}
+			else if (type == SAVED_ALL_ORGANISMS_REQUESTED)
+			{
+				notify(new AllOrganismsRequestedEvent());
+			}
+			else if (type == SAVED_GAME_PAUSED)
+			{
+				notify(new GamePausedEvent());
+			}
+			else if (type == SAVED_GAME_UNPAUSED)
+			{
+				notify(new GameUnpausedEvent());
+			}
+			else
+			{
+				throw new IOException("Invalid saved game state: unknown event type: " + type);
 			}
 		}
 	}
 	
+	/**
+	 * Returns the type code that the event is saved with, or 0 if the event is not saved.
+	 */
+	private static int getSavedEventType(GameEvent<?> event)
+	{
+		final long eventId = event.getEventId();
+		if (eventId == NewColonyPlacedEvent.ID) return SAVED_NEW_COLONY_PLACED;
+		if (eventId == OrganismPoppedEvent.ID) return SAVED_ORGANISM_POPPED;
+		if (eventId == OrganismInfoRequestedEvent.ID) return SAVED_ORGANISM_INFO_REQUESTED;
+		if (eventId == AllOrganismsRequestedEvent.ID) return SAVED_ALL_ORGANISMS_REQUESTED;
+		if (eventId == GamePausedEvent.ID) return SAVED_GAME_PAUSED;
+		if (eventId == GameUnpausedEvent.ID) return SAVED_GAME_UNPAUSED;
+		return 0;
+	}
+	
+	private static void writePosition(GameStateWriter out, GridPosition position) throws IOException
+	{
+		out.writeVarInt(position.getRow());
+		out.writeVarInt(position.getColumn());
+	}
+	
+	private static GridPosition readPosition(GameStateReader in) throws IOException
+	{
+		final int row = in.readVarInt();
+		return new GridPosition(row, in.readVarInt());
+	}
+	
+	
+	private void writeObject(ObjectOutputStream stream) throws IOException
+	{
+		stream.defaultWriteObject();
+		
+		// Writes the queued events, oldest first.
+		List<GameEvent<?>> pendingEvents = getPendingEvents();
+		stream.writeInt(pendingEvents.size());
+		for (GameEvent<?> event : pendingEvents)
+		{
+			stream.writeObject(event);
+		}
+	}
 	
 	private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException
 	{
 		stream.defaultReadObject();
 		this.nonSerializableSubscribers = new HashMap<Long, List<EventListener>>();
+		stateRestore();
+		if (this.dispatchPolicy == null)
+		{
+			this.dispatchPolicy = DispatchPolicy.drainAll();
+		}
+		
+		// The latency of restored events is measured from the time they were loaded.
+		final long now = System.nanoTime();
+		final int pendingEventCount = stream.readInt();
+		for (int i = 0; i < pendingEventCount; ++i)
+		{
+			GameEvent<?> event = (GameEvent<?>)stream.readObject();
+			if (!offer(event, now))
+			{
+				addToOverflow(event, now);
+			}
+		}
+	}
+	
+	
+	/**
+	 * An event in the overflow queue, with the time at which it was received.
+	 */
+	private static final class QueuedEvent
+	{
+		final GameEvent<?> event;
+		final long enqueueTime;
+		
+		QueuedEvent(GameEvent<?> event, long enqueueTime)
+		{
+			this.event = event;
+			this.enqueueTime = enqueueTime;
+		}
+	}
+	
+	
+	/**
+	 * An immutable map of event IDs to subscriber arrays. A new table is created each time
+	 * the subscribers change, so the game thread can dispatch events without locking.
+	 */
+	private static final class SubscriberTable
+	{
+		static final SubscriberTable EMPTY = new SubscriberTable(new long[0], new EventListener[0][]);
+		
+		private static final EventListener[] NO_LISTENERS = new EventListener[0];
+		
+		// The event IDs, in ascending order, and the subscribers to each.
+		private final long[] eventIds;
+		private final EventListener[][] listeners;
+		
+		private SubscriberTable(long[] eventIds, EventListener[][] listeners)
+		{
+			this.eventIds = eventIds;
+			this.listeners = listeners;
+		}
+		
+		/**
+		 * Returns the subscribers to the event ID.
+		 * @param eventId The event ID.
+		 * @return The subscribers. The array must not be modified.
+		 */
+		EventListener[] get(long eventId)
+		{
+			final int index = Arrays.binarySearch(this.eventIds, eventId);
+			return (index >= 0) ? this.listeners[index] : NO_LISTENERS;
+		}
+		
+		/**
+		 * Creates a copy of this table, with the event ID's subscribers replaced.
+		 * @param eventId The event ID.
+		 * @param eventListeners The event ID's subscribers.
+		 * @return The new table.
+		 */
+		SubscriberTable with(long eventId, EventListener[] eventListeners)
+		{
+			int index = Arrays.binarySearch(this.eventIds, eventId);
+			if (index >= 0)
+			{
+				EventListener[][] newListeners = new EventListener[this.listeners.length][];
+				System.arraycopy(this.listeners, 0, newListeners, 0, this.listeners.length);
+				newListeners[index] = eventListeners;
+				return new SubscriberTable(this.eventIds, newListeners);
+			}
+			
+			index = -(index + 1);
+			final int length = this.eventIds.length;
+			long[] newEventIds = new long[length + 1];
+			EventListener[][] newListeners = new EventListener[length + 1][];
+			System.arraycopy(this.eventIds, 0, newEventIds, 0, index);
+			System.arraycopy(this.listeners, 0, newListeners, 0, index);
+			newEventIds[index] = eventId;
+			newListeners[index] = eventListeners;
+			System.arraycopy(this.eventIds, index, newEventIds, index + 1, length - index);
+			System.arraycopy(this.listeners, index, newListeners, index + 1, length - index);
+			return new SubscriberTable(newEventIds, newListeners);
+		}
 	}
 }
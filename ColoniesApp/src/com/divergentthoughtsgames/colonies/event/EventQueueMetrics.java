@@ -0,0 +1,93 @@
+package com.divergentthoughtsgames.colonies.event;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * A snapshot of the EventManager's queue depth and event latency. Event latency is the time
+ * between an event being sent to the EventManager and its dispatch to subscribers.
+ * @author Christopher D. Canfield
+ */
+public final class EventQueueMetrics
+{
+	private final int queueDepth;
+	private final int maxQueueDepth;
+	private final long dispatchedEventCount;
+	private final long totalLatencyNanos;
+	private final long maxLatencyNanos;
+	
+	EventQueueMetrics(int queueDepth, int maxQueueDepth, long dispatchedEventCount, 
+			long totalLatencyNanos, long maxLatencyNanos)
+	{
+		this.queueDepth = queueDepth;
+		this.maxQueueDepth = maxQueueDepth;
+		this.dispatchedEventCount = dispatchedEventCount;
+		this.totalLatencyNanos = totalLatencyNanos;
+		this.maxLatencyNanos = maxLatencyNanos;
+	}
+	
+	/**
+	 * @return The number of events waiting to be dispatched.
+	 */
+	public int getQueueDepth()
+	{
+		return this.queueDepth;
+	}
+	
+	/**
+	 * @return The largest number of events that were waiting at the start of a tick.
+	 */
+	public int getMaxQueueDepth()
+	{
+		return this.maxQueueDepth;
+	}
+	
+	/**
+	 * @return The number of events dispatched.
+	 */
+	public long getDispatchedEventCount()
+	{
+		return this.dispatchedEventCount;
+	}
+	
+	/**
+	 * @return The mean event latency, in nanoseconds, or 0 if no events have been dispatched.
+	 */
+	public long getMeanLatencyNanos()
+	{
+		return (this.dispatchedEventCount > 0) ? this.totalLatencyNanos / this.dispatchedEventCount : 0;
+	}
+	
+	/**
+	 * @return The largest event latency, in nanoseconds.
+	 */
+	public long getMaxLatencyNanos()
+	{
+		return this.maxLatencyNanos;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "queue depth: " + this.queueDepth + " (max " + this.maxQueueDepth + "), dispatched: " + 
+				this.dispatchedEventCount + ", latency: " + (getMeanLatencyNanos() / 1000) + " us mean, " + 
+				(this.maxLatencyNanos / 1000) + " us max";
+	}
+}
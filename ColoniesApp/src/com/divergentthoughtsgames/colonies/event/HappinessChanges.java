@@ -0,0 +1,168 @@
+package com.divergentthoughtsgames.colonies.event;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+
+/**
+ * Data required by the OrganismHappinessChangedEvent: the world grid cell index and new 
+ * happiness of each Organism that reported its happiness during a game tick, held in 
+ * parallel arrays. Use WorldGrid.getRow and getColumn to find the grid position of a cell.
+ * @author Christopher D Canfield
+ */
+public final class HappinessChanges implements Serializable
+{
+	private static final long serialVersionUID = 4790131466735583810L;
+	
+	private static final Happiness[] HAPPINESS_VALUES = Happiness.values();
+	
+	private int[] cells;
+	private byte[] happiness;
+	private int size;
+	
+	public HappinessChanges()
+	{
+		this(16);
+	}
+	
+	/**
+	 * @param capacity The number of changes that can be added before the arrays are grown.
+	 * @throws IllegalArgumentException if capacity is negative.
+	 */
+	public HappinessChanges(int capacity)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("Argument 'capacity' cannot be negative. Found: " + capacity);
+		
+		this.cells = new int[capacity];
+		this.happiness = new byte[capacity];
+	}
+	
+	/**
+	 * Adds an Organism's happiness change.
+	 * @param cell The world grid cell index of the Organism.
+	 * @param happiness The Organism's new happiness.
+	 * @throws IllegalArgumentException if happiness is null.
+	 */
+	public void add(int cell, Happiness happiness)
+	{
+		if (happiness == null)
+			throw new IllegalArgumentException("Argument 'happiness' cannot be null.");
+		
+		ensureCapacity(this.size + 1);
+		this.cells[this.size] = cell;
+		this.happiness[this.size] = (byte)happiness.ordinal();
+		++this.size;
+	}
+	
+	/**
+	 * Adds all of the changes, in order.
+	 * @param changes The changes to add.
+	 * @throws IllegalArgumentException if changes is null.
+	 */
+	public void addAll(HappinessChanges changes)
+	{
+		if (changes == null)
+			throw new IllegalArgumentException("Argument 'changes' cannot be null.");
+		
+		ensureCapacity(this.size + changes.size);
+		System.arraycopy(changes.cells, 0, this.cells, this.size, changes.size);
+		System.arraycopy(changes.happiness, 0, this.happiness, this.size, changes.size);
+		this.size += changes.size;
+	}
+	
+	/**
+	 * Sorts the changes into ascending cell index order, so that changes collected in a 
+	 * different order, such as by concurrently updated tiles, end in the same order.
+	 */
+	public void sortByCell()
+	{
+		long[] keys = new long[this.size];
+		for (int i = 0; i < this.size; ++i)
+		{
+			keys[i] = ((long)this.cells[i] << 8) | this.happiness[i];
+		}
+		Arrays.sort(keys);
+		for (int i = 0; i < this.size; ++i)
+		{
+			this.cells[i] = (int)(keys[i] >> 8);
+			this.happiness[i] = (byte)(keys[i] & 0xFF);
+		}
+	}
+	
+	/**
+	 * Removes all of the changes.
+	 */
+	public void clear()
+	{
+		this.size = 0;
+	}
+	
+	public int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Gets the world grid cell index of the Organism whose change is at the index.
+	 * @param index The index of the change.
+	 * @return The cell index.
+	 */
+	public int getCell(int index)
+	{
+		checkIndex(index);
+		return this.cells[index];
+	}
+	
+	/**
+	 * Gets the new happiness of the Organism whose change is at the index.
+	 * @param index The index of the change.
+	 * @return The new happiness.
+	 */
+	public Happiness getHappiness(int index)
+	{
+		checkIndex(index);
+		return HAPPINESS_VALUES[this.happiness[index]];
+	}
+	
+	private void ensureCapacity(int capacity)
+	{
+		if (this.cells.length < capacity)
+		{
+			final int newLength = Math.max(capacity, this.cells.length * 2);
+			int[] newCells = new int[newLength];
+			byte[] newHappiness = new byte[newLength];
+			System.arraycopy(this.cells, 0, newCells, 0, this.size);
+			System.arraycopy(this.happiness, 0, newHappiness, 0, this.size);
+			this.cells = newCells;
+			this.happiness = newHappiness;
+		}
+	}
+	
+	private void checkIndex(int index)
+	{
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index " + index + " is out of range. Size: " + this.size);
+	}
+}
@@ -21,15 +21,16 @@ along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
 /**
- * Signals that an Organism's happiness has changed.
+ * Signals that the happiness of one or more Organisms has changed. The changes made during a 
+ * game tick are coalesced, and sent in a single event at the end of the tick.
  * @author Christopher D Canfield
  */
-public final class OrganismHappinessChangedEvent extends GameEvent<OrganismInfo>
+public final class OrganismHappinessChangedEvent extends GameEvent<HappinessChanges>
 {
 	private static final long serialVersionUID = 2339549020892253486L;
 	public static final long ID = serialVersionUID;
 
-	public OrganismHappinessChangedEvent(OrganismInfo data)
+	public OrganismHappinessChangedEvent(HappinessChanges data)
 	{
 		super(ID, data);
 	}
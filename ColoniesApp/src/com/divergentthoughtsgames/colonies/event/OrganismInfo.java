@@ -33,10 +33,12 @@ import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
  */
 public final class OrganismInfo implements Serializable
 {
-	private static final long serialVersionUID = 4146863533975075005L;
+	private static final long serialVersionUID = -1904722315820432861L;
 	
-	/** The StaticAttributes of the organism **/
+	/** The StaticAttributes of the organism, which are shared with its colony and are not copied **/
 	private final StaticAttributes staticAttributes;
+	/** The organism's maximum age, in game ticks **/
+	private final long maxAgeTicks;
 	/** The DynamicAttributes of the organism **/
 	private final DynamicAttributes dynamicAttributes;
 	/** The current game tick count **/
@@ -47,7 +49,7 @@ public final class OrganismInfo implements Serializable
 	private final GridPosition position;
 	
 	/**
-	 * @param staticAttributes The StaticAttributes of the organism.
+	 * @param staticAttributes The StaticAttributes of the organism. The maximum age is taken from the attributes.
 	 * @param dynamicAttributes The DynamicAttributes of the organism.
 	 * @param position The location on the game grid.
 	 * @param name The Organism's name.
@@ -69,7 +71,8 @@ public final class OrganismInfo implements Serializable
 		if (gameTick < 0)
 			throw new IllegalArgumentException("Argument 'gameTick' cannot be less than zero.");
 		
-		this.staticAttributes = new StaticAttributes(staticAttributes);
+		this.staticAttributes = staticAttributes;
+		this.maxAgeTicks = staticAttributes.getMaxAgeTicks();
 		this.dynamicAttributes = new DynamicAttributes(dynamicAttributes);
 		this.position = position;
 		this.name = name;
@@ -88,7 +91,8 @@ public final class OrganismInfo implements Serializable
 		if (gameTick < 0)
 			throw new IllegalArgumentException("Argument 'gameTick' cannot be less than zero.");
 		
-		this.staticAttributes = new StaticAttributes(organism.getStaticAttributes());
+		this.staticAttributes = organism.getStaticAttributes();
+		this.maxAgeTicks = organism.getMaxAgeTicks();
 		this.dynamicAttributes = new DynamicAttributes(organism.getDynamicAttributes());
 		this.position = organism.getPosition();
 		this.name = organism.getName();
@@ -100,6 +104,15 @@ public final class OrganismInfo implements Serializable
 		return this.staticAttributes;
 	}
 	
+	/**
+	 * Gets the organism's own maximum age. The maximum age in the StaticAttributes is the colony's.
+	 * @return The organism's maximum age, in game ticks.
+	 */
+	public long getMaxAgeTicks()
+	{
+		return this.maxAgeTicks;
+	}
+	
 	public DynamicAttributes getDynamicAttributes()
 	{
 		return this.dynamicAttributes;
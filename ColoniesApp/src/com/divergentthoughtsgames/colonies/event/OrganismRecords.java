@@ -0,0 +1,214 @@
+package com.divergentthoughtsgames.colonies.event;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Serializable;
+
+import com.divergentthoughtsgames.colonies.logic.DynamicAttributes;
+import com.divergentthoughtsgames.colonies.logic.Organism;
+import com.divergentthoughtsgames.colonies.logic.StaticAttributes;
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+
+/**
+ * Data required by the AllOrganismsRequestedResponse: a snapshot of many Organisms, packed 
+ * into one primitive array per field and read by index, instead of an OrganismInfo object 
+ * and attribute copy per Organism. The StaticAttributes and names are shared with the 
+ * Organisms, and are not copied. Use WorldGrid.getRow and getColumn to find the grid 
+ * position of a cell.
+ * @author Christopher D Canfield
+ */
+public final class OrganismRecords implements Serializable
+{
+	private static final long serialVersionUID = -4463826283745961257L;
+	
+	private static final Happiness[] HAPPINESS_VALUES = Happiness.values();
+	
+	// The game tick that the snapshot was taken at.
+	private final long gameTick;
+	
+	private final StaticAttributes[] staticAttributes;
+	private final String[] names;
+	private final int[] cells;
+	private final long[] maxAgeTicks;
+	private final long[] ageTicks;
+	private final float[] health;
+	private final float[] hunger;
+	private final int[] childCount;
+	// Happiness levels are stored as the ordinal plus one, so that zero means no level.
+	private final byte[] happiness;
+	private final boolean[] dead;
+	private int size;
+	
+	/**
+	 * @param capacity The number of Organisms that can be added.
+	 * @param gameTick The game tick that the snapshot is taken at.
+	 * @throws IllegalArgumentException if capacity or gameTick is less than zero.
+	 */
+	public OrganismRecords(int capacity, long gameTick)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("Argument 'capacity' cannot be negative. Found: " + capacity);
+		if (gameTick < 0)
+			throw new IllegalArgumentException("Argument 'gameTick' cannot be less than zero.");
+		
+		this.gameTick = gameTick;
+		this.staticAttributes = new StaticAttributes[capacity];
+		this.names = new String[capacity];
+		this.cells = new int[capacity];
+		this.maxAgeTicks = new long[capacity];
+		this.ageTicks = new long[capacity];
+		this.health = new float[capacity];
+		this.hunger = new float[capacity];
+		this.childCount = new int[capacity];
+		this.happiness = new byte[capacity];
+		this.dead = new boolean[capacity];
+	}
+	
+	/**
+	 * Adds a record of the Organism's current state.
+	 * @param organism The Organism.
+	 * @throws IllegalArgumentException if organism is null.
+	 * @throws IllegalStateException if the records are full.
+	 */
+	public void add(Organism organism)
+	{
+		if (organism == null)
+			throw new IllegalArgumentException("Argument 'organism' cannot be null.");
+		if (this.size == this.cells.length)
+			throw new IllegalStateException("The records are full. Capacity: " + this.cells.length);
+		
+		final int i = this.size;
+		final DynamicAttributes attributes = organism.getDynamicAttributes();
+		this.staticAttributes[i] = organism.getStaticAttributes();
+		this.names[i] = organism.getName();
+		this.cells[i] = organism.getCellIndex();
+		this.maxAgeTicks[i] = organism.getMaxAgeTicks();
+		this.ageTicks[i] = attributes.getAgeTicks();
+		this.health[i] = attributes.getHealth();
+		this.hunger[i] = attributes.getHunger();
+		this.childCount[i] = attributes.getChildCount();
+		final Happiness happiness = attributes.getHappiness();
+		this.happiness[i] = (byte)((happiness == null) ? 0 : happiness.ordinal() + 1);
+		this.dead[i] = organism.isDead();
+		++this.size;
+	}
+	
+	/**
+	 * Gets the game tick that the snapshot was taken at.
+	 * @return The game tick count.
+	 */
+	public long getGameTick()
+	{
+		return this.gameTick;
+	}
+	
+	public int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Gets the StaticAttributes of the Organism at the index, which are shared with its colony.
+	 * @param index The index of the Organism's record.
+	 * @return The Organism's StaticAttributes.
+	 */
+	public StaticAttributes getStaticAttributes(int index)
+	{
+		checkIndex(index);
+		return this.staticAttributes[index];
+	}
+	
+	public String getName(int index)
+	{
+		checkIndex(index);
+		return this.names[index];
+	}
+	
+	/**
+	 * Gets the world grid cell index of the Organism at the index.
+	 * @param index The index of the Organism's record.
+	 * @return The Organism's cell index.
+	 */
+	public int getCell(int index)
+	{
+		checkIndex(index);
+		return this.cells[index];
+	}
+	
+	/**
+	 * Gets the Organism's own maximum age. The maximum age in the StaticAttributes is the colony's.
+	 * @param index The index of the Organism's record.
+	 * @return The Organism's maximum age, in game ticks.
+	 */
+	public long getMaxAgeTicks(int index)
+	{
+		checkIndex(index);
+		return this.maxAgeTicks[index];
+	}
+	
+	public long getAgeTicks(int index)
+	{
+		checkIndex(index);
+		return this.ageTicks[index];
+	}
+	
+	public float getHealth(int index)
+	{
+		checkIndex(index);
+		return this.health[index];
+	}
+	
+	public float getHunger(int index)
+	{
+		checkIndex(index);
+		return this.hunger[index];
+	}
+	
+	public int getChildCount(int index)
+	{
+		checkIndex(index);
+		return this.childCount[index];
+	}
+	
+	/**
+	 * Gets the happiness of the Organism at the index.
+	 * @param index The index of the Organism's record.
+	 * @return The Organism's happiness, or null if it has none.
+	 */
+	public Happiness getHappiness(int index)
+	{
+		checkIndex(index);
+		final byte value = this.happiness[index];
+		return (value == 0) ? null : HAPPINESS_VALUES[value - 1];
+	}
+	
+	public boolean isDead(int index)
+	{
+		checkIndex(index);
+		return this.dead[index];
+	}
+	
+	private void checkIndex(int index)
+	{
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException("Index " + index + " is out of range. Size: " + this.size);
+	}
+}
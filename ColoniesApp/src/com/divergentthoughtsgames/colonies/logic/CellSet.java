@@ -0,0 +1,242 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Random;
+
+
+/**
+ * A set of grid cell indexes that supports adding, removing and sampling a random member 
+ * in constant time. The members are held in a dense array, in an order determined by the 
+ * history of additions and removals; an open-addressed hash table maps each member to its 
+ * position in the array, so that a member can be removed by moving the last member into 
+ * its place.
+ * @author Christopher D. Canfield
+ */
+final class CellSet
+{
+	private static final int INITIAL_CAPACITY = 16;
+	
+	// Marks an empty slot in the hash table.
+	private static final int FREE = -1;
+	
+	// The members, in positions 0 to size - 1.
+	private int[] cells;
+	private int size;
+	
+	// For each slot, the position in cells of the member that hashes to it, or FREE. The 
+	// table is at most half full, and is probed linearly.
+	private int[] table;
+	
+	
+	/**
+	 * Creates an empty set.
+	 */
+	CellSet()
+	{
+		this.cells = new int[INITIAL_CAPACITY];
+		this.table = newTable(INITIAL_CAPACITY * 2);
+	}
+	
+	/**
+	 * Gets the number of cells in the set.
+	 * @return The number of cells.
+	 */
+	int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Gets the cell at a position in the set.
+	 * @param position The position, from 0 to size() - 1.
+	 * @return The cell index.
+	 */
+	int get(int position)
+	{
+		if (position < 0 || position >= this.size)
+			throw new IndexOutOfBoundsException("Position: " + position + ", size: " + this.size);
+		return this.cells[position];
+	}
+	
+	/**
+	 * Specifies whether the cell is in the set.
+	 * @param cell The cell index.
+	 * @return True if the cell is in the set.
+	 */
+	boolean contains(int cell)
+	{
+		return this.table[findSlot(cell)] != FREE;
+	}
+	
+	/**
+	 * Adds the cell to the set, if it is not already in it.
+	 * @param cell The cell index.
+	 * @return True if the cell was added; false if it was already in the set.
+	 */
+	boolean add(int cell)
+	{
+		int slot = findSlot(cell);
+		if (this.table[slot] != FREE)
+		{
+			return false;
+		}
+		
+		if (this.size == this.cells.length)
+		{
+			int[] cells = new int[this.size * 2];
+			System.arraycopy(this.cells, 0, cells, 0, this.size);
+			this.cells = cells;
+			rehash(cells.length * 2);
+			slot = findSlot(cell);
+		}
+		
+		this.cells[this.size] = cell;
+		this.table[slot] = this.size;
+		++this.size;
+		return true;
+	}
+	
+	/**
+	 * Removes the cell from the set, if it is in it.
+	 * @param cell The cell index.
+	 * @return True if the cell was removed; false if it was not in the set.
+	 */
+	boolean remove(int cell)
+	{
+		final int slot = findSlot(cell);
+		if (this.table[slot] == FREE)
+		{
+			return false;
+		}
+		removeAt(this.table[slot], slot);
+		return true;
+	}
+	
+	/**
+	 * Removes the cell at a position in the set. The last cell is moved into the position.
+	 * @param position The position, from 0 to size() - 1.
+	 */
+	void removeAt(int position)
+	{
+		if (position < 0 || position >= this.size)
+			throw new IndexOutOfBoundsException("Position: " + position + ", size: " + this.size);
+		removeAt(position, findSlot(this.cells[position]));
+	}
+	
+	/**
+	 * Chooses a random position in the set.
+	 * @param random The random number generator.
+	 * @return A position, from 0 to size() - 1, or -1 if the set is empty.
+	 */
+	int samplePosition(Random random)
+	{
+		return (this.size == 0) ? -1 : random.nextInt(this.size);
+	}
+	
+	/**
+	 * Removes all cells from the set.
+	 */
+	void clear()
+	{
+		for (int i = 0; i < this.table.length; ++i)
+		{
+			this.table[i] = FREE;
+		}
+		this.size = 0;
+	}
+	
+	private void removeAt(int position, int slot)
+	{
+		// Delete the slot, shifting back any later members of its probe sequence that would 
+		// otherwise no longer be found.
+		final int mask = this.table.length - 1;
+		int free = slot;
+		int next = (free + 1) & mask;
+		while (this.table[next] != FREE)
+		{
+			final int home = hash(this.cells[this.table[next]], mask);
+			// Move the member into the free slot if its home slot is not between the free 
+			// slot and its current slot, cyclically.
+			if (((next - home) & mask) >= ((next - free) & mask))
+			{
+				this.table[free] = this.table[next];
+				free = next;
+			}
+			next = (next + 1) & mask;
+		}
+		this.table[free] = FREE;
+		
+		// Move the last member into the position.
+		final int last = --this.size;
+		if (position != last)
+		{
+			final int moved = this.cells[last];
+			this.table[findSlot(moved)] = position;
+			this.cells[position] = moved;
+		}
+	}
+	
+	/**
+	 * Returns the slot that holds the cell, or the free slot that it would be added to.
+	 */
+	private int findSlot(int cell)
+	{
+		final int mask = this.table.length - 1;
+		int slot = hash(cell, mask);
+		while (this.table[slot] != FREE && this.cells[this.table[slot]] != cell)
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	private void rehash(int tableLength)
+	{
+		this.table = newTable(tableLength);
+		final int mask = tableLength - 1;
+		for (int position = 0; position < this.size; ++position)
+		{
+			int slot = hash(this.cells[position], mask);
+			while (this.table[slot] != FREE)
+			{
+				slot = (slot + 1) & mask;
+			}
+			this.table[slot] = position;
+		}
+	}
+	
+	private static int hash(int cell, int mask)
+	{
+		final int h = cell * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+	
+	private static int[] newTable(int length)
+	{
+		int[] table = new int[length];
+		for (int i = 0; i < length; ++i)
+		{
+			table[i] = FREE;
+		}
+		return table;
+	}
+}
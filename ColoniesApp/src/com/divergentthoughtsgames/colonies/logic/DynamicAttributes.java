@@ -20,11 +20,14 @@ You should have received a copy of the GNU General Public License
 along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
+import java.io.IOException;
 import java.io.Serializable;
 
 import com.divergentthoughtsgames.colonies.GameManager;
 import com.divergentthoughtsgames.colonies.logic.attributes.Action;
 import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+import com.divergentthoughtsgames.colonies.persistence.GameStateReader;
+import com.divergentthoughtsgames.colonies.persistence.GameStateWriter;
 
 
 /**
@@ -35,6 +38,19 @@ public class DynamicAttributes implements Serializable
 {
 	private static final long serialVersionUID = -7808552607511760286L;
 	
+	// The age, in game ticks, before which an Organism's happiness is not tracked. Also the time,
+	// after a report was due, before an unchanged happiness level is reported again.
+	static final long HAPPINESS_START_AGE = 10 * GameManager.FRAMES_PER_SECOND;
+	// The time, in game ticks, that a periodic report of an unchanged happiness level is delayed by.
+	static final long HAPPINESS_REPORT_PERIOD = 120 * GameManager.FRAMES_PER_SECOND;
+	// The hunger at or above which an Organism is unhappy.
+	static final float UNHAPPY_HUNGER = 75;
+	
+	// The happiness reports returned by getDueHappinessReport.
+	static final int NO_REPORT = 0;
+	static final int CHANGE_REPORT = 1;
+	static final int PERIODIC_REPORT = 2;
+	
 	// The current health. Float to allow incremental
 	// increases/decreases in the health level over time.
 	private float health;
@@ -70,6 +86,10 @@ public class DynamicAttributes implements Serializable
 	// The last happiness level.
 	private Happiness lastHappinessLevel;
 	
+	// Whether the attributes have changed since the last checkpoint, other than by the age 
+	// being incremented. Not saved with the game state.
+	private transient boolean changed;
+	
 
 	DynamicAttributes(StaticAttributes attributes, long currentGameTicks)
 	{
@@ -91,6 +111,98 @@ public class DynamicAttributes implements Serializable
 		this.childrenCount = 0;
 		this.currentAction = Action.Nothing;
 		this.lastActionChangedTicks = currentGameTicks;
+		this.changed = true;
+	}
+	
+	private DynamicAttributes(int maxHealth)
+	{
+		this.maxHealth = maxHealth;
+	}
+	
+	/**
+	 * Creates attributes from their individual values. Used to materialize Organisms that are 
+	 * stored in OrganismArrays.
+	 */
+	DynamicAttributes(int maxHealth, float health, float hunger, long ageTicks, long lastReproducedTicks, 
+			Happiness crowdHappiness, Happiness heatHappiness, int childrenCount, Action currentAction, 
+			long lastActionChangedTicks, long reportHappinessAt, boolean happinessChangePending, 
+			Happiness lastHappinessLevel)
+	{
+		this.maxHealth = maxHealth;
+		this.health = health;
+		this.hunger = hunger;
+		this.ageTicks = ageTicks;
+		this.lastReproducedTicks = lastReproducedTicks;
+		this.crowdHappiness = crowdHappiness;
+		this.heatHappiness = heatHappiness;
+		this.childrenCount = childrenCount;
+		this.currentAction = currentAction;
+		this.lastActionChangedTicks = lastActionChangedTicks;
+		this.reportHappinessAt = reportHappinessAt;
+		this.happinessChangePending = happinessChangePending;
+		this.lastHappinessLevel = lastHappinessLevel;
+	}
+	
+	/**
+	 * Writes the attributes in the binary saved game format. Times are written relative to
+	 * referenceTicks, which keeps them short.
+	 * @param out The writer.
+	 * @param referenceTicks The game tick count that times are written relative to.
+	 */
+	void writeState(GameStateWriter out, long referenceTicks) throws IOException
+	{
+		out.writeFloat(this.health);
+		out.writeFloat(this.hunger);
+		out.writeVarLong(this.ageTicks);
+		out.writeSignedVarLong(this.lastReproducedTicks - referenceTicks);
+		out.writeSignedVarLong(this.lastActionChangedTicks - referenceTicks);
+		out.writeSignedVarLong(this.reportHappinessAt - referenceTicks);
+		out.writeVarInt(this.childrenCount);
+		out.writeEnum(this.currentAction);
+		
+		// The happiness levels are packed into one byte, as two bits per level.
+		out.writeByte(happinessBits(this.crowdHappiness) | 
+				(happinessBits(this.heatHappiness) << 2) | 
+				(happinessBits(this.lastHappinessLevel) << 4) |
+				(this.happinessChangePending ? 0x40 : 0));
+	}
+	
+	/**
+	 * Reads attributes that were written by writeState.
+	 * @param in The reader.
+	 * @param maxHealth The Organism's maximum health.
+	 * @param referenceTicks The game tick count that the times were written relative to.
+	 * @return The restored attributes.
+	 */
+	static DynamicAttributes readState(GameStateReader in, int maxHealth, long referenceTicks) throws IOException
+	{
+		DynamicAttributes attributes = new DynamicAttributes(maxHealth);
+		attributes.health = in.readFloat();
+		attributes.hunger = in.readFloat();
+		attributes.ageTicks = in.readVarLong();
+		attributes.lastReproducedTicks = referenceTicks + in.readSignedVarLong();
+		attributes.lastActionChangedTicks = referenceTicks + in.readSignedVarLong();
+		attributes.reportHappinessAt = referenceTicks + in.readSignedVarLong();
+		attributes.childrenCount = in.readVarInt();
+		attributes.currentAction = in.readEnum(Action.values());
+		
+		final int happiness = in.readByte();
+		attributes.crowdHappiness = happinessFromBits(happiness);
+		attributes.heatHappiness = happinessFromBits(happiness >> 2);
+		attributes.lastHappinessLevel = happinessFromBits(happiness >> 4);
+		attributes.happinessChangePending = (happiness & 0x40) != 0;
+		return attributes;
+	}
+	
+	private static int happinessBits(Happiness happiness)
+	{
+		return (happiness == null) ? 0 : happiness.ordinal() + 1;
+	}
+	
+	private static Happiness happinessFromBits(int bits)
+	{
+		final int value = bits & 0x3;
+		return (value == 0) ? null : Happiness.values()[value - 1];
 	}
 	
 	public DynamicAttributes(DynamicAttributes d)
@@ -127,6 +239,7 @@ public class DynamicAttributes implements Serializable
 	{
 		// Ensure that the health is no less than 0, and not greater than maxHealth.
 		this.health = (health < 0) ? 0 : (health > this.maxHealth) ? this.maxHealth : health;
+		this.changed = true;
 	}
 
 	/**
@@ -145,6 +258,7 @@ public class DynamicAttributes implements Serializable
 	public void setHunger(float hunger)
 	{
 		this.hunger = (hunger < 0) ? 0 : (hunger > MAX_HUNGER) ? MAX_HUNGER : hunger;
+		this.changed = true;
 	}
 	
 	/**
@@ -164,6 +278,69 @@ public class DynamicAttributes implements Serializable
 		++this.ageTicks;
 	}
 	
+	/**
+	 * Adds to the age of the organism. Used when replaying incremental checkpoints, which do 
+	 * not record the ageing of organisms that have not otherwise changed.
+	 * @param ticks The number of game ticks to add.
+	 */
+	void addAgeTicks(long ticks)
+	{
+		this.ageTicks += ticks;
+	}
+	
+	/**
+	 * Gets the time to report that the happiness level has changed, in game ticks.
+	 * @return The time to report that the happiness level has changed.
+	 */
+	long getReportHappinessAt()
+	{
+		return this.reportHappinessAt;
+	}
+	
+	/**
+	 * Specifies whether a happiness changed event is pending.
+	 * @return Whether a happiness changed event is pending.
+	 */
+	boolean isHappinessChangePending()
+	{
+		return this.happinessChangePending;
+	}
+	
+	/**
+	 * Gets the last happiness level that was calculated by updateHappiness().
+	 * @return The last happiness level.
+	 */
+	Happiness getLastHappinessLevel()
+	{
+		return this.lastHappinessLevel;
+	}
+	
+	/**
+	 * Specifies whether the attributes have changed since clearChanged() was last called, 
+	 * other than by the age being incremented.
+	 * @return Whether the attributes have changed.
+	 */
+	boolean isChanged()
+	{
+		return this.changed;
+	}
+	
+	/**
+	 * Marks the attributes as changed.
+	 */
+	void markChanged()
+	{
+		this.changed = true;
+	}
+	
+	/**
+	 * Marks the attributes as unchanged. Called when a checkpoint is taken.
+	 */
+	void clearChanged()
+	{
+		this.changed = false;
+	}
+	
 	/**
 	 * Gets the last reproduction time, in game ticks.
 	 * @return The last reproduction time, in game ticks.
@@ -183,6 +360,7 @@ public class DynamicAttributes implements Serializable
 			throw new IllegalArgumentException("Argument 'lastReproducedTicks' cannot be less than zero.");
 		
 		this.lastReproducedTicks = lastReproducedTicks;
+		this.changed = true;
 	}
 	
 	
@@ -202,6 +380,7 @@ public class DynamicAttributes implements Serializable
 	public void addChild()
 	{
 		++this.childrenCount;
+		this.changed = true;
 	}
 	
 	/**
@@ -225,6 +404,7 @@ public class DynamicAttributes implements Serializable
 		
 		this.currentAction = action;
 		this.lastActionChangedTicks = currentGameTicks;
+		this.changed = true;
 	}
 	
 	/**
@@ -252,6 +432,7 @@ public class DynamicAttributes implements Serializable
 	public void setCrowdHappiness(Happiness crowdHappiness)
 	{
 		this.crowdHappiness = crowdHappiness;
+		this.changed = true;
 	}
 	
 	/**
@@ -270,11 +451,12 @@ public class DynamicAttributes implements Serializable
 	public void setHeatHappiness(Happiness heatHappiness)
 	{
 		this.heatHappiness = heatHappiness;
+		this.changed = true;
 	}
 	
 	public void updateHappiness(long gameTicks)
 	{
-		if (this.ageTicks < (10 * GameManager.FRAMES_PER_SECOND))
+		if (this.ageTicks < HAPPINESS_START_AGE)
 		{
 			return;
 		}
@@ -286,6 +468,7 @@ public class DynamicAttributes implements Serializable
 			this.reportHappinessAt = gameTicks;
 			this.lastHappinessLevel = newHappiness;
 			this.happinessChangePending = true;
+			this.changed = true;
 		}
 	}
 	
@@ -294,15 +477,27 @@ public class DynamicAttributes implements Serializable
 	 * @return The overall happiness of the Organism.
 	 */
 	public Happiness getHappiness()
+	{
+		return calculateHappiness(this.hunger, this.crowdHappiness);
+	}
+	
+	/**
+	 * Calculates an Organism's overall happiness. Shared by getHappiness and OrganismArrays, 
+	 * so that both use the same rules.
+	 * @param hunger The Organism's hunger.
+	 * @param crowdHappiness The Organism's crowd happiness.
+	 * @return The overall happiness of the Organism.
+	 */
+	static Happiness calculateHappiness(float hunger, Happiness crowdHappiness)
 	{
 		// If hunger is greater than 75, the Organism will be unhappy.
 		// Otherwise, it depends on the heatHappiness and crowdHappiness levels.
-		if (this.hunger >= 75)
+		if (hunger >= UNHAPPY_HUNGER)
 		{
 			return Happiness.Unhappy;
 		}
 		
-		return this.crowdHappiness;
+		return crowdHappiness;
 		
 		// TODO (2013-05-10): Heat happiness is currently disabled. Uncomment this
 		// once heat happiness has been implemented.
@@ -351,19 +546,22 @@ public class DynamicAttributes implements Serializable
 	 */
 	public boolean isReadyToReportHappiness(long gameTicks)
 	{
-		if (this.ageTicks < (10 * GameManager.FRAMES_PER_SECOND))
+		if (this.ageTicks < HAPPINESS_START_AGE)
 		{
 			return false;
 		}
 		
-		if (this.reportHappinessAt < gameTicks && this.happinessChangePending)
+		final int report = getDueHappinessReport(this.reportHappinessAt, this.happinessChangePending, gameTicks);
+		if (report == CHANGE_REPORT)
 		{
 			this.happinessChangePending = false;
+			this.changed = true;
 			return true;
 		}
-		else if ((this.reportHappinessAt + 10 * GameManager.FRAMES_PER_SECOND) < gameTicks)
+		else if (report == PERIODIC_REPORT)
 		{
-			this.reportHappinessAt = gameTicks + GameManager.FRAMES_PER_SECOND * 120;
+			this.reportHappinessAt = gameTicks + HAPPINESS_REPORT_PERIOD;
+			this.changed = true;
 			return true;
 		}
 		else
@@ -371,4 +569,27 @@ public class DynamicAttributes implements Serializable
 			return false;
 		}
 	}
+	
+	/**
+	 * Identifies the happiness report that is due from an Organism whose happiness is tracked. 
+	 * Shared by isReadyToReportHappiness and OrganismArrays, so that both use the same rules. 
+	 * After a CHANGE_REPORT the change is no longer pending; after a PERIODIC_REPORT the next 
+	 * report is due at gameTicks + HAPPINESS_REPORT_PERIOD.
+	 * @param reportHappinessAt The time to report that the happiness level has changed.
+	 * @param happinessChangePending Whether a happiness change is waiting to be reported.
+	 * @param gameTicks The current game tick count.
+	 * @return CHANGE_REPORT, PERIODIC_REPORT or NO_REPORT.
+	 */
+	static int getDueHappinessReport(long reportHappinessAt, boolean happinessChangePending, long gameTicks)
+	{
+		if (reportHappinessAt < gameTicks && happinessChangePending)
+		{
+			return CHANGE_REPORT;
+		}
+		else if ((reportHappinessAt + HAPPINESS_START_AGE) < gameTicks)
+		{
+			return PERIODIC_REPORT;
+		}
+		return NO_REPORT;
+	}
 }
@@ -20,18 +20,38 @@ You should have received a copy of the GNU General Public License
 along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
 import com.divergentthoughtsgames.colonies.GameManager;
 import com.divergentthoughtsgames.colonies.Updatable;
+import com.divergentthoughtsgames.colonies.event.AllOrganismsRequestedEvent;
+import com.divergentthoughtsgames.colonies.event.AllOrganismsRequestedResponse;
 import com.divergentthoughtsgames.colonies.event.GameEvent;
 import com.divergentthoughtsgames.colonies.event.EventListener;
 import com.divergentthoughtsgames.colonies.event.EventManager;
 import com.divergentthoughtsgames.colonies.event.GamePausedEvent;
 import com.divergentthoughtsgames.colonies.event.GameUnpausedEvent;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
 import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
 import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismHappinessChangedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismInfoRequestedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismPoppedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismRecords;
+import com.divergentthoughtsgames.colonies.persistence.GameStateReader;
+import com.divergentthoughtsgames.colonies.persistence.GameStateWriter;
+import com.divergentthoughtsgames.colonies.persistence.MappedWorldFile;
+import com.divergentthoughtsgames.colonies.util.SplitRandom;
 
 
 /**
@@ -41,6 +61,15 @@ import com.divergentthoughtsgames.colonies.event.NewColonyPlacedEvent;
 public class GameLogicManager implements Updatable, EventListener, Serializable
 {
 	private static final long serialVersionUID = 2415510221546685135L;
+	
+	/** The default width and height, in grid positions, of the tiles that large colonies are split into **/
+	public static final int DEFAULT_TILE_SIZE = 64;
+	
+	/** Colonies with at least this many Organisms are split into tiles when updated in parallel **/
+	public static final int MIN_TILED_COLONY_SIZE = 8192;
+	
+	/** The default number of game ticks that a dead Organism remains on the grid before it decays **/
+	public static final long DEFAULT_DECAY_TICKS = 5 * GameManager.FRAMES_PER_SECOND;
 
 	// A list of all OrganismManagers (i.e., 'species' or 'groups').
 	private final List<OrganismManager> colonies = new ArrayList<OrganismManager>();
@@ -52,21 +81,215 @@ public class GameLogicManager implements Updatable, EventListener, Serializable
 	
 	private final GameManager gameManager;
 	
+	// The seed of the simulation's random number generators.
+	private final long seed;
+	
+	// The simulation's root random number generator. Each colony is given its own generator, 
+	// split from this one when the colony is created.
+	private final SplitRandom random;
+	
+	// The threads used to update colonies in parallel, or null if colonies are
+	// updated on the calling thread. Not saved with the game state.
+	private transient ExecutorService updateExecutor;
+	private transient int updateThreads;
+	
+	// The width and height of the tiles that large colonies are split into, or 0 for the default.
+	private transient int tileSize;
+	
+	// The number of game ticks that dead Organisms remain on the grid, or 0 for the default.
+	// Not saved with the game state.
+	private transient long decayTicks;
+	
+	// The number of colonies, at the start of the list, that were saved by the last checkpoint; 
+	// the colonies after them were placed since. Not saved with the game state.
+	private transient int checkpointedColonies;
+	
 	
 	public GameLogicManager(GameManager gameManager)
+	{
+		this(gameManager, WorldGrid.DEFAULT_ROWS, WorldGrid.DEFAULT_COLUMNS, System.nanoTime());
+	}
+	
+	/**
+	 * Creates a GameLogicManager with a world grid of the specified size.
+	 * @param gameManager The game manager.
+	 * @param rows The number of rows in the world grid.
+	 * @param columns The number of columns in the world grid.
+	 * @param seed The seed for the simulation's random number generators.
+	 */
+	public GameLogicManager(GameManager gameManager, int rows, int columns, long seed)
 	{
 		this.gameManager = gameManager;
-		this.worldGrid = new WorldGrid();
+		this.worldGrid = new WorldGrid(rows, columns);
+		this.seed = seed;
+		this.random = new SplitRandom(seed);
 		
-		// Subscribe to events.
+		subscribeToEvents();
+	}
+	
+	/**
+	 * Restores a GameLogicManager that was written by writeState.
+	 */
+	private GameLogicManager(GameManager gameManager, GameStateReader in) throws IOException
+	{
+		this.gameManager = gameManager;
+		this.worldGrid = new WorldGrid(in.readVarInt(), in.readVarInt());
+		this.seed = in.readLong();
+		this.random = SplitRandom.readState(in);
+		this.isPaused = in.readBoolean();
+		
+		subscribeToEvents();
+		
+		final int colonyCount = in.readVarInt();
+		for (int i = 0; i < colonyCount; ++i)
+		{
+			this.colonies.add(new OrganismManager(in, this.worldGrid, this.gameManager));
+		}
+	}
+	
+	private void subscribeToEvents()
+	{
 		EventManager eventManager = this.gameManager.getEventManager();
 		eventManager.subscribe(NewColonyPlacedEvent.ID, this);
 		eventManager.subscribe(GamePausedEvent.ID, this);
 		eventManager.subscribe(GameUnpausedEvent.ID, this);
+		eventManager.subscribe(OrganismInfoRequestedEvent.ID, this);
+		eventManager.subscribe(AllOrganismsRequestedEvent.ID, this);
+		eventManager.subscribe(OrganismPoppedEvent.ID, this);
+	}
+	
+	/**
+	 * Writes the world grid's size, the random number generators, and the colonies in the 
+	 * binary saved game format. Must be called between game ticks.
+	 * @param out The writer.
+	 */
+	public void writeState(GameStateWriter out) throws IOException
+	{
+		out.writeVarInt(this.worldGrid.getRows());
+		out.writeVarInt(this.worldGrid.getColumns());
+		out.writeLong(this.seed);
+		this.random.writeState(out);
+		out.writeBoolean(this.isPaused);
+		
+		out.writeVarInt(this.colonies.size());
+		for (OrganismManager orgManager : this.colonies)
+		{
+			orgManager.writeState(out);
+		}
+	}
+	
+	/**
+	 * Reads a GameLogicManager that was written by writeState. The GameLogicManager is 
+	 * subscribed to the GameManager's EventManager.
+	 * @param gameManager The game manager.
+	 * @param in The reader.
+	 * @return The restored GameLogicManager.
+	 */
+	public static GameLogicManager readState(GameManager gameManager, GameStateReader in) throws IOException
+	{
+		if (gameManager == null) throw new IllegalArgumentException("Argument 'gameManager' cannot be null.");
+		return new GameLogicManager(gameManager, in);
+	}
+	
+	/**
+	 * Writes the cell record of every Organism to a mapped world file.
+	 * @param cells The mapped world file.
+	 */
+	public void writeCells(MappedWorldFile cells)
+	{
+		for (int i = 0; i < this.colonies.size(); ++i)
+		{
+			for (final Organism org : this.colonies.get(i).getOrganisms())
+			{
+				cells.putOrganism(i, org);
+			}
+		}
+	}
+	
+	/**
+	 * Marks the current state as checkpointed: writeChanges writes the changes made after 
+	 * the last call to this method or to writeChanges. Called after the state has been
+	 * written by writeState.
+	 */
+	public void markCheckpoint()
+	{
+		for (OrganismManager orgManager : this.colonies)
+		{
+			orgManager.markCheckpoint();
+		}
+		this.checkpointedColonies = this.colonies.size();
+	}
+	
+	/**
+	 * Writes the changes made since the last checkpoint in the binary saved game format, and
+	 * marks the current state as checkpointed. Colonies placed since the checkpoint are written 
+	 * in full. Must be called between game ticks.
+	 * @param out The writer.
+	 */
+	public void writeChanges(GameStateWriter out) throws IOException
+	{
+		this.random.writeChanges(out);
+		out.writeBoolean(this.isPaused);
+		
+		out.writeVarInt(this.checkpointedColonies);
+		for (int i = 0; i < this.checkpointedColonies; ++i)
+		{
+			this.colonies.get(i).writeRemovals(out);
+		}
+		for (int i = 0; i < this.checkpointedColonies; ++i)
+		{
+			this.colonies.get(i).writeChanges(out);
+		}
+		
+		out.writeVarInt(this.colonies.size() - this.checkpointedColonies);
+		for (int i = this.checkpointedColonies; i < this.colonies.size(); ++i)
+		{
+			this.colonies.get(i).writeState(out);
+			this.colonies.get(i).markCheckpoint();
+		}
+		this.checkpointedColonies = this.colonies.size();
 	}
 	
 	/**
-	 * Loops through all OrganismManagers once per game tick.
+	 * Replays changes that were written by writeChanges. Colonies placed since the checkpoint 
+	 * are restored in full.
+	 * @param in The reader.
+	 */
+	public void readChanges(GameStateReader in) throws IOException
+	{
+		this.random.readChanges(in);
+		this.isPaused = in.readBoolean();
+		
+		final int checkpointedCount = in.readVarInt();
+		if (checkpointedCount != this.colonies.size())
+			throw new IOException("Invalid checkpoint: expected " + this.colonies.size() + " colonies, found " + checkpointedCount);
+		for (int i = 0; i < checkpointedCount; ++i)
+		{
+			this.colonies.get(i).readRemovals(in);
+		}
+		for (int i = 0; i < checkpointedCount; ++i)
+		{
+			this.colonies.get(i).readChanges(in);
+		}
+		
+		final int placedCount = in.readVarInt();
+		for (int i = 0; i < placedCount; ++i)
+		{
+			this.colonies.add(new OrganismManager(in, this.worldGrid, this.gameManager));
+		}
+	}
+	
+	/**
+	 * Loops through all OrganismManagers once per game tick. Each tick has two phases: 
+	 * first, every colony updates its Organisms, reading but not writing the world grid; 
+	 * then, in colony order, each colony sends its Organisms' events and performs 
+	 * reproduction. The first phase runs in parallel when more than one update thread 
+	 * has been set. Because the grid does not change during the first phase, and the 
+	 * second phase always runs serially in the same order, the results do not depend 
+	 * on the number of threads. At the end of the tick, the Organisms that have decayed
+	 * are removed from every colony, so their grid positions are free from the next tick,
+	 * and the happiness changes of every colony's Organisms are sent in a single
+	 * OrganismHappinessChangedEvent.
 	 * @throws IllegalArgumentException When gameTicks is less than zero.
 	 */
 	@Override
@@ -76,17 +299,308 @@ public class GameLogicManager implements Updatable, EventListener, Serializable
 		
 		if (!this.isPaused)
 		{
-			// TODO (2013-03-30): implement this.
+			if (this.updateExecutor == null || this.colonies.size() < 2)
+			{
+				for (OrganismManager orgManager : this.colonies)
+				{
+					orgManager.updateOrganisms(gameTicks);
+				}
+			}
+			else
+			{
+				updateOrganismsInParallel(gameTicks);
+			}
 			
+			for (OrganismManager orgManager : this.colonies)
+			{
+				orgManager.commitUpdates(gameTicks);
+			}
+			
+			final long decay = getDecayTicks();
+			for (OrganismManager orgManager : this.colonies)
+			{
+				orgManager.removeDecayedOrganisms(decay);
+			}
 			
-			// Loop through all colonies (groups of Organisms).
+			HappinessChanges changes = new HappinessChanges(0);
 			for (OrganismManager orgManager : this.colonies)
 			{
-				orgManager.update(gameTicks);
+				orgManager.takeHappinessChanges(changes);
 			}
+			sendHappinessChanges(this.gameManager.getEventManager(), changes);
 		}
 	}
 	
+	/**
+	 * Sends the happiness changes in an OrganismHappinessChangedEvent, in cell index order, 
+	 * so that the event does not depend on the order in which the Organisms were updated. 
+	 * Nothing is sent if there are no changes.
+	 * @param eventManager The event manager.
+	 * @param changes The changes, which must not be modified once sent.
+	 */
+	static void sendHappinessChanges(EventManager eventManager, HappinessChanges changes)
+	{
+		if (changes.size() > 0)
+		{
+			changes.sortByCell();
+			eventManager.notify(new OrganismHappinessChangedEvent(changes));
+		}
+	}
+	
+	/**
+	 * Runs the first phase of the update on the update threads. Colonies with fewer than 
+	 * MIN_TILED_COLONY_SIZE Organisms are updated whole, one colony per task; larger 
+	 * colonies are then updated one at a time, split into tiles.
+	 */
+	private void updateOrganismsInParallel(final long gameTicks)
+	{
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(this.colonies.size());
+		for (final OrganismManager orgManager : this.colonies)
+		{
+			if (orgManager.getOrganismCount() < MIN_TILED_COLONY_SIZE)
+			{
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call()
+					{
+						orgManager.updateOrganisms(gameTicks);
+						return null;
+					}
+				});
+			}
+		}
+		invokeAll(this.updateExecutor, tasks);
+		
+		for (OrganismManager orgManager : this.colonies)
+		{
+			if (orgManager.getOrganismCount() >= MIN_TILED_COLONY_SIZE)
+			{
+				orgManager.updateOrganismsInTiles(gameTicks, this.updateExecutor, this.updateThreads, getTileSize());
+			}
+		}
+	}
+	
+	/**
+	 * Runs the tasks on the executor, and waits for all of them to finish. Exceptions thrown
+	 * by the tasks are rethrown on the calling thread.
+	 * @param executor The executor.
+	 * @param tasks The tasks.
+	 */
+	static void invokeAll(ExecutorService executor, List<? extends Callable<Void>> tasks)
+	{
+		if (tasks.isEmpty())
+		{
+			return;
+		}
+		
+		try
+		{
+			for (Future<Void> result : executor.invokeAll(tasks))
+			{
+				result.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while updating colonies.", e);
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException("Colony update failed.", e.getCause());
+		}
+	}
+	
+	/**
+	 * Sets the number of threads used to update the colonies. With one thread, the 
+	 * colonies are updated on the thread that calls update(). The results of a game 
+	 * tick are the same for any number of threads.
+	 * @param threads The number of update threads. Must be at least one.
+	 * @throws IllegalArgumentException When threads is less than one.
+	 */
+	public void setUpdateThreads(int threads)
+	{
+		if (threads < 1) throw new IllegalArgumentException("Argument 'threads' must be at least one. Found: " + threads);
+		
+		if (this.updateExecutor != null)
+		{
+			this.updateExecutor.shutdown();
+			this.updateExecutor = null;
+		}
+		
+		if (threads > 1)
+		{
+			this.updateExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private int count = 0;
+				
+				@Override
+				public synchronized Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "ColonyUpdate-" + (++this.count));
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		this.updateThreads = threads;
+	}
+	
+	/**
+	 * Sets the width and height, in grid positions, of the tiles that colonies with at least
+	 * MIN_TILED_COLONY_SIZE Organisms are split into when they are updated in parallel.
+	 * Larger tiles have less scheduling overhead; smaller tiles balance better across threads.
+	 * @param tileSize The tile size. Must be greater than zero.
+	 * @throws IllegalArgumentException When tileSize is less than one.
+	 */
+	public void setTileSize(int tileSize)
+	{
+		if (tileSize < 1) throw new IllegalArgumentException("Argument 'tileSize' must be greater than zero. Found: " + tileSize);
+		
+		this.tileSize = tileSize;
+	}
+	
+	/**
+	 * Gets the width and height, in grid positions, of the tiles that large colonies are split into.
+	 * @return The tile size.
+	 */
+	public int getTileSize()
+	{
+		return (this.tileSize == 0) ? DEFAULT_TILE_SIZE : this.tileSize;
+	}
+	
+	/**
+	 * Sets the number of game ticks that a dead Organism remains on the grid before it decays,
+	 * and is removed from its colony. The decay period is not saved with the game state.
+	 * @param decayTicks The decay period, in game ticks. Must be greater than zero.
+	 * @throws IllegalArgumentException When decayTicks is less than one.
+	 */
+	public void setDecayTicks(long decayTicks)
+	{
+		if (decayTicks < 1) throw new IllegalArgumentException("Argument 'decayTicks' must be greater than zero. Found: " + decayTicks);
+		
+		this.decayTicks = decayTicks;
+	}
+	
+	/**
+	 * Gets the number of game ticks that a dead Organism remains on the grid before it decays.
+	 * @return The decay period, in game ticks.
+	 */
+	public long getDecayTicks()
+	{
+		return (this.decayTicks == 0) ? DEFAULT_DECAY_TICKS : this.decayTicks;
+	}
+	
+	/**
+	 * Gets the number of threads used to update the colonies.
+	 * @return The number of update threads.
+	 */
+	public int getUpdateThreads()
+	{
+		return (this.updateExecutor == null) ? 1 : this.updateThreads;
+	}
+	
+
+	/**
+	 * Gets the seed of the simulation's random number generators.
+	 * @return The seed.
+	 */
+	public long getSeed()
+	{
+		return this.seed;
+	}
+	
+	/**
+	 * Gets the world grid.
+	 * @return The world grid.
+	 */
+	public WorldGrid getWorldGrid()
+	{
+		return this.worldGrid;
+	}
+	
+	/**
+	 * Gets the colonies (OrganismManagers). The list must not be modified.
+	 * @return The colonies.
+	 */
+	List<OrganismManager> getColonies()
+	{
+		return this.colonies;
+	}
+	
+	/**
+	 * Finds the colony that owns the Organism at the grid position, through the world grid.
+	 * @param position The grid position.
+	 * @return The colony, or null if the position does not hold an Organism.
+	 */
+	OrganismManager findColony(GridPosition position)
+	{
+		if (position == null || !this.worldGrid.contains(position))
+		{
+			return null;
+		}
+		
+		final WorldGridEntity entity = this.worldGrid.getGridEntity(position);
+		return (entity instanceof Organism) ? ((Organism)entity).getColony() : null;
+	}
+	
+	/**
+	 * Gets the number of colonies (OrganismManagers).
+	 * @return The number of colonies.
+	 */
+	public int getColonyCount()
+	{
+		return this.colonies.size();
+	}
+	
+	/**
+	 * Gets the total number of Organisms in all colonies, including dead Organisms.
+	 * @return The total number of Organisms.
+	 */
+	public int getOrganismCount()
+	{
+		int count = 0;
+		for (OrganismManager orgManager : this.colonies)
+		{
+			count += orgManager.getOrganismCount();
+		}
+		return count;
+	}
+	
+	/**
+	 * Fills empty grid positions with Organisms from the existing colonies. Each empty
+	 * position is filled with probability density, by a colony chosen at random. Used to
+	 * build large worlds for headless runs and benchmarks.
+	 * @param density The fraction of empty positions to fill, from 0 to 1.
+	 * @param random The random number generator used to choose positions and colonies.
+	 * @param gameTicks The current game tick count.
+	 * @return The number of Organisms added.
+	 */
+	public int populate(double density, Random random, long gameTicks)
+	{
+		if (this.colonies.isEmpty())
+		{
+			return 0;
+		}
+		
+		int added = 0;
+		for (int row = 0; row < this.worldGrid.getRows(); ++row)
+		{
+			for (int column = 0; column < this.worldGrid.getColumns(); ++column)
+			{
+				if (!this.worldGrid.isOccupied(row, column) && random.nextDouble() < density)
+				{
+					int colony = random.nextInt(this.colonies.size());
+					this.colonies.get(colony).addOrganism(new GridPosition(row, column), gameTicks);
+					++added;
+				}
+			}
+		}
+		return added;
+	}
 
 	@Override
 	public void notify(GameEvent<?> event)
@@ -103,10 +617,38 @@ public class GameLogicManager implements Updatable, EventListener, Serializable
 			
 			OrganismManager manager = new OrganismManager(data, 
 					this.worldGrid, 
-					this.gameManager);
+					this.gameManager,
+					this.random.split());
 			
 			this.colonies.add(manager);
 		}
+		else if (event instanceof OrganismInfoRequestedEvent)
+		{
+			// Requests for a single grid position are routed to the colony that owns it.
+			OrganismManager colony = findColony(((OrganismInfoRequestedEvent)event).getData());
+			if (colony != null)
+			{
+				colony.notify(event);
+			}
+		}
+		else if (event instanceof OrganismPoppedEvent)
+		{
+			OrganismManager colony = findColony(((OrganismPoppedEvent)event).getData());
+			if (colony != null)
+			{
+				colony.notify(event);
+			}
+		}
+		else if (event instanceof AllOrganismsRequestedEvent)
+		{
+			// Every colony's Organisms are sent in a single response.
+			OrganismRecords records = new OrganismRecords(getOrganismCount(), this.gameManager.getGameTicks());
+			for (OrganismManager orgManager : this.colonies)
+			{
+				orgManager.addRecords(records);
+			}
+			this.gameManager.getEventManager().notify(new AllOrganismsRequestedResponse(records));
+		}
 		else if (event instanceof GamePausedEvent)
 		{
 			this.isPaused = true;
@@ -24,7 +24,9 @@ import java.io.Serializable;
 
 
 /**
- * The row & column position within the World Grid.
+ * The row & column position within the World Grid. Positions are only checked for
+ * negative values; whether a position is within a particular grid is checked by
+ * the WorldGrid (see WorldGrid.contains).
  * @author Christopher D Canfield
  */
 public final class GridPosition implements Serializable
@@ -38,10 +40,6 @@ public final class GridPosition implements Serializable
 	{
 		if (row < 0) throw new IllegalArgumentException("row parameter is less than zero.");
 		if (column < 0) throw new IllegalArgumentException("column parameter is less than zero.");
-		if (row >= WorldGrid.ROWS) 
-			throw new IllegalArgumentException("row parameter is larger than WorldGrid.ROWS - 1. Value: " + row);
-		if (column >= WorldGrid.COLUMNS)
-			throw new IllegalArgumentException("column parameter is larger than WorldGrid.COLUMNS - 1. Value: " + column);
 
 		this.row = row;
 		this.column = column;
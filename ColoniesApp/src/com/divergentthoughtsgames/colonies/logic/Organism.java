@@ -20,19 +20,21 @@ You should have received a copy of the GNU General Public License
 along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Random;
 
-import android.util.Log;
-
 import com.divergentthoughtsgames.colonies.Updatable;
 import com.divergentthoughtsgames.colonies.event.EventListener;
 import com.divergentthoughtsgames.colonies.event.EventManager;
 import com.divergentthoughtsgames.colonies.event.GameEvent;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
 import com.divergentthoughtsgames.colonies.event.OrganismDiedEvent;
 import com.divergentthoughtsgames.colonies.event.OrganismHappinessChangedEvent;
-import com.divergentthoughtsgames.colonies.event.OrganismInfo;
 import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
 import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
+import com.divergentthoughtsgames.colonies.persistence.GameStateReader;
+import com.divergentthoughtsgames.colonies.persistence.GameStateWriter;
 
 
 /**
@@ -41,17 +43,20 @@ import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
  */
 final public class Organism extends WorldGridEntity implements Updatable, EventListener
 {
-	private static final long serialVersionUID = -6186761110752975566L;
+	private static final long serialVersionUID = 2311542934587312958L;
 
-	private static final Random randomGenerator = new Random();
-	
-	// The Organism's static attributes: i.e., the attributes that it is born with.
+	// The static attributes that the Organism is born with, which are shared with the rest of its 
+	// colony. The Organism's maximum age is held separately, in maxAgeTicks.
 	private final StaticAttributes staticAttributes;
+	// The Organism's maximum age, in game ticks.
+	private final long maxAgeTicks;
 	// The Organism's dynamic attributes: i.e., the attributes that change based on time and other factors.
 	private final DynamicAttributes attributes;
 	
 	// The Organism's position in the World Grid (i.e., the World Map).
 	private final GridPosition position;
+	// The Organism's cell index in the World Grid.
+	private final int cellIndex;
 	
 	// The Organism's name.
 	private String name;
@@ -63,44 +68,197 @@ final public class Organism extends WorldGridEntity implements Updatable, EventL
 	
 	// The time that the Organism died, in game ticks, or 0 if it has not yet died.
 	private long deathTime = 0;
+	
+	// The Organism's colony, and its index in the colony's list of Organisms. Maintained by the
+	// OrganismManager, so that the colony that owns a grid cell, and the Organism's place in the 
+	// colony's list, are found from the world grid in constant time.
+	private OrganismManager colony;
+	private int slot;
 
 	/**
-	 * Creates a new instance of an Organism.
-	 * @param staticAttribute The Organism's static attributes.
+	 * Creates a new instance of an Organism, whose maximum age is chosen from around the maximum 
+	 * age in the static attributes.
+	 * @param staticAttribute The Organism's static attributes, which are shared, not copied.
 	 * @param eventManager The event manager.
 	 * @param worldGrid The world grid.
 	 * @param position The Organism's position on the world grid (world map).
 	 * @param gameTicks The current game tick count.
-	 * @throws IllegalArgumentException if staticAttribute, eventManager or position is null,
+	 * @param random The random number generator used to create the Organism's ID and max age.
+	 * @throws IllegalArgumentException if staticAttribute, eventManager, worldGrid, position or random is null,
 	 * or if gameTicks is less than zero.
 	 */
 	Organism(StaticAttributes staticAttributes, EventManager eventManager, 
-			WorldGrid worldGrid, GridPosition position, long gameTicks)
+			WorldGrid worldGrid, GridPosition position, long gameTicks, Random random)
 	{
-		super(randomGenerator.nextLong());
+		this(staticAttributes, (staticAttributes != null) ? staticAttributes.getMaxAgeTicks() : 0, 
+				eventManager, worldGrid, position, gameTicks, random);
+	}
+	
+	/**
+	 * Creates a new instance of an Organism, whose maximum age is chosen from around the parent's
+	 * maximum age.
+	 * @param staticAttribute The Organism's static attributes, which are shared, not copied.
+	 * @param parentMaxAgeTicks The maximum age, in game ticks, that the Organism's maximum age is chosen around.
+	 * @param eventManager The event manager.
+	 * @param worldGrid The world grid.
+	 * @param position The Organism's position on the world grid (world map).
+	 * @param gameTicks The current game tick count.
+	 * @param random The random number generator used to create the Organism's ID and max age.
+	 * @throws IllegalArgumentException if staticAttribute, eventManager, worldGrid, position or random is null,
+	 * or if gameTicks is less than zero.
+	 */
+	Organism(StaticAttributes staticAttributes, long parentMaxAgeTicks, EventManager eventManager, 
+			WorldGrid worldGrid, GridPosition position, long gameTicks, Random random)
+	{
+		super(nextId(random));
 		
 		if (staticAttributes == null)
 			throw new IllegalArgumentException("Argument 'staticAtributes' cannot be null.");
 		if (eventManager == null)
 			throw new IllegalArgumentException("Argument 'eventManager' cannot be null.");
+		if (worldGrid == null)
+			throw new IllegalArgumentException("Argument 'worldGrid' cannot be null.");
 		if (position == null)
 			throw new IllegalArgumentException("Argument 'position' cannot be null.");
+		if (!worldGrid.contains(position))
+			throw new IllegalArgumentException("Argument 'position' is outside of the world grid: " + 
+					position.getRow() + ", " + position.getColumn());
 		if (gameTicks < 0)
 			throw new IllegalArgumentException("Argument 'gameTicks' must be greater than or equal to zero. Found: " + gameTicks);
 		
 		final int MAX_AGE_RANGE_FACTOR = 15;
-		this.staticAttributes = StaticAttributes.applyFactorToMaxAge(staticAttributes, MAX_AGE_RANGE_FACTOR);
+		this.staticAttributes = staticAttributes;
+		this.maxAgeTicks = StaticAttributes.applyFactorToMaxAge(parentMaxAgeTicks, MAX_AGE_RANGE_FACTOR, random);
 		this.attributes = new DynamicAttributes(this.staticAttributes, gameTicks);
 		this.eventManager = eventManager;
 		this.worldGrid = worldGrid;
 		this.position = position;
+		this.cellIndex = worldGrid.toIndex(position.getRow(), position.getColumn());
 		
 		// Ideally, this would be generated or pulled from a file.
 		this.name = "Organism " + getId();
 	}
 		
 	/**
-	 * Gets the Organism's static attributes.
+	 * Creates an Organism that was restored from a saved game, or materialized from OrganismArrays.
+	 */
+	Organism(long id, StaticAttributes staticAttributes, long maxAgeTicks, DynamicAttributes attributes, 
+			EventManager eventManager, WorldGrid worldGrid, GridPosition position, String name, long deathTime)
+	{
+		super(id);
+		this.staticAttributes = staticAttributes;
+		this.maxAgeTicks = maxAgeTicks;
+		this.attributes = attributes;
+		this.eventManager = eventManager;
+		this.worldGrid = worldGrid;
+		this.position = position;
+		this.cellIndex = worldGrid.toIndex(position.getRow(), position.getColumn());
+		this.name = name;
+		this.deathTime = deathTime;
+	}
+	
+	/**
+	 * Writes the Organism in the binary saved game format. The Organism's static attributes
+	 * are written by the colony, as an index into the colony's attribute table, plus the 
+	 * Organism's own maximum age.
+	 * @param out The writer.
+	 * @param attributeIndex The index of the Organism's attributes in the colony's attribute table.
+	 * @param referenceTicks The game tick count that times are written relative to.
+	 */
+	void writeState(GameStateWriter out, int attributeIndex, long referenceTicks) throws IOException
+	{
+		out.writeLong(getId());
+		out.writeVarInt(attributeIndex);
+		out.writeVarLong(this.maxAgeTicks);
+		out.writeVarInt(this.position.getRow());
+		out.writeVarInt(this.position.getColumn());
+		out.writeSharedString(this.name);
+		out.writeVarLong(this.deathTime);
+		this.attributes.writeState(out, referenceTicks);
+	}
+	
+	/**
+	 * Reads an Organism that was written by writeState. The Organism is not added to the world grid.
+	 * @param in The reader.
+	 * @param attributeTable The colony's attribute table.
+	 * @param eventManager The event manager.
+	 * @param worldGrid The world grid.
+	 * @param referenceTicks The game tick count that times were written relative to.
+	 * @return The restored Organism.
+	 */
+	static Organism readState(GameStateReader in, List<StaticAttributes> attributeTable, 
+			EventManager eventManager, WorldGrid worldGrid, long referenceTicks) throws IOException
+	{
+		final long id = in.readLong();
+		final int attributeIndex = in.readVarInt();
+		final long maxAgeTicks = in.readVarLong();
+		final int row = in.readVarInt();
+		final int column = in.readVarInt();
+		final String name = in.readSharedString();
+		final long deathTime = in.readVarLong();
+		
+		if (attributeIndex >= attributeTable.size())
+			throw new IOException("Invalid saved game state: unknown attribute index: " + attributeIndex);
+		if (!worldGrid.contains(row, column))
+			throw new IOException("Invalid saved game state: Organism is outside of the world grid: " + row + ", " + column);
+		
+		StaticAttributes staticAttributes = attributeTable.get(attributeIndex);
+		DynamicAttributes attributes = DynamicAttributes.readState(in, staticAttributes.getMaxHealth(), referenceTicks);
+		return new Organism(id, staticAttributes, maxAgeTicks, attributes, eventManager, worldGrid, 
+				new GridPosition(row, column), name, deathTime);
+	}
+	
+	/**
+	 * Writes the parts of the Organism that can change: its name, death time and dynamic 
+	 * attributes. Used by incremental checkpoints.
+	 * @param out The writer.
+	 * @param referenceTicks The game tick count that times are written relative to.
+	 */
+	void writeChanges(GameStateWriter out, long referenceTicks) throws IOException
+	{
+		out.writeSharedString(this.name);
+		out.writeVarLong(this.deathTime);
+		this.attributes.writeState(out, referenceTicks);
+	}
+	
+	/**
+	 * Reads changes that were written by writeChanges. The Organism is not modified; a copy
+	 * with the changes applied is returned, and is not added to the world grid.
+	 * @param in The reader.
+	 * @param referenceTicks The game tick count that times were written relative to.
+	 * @return The changed Organism.
+	 */
+	Organism readChanges(GameStateReader in, long referenceTicks) throws IOException
+	{
+		final String name = in.readSharedString();
+		final long deathTime = in.readVarLong();
+		DynamicAttributes attributes = DynamicAttributes.readState(in, this.staticAttributes.getMaxHealth(), referenceTicks);
+		return new Organism(getId(), this.staticAttributes, this.maxAgeTicks, attributes, this.eventManager, this.worldGrid, 
+				this.position, name, deathTime);
+	}
+	
+	/**
+	 * Ages the Organism as if update() had been called the number of times. Used when 
+	 * replaying incremental checkpoints, which do not record the ageing of Organisms that 
+	 * have not otherwise changed.
+	 * @param ticks The number of game ticks.
+	 */
+	void addAgeTicks(long ticks)
+	{
+		this.attributes.addAgeTicks(ticks);
+	}
+	
+	private static long nextId(Random random)
+	{
+		if (random == null)
+			throw new IllegalArgumentException("Argument 'random' cannot be null.");
+		return random.nextLong();
+	}
+	
+	/**
+	 * Gets the Organism's static attributes. The attributes are shared with the rest of the 
+	 * Organism's colony, so their maximum age is the colony's; use getMaxAgeTicks() for the 
+	 * Organism's own maximum age.
 	 * @return The Organism's static attributes.
 	 */
 	public StaticAttributes getStaticAttributes()
@@ -108,6 +266,15 @@ final public class Organism extends WorldGridEntity implements Updatable, EventL
 		return this.staticAttributes;
 	}
 	
+	/**
+	 * Gets the Organism's maximum age.
+	 * @return The Organism's maximum age, in game ticks.
+	 */
+	public long getMaxAgeTicks()
+	{
+		return this.maxAgeTicks;
+	}
+	
 	/**
 	 * Gets the Organism's dynamic attributes.
 	 * @return The Organism's dynamic attributes.
@@ -126,6 +293,15 @@ final public class Organism extends WorldGridEntity implements Updatable, EventL
 		return this.position;
 	}
 	
+	/**
+	 * Gets the world grid cell index of the Organism's position.
+	 * @return The Organism's cell index.
+	 */
+	public int getCellIndex()
+	{
+		return this.cellIndex;
+	}
+	
 	/**
 	 * Gets the Organism's name.
 	 * @return The Organism's name.
@@ -135,13 +311,72 @@ final public class Organism extends WorldGridEntity implements Updatable, EventL
 		return this.name;
 	}
 	
+	/**
+	 * Gets the Organism's colony.
+	 * @return The Organism's colony, or null if the Organism has not been added to a colony.
+	 */
+	OrganismManager getColony()
+	{
+		return this.colony;
+	}
+	
+	/**
+	 * Gets the Organism's index in its colony's list of Organisms.
+	 * @return The Organism's index in its colony's list.
+	 */
+	int getSlot()
+	{
+		return this.slot;
+	}
+	
+	/**
+	 * Sets the Organism's colony and its index in the colony's list of Organisms. Called by the 
+	 * OrganismManager whenever the Organism is added to the list or moved within it.
+	 * @param colony The Organism's colony.
+	 * @param slot The Organism's index in its colony's list.
+	 */
+	void setSlot(OrganismManager colony, int slot)
+	{
+		this.colony = colony;
+		this.slot = slot;
+	}
+	
+	/**
+	 * Gets the time that the Organism died, in game ticks.
+	 * @return The time that the Organism died, or 0 if it has not yet died.
+	 */
+	long getDeathTime()
+	{
+		return this.deathTime;
+	}
+	
+	/**
+	 * Specifies whether the Organism has died.
+	 * @return True if the Organism has died.
+	 */
+	public boolean isDead()
+	{
+		return (this.deathTime > 0);
+	}
+	
+	/**
+	 * Specifies whether the Organism has been dead for at least the decay period.
+	 * @param decayTicks The decay period, in game ticks.
+	 * @return True if the Organism has died, and has been dead for at least decayTicks.
+	 */
+	boolean hasDecayed(long decayTicks)
+	{
+		return (this.deathTime > 0 && this.attributes.getAgeTicks() - this.deathTime >= decayTicks);
+	}
+
 	public void setName(String name)
 	{
 		this.name = name;
+		this.attributes.markChanged();
 	}
 	
 	/**
-	 * Identifies whether the Organism is ready to reproduce.
+	 * Identifies whether the Organism is ready to reproduce. Dead Organisms are never ready.
 	 * @param gameTicks The current game tick count.
 	 * @return Whether the Organism is ready to reproduce.
 	 * @throws IllegalArgumentException when gameTicks is negative.
@@ -150,6 +385,8 @@ final public class Organism extends WorldGridEntity implements Updatable, EventL
 	{
 		if (gameTicks < 0)
 			throw new IllegalArgumentException("Argument 'gameTicks' cannot be negative. Found: " + gameTicks);
+		if (this.deathTime > 0)
+			return false;
 		
 		long timeout = this.attributes.getLastReproducedTicks() + 
 				StaticAttributes.getReproductiveTimeout(this.staticAttributes.getReproductiveFrequency());
@@ -163,66 +400,83 @@ final public class Organism extends WorldGridEntity implements Updatable, EventL
 	 */
 	@Override
 	public void update(long gameTicks)
+	{
+		update(gameTicks, null, null);
+	}
+	
+	/**
+	 * Performs all Organism logic updates. Does not modify the world grid or any other
+	 * Organism, so Organisms can be updated concurrently as long as the grid is not
+	 * being modified.
+	 * @param gameTicks The current game tick count.
+	 * @param pendingEvents The list that events raised by the Organism are added to, or
+	 * null to send them to the event manager immediately.
+	 * @param happinessChanges The changes that the Organism's happiness report is added to, 
+	 * or null to send the report to the event manager immediately.
+	 * @throws IllegalArgumentException when gameTicks is negative.
+	 */
+	void update(long gameTicks, List<GameEvent<?>> pendingEvents, HappinessChanges happinessChanges)
 	{
 		if (gameTicks < 0) 
 			throw new IllegalArgumentException("Argument 'gameTicks' cannot be negative. Found: " + gameTicks);
 		
-		// Don't process updates if the Organism has died.
+		// Don't process updates if the Organism has died. The corpse keeps ageing, so that the 
+		// time since its death is known when it is checked for decay.
 		if (this.deathTime > 0) 
 		{
+			this.attributes.incrementAgeTicks();
 			return;
 		}
 		
 		this.attributes.incrementAgeTicks();
 		
-		if (this.attributes.getAgeTicks() > this.staticAttributes.getMaxAgeTicks())
+		if (this.attributes.getAgeTicks() > this.maxAgeTicks)
 		{
 			this.deathTime = this.attributes.getAgeTicks();
-			this.eventManager.notify(new OrganismDiedEvent(this.position));
+			this.attributes.markChanged();
+			sendEvent(new OrganismDiedEvent(this.position), pendingEvents);
 		}
 		
 		this.attributes.updateHappiness(gameTicks);
 		if (this.attributes.isReadyToReportHappiness(gameTicks))
 		{
-			OrganismInfo info = new OrganismInfo(this, gameTicks);
-			OrganismHappinessChangedEvent e = new OrganismHappinessChangedEvent(info);
-			Log.d("Organism", "OrganismHappinessChangedEvent sent: " + info.getDynamicAttributes().getHappiness().toString());
-			this.eventManager.notify(e);
+			if (happinessChanges == null)
+			{
+				HappinessChanges changes = new HappinessChanges(1);
+				changes.add(this.cellIndex, this.attributes.getHappiness());
+				this.eventManager.notify(new OrganismHappinessChangedEvent(changes));
+			}
+			else
+			{
+				happinessChanges.add(this.cellIndex, this.attributes.getHappiness());
+			}
 		}
 		
 		Happiness newCrowdHappiness = calculateCrowdHappiness(
-				this.staticAttributes.getCrowdPreference(), getNeighborCount(this.worldGrid, this.position));
+				this.staticAttributes.getCrowdPreference(), this.worldGrid.getNeighborCount(this.cellIndex));
 		if (this.attributes.getCrowdHappiness() != newCrowdHappiness)
 		{
 			this.attributes.setCrowdHappiness(newCrowdHappiness);
 		}
 	}
 	
-	private static int getNeighborCount(WorldGrid grid, GridPosition thisPosition)
+	private void sendEvent(GameEvent<?> event, List<GameEvent<?>> pendingEvents)
 	{
-		final int column = thisPosition.getColumn();
-		final int row = thisPosition.getRow();
-		
-		int count = 0;
-		
-		count += (column < WorldGrid.COLUMNS - 1 && grid.getGridEntity(row, column + 1) != null) ? 1 : 0;
-		count += (column > 0 && grid.getGridEntity(row, column - 1) != null) ? 1 : 0;
-		
-		count += (row < WorldGrid.ROWS - 1 && grid.getGridEntity(row + 1, column) != null) ? 1 : 0;
-		count += (row > 0 && grid.getGridEntity(row - 1, column) != null) ? 1 : 0;
-		
-		count += (column < WorldGrid.COLUMNS - 1 && row < WorldGrid.ROWS - 1 && 
-				grid.getGridEntity(row + 1, column + 1) != null) ? 1 : 0;
-		count += (column < WorldGrid.COLUMNS - 1 && row > 0 &&
-				grid.getGridEntity(row - 1, column + 1) != null) ? 1 : 0;
-		count += (column > 0 && row < WorldGrid.ROWS - 1 &&
-				grid.getGridEntity(row + 1, column - 1) != null) ? 1 : 0;
-		count += (column > 0 && row > 0 && grid.getGridEntity(row - 1, column - 1) != null) ? 1 : 0;
-		
-		return count;
+		if (pendingEvents == null)
+		{
+			this.eventManager.notify(event);
+		}
+		else
+		{
+			pendingEvents.add(event);
+		}
 	}
 	
-	private static Happiness calculateCrowdHappiness(Preference crowdPreference, int neighborCount)
+	/**
+	 * Calculates the crowd happiness of an Organism with the crowd preference and number of neighbors.
+	 * Shared with OrganismArrays.
+	 */
+	static Happiness calculateCrowdHappiness(Preference crowdPreference, int neighborCount)
 	{
 		if (crowdPreference == Preference.Love)
 		{
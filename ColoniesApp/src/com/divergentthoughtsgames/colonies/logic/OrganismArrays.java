@@ -0,0 +1,414 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.List;
+
+import com.divergentthoughtsgames.colonies.event.EventManager;
+import com.divergentthoughtsgames.colonies.event.GameEvent;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
+import com.divergentthoughtsgames.colonies.event.OrganismDiedEvent;
+import com.divergentthoughtsgames.colonies.logic.attributes.Action;
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
+
+/**
+ * Stores a colony's Organisms as a structure of arrays: each field of an Organism is held in
+ * a primitive array, indexed by the Organism's slot, and the colony's static attributes are
+ * held once. update() performs the same logic 
+ * as Organism.update, and raises the same events, without an object per Organism; Organism 
+ * objects are only materialized on demand, by toOrganism(), for OrganismInfo. The happiness 
+ * rules are not copied: they are the static rules that DynamicAttributes itself uses.
+ * <p>
+ * An Organism takes 81 bytes in the arrays, against 168 bytes for an Organism object with its
+ * attributes and position, and an update pass over a million Organisms is about three times 
+ * faster (see OrganismStorageBenchmark). The arrays do not place Organisms on the world grid.
+ * @author Christopher D. Canfield
+ */
+final class OrganismArrays
+{
+	private static final int INITIAL_CAPACITY = 16;
+	
+	// Happiness levels are stored as the ordinal plus one, so that zero means no level.
+	private static final Happiness[] HAPPINESS_VALUES = Happiness.values();
+	private static final Action[] ACTION_VALUES = Action.values();
+	
+	// The attributes that the colony's Organisms share. Every Organism's static attributes 
+	// equal these, other than the maximum age.
+	private final StaticAttributes colonyAttributes;
+	private final Preference crowdPreference;
+	
+	private final EventManager eventManager;
+	private final WorldGrid worldGrid;
+	
+	// The number of Organisms. The Organisms occupy slots 0 to size - 1.
+	private int size;
+	
+	// The fields read by every update.
+	private int[] cellIndex;
+	private long[] ageTicks;
+	private long[] maxAgeTicks;
+	private long[] deathTime;
+	private float[] hunger;
+	private byte[] crowdHappiness;
+	private byte[] lastHappinessLevel;
+	private long[] reportHappinessAt;
+	private boolean[] happinessChangePending;
+	
+	// The fields that are only read when an Organism is materialized or reproduces.
+	private long[] id;
+	private float[] health;
+	private long[] lastReproducedTicks;
+	private int[] childrenCount;
+	private byte[] heatHappiness;
+	private byte[] currentAction;
+	private long[] lastActionChangedTicks;
+	private String[] name;
+	
+	/**
+	 * Creates an empty set of arrays for a colony's Organisms.
+	 * @param colonyAttributes The attributes that the colony's Organisms share.
+	 * @param eventManager The event manager.
+	 * @param worldGrid The world grid.
+	 * @throws IllegalArgumentException when colonyAttributes, eventManager or worldGrid is null.
+	 */
+	OrganismArrays(StaticAttributes colonyAttributes, EventManager eventManager, WorldGrid worldGrid)
+	{
+		if (colonyAttributes == null)
+			throw new IllegalArgumentException("Argument 'colonyAttributes' cannot be null.");
+		if (eventManager == null)
+			throw new IllegalArgumentException("Argument 'eventManager' cannot be null.");
+		if (worldGrid == null)
+			throw new IllegalArgumentException("Argument 'worldGrid' cannot be null.");
+		
+		this.colonyAttributes = colonyAttributes;
+		this.crowdPreference = colonyAttributes.getCrowdPreference();
+		this.eventManager = eventManager;
+		this.worldGrid = worldGrid;
+		allocate(INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * Gets the number of Organisms.
+	 * @return The number of Organisms.
+	 */
+	int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * Adds a copy of the Organism's state. The Organism itself is not referenced.
+	 * @param org The Organism, whose static attributes must equal the colony's, other than the maximum age.
+	 * @return The Organism's slot.
+	 * @throws IllegalArgumentException when org is null, or has different static attributes.
+	 */
+	int add(Organism org)
+	{
+		if (org == null)
+			throw new IllegalArgumentException("Argument 'org' cannot be null.");
+		if (!this.colonyAttributes.equalsExceptMaxAge(org.getStaticAttributes()))
+			throw new IllegalArgumentException("Argument 'org' does not have the colony's attributes.");
+		
+		if (this.size == this.id.length)
+		{
+			allocate(this.size * 2);
+		}
+		
+		final int slot = this.size++;
+		final DynamicAttributes attributes = org.getDynamicAttributes();
+		final GridPosition position = org.getPosition();
+		
+		this.cellIndex[slot] = this.worldGrid.toIndex(position.getRow(), position.getColumn());
+		this.ageTicks[slot] = attributes.getAgeTicks();
+		this.maxAgeTicks[slot] = org.getMaxAgeTicks();
+		this.deathTime[slot] = org.getDeathTime();
+		this.hunger[slot] = attributes.getHunger();
+		this.crowdHappiness[slot] = toByte(attributes.getCrowdHappiness());
+		this.lastHappinessLevel[slot] = toByte(attributes.getLastHappinessLevel());
+		this.reportHappinessAt[slot] = attributes.getReportHappinessAt();
+		this.happinessChangePending[slot] = attributes.isHappinessChangePending();
+		
+		this.id[slot] = org.getId();
+		this.health[slot] = attributes.getHealth();
+		this.lastReproducedTicks[slot] = attributes.getLastReproducedTicks();
+		this.childrenCount[slot] = attributes.getChildCount();
+		this.heatHappiness[slot] = toByte(attributes.getHeatHappiness());
+		this.currentAction[slot] = (byte)attributes.getCurrentAction().ordinal();
+		this.lastActionChangedTicks[slot] = attributes.getLastActionChangedTicks();
+		this.name[slot] = org.getName();
+		
+		return slot;
+	}
+	
+	/**
+	 * Removes the Organism in the slot by moving the last Organism into it.
+	 * @param slot The slot.
+	 * @throws IndexOutOfBoundsException when the slot is not occupied.
+	 */
+	void remove(int slot)
+	{
+		checkSlot(slot);
+		
+		final int last = --this.size;
+		if (slot != last)
+		{
+			this.cellIndex[slot] = this.cellIndex[last];
+			this.ageTicks[slot] = this.ageTicks[last];
+			this.maxAgeTicks[slot] = this.maxAgeTicks[last];
+			this.deathTime[slot] = this.deathTime[last];
+			this.hunger[slot] = this.hunger[last];
+			this.crowdHappiness[slot] = this.crowdHappiness[last];
+			this.lastHappinessLevel[slot] = this.lastHappinessLevel[last];
+			this.reportHappinessAt[slot] = this.reportHappinessAt[last];
+			this.happinessChangePending[slot] = this.happinessChangePending[last];
+			
+			this.id[slot] = this.id[last];
+			this.health[slot] = this.health[last];
+			this.lastReproducedTicks[slot] = this.lastReproducedTicks[last];
+			this.childrenCount[slot] = this.childrenCount[last];
+			this.heatHappiness[slot] = this.heatHappiness[last];
+			this.currentAction[slot] = this.currentAction[last];
+			this.lastActionChangedTicks[slot] = this.lastActionChangedTicks[last];
+			this.name[slot] = this.name[last];
+		}
+		this.name[last] = null;
+	}
+	
+	/**
+	 * Finds the slot of the Organism in the grid cell.
+	 * @param cellIndex The cell index.
+	 * @return The slot, or -1 if no Organism is in the cell.
+	 */
+	int findSlot(int cellIndex)
+	{
+		for (int slot = 0; slot < this.size; ++slot)
+		{
+			if (this.cellIndex[slot] == cellIndex)
+			{
+				return slot;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Gets the grid cell index of the Organism in the slot.
+	 * @param slot The slot.
+	 * @return The cell index.
+	 */
+	int getCellIndex(int slot)
+	{
+		checkSlot(slot);
+		return this.cellIndex[slot];
+	}
+	
+	/**
+	 * Gets the age, in game ticks, of the Organism in the slot.
+	 * @param slot The slot.
+	 * @return The age, in game ticks.
+	 */
+	long getAgeTicks(int slot)
+	{
+		checkSlot(slot);
+		return this.ageTicks[slot];
+	}
+	
+	/**
+	 * Specifies whether the Organism in the slot has died.
+	 * @param slot The slot.
+	 * @return Whether the Organism has died.
+	 */
+	boolean isDead(int slot)
+	{
+		checkSlot(slot);
+		return this.deathTime[slot] > 0;
+	}
+	
+	/**
+	 * Identifies whether the Organism in the slot is ready to reproduce. Equivalent to
+	 * Organism.isReadyToReproduce.
+	 * @param slot The slot.
+	 * @param gameTicks The current game tick count.
+	 * @return Whether the Organism is ready to reproduce.
+	 */
+	boolean isReadyToReproduce(int slot, long gameTicks)
+	{
+		checkSlot(slot);
+		return this.deathTime[slot] == 0 && gameTicks > this.lastReproducedTicks[slot] + 
+				StaticAttributes.getReproductiveTimeout(this.colonyAttributes.getReproductiveFrequency());
+	}
+	
+	/**
+	 * Creates an Organism object with the state of the Organism in the slot. Changes to the
+	 * object are not written back to the arrays.
+	 * @param slot The slot.
+	 * @return The Organism.
+	 */
+	Organism toOrganism(int slot)
+	{
+		checkSlot(slot);
+		
+		DynamicAttributes attributes = new DynamicAttributes(this.colonyAttributes.getMaxHealth(), 
+				this.health[slot], this.hunger[slot], this.ageTicks[slot], this.lastReproducedTicks[slot], 
+				toHappiness(this.crowdHappiness[slot]), toHappiness(this.heatHappiness[slot]), 
+				this.childrenCount[slot], ACTION_VALUES[this.currentAction[slot]], 
+				this.lastActionChangedTicks[slot], this.reportHappinessAt[slot], 
+				this.happinessChangePending[slot], toHappiness(this.lastHappinessLevel[slot]));
+		return new Organism(this.id[slot], this.colonyAttributes, this.maxAgeTicks[slot], attributes, 
+				this.eventManager, this.worldGrid, toPosition(this.cellIndex[slot]), this.name[slot], 
+				this.deathTime[slot]);
+	}
+	
+	/**
+	 * Updates every Organism. The Organisms are updated in slot order, and the events and
+	 * happiness changes that they raise are the same as Organism.update would raise.
+	 * @param gameTicks The current game tick count.
+	 * @param pendingEvents The list that events raised by the Organisms are added to.
+	 * @param happinessChanges The changes that the Organisms' happiness reports are added to.
+	 * @throws IllegalArgumentException when gameTicks is negative, or pendingEvents or 
+	 * happinessChanges is null.
+	 */
+	void update(long gameTicks, List<GameEvent<?>> pendingEvents, HappinessChanges happinessChanges)
+	{
+		if (gameTicks < 0) 
+			throw new IllegalArgumentException("Argument 'gameTicks' cannot be negative. Found: " + gameTicks);
+		if (pendingEvents == null)
+			throw new IllegalArgumentException("Argument 'pendingEvents' cannot be null.");
+		if (happinessChanges == null)
+			throw new IllegalArgumentException("Argument 'happinessChanges' cannot be null.");
+		
+		final int count = this.size;
+		for (int slot = 0; slot < count; ++slot)
+		{
+			if (this.deathTime[slot] > 0)
+			{
+				++this.ageTicks[slot];
+				continue;
+			}
+			
+			final long age = ++this.ageTicks[slot];
+			if (age > this.maxAgeTicks[slot])
+			{
+				this.deathTime[slot] = age;
+				pendingEvents.add(new OrganismDiedEvent(toPosition(this.cellIndex[slot])));
+			}
+			
+			if (age >= DynamicAttributes.HAPPINESS_START_AGE)
+			{
+				updateHappiness(slot, gameTicks, happinessChanges);
+			}
+			
+			final byte newCrowdHappiness = toByte(Organism.calculateCrowdHappiness(
+					this.crowdPreference, this.worldGrid.getNeighborCount(this.cellIndex[slot])));
+			this.crowdHappiness[slot] = newCrowdHappiness;
+		}
+	}
+	
+	/**
+	 * Performs DynamicAttributes.updateHappiness and isReadyToReportHappiness for the Organism
+	 * in the slot, using DynamicAttributes' rules, and adds its happiness to the changes if the 
+	 * Organism is ready to report.
+	 */
+	private void updateHappiness(int slot, long gameTicks, HappinessChanges happinessChanges)
+	{
+		final Happiness newHappiness = DynamicAttributes.calculateHappiness(this.hunger[slot], 
+				toHappiness(this.crowdHappiness[slot]));
+		if (toHappiness(this.lastHappinessLevel[slot]) != newHappiness)
+		{
+			this.reportHappinessAt[slot] = gameTicks;
+			this.lastHappinessLevel[slot] = toByte(newHappiness);
+			this.happinessChangePending[slot] = true;
+		}
+		
+		final int report = DynamicAttributes.getDueHappinessReport(this.reportHappinessAt[slot], 
+				this.happinessChangePending[slot], gameTicks);
+		if (report == DynamicAttributes.CHANGE_REPORT)
+		{
+			this.happinessChangePending[slot] = false;
+		}
+		else if (report == DynamicAttributes.PERIODIC_REPORT)
+		{
+			this.reportHappinessAt[slot] = gameTicks + DynamicAttributes.HAPPINESS_REPORT_PERIOD;
+		}
+		
+		if (report != DynamicAttributes.NO_REPORT)
+		{
+			happinessChanges.add(this.cellIndex[slot], newHappiness);
+		}
+	}
+	
+	private GridPosition toPosition(int cellIndex)
+	{
+		return new GridPosition(this.worldGrid.getRow(cellIndex), this.worldGrid.getColumn(cellIndex));
+	}
+	
+	private void checkSlot(int slot)
+	{
+		if (slot < 0 || slot >= this.size)
+			throw new IndexOutOfBoundsException("Slot " + slot + " is not occupied. Size: " + this.size);
+	}
+	
+	private static byte toByte(Happiness happiness)
+	{
+		return (byte)((happiness == null) ? 0 : happiness.ordinal() + 1);
+	}
+	
+	private static Happiness toHappiness(byte value)
+	{
+		return (value == 0) ? null : HAPPINESS_VALUES[value - 1];
+	}
+	
+	/**
+	 * Reallocates the arrays with the capacity, keeping the Organisms.
+	 */
+	private void allocate(int capacity)
+	{
+		final int n = this.size;
+		this.cellIndex = copy(this.cellIndex, new int[capacity], n);
+		this.ageTicks = copy(this.ageTicks, new long[capacity], n);
+		this.maxAgeTicks = copy(this.maxAgeTicks, new long[capacity], n);
+		this.deathTime = copy(this.deathTime, new long[capacity], n);
+		this.hunger = copy(this.hunger, new float[capacity], n);
+		this.crowdHappiness = copy(this.crowdHappiness, new byte[capacity], n);
+		this.lastHappinessLevel = copy(this.lastHappinessLevel, new byte[capacity], n);
+		this.reportHappinessAt = copy(this.reportHappinessAt, new long[capacity], n);
+		this.happinessChangePending = copy(this.happinessChangePending, new boolean[capacity], n);
+		
+		this.id = copy(this.id, new long[capacity], n);
+		this.health = copy(this.health, new float[capacity], n);
+		this.lastReproducedTicks = copy(this.lastReproducedTicks, new long[capacity], n);
+		this.childrenCount = copy(this.childrenCount, new int[capacity], n);
+		this.heatHappiness = copy(this.heatHappiness, new byte[capacity], n);
+		this.currentAction = copy(this.currentAction, new byte[capacity], n);
+		this.lastActionChangedTicks = copy(this.lastActionChangedTicks, new long[capacity], n);
+		this.name = copy(this.name, new String[capacity], n);
+	}
+	
+	private static <T> T copy(T from, T to, int length)
+	{
+		if (from != null)
+		{
+			System.arraycopy(from, 0, to, 0, length);
+		}
+		return to;
+	}
+}
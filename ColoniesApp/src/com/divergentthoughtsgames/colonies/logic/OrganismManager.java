@@ -20,27 +20,37 @@ You should have received a copy of the GNU General Public License
 along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 import com.divergentthoughtsgames.colonies.GameManager;
 import com.divergentthoughtsgames.colonies.Updatable;
-import com.divergentthoughtsgames.colonies.event.AllOrganismsRequestedEvent;
-import com.divergentthoughtsgames.colonies.event.AllOrganismsRequestedResponse;
 import com.divergentthoughtsgames.colonies.event.EventManager;
 import com.divergentthoughtsgames.colonies.event.GameEvent;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
 import com.divergentthoughtsgames.colonies.event.EventListener;
 import com.divergentthoughtsgames.colonies.event.NewColonyPlacedData;
 import com.divergentthoughtsgames.colonies.event.OrganismBornData;
 import com.divergentthoughtsgames.colonies.event.OrganismBornEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismDecayedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismDiedEvent;
 import com.divergentthoughtsgames.colonies.event.OrganismInfo;
 import com.divergentthoughtsgames.colonies.event.OrganismInfoRequestedEvent;
 import com.divergentthoughtsgames.colonies.event.OrganismInfoRequestedResponse;
 import com.divergentthoughtsgames.colonies.event.OrganismPoppedEvent;
-
-import android.util.Log;
+import com.divergentthoughtsgames.colonies.event.OrganismRecords;
+import com.divergentthoughtsgames.colonies.persistence.GameStateReader;
+import com.divergentthoughtsgames.colonies.persistence.GameStateWriter;
+import com.divergentthoughtsgames.colonies.platform.Log;
+import com.divergentthoughtsgames.colonies.util.SplitRandom;
 
 /**
  * Controls the actions of a group of organisms.
@@ -52,11 +62,14 @@ class OrganismManager implements Updatable, EventListener, Serializable
 {
 	private static final long serialVersionUID = -7880284065497114799L;
 
-	private static final Random randomGenerator = new Random();
-	
 	private final long id;
 	
-	// The Organisms in the group.
+	// The attributes that the colony was created with, which are shared by its Organisms.
+	private final StaticAttributes colonyAttributes;
+	
+	// The Organisms in the group. Each Organism's slot is its index in the list, so the Organism 
+	// in a grid cell is found through the world grid, and is removed by moving another Organism
+	// into its slot.
 	private final List<Organism> organisms;
 	
 	// A reference to the World Grid (the World Map). 
@@ -64,8 +77,54 @@ class OrganismManager implements Updatable, EventListener, Serializable
 	
 	private final GameManager gameManager;
 	
+	// The group's random number generator. Only used by the thread that is updating the group.
+	private final SplitRandom random;
+	
 	private long lastGameTick = 0;
 	
+	// Events raised by the Organisms in updateOrganisms, which are sent in commitUpdates.
+	private final List<GameEvent<?>> pendingEvents = new ArrayList<GameEvent<?>>();
+	
+	// The happiness reports made by the Organisms in updateOrganisms. They are taken at the end
+	// of the tick, and sent together with those of the other groups.
+	private final HappinessChanges happinessChanges = new HappinessChanges();
+	
+	// The Organisms that were ready to reproduce in updateOrganisms, in list order. They are 
+	// paired, in order, in commitUpdates.
+	private final List<Organism> readyOrganisms = new ArrayList<Organism>();
+	
+	// The empty grid positions next to the group's Organisms, which offspring are placed in. 
+	// Positions are added as the group's Organisms are placed and as neighboring positions are
+	// freed; a position that has been taken by another group, or that no longer borders the 
+	// group, is discarded when it is sampled. Rebuilt from the list of Organisms when null, and
+	// after the group is written or read, so that a restored group samples the same positions
+	// as the group that was saved.
+	private transient CellSet frontier;
+	
+	// The group's dead Organisms, in the order that they died, so that the Organisms that have
+	// decayed are found at the head of the queue. Rebuilt from the list of Organisms when null.
+	private transient Queue<Organism> corpses;
+	
+	// The schedule used to update the Organisms in tiles, or null if it has not been built
+	// or must be rebuilt. Built by updateOrganismsInTiles.
+	private transient TileSchedule tileSchedule;
+	
+	// The number of Organisms, at the start of the list, that were saved by the last checkpoint;
+	// the Organisms after them were born since. Not saved with the game state.
+	private transient int checkpointedOrganisms;
+	
+	// The indexes of the checkpointed Organisms that have been removed since the last checkpoint, 
+	// in the order that they were removed, or null if there are none. Each removal moved the last
+	// checkpointed Organism into the index.
+	private transient List<Integer> removedOrganisms;
+	
+	// The number of times the Organisms have been updated since the last checkpoint.
+	private transient long updatesSinceCheckpoint;
+	
+	// The scratch array that the frontier methods read a cell's neighbors into, which are only
+	// called on the thread that commits updates. Allocated when null.
+	private transient int[] neighbors;
+	
 	// The position on the grid that the group is expanding toward.
 //	private GridPosition gridTarget = null;
 
@@ -75,9 +134,10 @@ class OrganismManager implements Updatable, EventListener, Serializable
 	 * @param initialAttributes The initial static attributes for this set of Organisms.
 	 * @param worldGrid A reference to the world grid (world map).
 	 * @param GameManager A reference to the GameManager.
-	 * @throws IllegalArgumentException when initialAttributes, worldGrid or gameManager is null.
+	 * @param random The group's random number generator, which must not be shared with other groups.
+	 * @throws IllegalArgumentException when initialAttributes, worldGrid, gameManager or random is null.
 	 */
-	OrganismManager(NewColonyPlacedData colonyData, WorldGrid worldGrid, GameManager gameManager)
+	OrganismManager(NewColonyPlacedData colonyData, WorldGrid worldGrid, GameManager gameManager, SplitRandom random)
 	{
 		if (colonyData == null) 
 			throw new IllegalArgumentException("Argument 'colonyData' cannot be null.");
@@ -85,69 +145,487 @@ class OrganismManager implements Updatable, EventListener, Serializable
 			throw new IllegalArgumentException("Argument 'worldGrid' cannot be null.");
 		if (gameManager == null)
 			throw new IllegalArgumentException("Argument 'gameManager' cannot be null.");
+		if (random == null)
+			throw new IllegalArgumentException("Argument 'random' cannot be null.");
 		
-		this.id = randomGenerator.nextLong();
+		this.random = random;
+		this.id = random.nextLong();
+		this.colonyAttributes = colonyData.getAttributes();
 		this.worldGrid = worldGrid;
 		this.gameManager = gameManager;
 		this.lastGameTick = colonyData.getGameTicks();
 		
 		EventManager eventManager = this.gameManager.getEventManager();
-		this.organisms = populateValidGridPositions(this.worldGrid, this.gameManager, colonyData);
-		for (final Organism org : this.organisms)
+		this.organisms = populateValidGridPositions(this.worldGrid, this.gameManager, colonyData, this.random);
+		for (int i = 0; i < this.organisms.size(); ++i)
 		{
+			final Organism org = this.organisms.get(i);
+			org.setSlot(this, i);
+			
 			OrganismBornData data = new OrganismBornData(org.getStaticAttributes(), org.getPosition());
 			OrganismBornEvent event = new OrganismBornEvent(data);
 			eventManager.notify(event);
 		}
+	}
+	
+	/**
+	 * Restores a group that was written by writeState, and places its Organisms on the world grid.
+	 * @param in The reader.
+	 * @param worldGrid A reference to the world grid (world map).
+	 * @param gameManager A reference to the GameManager.
+	 */
+	OrganismManager(GameStateReader in, WorldGrid worldGrid, GameManager gameManager) throws IOException
+	{
+		this.id = in.readLong();
+		this.random = SplitRandom.readState(in);
+		this.lastGameTick = in.readVarLong();
+		this.worldGrid = worldGrid;
+		this.gameManager = gameManager;
+		
+		List<StaticAttributes> attributeTable = readAttributeTable(in);
+		if (attributeTable.isEmpty())
+			throw new IOException("Invalid saved game state: colony has no attributes.");
+		this.colonyAttributes = attributeTable.get(0);
+		
+		this.organisms = new ArrayList<Organism>();
+		readOrganisms(in, attributeTable);
+	}
+	
+	/**
+	 * Writes the group in the binary saved game format. The Organisms' static attributes are 
+	 * written once per distinct set of attributes, in an attribute table; each Organism 
+	 * record holds an index into the table, plus the Organism's own maximum age. Must be 
+	 * called between game ticks.
+	 * @param out The writer.
+	 */
+	void writeState(GameStateWriter out) throws IOException
+	{
+		out.writeLong(this.id);
+		this.random.writeState(out);
+		out.writeVarLong(this.lastGameTick);
+		
+		// The colony's attributes are always the first entry in the table.
+		List<StaticAttributes> attributeTable = new ArrayList<StaticAttributes>();
+		attributeTable.add(this.colonyAttributes);
+		writeOrganisms(out, attributeTable, 0);
+		this.frontier = null;
+	}
+	
+	/**
+	 * Marks the group's current state as checkpointed: writeChanges writes the changes made
+	 * after the last call to this method or to writeChanges.
+	 */
+	void markCheckpoint()
+	{
+		for (int i = 0; i < this.organisms.size(); ++i)
+		{
+			this.organisms.get(i).getDynamicAttributes().clearChanged();
+		}
+		this.checkpointedOrganisms = this.organisms.size();
+		this.removedOrganisms = null;
+		this.updatesSinceCheckpoint = 0;
+	}
+	
+	/**
+	 * Writes the indexes of the Organisms that have been removed since the last checkpoint.
+	 * The removals of every group are written before the rest of the changes, so that when
+	 * they are replayed, the grid positions that they free can be reused by any group.
+	 * @param out The writer.
+	 */
+	void writeRemovals(GameStateWriter out) throws IOException
+	{
+		if (this.removedOrganisms == null)
+		{
+			out.writeVarInt(0);
+			return;
+		}
+		
+		out.writeVarInt(this.removedOrganisms.size());
+		for (int i = 0; i < this.removedOrganisms.size(); ++i)
+		{
+			out.writeVarInt(this.removedOrganisms.get(i));
+		}
+		this.removedOrganisms = null;
+	}
+	
+	/**
+	 * Writes the changes made since the last checkpoint, other than removals, and marks the 
+	 * current state as checkpointed. Only the Organisms that were born or have changed are 
+	 * written; the ageing of the other living Organisms is written as the number of updates.
+	 * Must be called between game ticks, after writeRemovals.
+	 * @param out The writer.
+	 */
+	void writeChanges(GameStateWriter out) throws IOException
+	{
+		this.random.writeChanges(out);
+		out.writeVarLong(this.lastGameTick);
+		out.writeVarLong(this.updatesSinceCheckpoint);
+		
+		int changedCount = 0;
+		for (int i = 0; i < this.checkpointedOrganisms; ++i)
+		{
+			if (this.organisms.get(i).getDynamicAttributes().isChanged())
+			{
+				++changedCount;
+			}
+		}
+		
+		// Each changed Organism's index is written as the gap from the previous one.
+		out.writeVarInt(changedCount);
+		int previousIndex = -1;
+		for (int i = 0; i < this.checkpointedOrganisms; ++i)
+		{
+			final Organism org = this.organisms.get(i);
+			if (org.getDynamicAttributes().isChanged())
+			{
+				out.writeVarInt(i - previousIndex - 1);
+				org.writeChanges(out, this.lastGameTick);
+				org.getDynamicAttributes().clearChanged();
+				previousIndex = i;
+			}
+		}
+		
+		writeOrganisms(out, new ArrayList<StaticAttributes>(), this.checkpointedOrganisms);
+		for (int i = this.checkpointedOrganisms; i < this.organisms.size(); ++i)
+		{
+			this.organisms.get(i).getDynamicAttributes().clearChanged();
+		}
+		
+		this.checkpointedOrganisms = this.organisms.size();
+		this.updatesSinceCheckpoint = 0;
+		this.frontier = null;
+	}
+	
+	/**
+	 * Replays the removals that were written by writeRemovals.
+	 * @param in The reader.
+	 */
+	void readRemovals(GameStateReader in) throws IOException
+	{
+		final int count = in.readVarInt();
+		for (int i = 0; i < count; ++i)
+		{
+			final int index = in.readVarInt();
+			if (index >= this.organisms.size())
+				throw new IOException("Invalid checkpoint: unknown Organism index: " + index);
+			
+			// Only checkpointed Organisms are in the list, so the last one is moved into the index.
+			final Organism org = this.organisms.get(index);
+			final int last = this.organisms.size() - 1;
+			moveOrganism(last, index);
+			this.organisms.remove(last);
+			if (this.worldGrid.getGridEntity(org.getPosition()) == org)
+			{
+				this.worldGrid.setGridEntity(org.getPosition(), null);
+			}
+			org.setSlot(null, -1);
+			this.tileSchedule = null;
+		}
+		this.corpses = null;
+		this.frontier = null;
+	}
+	
+	/**
+	 * Replays the changes that were written by writeChanges.
+	 * @param in The reader.
+	 */
+	void readChanges(GameStateReader in) throws IOException
+	{
+		this.random.readChanges(in);
+		this.lastGameTick = in.readVarLong();
+		final long updates = in.readVarLong();
+		for (int i = 0; i < this.organisms.size(); ++i)
+		{
+			this.organisms.get(i).addAgeTicks(updates);
+		}
 		
-		eventManager.subscribe(OrganismInfoRequestedEvent.ID, this);
-		eventManager.subscribe(AllOrganismsRequestedEvent.ID, this);
-		eventManager.subscribe(OrganismPoppedEvent.ID, this);
+		final int changedCount = in.readVarInt();
+		int index = -1;
+		for (int i = 0; i < changedCount; ++i)
+		{
+			index += in.readVarInt() + 1;
+			if (index >= this.organisms.size())
+				throw new IOException("Invalid checkpoint: unknown Organism index: " + index);
+			
+			final Organism changed = this.organisms.get(index).readChanges(in, this.lastGameTick);
+			changed.setSlot(this, index);
+			this.organisms.set(index, changed);
+			this.worldGrid.setGridEntity(changed.getPosition(), changed);
+		}
+		
+		List<StaticAttributes> attributeTable = readAttributeTable(in);
+		for (int i = 0; i < attributeTable.size(); ++i)
+		{
+			// Organisms born since the last checkpoint share the colony's attributes.
+			final StaticAttributes attributes = attributeTable.get(i);
+			if (attributes.equalsExceptMaxAge(this.colonyAttributes) && 
+					attributes.getMaxAgeTicks() == this.colonyAttributes.getMaxAgeTicks())
+			{
+				attributeTable.set(i, this.colonyAttributes);
+			}
+		}
+		readOrganisms(in, attributeTable);
+		this.tileSchedule = null;
+		this.corpses = null;
+		this.frontier = null;
+	}
+	
+	/**
+	 * Writes the attribute table, followed by the Organisms from the index to the end of 
+	 * the list. Each Organism's attributes are added to the table if they are not already in it.
+	 */
+	private void writeOrganisms(GameStateWriter out, List<StaticAttributes> attributeTable, int fromIndex) throws IOException
+	{
+		final int[] attributeIndexes = new int[this.organisms.size() - fromIndex];
+		for (int i = 0; i < attributeIndexes.length; ++i)
+		{
+			attributeIndexes[i] = findAttributes(attributeTable, this.organisms.get(fromIndex + i).getStaticAttributes());
+		}
+		
+		out.writeVarInt(attributeTable.size());
+		for (StaticAttributes attributes : attributeTable)
+		{
+			attributes.writeState(out);
+		}
+		
+		out.writeVarInt(attributeIndexes.length);
+		for (int i = 0; i < attributeIndexes.length; ++i)
+		{
+			this.organisms.get(fromIndex + i).writeState(out, attributeIndexes[i], this.lastGameTick);
+		}
+	}
+	
+	private static List<StaticAttributes> readAttributeTable(GameStateReader in) throws IOException
+	{
+		final int attributeCount = in.readVarInt();
+		List<StaticAttributes> attributeTable = new ArrayList<StaticAttributes>(attributeCount);
+		for (int i = 0; i < attributeCount; ++i)
+		{
+			attributeTable.add(StaticAttributes.readState(in));
+		}
+		return attributeTable;
+	}
+	
+	/**
+	 * Reads Organisms that were written by writeOrganisms, adds them to the end of the list, 
+	 * and places them on the world grid.
+	 */
+	private void readOrganisms(GameStateReader in, List<StaticAttributes> attributeTable) throws IOException
+	{
+		EventManager eventManager = this.gameManager.getEventManager();
+		final int organismCount = in.readVarInt();
+		for (int i = 0; i < organismCount; ++i)
+		{
+			Organism org = Organism.readState(in, attributeTable, eventManager, this.worldGrid, this.lastGameTick);
+			if (this.worldGrid.getGridEntity(org.getPosition()) != null)
+				throw new IOException("Invalid saved game state: two Organisms at " + 
+						org.getPosition().getRow() + ", " + org.getPosition().getColumn());
+			appendOrganism(org);
+			this.worldGrid.setGridEntity(org.getPosition(), org);
+		}
+	}
+	
+	/**
+	 * Returns the index of the attribute table entry that matches the attributes, other than
+	 * the maximum age. The attributes are added to the table if there is no match.
+	 */
+	private static int findAttributes(List<StaticAttributes> attributeTable, StaticAttributes attributes)
+	{
+		for (int i = 0; i < attributeTable.size(); ++i)
+		{
+			final StaticAttributes entry = attributeTable.get(i);
+			if (entry == attributes || entry.equalsExceptMaxAge(attributes))
+			{
+				return i;
+			}
+		}
+		attributeTable.add(attributes);
+		return attributeTable.size() - 1;
 	}
 	
 	
 	/** Calls update() on all Organisms within the group. Performs reproduction
-	 * if at least two Organisms are ready.
+	 * if at least two Organisms are ready, removes the Organisms that have decayed, and
+	 * sends the Organisms' happiness changes in a single OrganismHappinessChangedEvent.
 	 * @param gameTicks The current game tick count.
 	 * @throws IllegalArgumentException when gameTicks is negative.
 	 */
 	@Override
 	public void update(long gameTicks)
+	{
+		updateOrganisms(gameTicks);
+		commitUpdates(gameTicks);
+		removeDecayedOrganisms(this.gameManager.getGameLogicManager().getDecayTicks());
+		
+		HappinessChanges changes = new HappinessChanges(this.happinessChanges.size());
+		takeHappinessChanges(changes);
+		GameLogicManager.sendHappinessChanges(this.gameManager.getEventManager(), changes);
+	}
+	
+	/**
+	 * The first phase of update(): updates all Organisms within the group, and finds two
+	 * Organisms that are ready to reproduce. Only the group's own Organisms are modified;
+	 * the world grid is read but not written, and events are held until commitUpdates()
+	 * is called. Different groups can therefore be updated concurrently, provided that
+	 * commitUpdates() is not called on any group until all have finished.
+	 * @param gameTicks The current game tick count.
+	 * @throws IllegalArgumentException when gameTicks is negative.
+	 */
+	void updateOrganisms(long gameTicks)
 	{
 		if (gameTicks < 0) 
 			throw new IllegalArgumentException("Argument 'gameTicks' cannot be negative. Found: " + gameTicks);
 		
 		this.lastGameTick = gameTicks;
+		++this.updatesSinceCheckpoint;
 		
-		// Hold references to two Organisms that are ready to reproduce, if available.
-		Organism reproducer1 = null;
-		Organism reproducer2 = null;
-		
-		// Loop through all organisms.
+		// Loop through all organisms, and hold references to those that are ready to reproduce.
 		for (final Organism organism : this.organisms)
 		{
-			organism.update(gameTicks);
+			organism.update(gameTicks, this.pendingEvents, this.happinessChanges);
 			
-			// Save a reference to the Organism if it is ready to reproduce and the reproducer slots have
-			// not already been filled.
-			if ((reproducer1 == null || reproducer2 == null) && organism.isReadyToReproduce(gameTicks))
+			if (organism.isReadyToReproduce(gameTicks))
+			{
+				this.readyOrganisms.add(organism);
+			}
+		}
+	}
+	
+	/**
+	 * The first phase of update(), for large groups: updates the Organisms in tiles of the
+	 * world grid on the executor's threads. The results are the same as updateOrganisms().
+	 * @param gameTicks The current game tick count.
+	 * @param executor The executor that the tiles are updated on.
+	 * @param threads The number of threads used by the executor.
+	 * @param tileSize The width and height of a tile, in grid positions.
+	 * @throws IllegalArgumentException when gameTicks is negative.
+	 */
+	void updateOrganismsInTiles(long gameTicks, ExecutorService executor, int threads, int tileSize)
+	{
+		if (gameTicks < 0) 
+			throw new IllegalArgumentException("Argument 'gameTicks' cannot be negative. Found: " + gameTicks);
+		
+		this.lastGameTick = gameTicks;
+		++this.updatesSinceCheckpoint;
+		
+		if (this.tileSchedule == null || this.tileSchedule.getTileSize() != tileSize || 
+				this.tileSchedule.isStale(this.organisms.size()))
+		{
+			this.tileSchedule = new TileSchedule(this.organisms, this.worldGrid, tileSize, threads);
+		}
+		this.tileSchedule.update(this.organisms, gameTicks, executor, this.pendingEvents, this.happinessChanges);
+		
+		for (int i = 0; i < this.tileSchedule.getReadyCount(); ++i)
+		{
+			this.readyOrganisms.add(this.organisms.get(this.tileSchedule.getReady(i)));
+		}
+	}
+	
+	/**
+	 * The second phase of update(): sends the events raised by the Organisms during
+	 * updateOrganisms(), in Organism order, and pairs the Organisms that were ready to 
+	 * reproduce, in order, until they run out or the group has no empty positions next to 
+	 * it. Writes to the world grid, so must not run concurrently with any other group's update.
+	 * @param gameTicks The current game tick count.
+	 */
+	void commitUpdates(long gameTicks)
+	{
+		EventManager eventManager = this.gameManager.getEventManager();
+		for (int i = 0; i < this.pendingEvents.size(); ++i)
+		{
+			final GameEvent<?> event = this.pendingEvents.get(i);
+			if (event instanceof OrganismDiedEvent && this.corpses != null)
 			{
-				if (reproducer1 == null)
+				final Organism corpse = findOrganism(((OrganismDiedEvent)event).getData());
+				if (corpse != null)
 				{
-					reproducer1 = organism;
+					this.corpses.add(corpse);
 				}
-				else
+			}
+			eventManager.notify(event);
+		}
+		this.pendingEvents.clear();
+		
+		// An Organism left without a partner remains ready, and is paired in a later tick.
+		for (int i = 1; i < this.readyOrganisms.size(); i += 2)
+		{
+			if (!reproduce(this.readyOrganisms.get(i - 1), this.readyOrganisms.get(i), gameTicks))
+			{
+				break;
+			}
+		}
+		this.readyOrganisms.clear();
+	}
+
+	/**
+	 * Adds the happiness reports made by the group's Organisms since this method was last 
+	 * called to the changes, and clears them from the group.
+	 * @param changes The changes that the group's happiness reports are added to.
+	 */
+	void takeHappinessChanges(HappinessChanges changes)
+	{
+		changes.addAll(this.happinessChanges);
+		this.happinessChanges.clear();
+	}
+	
+	/**
+	 * The last phase of update(): removes the Organisms that have been dead for at least the 
+	 * decay period from the group and the world grid, freeing their grid positions, and sends 
+	 * an OrganismDecayedEvent for each. Writes to the world grid, so must not run concurrently 
+	 * with any other group's update.
+	 * @param decayTicks The decay period, in game ticks.
+	 */
+	void removeDecayedOrganisms(long decayTicks)
+	{
+		if (this.corpses == null)
+		{
+			this.corpses = findCorpses(this.organisms);
+		}
+		
+		EventManager eventManager = this.gameManager.getEventManager();
+		while (!this.corpses.isEmpty())
+		{
+			final Organism corpse = this.corpses.peek();
+			// Skip Organisms that were removed from the group after they died.
+			if (corpse.getColony() == this)
+			{
+				if (!corpse.hasDecayed(decayTicks))
 				{
-					reproducer2 = organism;
+					break;
 				}
+				removeOrganism(corpse.getSlot());
+				eventManager.notify(new OrganismDecayedEvent(corpse.getPosition()));
 			}
+			this.corpses.remove();
 		}
-		
-		// If two Organisms are ready to reproduce, call the reproduce method.
-		if (reproducer1 != null && reproducer2 != null)
+	}
+	
+	/**
+	 * Finds the dead Organisms in the list, in the order that they died.
+	 * @param organisms The Organisms.
+	 * @return The dead Organisms, with the Organism that has been dead longest first.
+	 */
+	private static Queue<Organism> findCorpses(List<Organism> organisms)
+	{
+		List<Organism> corpses = new ArrayList<Organism>();
+		for (final Organism org : organisms)
 		{
-			reproduce(reproducer1, reproducer2, gameTicks);
+			if (org.getDeathTime() > 0)
+			{
+				corpses.add(org);
+			}
 		}
+		
+		Collections.sort(corpses, new Comparator<Organism>() {
+			@Override
+			public int compare(Organism o1, Organism o2)
+			{
+				final long dead1 = o1.getDynamicAttributes().getAgeTicks() - o1.getDeathTime();
+				final long dead2 = o2.getDynamicAttributes().getAgeTicks() - o2.getDeathTime();
+				return (dead1 > dead2) ? -1 : ((dead1 == dead2) ? 0 : 1);
+			}
+		});
+		return new LinkedList<Organism>(corpses);
 	}
 
 	/**
@@ -159,39 +637,97 @@ class OrganismManager implements Updatable, EventListener, Serializable
 		return this.id;
 	}
 	
+	/**
+	 * Gets the number of Organisms in the group.
+	 * @return The number of Organisms in the group.
+	 */
+	public int getOrganismCount()
+	{
+		return this.organisms.size();
+	}
+	
+	/**
+	 * Gets the Organisms in the group. The list must not be modified.
+	 * @return The Organisms in the group.
+	 */
+	List<Organism> getOrganisms()
+	{
+		return this.organisms;
+	}
+	
+	/**
+	 * Adds a new Organism with the colony's initial attributes at an empty grid position.
+	 * Used to populate worlds directly, rather than through reproduction.
+	 * @param position An empty grid position.
+	 * @param gameTicks The current game tick count.
+	 * @return The new Organism.
+	 */
+	Organism addOrganism(GridPosition position, long gameTicks)
+	{
+		Organism org = new Organism(this.colonyAttributes,
+				this.gameManager.getEventManager(),
+				this.worldGrid,
+				position,
+				gameTicks,
+				this.random);
+		org.setName(this.gameManager.getRandomName(this.random));
+		
+		appendOrganism(org);
+		this.worldGrid.setGridEntity(position, org);
+		occupyFrontierCell(org.getCellIndex());
+		
+		OrganismBornData data = new OrganismBornData(org.getStaticAttributes(), org.getPosition());
+		this.gameManager.getEventManager().notify(new OrganismBornEvent(data));
+		
+		return org;
+	}
+	
 	/**
 	 * Returns a list of grid positions that are empty and relevant for the new colony.
 	 * @param grid The world grid.
+	 * @param random The random number generator.
 	 * @return A list of grid positions.
 	 */
-	private static List<Organism> populateValidGridPositions(WorldGrid grid, GameManager gameManager, NewColonyPlacedData data)
+	private static List<Organism> populateValidGridPositions(WorldGrid grid, GameManager gameManager, 
+			NewColonyPlacedData data, Random random)
 	{
 		List<Organism> organisms = new ArrayList<Organism>();
 		
 		int row = data.getLocation().getRow();
 		int column = data.getLocation().getColumn();
 		
+		final boolean debug = Log.isDebugEnabled();
 		for (int numberRemaining = data.getCount(); numberRemaining > 0; --numberRemaining)
 		{
-			Log.d("populateValidGridPositions", "Number remaining: " + numberRemaining);
+			if (debug)
+			{
+				Log.d("populateValidGridPositions", "Number remaining: " + numberRemaining);
+			}
 			
 			GridPosition position = getEmptyPosition(grid, new GridPosition(row, column));
 			
 			if (position == null)
 			{
-				Log.d("populateValidGridPositions", "Encountered position == null.");				
+				if (debug)
+				{
+					Log.d("populateValidGridPositions", "Encountered position == null.");
+				}
 				break;
 			}
 			else
 			{
-				Log.d("populateValidGridPositions", "Added org to " + position.getRow() + ", " + position.getColumn());		
+				if (debug)
+				{
+					Log.d("populateValidGridPositions", "Added org to " + position.getRow() + ", " + position.getColumn());
+				}
 				
 				Organism org = new Organism(data.getAttributes(),
 						gameManager.getEventManager(),
 						grid,
 						position,
-						data.getGameTicks());
-				org.setName(gameManager.getRandomName());
+						data.getGameTicks(),
+						random);
+				org.setName(gameManager.getRandomName(random));
 				
 				organisms.add(org);
 				grid.setGridEntity(position, org);
@@ -224,17 +760,17 @@ class OrganismManager implements Updatable, EventListener, Serializable
 			return new GridPosition(row - 1, column);
 		}
 		// Same row, right one column.
-		if (column <= (WorldGrid.COLUMNS - 2) && grid.getGridEntity(row, column + 1) == null)
+		if (column <= (grid.getColumns() - 2) && grid.getGridEntity(row, column + 1) == null)
 		{
 			return new GridPosition(row, column + 1);
 		}
 		// Up one row, right one column.
-		if (column <= (WorldGrid.COLUMNS - 2) && row > 0 && grid.getGridEntity(row - 1, column + 1) == null)
+		if (column <= (grid.getColumns() - 2) && row > 0 && grid.getGridEntity(row - 1, column + 1) == null)
 		{
 			return new GridPosition(row - 1, column + 1);
 		}
 		// Down one row, current column.
-		if (row <= (WorldGrid.ROWS - 2) && grid.getGridEntity(row + 1, column) == null)
+		if (row <= (grid.getRows() - 2) && grid.getGridEntity(row + 1, column) == null)
 		{
 			return new GridPosition(row + 1, column);
 		}
@@ -249,12 +785,12 @@ class OrganismManager implements Updatable, EventListener, Serializable
 			return new GridPosition(row - 1, column - 1);
 		}
 		// Down one row, right one column.
-		if (column < (WorldGrid.COLUMNS - 2) && row < (WorldGrid.ROWS - 2) && grid.getGridEntity(row + 1, column + 1) == null)
+		if (column < (grid.getColumns() - 2) && row < (grid.getRows() - 2) && grid.getGridEntity(row + 1, column + 1) == null)
 		{
 			return new GridPosition(row + 1, column + 1);
 		}
 		// Down one row, left one column.
-		if (column > 0 && row < (WorldGrid.ROWS - 2) && grid.getGridEntity(row + 1, column - 1) == null)
+		if (column > 0 && row < (grid.getRows() - 2) && grid.getGridEntity(row + 1, column - 1) == null)
 		{
 			return new GridPosition(row + 1, column - 1);
 		}
@@ -264,111 +800,272 @@ class OrganismManager implements Updatable, EventListener, Serializable
 	
 	/**
 	 * Creates a new Organism by blending the StaticAttributes contained within
-	 * its parent Organisms, plus some randomness. The location on the world grid
-	 * is determined by the current grid target of the group.
+	 * its parent Organisms, plus some randomness. The Organism is placed at a random 
+	 * empty position next to the group.
 	 * @param reproducer1 An Organism that is ready to reproduce.
 	 * @param reproducer2 An Organism that is ready to reproduce.
-	 * @param gameTicks
+	 * @param gameTicks The current game tick count.
+	 * @return True if the Organism was created; false if the group has no empty positions next to it.
 	 */
-	private void reproduce(Organism reproducer1, Organism reproducer2, long gameTicks)
+	private boolean reproduce(Organism reproducer1, Organism reproducer2, long gameTicks)
 	{
-		final int MAX_ATTEMPTS = 5;
-		
-		for (int numberOfAttempts = 0; numberOfAttempts < MAX_ATTEMPTS; ++numberOfAttempts)
+		final int cell = takeFrontierCell();
+		if (cell < 0)
 		{
-			GridPosition target = identifyNewGridTarget(this.organisms);
-			GridPosition emptyPosition = getEmptyPosition(this.worldGrid, target);
-			
-			if (emptyPosition != null)
-			{
-				// TODO (2013-05-10): properly carry attributes from both parents to child.
-				Organism org = new Organism(reproducer1.getStaticAttributes(),
-						this.gameManager.getEventManager(),
-						this.worldGrid,
-						emptyPosition,
-						gameTicks);
-				org.setName(this.gameManager.getRandomName());
-				
-				this.organisms.add(org);
-				this.worldGrid.setGridEntity(emptyPosition, org);
-				
-				reproducer1.getDynamicAttributes().addChild();
-				reproducer2.getDynamicAttributes().addChild();
-				
-				Random rand = new Random();
-				reproducer1.getDynamicAttributes().setLastReproducedTicks(gameTicks + rand.nextInt(3000));
-				reproducer2.getDynamicAttributes().setLastReproducedTicks(gameTicks + rand.nextInt(3000));
-				
-				OrganismBornData data = new OrganismBornData(org.getStaticAttributes(), org.getPosition());
-				OrganismBornEvent event = new OrganismBornEvent(data);
-				this.gameManager.getEventManager().notify(event);
-				
-				return;
-			}
+			return false;
 		}
+		GridPosition position = new GridPosition(this.worldGrid.getRow(cell), this.worldGrid.getColumn(cell));
+		
+		// TODO (2013-05-10): properly carry attributes from both parents to child.
+		Organism org = new Organism(reproducer1.getStaticAttributes(),
+				reproducer1.getMaxAgeTicks(),
+				this.gameManager.getEventManager(),
+				this.worldGrid,
+				position,
+				gameTicks,
+				this.random);
+		org.setName(this.gameManager.getRandomName(this.random));
+		
+		appendOrganism(org);
+		this.worldGrid.setGridEntity(position, org);
+		occupyFrontierCell(cell);
+		
+		reproducer1.getDynamicAttributes().addChild();
+		reproducer2.getDynamicAttributes().addChild();
 		
+		reproducer1.getDynamicAttributes().setLastReproducedTicks(gameTicks + this.random.nextInt(3000));
+		reproducer2.getDynamicAttributes().setLastReproducedTicks(gameTicks + this.random.nextInt(3000));
+		
+		OrganismBornData data = new OrganismBornData(org.getStaticAttributes(), org.getPosition());
+		OrganismBornEvent event = new OrganismBornEvent(data);
+		this.gameManager.getEventManager().notify(event);
+		
+		return true;
 	}
 	
 	/**
-	 * Identifies a target on the world grid. The target is determined by distance,
-	 * the group's preference for crowds, the availability of food, and the group's
-	 * preference for heat.
-	 * @param organisms The list of Organisms within this group.
-	 * @return The position of the new target.
+	 * Removes a random position from the frontier and returns it, discarding positions that 
+	 * have been taken or that no longer border the group.
+	 * @return The cell index of an empty position next to the group, or -1 if there are none.
 	 */
-	private static GridPosition identifyNewGridTarget(List<Organism> organisms)
+	private int takeFrontierCell()
 	{
-		Random rand = new Random();
-		int i = rand.nextInt(organisms.size());
-		Organism org = organisms.get(i);
+		if (this.frontier == null)
+		{
+			this.frontier = buildFrontier();
+		}
 		
-		return new GridPosition(org.getPosition());
+		final int[] neighbors = neighborBuffer();
+		while (this.frontier.size() > 0)
+		{
+			final int position = this.frontier.samplePosition(this.random);
+			final int cell = this.frontier.get(position);
+			this.frontier.removeAt(position);
+			
+			if (!this.worldGrid.isOccupied(cell))
+			{
+				final int neighborCount = this.worldGrid.getNeighbors(cell, neighbors);
+				for (int i = 0; i < neighborCount; ++i)
+				{
+					final WorldGridEntity entity = this.worldGrid.getGridEntity(neighbors[i]);
+					if (entity instanceof Organism && ((Organism)entity).getColony() == this)
+					{
+						return cell;
+					}
+				}
+			}
+		}
+		return -1;
 	}
-
-	@Override
-	public void notify(GameEvent<?> event)
+	
+	/**
+	 * Builds the frontier from the list of Organisms: the empty positions next to each 
+	 * Organism, in list order.
+	 */
+	private CellSet buildFrontier()
 	{
-		if (event instanceof OrganismInfoRequestedEvent)
+		CellSet frontier = new CellSet();
+		final int[] neighbors = neighborBuffer();
+		for (final Organism org : this.organisms)
 		{
-			OrganismInfoRequestedEvent infoRequestEvent = (OrganismInfoRequestedEvent)event;
-			
-			for (final Organism org : this.organisms)
+			final int neighborCount = this.worldGrid.getNeighbors(org.getCellIndex(), neighbors);
+			for (int i = 0; i < neighborCount; ++i)
 			{
-				if (org.getPosition().equals(infoRequestEvent.getData()))
+				if (!this.worldGrid.isOccupied(neighbors[i]))
 				{
-					OrganismInfo info = new OrganismInfo(org, this.lastGameTick);
-					
-					this.gameManager.getEventManager().notify(new OrganismInfoRequestedResponse(info));
+					frontier.add(neighbors[i]);
 				}
 			}
 		}
-		else if (event instanceof AllOrganismsRequestedEvent)
+		return frontier;
+	}
+	
+	/**
+	 * Updates the frontier for one of the group's Organisms having been placed in the cell:
+	 * the cell is removed, and its empty neighbors are added.
+	 */
+	private void occupyFrontierCell(int cell)
+	{
+		if (this.frontier == null)
+		{
+			return;
+		}
+		
+		this.frontier.remove(cell);
+		final int[] neighbors = neighborBuffer();
+		final int neighborCount = this.worldGrid.getNeighbors(cell, neighbors);
+		for (int i = 0; i < neighborCount; ++i)
 		{
-			for (final Organism org : this.organisms)
+			if (!this.worldGrid.isOccupied(neighbors[i]))
 			{
-				OrganismInfo data = new OrganismInfo(org, this.lastGameTick);
-				this.gameManager.getEventManager().notify(new AllOrganismsRequestedResponse(data));
+				this.frontier.add(neighbors[i]);
 			}
 		}
-		else if (event instanceof OrganismPoppedEvent)
+	}
+	
+	/**
+	 * Adds a freed cell to the frontier of each group that has an Organism next to it.
+	 */
+	private void releaseFrontierCell(int cell)
+	{
+		final int[] neighbors = neighborBuffer();
+		final int neighborCount = this.worldGrid.getNeighbors(cell, neighbors);
+		for (int i = 0; i < neighborCount; ++i)
 		{
-			GridPosition gp = ((OrganismPoppedEvent)event).getData();
-			this.worldGrid.setGridEntity(gp, null);
-			
-			int orgToRemove = -1;
-			for (final Organism org : this.organisms)
+			final WorldGridEntity entity = this.worldGrid.getGridEntity(neighbors[i]);
+			if (entity instanceof Organism)
 			{
-				if (org.getPosition().equals(gp))
+				final OrganismManager colony = ((Organism)entity).getColony();
+				if (colony != null && colony.frontier != null)
 				{
-					++orgToRemove;
-					break;
+					colony.frontier.add(cell);
 				}
-				++orgToRemove;
 			}
+		}
+	}
+	
+	/**
+	 * Returns the scratch array that the frontier methods read a cell's neighbors into.
+	 */
+	private int[] neighborBuffer()
+	{
+		if (this.neighbors == null)
+		{
+			this.neighbors = new int[8];
+		}
+		return this.neighbors;
+	}
+	
+	/**
+	 * Adds the Organism to the end of the list, and sets its slot.
+	 */
+	private void appendOrganism(Organism org)
+	{
+		org.setSlot(this, this.organisms.size());
+		this.organisms.add(org);
+	}
+	
+	/**
+	 * Moves the Organism in one slot into another, overwriting the Organism that was there.
+	 */
+	private void moveOrganism(int fromSlot, int toSlot)
+	{
+		if (fromSlot != toSlot)
+		{
+			final Organism org = this.organisms.get(fromSlot);
+			org.setSlot(this, toSlot);
+			this.organisms.set(toSlot, org);
+		}
+	}
+	
+	/**
+	 * Finds the group's Organism at the grid position, through the world grid.
+	 * @param position The grid position.
+	 * @return The Organism, or null if the position does not hold one of the group's Organisms.
+	 */
+	Organism findOrganism(GridPosition position)
+	{
+		if (!this.worldGrid.contains(position))
+		{
+			return null;
+		}
+		
+		final WorldGridEntity entity = this.worldGrid.getGridEntity(position);
+		if (!(entity instanceof Organism))
+		{
+			return null;
+		}
+		
+		final Organism org = (Organism)entity;
+		return (org.getColony() == this) ? org : null;
+	}
+	
+	/**
+	 * Removes the Organism in the slot from the group and the world grid, by moving the last
+	 * Organism into the slot. The checkpointed Organisms are kept at the start of the list: 
+	 * when a checkpointed Organism is removed, the last checkpointed Organism is moved into its
+	 * slot, and the last Organism into the slot that frees.
+	 * @param slot The Organism's slot.
+	 */
+	private void removeOrganism(int slot)
+	{
+		final Organism org = this.organisms.get(slot);
+		final int last = this.organisms.size() - 1;
+		
+		if (slot < this.checkpointedOrganisms)
+		{
+			if (this.removedOrganisms == null)
+			{
+				this.removedOrganisms = new ArrayList<Integer>();
+			}
+			this.removedOrganisms.add(slot);
 			
-			if (orgToRemove != -1)
+			final int lastCheckpointed = --this.checkpointedOrganisms;
+			moveOrganism(lastCheckpointed, slot);
+			moveOrganism(last, lastCheckpointed);
+		}
+		else
+		{
+			moveOrganism(last, slot);
+		}
+		this.organisms.remove(last);
+		org.setSlot(null, -1);
+		
+		this.worldGrid.setGridEntity(org.getPosition(), null);
+		releaseFrontierCell(org.getCellIndex());
+		this.tileSchedule = null;
+	}
+
+	/**
+	 * Adds a record of each of the group's Organisms, in list order.
+	 * @param records The records that the group's Organisms are added to.
+	 */
+	void addRecords(OrganismRecords records)
+	{
+		for (int i = 0; i < this.organisms.size(); ++i)
+		{
+			records.add(this.organisms.get(i));
+		}
+	}
+
+	@Override
+	public void notify(GameEvent<?> event)
+	{
+		if (event instanceof OrganismInfoRequestedEvent)
+		{
+			Organism org = findOrganism(((OrganismInfoRequestedEvent)event).getData());
+			if (org != null)
+			{
+				OrganismInfo info = new OrganismInfo(org, this.lastGameTick);
+				this.gameManager.getEventManager().notify(new OrganismInfoRequestedResponse(info));
+			}
+		}
+		else if (event instanceof OrganismPoppedEvent)
+		{
+			Organism org = findOrganism(((OrganismPoppedEvent)event).getData());
+			if (org != null)
 			{
-				this.organisms.remove(orgToRemove);
+				removeOrganism(org.getSlot());
 			}
 		}
 		else
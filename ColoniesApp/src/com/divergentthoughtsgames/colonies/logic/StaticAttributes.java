@@ -20,18 +20,19 @@ You should have received a copy of the GNU General Public License
 along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Random;
 
-import android.os.Bundle;
-import android.util.Log;
-
 import com.divergentthoughtsgames.colonies.GameManager;
 import com.divergentthoughtsgames.colonies.logic.attributes.Diet;
 import com.divergentthoughtsgames.colonies.logic.attributes.FoodType;
 import com.divergentthoughtsgames.colonies.logic.attributes.Frequency;
 import com.divergentthoughtsgames.colonies.logic.attributes.Preference;
+import com.divergentthoughtsgames.colonies.persistence.GameStateReader;
+import com.divergentthoughtsgames.colonies.persistence.GameStateWriter;
+import com.divergentthoughtsgames.colonies.platform.Log;
 import com.divergentthoughtsgames.colonies.util.UiUtilities;
 
 
@@ -44,19 +45,19 @@ public class StaticAttributes implements Serializable
 {
 	private static final long serialVersionUID = -3204819176161427854L;
 	
-	/** The new colony initial organism count key, for use with a bundle and the fromBundle static method. **/
+	/** The new colony initial organism count key, for use with a bundle and the fromSettings static method. **/
 	public static final String NEW_COLONY_COUNT = "newColonyCount";
-	/** The new colony crowd preference key, for use with a bundle and the fromBundle static method. **/
+	/** The new colony crowd preference key, for use with a bundle and the fromSettings static method. **/
 	public static final String NEW_COLONY_CROWD_PREF = "newColonyCrowdPref";
-	/** The new colony health key, for use with a bundle and the fromBundle static method. **/
+	/** The new colony health key, for use with a bundle and the fromSettings static method. **/
 	public static final String NEW_COLONY_HEALTH = "newColonyHealth";
-	/** The new colony heat preference3 key, for use with a bundle and the fromBundle static method. **/
+	/** The new colony heat preference3 key, for use with a bundle and the fromSettings static method. **/
 	public static final String NEW_COLONY_HEAT_PREF = "newColonyHeatPref";
-	/** The new colony max age key, for use with a bundle and the fromBundle static method. **/
+	/** The new colony max age key, for use with a bundle and the fromSettings static method. **/
 	public static final String NEW_COLONY_MAX_AGE = "newColonyMaxAge";
-	/** The new colony name key, for use with a bundle and the fromBundle static method. **/
+	/** The new colony name key, for use with a bundle and the fromSettings static method. **/
 	public static final String NEW_COLONY_NAME = "newColonyName";
-	/** The new colony reproduction frequency key, for use with a bundle and the fromBundle static method. **/
+	/** The new colony reproduction frequency key, for use with a bundle and the fromSettings static method. **/
 	public static final String NEW_COLONY_REPRODUCTION_FREQ = "newColonyReproductionFreq";
 	
 	/** The default diet of an Organism. **/
@@ -84,53 +85,55 @@ public class StaticAttributes implements Serializable
 	private final int colonyColor;
 	
 	/**
-	 * Creates a new StaticAttributes object from a bundle. The bundle should have the
-	 * following items:
+	 * Creates a new StaticAttributes object from the values chosen on the new colony
+	 * screen. The values correspond to the bundle items listed above:
 	 * 	- NEW_COLONY_CROWD_PREF (int)
 	 *  - NEW_COLONY_HEALTH (int)
 	 *  - NEW_COLONY_HEAT_PREF (int)
 	 *  - NEW_COLONY_MAX_AGE (int)
 	 * 	- NEW_COLONY_NAME (String)
 	 * 	- NEW_COLONY_REPRODUCTION_FREQ (int)
-	 * @param bundle A bundle matching the requirements listed above.
+	 * @param crowdPreference The NEW_COLONY_CROWD_PREF value.
+	 * @param health The NEW_COLONY_HEALTH value.
+	 * @param heatPreference The NEW_COLONY_HEAT_PREF value.
+	 * @param maxAge The NEW_COLONY_MAX_AGE value.
+	 * @param colonyName The NEW_COLONY_NAME value.
+	 * @param reproductiveFrequency The NEW_COLONY_REPRODUCTION_FREQ value.
 	 * @return A new StaticAttributes object.
 	 */
-	public static StaticAttributes fromBundle(Bundle bundle)
+	public static StaticAttributes fromSettings(int crowdPreference, int health, int heatPreference,
+			int maxAge, String colonyName, int reproductiveFrequency)
 	{
-		if (bundle == null)
-			throw new IllegalArgumentException("Argument 'bundle' cannot be null");
-		
-		Preference crowdPref = Preference.valueOf(bundle.getInt(NEW_COLONY_CROWD_PREF));
-		Preference heatPref = Preference.valueOf(bundle.getInt(NEW_COLONY_HEAT_PREF));
-		Frequency reproductiveFreq = Frequency.valueOf(bundle.getInt(NEW_COLONY_REPRODUCTION_FREQ));
-		int maxHealth = getMaxHealthFromBundle(bundle);
-		long maxAge = getMaxAgeFromBundle(bundle);
+		Preference crowdPref = Preference.valueOf(crowdPreference);
+		Preference heatPref = Preference.valueOf(heatPreference);
+		Frequency reproductiveFreq = Frequency.valueOf(reproductiveFrequency);
+		int maxHealth = getMaxHealthFromSetting(health);
+		long maxAgeTicks = getMaxAgeFromSetting(maxAge);
 		
-		return new StaticAttributes(maxHealth, maxAge, DEFAULT_BODY_TYPE, DEFAULT_DIET, 
-				heatPref, crowdPref, reproductiveFreq, bundle.getString(NEW_COLONY_NAME));
+		return new StaticAttributes(maxHealth, maxAgeTicks, DEFAULT_BODY_TYPE, DEFAULT_DIET, 
+				heatPref, crowdPref, reproductiveFreq, colonyName);
 	}
 	
 	/**
-	 * Returns 50, 75 or 100 based on the provided bundle integer value.
+	 * Returns 50, 75 or 100 based on the provided NEW_COLONY_HEALTH value.
 	 * The value should be in a range from 1 through 3, with 1 representing the
 	 * least amount of health.
-	 * @param bundle A Bundle containing the NEW_COLONY_HEALTH field.
+	 * @param settingVal The NEW_COLONY_HEALTH value.
 	 * @return The max health value.
 	 */
-	private static int getMaxHealthFromBundle(Bundle bundle)
+	private static int getMaxHealthFromSetting(int settingVal)
 	{
-		int bundleVal = bundle.getInt(NEW_COLONY_HEALTH);
-		return (bundleVal <= 2) ? 50 : (bundleVal == 3) ? 75 : 100;
+		return (settingVal <= 2) ? 50 : (settingVal == 3) ? 75 : 100;
 	}
 	
 	/**
-	 * Returns an age length, in milli based on the provided bundle integer value.
+	 * Returns an age length, in game ticks, based on the provided NEW_COLONY_MAX_AGE value.
 	 * The value should be in a range from 1 through 5, with 1 representing the
-	 * least amount of health.
-	 * @param bundle A Bundle containing the NEW_COLONY_HEALTH field.
-	 * @return The max health value.
+	 * shortest life.
+	 * @param bundleVal The NEW_COLONY_MAX_AGE value.
+	 * @return The max age value, in game ticks.
 	 */
-	private static long getMaxAgeFromBundle(Bundle bundle)
+	private static long getMaxAgeFromSetting(int bundleVal)
 	{
 		final long SHORTEST_AGE = GameManager.FRAMES_PER_SECOND * (1 * 60);
 		final long SHORT_AGE = GameManager.FRAMES_PER_SECOND * (2 * 60);
@@ -138,7 +141,6 @@ public class StaticAttributes implements Serializable
 		final long LONG_AGE = GameManager.FRAMES_PER_SECOND * (4 * 60);
 		final long LONGEST_AGE = GameManager.FRAMES_PER_SECOND * (5 * 60);
 		
-		int bundleVal = bundle.getInt(NEW_COLONY_MAX_AGE);
 		if (bundleVal <= 1)
 		{
 			return SHORTEST_AGE;
@@ -162,32 +164,27 @@ public class StaticAttributes implements Serializable
 	}
 	
 	/**
-	 * Applies a factor to the max age value in the StaticAttributes parameter, and
-	 * then returns a new StateAttributes object. The applied factor is in the range
-	 * of -factor...+factor.
-	 * @param sa
+	 * Applies a random factor to a max age value, and returns the result. The applied factor is 
+	 * in the range of -factor...+factor. Organisms hold their max age separately from the 
+	 * StaticAttributes that they share with their colony, so no new StaticAttributes object is created.
+	 * @param maxAgeTicks The max age, in game ticks.
 	 * @param factor A factor range percent amount, from 0 to 100. For example, to get a max age back that is
 	 * within the 90% to 110% range of the original max age, pass in 10.
-	 * @return
+	 * @param rand The random number generator used to choose the factor.
+	 * @return The adjusted max age, in game ticks.
 	 */
-	static StaticAttributes applyFactorToMaxAge(StaticAttributes sa, int factor)
+	static long applyFactorToMaxAge(long maxAgeTicks, int factor, Random rand)
 	{
-		Random rand = new Random();
 		int plusMinus = (rand.nextInt(2) == 1) ? -1 : 1;
 //		final float adjustedFactor = 1 + plusMinus * factor;
 		
 		final float adjustedFactor = 1 + ((rand.nextInt(factor) * plusMinus) / 100.f);
-		Log.d("StaticAttributes", "Factor: " + adjustedFactor);
+		if (Log.isDebugEnabled())
+		{
+			Log.d("StaticAttributes", "Factor: " + adjustedFactor);
+		}
 				
-		return new StaticAttributes(sa.maxHealth,
-				(long)(sa.maxAgeTicks * adjustedFactor),
-				sa.bodyType,
-				sa.diet,
-				sa.heatPreference,
-				sa.crowdPreference,
-				sa.reproductiveFrequency,
-				sa.colonyName,
-				sa.colonyColor);
+		return (long)(maxAgeTicks * adjustedFactor);
 	}
 	
 	/**
@@ -265,6 +262,62 @@ public class StaticAttributes implements Serializable
 		this.colonyColor = colonyColor;
 	}
 	
+	/**
+	 * Writes the attributes in the binary saved game format.
+	 * @param out The writer.
+	 */
+	public void writeState(GameStateWriter out) throws IOException
+	{
+		out.writeVarInt(this.maxHealth);
+		out.writeVarLong(this.maxAgeTicks);
+		out.writeEnum(this.bodyType);
+		out.writeEnum(this.diet);
+		out.writeEnum(this.heatPreference);
+		out.writeEnum(this.crowdPreference);
+		out.writeEnum(this.reproductiveFrequency);
+		out.writeSharedString(this.colonyName);
+		out.writeInt(this.colonyColor);
+	}
+	
+	/**
+	 * Reads attributes that were written by writeState.
+	 * @param in The reader.
+	 * @return The restored attributes.
+	 * @throws IllegalArgumentException if the restored attributes are not valid.
+	 */
+	public static StaticAttributes readState(GameStateReader in) throws IOException
+	{
+		final int maxHealth = in.readVarInt();
+		final long maxAgeTicks = in.readVarLong();
+		final FoodType bodyType = in.readEnum(FoodType.values());
+		final Diet diet = in.readEnum(Diet.values());
+		final Preference heatPreference = in.readEnum(Preference.values());
+		final Preference crowdPreference = in.readEnum(Preference.values());
+		final Frequency reproductiveFrequency = in.readEnum(Frequency.values());
+		final String colonyName = in.readSharedString();
+		final int colonyColor = in.readInt();
+		
+		return new StaticAttributes(maxHealth, maxAgeTicks, bodyType, diet, heatPreference, crowdPreference,
+				reproductiveFrequency, colonyName, colonyColor);
+	}
+	
+	/**
+	 * Specifies whether the other attributes are the same as these, other than the maximum age.
+	 * @param other The other attributes.
+	 * @return True if all of the attributes other than the maximum age are equal.
+	 */
+	boolean equalsExceptMaxAge(StaticAttributes other)
+	{
+		return this.maxHealth == other.maxHealth && 
+				this.bodyType == other.bodyType &&
+				this.diet == other.diet &&
+				this.heatPreference == other.heatPreference &&
+				this.crowdPreference == other.crowdPreference &&
+				this.reproductiveFrequency == other.reproductiveFrequency &&
+				this.colonyName.equals(other.colonyName) &&
+				this.colonyColor == other.colonyColor;
+	}
+	
 	public StaticAttributes(StaticAttributes s)
 	{
 		this.maxHealth = s.maxHealth;
@@ -299,7 +352,7 @@ public class StaticAttributes implements Serializable
 		for (Organism org : organisms)
 		{
 			totalMaxHealth = org.getStaticAttributes().getMaxHealth();
-			totalMaxAge = org.getStaticAttributes().getMaxAgeTicks();
+			totalMaxAge = org.getMaxAgeTicks();
 			
 			dietPrefCounts[org.getStaticAttributes().getDiet().ordinal()]++;
 			heatPrefCounts[org.getStaticAttributes().getHeatPreference().ordinal()]++;
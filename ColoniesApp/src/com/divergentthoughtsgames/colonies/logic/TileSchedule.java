@@ -0,0 +1,338 @@
+package com.divergentthoughtsgames.colonies.logic;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import com.divergentthoughtsgames.colonies.event.GameEvent;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
+
+
+/**
+ * Splits a colony's Organisms into square tiles of the world grid, so that a single large
+ * colony can be updated by several threads. Tiles are colored in a repeating 2x2 pattern, 
+ * and one color is updated at a time: the tiles of one color never touch, even at the 
+ * corners, so an Organism's update never reads a grid position that belongs to a tile 
+ * being updated by another thread. The events raised and the Organisms found to be ready 
+ * to reproduce are merged back into list order, so the results are the same as updating 
+ * the Organisms serially.
+ * 
+ * A schedule is built for a fixed set of Organisms. Organisms added to the end of the list 
+ * afterward are updated on the calling thread after the tiles, until there are enough of 
+ * them that the schedule is rebuilt.
+ * @author Christopher D. Canfield
+ */
+final class TileSchedule
+{
+	// The number of tile colors. Tiles are colored by (tile row % 2, tile column % 2).
+	private static final int COLORS = 4;
+	
+	private final int tileSize;
+	
+	// The number of Organisms in the list when the schedule was built.
+	private final int scheduledCount;
+	
+	// Indexes into the Organism list, grouped by tile, with tiles ordered by color.
+	private final int[] order;
+	
+	// For each color, the offsets in order at which its tasks begin and end. The tasks of a 
+	// color cover whole tiles, and are balanced by Organism count.
+	private final int[][] taskBounds;
+	
+	// The indexes of the Organisms that were ready to reproduce in the last update, in list order.
+	private int[] ready = new int[0];
+	private int readyCount;
+	
+	
+	/**
+	 * Builds the update schedule for a colony's Organisms.
+	 * @param organisms The Organisms.
+	 * @param worldGrid The world grid that the Organisms are on.
+	 * @param tileSize The width and height of a tile, in grid positions.
+	 * @param tasksPerColor The maximum number of tasks that each color is split into.
+	 */
+	TileSchedule(List<Organism> organisms, WorldGrid worldGrid, int tileSize, int tasksPerColor)
+	{
+		if (tileSize < 1)
+			throw new IllegalArgumentException("Argument 'tileSize' must be greater than zero. Found: " + tileSize);
+		if (tasksPerColor < 1)
+			throw new IllegalArgumentException("Argument 'tasksPerColor' must be greater than zero. Found: " + tasksPerColor);
+		
+		this.tileSize = tileSize;
+		this.scheduledCount = organisms.size();
+		
+		final int tileRows = (worldGrid.getRows() + tileSize - 1) / tileSize;
+		final int tileColumns = (worldGrid.getColumns() + tileSize - 1) / tileSize;
+		final int tiles = tileRows * tileColumns;
+		
+		// Counting sort of the Organisms by (tile color, tile).
+		final int[] keys = new int[this.scheduledCount];
+		final int[] tileStart = new int[COLORS * tiles + 1];
+		for (int i = 0; i < this.scheduledCount; ++i)
+		{
+			GridPosition position = organisms.get(i).getPosition();
+			final int tileRow = position.getRow() / tileSize;
+			final int tileColumn = position.getColumn() / tileSize;
+			final int color = ((tileRow & 1) << 1) | (tileColumn & 1);
+			keys[i] = color * tiles + tileRow * tileColumns + tileColumn;
+			++tileStart[keys[i] + 1];
+		}
+		for (int key = 0; key < COLORS * tiles; ++key)
+		{
+			tileStart[key + 1] += tileStart[key];
+		}
+		
+		this.order = new int[this.scheduledCount];
+		final int[] next = new int[COLORS * tiles];
+		System.arraycopy(tileStart, 0, next, 0, next.length);
+		for (int i = 0; i < this.scheduledCount; ++i)
+		{
+			this.order[next[keys[i]]++] = i;
+		}
+		
+		this.taskBounds = new int[COLORS][];
+		for (int color = 0; color < COLORS; ++color)
+		{
+			this.taskBounds[color] = splitColor(tileStart, color * tiles, (color + 1) * tiles, tasksPerColor);
+		}
+	}
+	
+	/**
+	 * Splits the tiles of one color into at most maxTasks runs of whole tiles, with roughly
+	 * equal numbers of Organisms.
+	 * @return The offsets in order at which the tasks begin, followed by the end of the last task.
+	 */
+	private static int[] splitColor(int[] tileStart, int firstKey, int endKey, int maxTasks)
+	{
+		final int start = tileStart[firstKey];
+		final int end = tileStart[endKey];
+		final int target = Math.max(1, (end - start + maxTasks - 1) / maxTasks);
+		
+		int[] bounds = new int[maxTasks + 1];
+		int taskCount = 0;
+		bounds[0] = start;
+		for (int key = firstKey + 1; key < endKey && taskCount < maxTasks - 1; ++key)
+		{
+			if (tileStart[key] - bounds[taskCount] >= target)
+			{
+				bounds[++taskCount] = tileStart[key];
+			}
+		}
+		if (end > bounds[taskCount])
+		{
+			bounds[++taskCount] = end;
+		}
+		int[] result = new int[taskCount + 1];
+		System.arraycopy(bounds, 0, result, 0, result.length);
+		return result;
+	}
+	
+	/**
+	 * Gets the width and height of a tile, in grid positions.
+	 * @return The tile size.
+	 */
+	int getTileSize()
+	{
+		return this.tileSize;
+	}
+	
+	/**
+	 * Specifies whether the schedule should be rebuilt for a list of Organisms. Organisms 
+	 * must not have been removed from the list since the schedule was built.
+	 * @param organismCount The number of Organisms in the list.
+	 * @return True if enough Organisms have been added since the schedule was built that 
+	 * it should be rebuilt.
+	 */
+	boolean isStale(int organismCount)
+	{
+		return (organismCount < this.scheduledCount || organismCount - this.scheduledCount > this.scheduledCount / 8);
+	}
+	
+	/**
+	 * Updates the Organisms, one tile color at a time, on the executor's threads. 
+	 * @param organisms The Organisms that the schedule was built for, plus any added since.
+	 * @param gameTicks The current game tick count.
+	 * @param executor The executor that the tiles are updated on.
+	 * @param pendingEvents The list that the events raised by the Organisms are added to, in list order.
+	 * @param happinessChanges The changes that the Organisms' happiness reports are added to, in 
+	 * tile order rather than list order.
+	 */
+	void update(List<Organism> organisms, long gameTicks, ExecutorService executor, List<GameEvent<?>> pendingEvents,
+			HappinessChanges happinessChanges)
+	{
+		List<TileTask> allTasks = new ArrayList<TileTask>();
+		for (int color = 0; color < COLORS; ++color)
+		{
+			final int[] bounds = this.taskBounds[color];
+			List<TileTask> tasks = new ArrayList<TileTask>(bounds.length - 1);
+			for (int task = 0; task < bounds.length - 1; ++task)
+			{
+				tasks.add(new TileTask(organisms, this.order, bounds[task], bounds[task + 1], gameTicks));
+			}
+			GameLogicManager.invokeAll(executor, tasks);
+			allTasks.addAll(tasks);
+		}
+		
+		// Merge the results of the tasks back into list order.
+		int readyCount = 0;
+		int eventCount = 0;
+		for (TileTask task : allTasks)
+		{
+			readyCount += task.readyCount;
+			eventCount += task.events.size();
+			happinessChanges.addAll(task.happinessChanges);
+		}
+		
+		final int addedCount = organisms.size() - this.scheduledCount;
+		if (this.ready.length < readyCount + addedCount)
+		{
+			this.ready = new int[readyCount + addedCount];
+		}
+		this.readyCount = 0;
+		for (TileTask task : allTasks)
+		{
+			System.arraycopy(task.ready, 0, this.ready, this.readyCount, task.readyCount);
+			this.readyCount += task.readyCount;
+		}
+		Arrays.sort(this.ready, 0, this.readyCount);
+		
+		if (eventCount > 0)
+		{
+			List<GameEvent<?>> events = new ArrayList<GameEvent<?>>(eventCount);
+			long[] sortKeys = new long[eventCount];
+			for (TileTask task : allTasks)
+			{
+				for (int i = 0; i < task.events.size(); ++i)
+				{
+					sortKeys[events.size()] = ((long)task.eventOwners[i] << 32) | events.size();
+					events.add(task.events.get(i));
+				}
+			}
+			Arrays.sort(sortKeys);
+			for (long key : sortKeys)
+			{
+				pendingEvents.add(events.get((int)key));
+			}
+		}
+		
+		// Organisms added since the schedule was built are at the end of the list.
+		for (int i = this.scheduledCount; i < organisms.size(); ++i)
+		{
+			Organism organism = organisms.get(i);
+			organism.update(gameTicks, pendingEvents, happinessChanges);
+			if (organism.isReadyToReproduce(gameTicks))
+			{
+				this.ready[this.readyCount++] = i;
+			}
+		}
+	}
+	
+	/**
+	 * Gets the number of Organisms that were ready to reproduce in the last update.
+	 * @return The number of Organisms that were ready.
+	 */
+	int getReadyCount()
+	{
+		return this.readyCount;
+	}
+	
+	/**
+	 * Gets an Organism that was ready to reproduce in the last update. The Organisms are in list order.
+	 * @param i The position of the Organism among those that were ready, from 0 to getReadyCount() - 1.
+	 * @return The index of the Organism in the list.
+	 */
+	int getReady(int i)
+	{
+		if (i < 0 || i >= this.readyCount)
+			throw new IndexOutOfBoundsException("Index: " + i + ", ready count: " + this.readyCount);
+		return this.ready[i];
+	}
+	
+	
+	/**
+	 * Updates a run of tiles, and records the events and happiness changes raised and the 
+	 * Organisms that are ready to reproduce.
+	 */
+	private static final class TileTask implements Callable<Void>
+	{
+		private final List<Organism> organisms;
+		private final int[] order;
+		private final int from;
+		private final int to;
+		private final long gameTicks;
+		
+		final List<GameEvent<?>> events = new ArrayList<GameEvent<?>>();
+		// The list index of the Organism that raised each event.
+		int[] eventOwners = new int[8];
+		final HappinessChanges happinessChanges = new HappinessChanges();
+		// The list indexes of the Organisms that are ready to reproduce, in update order.
+		int[] ready = new int[8];
+		int readyCount;
+		
+		TileTask(List<Organism> organisms, int[] order, int from, int to, long gameTicks)
+		{
+			this.organisms = organisms;
+			this.order = order;
+			this.from = from;
+			this.to = to;
+			this.gameTicks = gameTicks;
+		}
+		
+		@Override
+		public Void call()
+		{
+			for (int k = this.from; k < this.to; ++k)
+			{
+				final int index = this.order[k];
+				final Organism organism = this.organisms.get(index);
+				
+				final int eventCount = this.events.size();
+				organism.update(this.gameTicks, this.events, this.happinessChanges);
+				for (int i = eventCount; i < this.events.size(); ++i)
+				{
+					if (i == this.eventOwners.length)
+					{
+						int[] eventOwners = new int[i * 2];
+						System.arraycopy(this.eventOwners, 0, eventOwners, 0, i);
+						this.eventOwners = eventOwners;
+					}
+					this.eventOwners[i] = index;
+				}
+				
+				if (organism.isReadyToReproduce(this.gameTicks))
+				{
+					if (this.readyCount == this.ready.length)
+					{
+						int[] ready = new int[this.readyCount * 2];
+						System.arraycopy(this.ready, 0, ready, 0, this.readyCount);
+						this.ready = ready;
+					}
+					this.ready[this.readyCount++] = index;
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -21,55 +21,490 @@ along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 */
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
-
-import com.divergentthoughtsgames.colonies.GameActivity;
 
 
 /**
+ * The world map. The grid is divided into square chunks of CHUNK_SIZE x CHUNK_SIZE
+ * positions, and a chunk's storage is only allocated while it contains an entity
+ * or borders one, so memory grows with the occupied regions of the world rather
+ * than its total area. Each chunk holds its entities, an occupancy bitset, and the
+ * number of occupied neighbors of every position, which is kept up to date as
+ * entities are added and removed.
+ * 
+ * Positions are addressed either by row and column, or by an int cell index from
+ * toIndex. Cell indexes encode the chunk and the position within it, so they are
+ * decoded with shifts rather than division, but neighboring positions do not
+ * necessarily have adjacent indexes. The int index accessors do not allocate, and
+ * are intended for use in per-tick logic.
  * @author Christopher D. Canfield
  */
 public class WorldGrid implements Serializable
 {
-	private static final long serialVersionUID = -3590384828640978569L;
+	private static final long serialVersionUID = 3263961387742309175L;
 
-	/** The number of rows in the world grid **/
-	public static int ROWS = GameActivity.GRID_ROWS;
+	/** The default number of rows in the world grid, which matches the game screen **/
+	public static final int DEFAULT_ROWS = 10;
+	
+	/** The default number of columns in the world grid, which matches the game screen **/
+	public static final int DEFAULT_COLUMNS = 7;
+	
+	/** The number of rows and columns in a chunk **/
+	public static final int CHUNK_SIZE = 32;
 	
-	/** The number of columns in the world grid **/
-	public static int COLUMNS = GameActivity.GRID_COLUMNS;
+	// log2(CHUNK_SIZE).
+	private static final int CHUNK_SHIFT = 5;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	// The number of positions in a chunk, and the number of low bits of a cell index 
+	// that address a position within its chunk.
+	private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+	private static final int CHUNK_CELL_SHIFT = 2 * CHUNK_SHIFT;
+	private static final int CHUNK_CELL_MASK = CHUNK_CELLS - 1;
 	
-	// References to entities within the game world, including Organisms and
-	// environmental effects.
-	private final Map<GridPosition, WorldGridEntity> entities = new HashMap<GridPosition, WorldGridEntity>();
+	// The dimensions of this grid.
+	private final int rows;
+	private final int columns;
 	
-	// The attributes for each grid position.
-	private final GridAttributes[][] gridAttributes = new GridAttributes[ROWS][COLUMNS];
+	// The number of bits of a chunk number that hold the chunk column. The chunk directory 
+	// is (1 << chunkColumnShift) chunks wide, so chunk numbers can be decoded with shifts.
+	private final int chunkColumnShift;
 	
+	// The chunk directory, indexed by (chunkRow << chunkColumnShift | chunkColumn). Entries
+	// are null for chunks that contain no entities and have no occupied neighbors.
+	private final Chunk[] chunks;
 	
 	
+	/**
+	 * Creates a world grid with the default dimensions (DEFAULT_ROWS x DEFAULT_COLUMNS).
+	 */
 	public WorldGrid()
 	{
+		this(DEFAULT_ROWS, DEFAULT_COLUMNS);
+	}
+	
+	/**
+	 * Creates an empty world grid.
+	 * @param rows The number of rows. Must be greater than zero.
+	 * @param columns The number of columns. Must be greater than zero.
+	 * @throws IllegalArgumentException if rows or columns is less than one, or if the grid
+	 * is too large to be addressed by int cell indexes.
+	 */
+	public WorldGrid(int rows, int columns)
+	{
+		if (rows < 1)
+			throw new IllegalArgumentException("Argument 'rows' must be greater than zero. Found: " + rows);
+		if (columns < 1)
+			throw new IllegalArgumentException("Argument 'columns' must be greater than zero. Found: " + columns);
+		
+		final int chunkRows = (rows + CHUNK_MASK) >>> CHUNK_SHIFT;
+		final int chunkColumns = (columns + CHUNK_MASK) >>> CHUNK_SHIFT;
+		final int chunkColumnShift = 32 - Integer.numberOfLeadingZeros(chunkColumns - 1);
+		
+		final long indexCount = ((long)chunkRows << chunkColumnShift) << CHUNK_CELL_SHIFT;
+		if (indexCount > (1L << 31))
+			throw new IllegalArgumentException("The grid is too large: " + rows + "x" + columns + ".");
+		
+		this.rows = rows;
+		this.columns = columns;
+		this.chunkColumnShift = chunkColumnShift;
+		this.chunks = new Chunk[chunkRows << chunkColumnShift];
+	}
+	
+	/**
+	 * Gets the number of rows in the grid.
+	 * @return The number of rows in the grid.
+	 */
+	public int getRows()
+	{
+		return this.rows;
+	}
+	
+	/**
+	 * Gets the number of columns in the grid.
+	 * @return The number of columns in the grid.
+	 */
+	public int getColumns()
+	{
+		return this.columns;
+	}
+	
+	/**
+	 * Gets the total number of grid positions (rows * columns).
+	 * @return The total number of grid positions.
+	 */
+	public long getCellCount()
+	{
+		return (long)this.rows * this.columns;
+	}
+	
+	/**
+	 * Gets the number of chunks that currently have storage allocated.
+	 * @return The number of allocated chunks.
+	 */
+	public int getAllocatedChunkCount()
+	{
+		int count = 0;
+		for (Chunk chunk : this.chunks)
+		{
+			if (chunk != null)
+			{
+				++count;
+			}
+		}
+		return count;
 	}
 	
-	public GridAttributes[][] getGridAttributes()
+	/**
+	 * Specifies whether the row and column is within the grid.
+	 * @param row The row.
+	 * @param column The column.
+	 * @return True if the position is within the grid.
+	 */
+	public boolean contains(int row, int column)
 	{
-		return this.gridAttributes;
+		return (row >= 0 && row < this.rows && column >= 0 && column < this.columns);
 	}
 	
+	/**
+	 * Specifies whether the position is within the grid.
+	 * @param gp The grid position.
+	 * @return True if the position is within the grid.
+	 */
+	public boolean contains(GridPosition gp)
+	{
+		return contains(gp.getRow(), gp.getColumn());
+	}
+	
+	/**
+	 * Converts a row and column to a cell index. The row and column are not validated.
+	 * @param row The row.
+	 * @param column The column.
+	 * @return The cell index of the row and column.
+	 */
+	public int toIndex(int row, int column)
+	{
+		final int chunk = ((row >>> CHUNK_SHIFT) << this.chunkColumnShift) | (column >>> CHUNK_SHIFT);
+		return (chunk << CHUNK_CELL_SHIFT) | ((row & CHUNK_MASK) << CHUNK_SHIFT) | (column & CHUNK_MASK);
+	}
+	
+	/**
+	 * Gets the row of a cell index.
+	 * @param index The cell index.
+	 * @return The row of the cell index.
+	 */
+	public int getRow(int index)
+	{
+		final int chunkRow = index >>> (CHUNK_CELL_SHIFT + this.chunkColumnShift);
+		return (chunkRow << CHUNK_SHIFT) | ((index >>> CHUNK_SHIFT) & CHUNK_MASK);
+	}
+	
+	/**
+	 * Gets the column of a cell index.
+	 * @param index The cell index.
+	 * @return The column of the cell index.
+	 */
+	public int getColumn(int index)
+	{
+		final int chunkColumn = (index >>> CHUNK_CELL_SHIFT) & ((1 << this.chunkColumnShift) - 1);
+		return (chunkColumn << CHUNK_SHIFT) | (index & CHUNK_MASK);
+	}
+	
+	/**
+	 * Gets the entity at the specified position, or null if the position is empty.
+	 * @param gp The grid position.
+	 * @return The entity at the position, or null.
+	 * @throws IllegalArgumentException if the position is outside of the grid.
+	 */
 	public WorldGridEntity getGridEntity(GridPosition gp)
 	{
-		return this.entities.get(gp);
+		return getGridEntity(gp.getRow(), gp.getColumn());
 	}
 	
+	/**
+	 * Gets the entity at the specified row and column, or null if the position is empty.
+	 * @param row The row.
+	 * @param column The column.
+	 * @return The entity at the position, or null.
+	 * @throws IllegalArgumentException if row or column is outside of the grid.
+	 */
 	public WorldGridEntity getGridEntity(int row, int column)
 	{
-		return this.entities.get(new GridPosition(row, column));
+		checkBounds(row, column);
+		return getGridEntity(toIndex(row, column));
 	}
 	
+	/**
+	 * Gets the entity at the specified cell index, or null if the cell is empty.
+	 * @param index A cell index returned by toIndex for a position within the grid.
+	 * @return The entity at the cell index, or null.
+	 */
+	public WorldGridEntity getGridEntity(int index)
+	{
+		final Chunk chunk = this.chunks[index >>> CHUNK_CELL_SHIFT];
+		return (chunk == null) ? null : chunk.entities[index & CHUNK_CELL_MASK];
+	}
+	
+	/**
+	 * Specifies whether the cell index contains an entity.
+	 * @param index A cell index returned by toIndex for a position within the grid.
+	 * @return True if the cell contains an entity.
+	 */
+	public boolean isOccupied(int index)
+	{
+		final Chunk chunk = this.chunks[index >>> CHUNK_CELL_SHIFT];
+		return (chunk != null && chunk.isOccupied(index & CHUNK_CELL_MASK));
+	}
+	
+	/**
+	 * Specifies whether the row and column contains an entity.
+	 * @param row The row. Not validated.
+	 * @param column The column. Not validated.
+	 * @return True if the position contains an entity.
+	 */
+	public boolean isOccupied(int row, int column)
+	{
+		return isOccupied(toIndex(row, column));
+	}
+	
+	/**
+	 * Places an entity at the position, or clears the position if ent is null.
+	 * @param gp The grid position.
+	 * @param ent The entity, or null.
+	 * @throws IllegalArgumentException if the position is outside of the grid.
+	 */
 	public void setGridEntity(GridPosition gp, WorldGridEntity ent)
 	{
-		this.entities.put(gp, ent);
+		checkBounds(gp.getRow(), gp.getColumn());
+		setGridEntity(toIndex(gp.getRow(), gp.getColumn()), ent);
+	}
+	
+	/**
+	 * Places an entity at the cell index, or clears the cell if ent is null.
+	 * @param index A cell index returned by toIndex for a position within the grid.
+	 * @param ent The entity, or null.
+	 */
+	public void setGridEntity(int index, WorldGridEntity ent)
+	{
+		final int chunkIndex = index >>> CHUNK_CELL_SHIFT;
+		final int cell = index & CHUNK_CELL_MASK;
+		Chunk chunk = this.chunks[chunkIndex];
+		if (chunk == null)
+		{
+			if (ent == null)
+			{
+				return;
+			}
+			chunk = this.chunks[chunkIndex] = new Chunk();
+		}
+		
+		final boolean wasOccupied = chunk.isOccupied(cell);
+		final boolean isOccupied = (ent != null);
+		
+		chunk.entities[cell] = ent;
+		if (wasOccupied != isOccupied)
+		{
+			chunk.setOccupied(cell, isOccupied);
+			adjustNeighborCounts(index, isOccupied ? 1 : -1);
+			releaseIfEmpty(chunkIndex);
+		}
+	}
+	
+	/**
+	 * Gets the number of occupied positions adjacent to the cell index. The count
+	 * is maintained incrementally, so this does not probe the neighboring cells.
+	 * @param index A cell index returned by toIndex for a position within the grid.
+	 * @return The number of occupied neighbors, from 0 to 8.
+	 */
+	public int getNeighborCount(int index)
+	{
+		final Chunk chunk = this.chunks[index >>> CHUNK_CELL_SHIFT];
+		return (chunk == null) ? 0 : chunk.neighborCounts[index & CHUNK_CELL_MASK];
+	}
+	
+	/**
+	 * Counts the occupied positions adjacent to the cell index by probing all eight
+	 * neighbors. Used to verify the incrementally maintained counts.
+	 * @param index A cell index returned by toIndex for a position within the grid.
+	 * @return The number of occupied neighbors, from 0 to 8.
+	 */
+	public int countNeighbors(int index)
+	{
+		final int row = getRow(index);
+		final int column = getColumn(index);
+		
+		int count = 0;
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, this.rows - 1); ++r)
+		{
+			for (int c = Math.max(column - 1, 0); c <= Math.min(column + 1, this.columns - 1); ++c)
+			{
+				if ((r != row || c != column) && isOccupied(toIndex(r, c)))
+				{
+					++count;
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Finds the positions adjacent to the cell index that are within the grid.
+	 * @param index A cell index returned by toIndex for a position within the grid.
+	 * @param neighbors The array that the neighbors' cell indexes are stored in. Must have room for eight.
+	 * @return The number of neighbors stored, from 0 to 8.
+	 */
+	public int getNeighbors(int index, int[] neighbors)
+	{
+		final int row = getRow(index);
+		final int column = getColumn(index);
+		
+		int count = 0;
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, this.rows - 1); ++r)
+		{
+			for (int c = Math.max(column - 1, 0); c <= Math.min(column + 1, this.columns - 1); ++c)
+			{
+				if (r != row || c != column)
+				{
+					neighbors[count++] = toIndex(r, c);
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Compares every stored neighbor count against a full recount, and verifies that
+	 * only chunks that contain or border an entity have storage allocated.
+	 * @return The first cell index whose stored count is wrong, or -1 if all counts are correct.
+	 */
+	public int findInconsistentNeighborCount()
+	{
+		for (int row = 0; row < this.rows; ++row)
+		{
+			for (int column = 0; column < this.columns; ++column)
+			{
+				final int index = toIndex(row, column);
+				if (getNeighborCount(index) != countNeighbors(index))
+				{
+					return index;
+				}
+			}
+		}
+		
+		for (int i = 0; i < this.chunks.length; ++i)
+		{
+			if (this.chunks[i] != null && this.chunks[i].isEmpty())
+			{
+				return i << CHUNK_CELL_SHIFT;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Adds delta to the neighbor count of each of the (up to) eight cells surrounding the index.
+	 */
+	private void adjustNeighborCounts(int index, int delta)
+	{
+		final int row = getRow(index);
+		final int column = getColumn(index);
+		final int firstColumn = Math.max(column - 1, 0);
+		final int lastColumn = Math.min(column + 1, this.columns - 1);
+		
+		for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, this.rows - 1); ++r)
+		{
+			for (int c = firstColumn; c <= lastColumn; ++c)
+			{
+				if (r != row || c != column)
+				{
+					final int neighbor = toIndex(r, c);
+					final int chunkIndex = neighbor >>> CHUNK_CELL_SHIFT;
+					Chunk chunk = this.chunks[chunkIndex];
+					if (chunk == null)
+					{
+						chunk = this.chunks[chunkIndex] = new Chunk();
+					}
+					
+					chunk.neighborCounts[neighbor & CHUNK_CELL_MASK] += delta;
+					chunk.neighborTotal += delta;
+					if (delta < 0)
+					{
+						releaseIfEmpty(chunkIndex);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Frees the chunk's storage if it no longer contains or borders an entity.
+	 */
+	private void releaseIfEmpty(int chunkIndex)
+	{
+		final Chunk chunk = this.chunks[chunkIndex];
+		if (chunk != null && chunk.isEmpty())
+		{
+			this.chunks[chunkIndex] = null;
+		}
+	}
+	
+	private void checkBounds(int row, int column)
+	{
+		if (row < 0 || row >= this.rows)
+			throw new IllegalArgumentException("row parameter is outside of the grid. Value: " + row);
+		if (column < 0 || column >= this.columns)
+			throw new IllegalArgumentException("column parameter is outside of the grid. Value: " + column);
+	}
+	
+	
+	/**
+	 * The storage for one CHUNK_SIZE x CHUNK_SIZE region of the grid, indexed by
+	 * (row within chunk * CHUNK_SIZE + column within chunk).
+	 */
+	private static final class Chunk implements Serializable
+	{
+		private static final long serialVersionUID = -2209516423771513388L;
+		
+		// References to entities within the game world, including Organisms and
+		// environmental effects.
+		final WorldGridEntity[] entities = new WorldGridEntity[CHUNK_CELLS];
+		
+		// One bit per position; set when the position holds an entity.
+		final long[] occupied = new long[CHUNK_CELLS / 64];
+		
+		// The number of occupied positions adjacent to each position, including
+		// positions in neighboring chunks.
+		final byte[] neighborCounts = new byte[CHUNK_CELLS];
+		
+		// The number of occupied positions in the chunk.
+		int population;
+		
+		// The sum of neighborCounts.
+		int neighborTotal;
+		
+		boolean isOccupied(int cell)
+		{
+			return (this.occupied[cell >>> 6] & (1L << cell)) != 0;
+		}
+		
+		void setOccupied(int cell, boolean isOccupied)
+		{
+			if (isOccupied)
+			{
+				this.occupied[cell >>> 6] |= (1L << cell);
+				++this.population;
+			}
+			else
+			{
+				this.occupied[cell >>> 6] &= ~(1L << cell);
+				--this.population;
+			}
+		}
+		
+		/**
+		 * Specifies whether the chunk neither contains nor borders an entity.
+		 */
+		boolean isEmpty()
+		{
+			return (this.population == 0 && this.neighborTotal == 0);
+		}
 	}
 }
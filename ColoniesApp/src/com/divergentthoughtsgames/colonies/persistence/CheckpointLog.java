@@ -0,0 +1,196 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+
+
+/**
+ * The log of incremental checkpoints that is written by CheckpointService. The log starts 
+ * with a header that identifies the full checkpoint that its records apply to, by the length 
+ * and checksum of the full checkpoint's file. The header is followed by records, each of which
+ * is a length followed by the changes written by GameStateSerializer.saveChanges. A record 
+ * that was only partly written, because the game stopped while it was being appended, is 
+ * ignored, along with any records after it.
+ * @author Christopher D. Canfield
+ */
+final class CheckpointLog
+{
+	/** The first four bytes of a checkpoint log: "COLL". **/
+	static final int MAGIC = 0x434F4C4C;
+	
+	/** The version of the checkpoint log format. **/
+	static final int FORMAT_VERSION = 1;
+	
+	/** The length of the header, in bytes. **/
+	static final int HEADER_LENGTH = 20;
+	
+	private CheckpointLog() {}
+	
+	/**
+	 * Writes a log header. The stream is flushed, but not closed.
+	 * @param out The stream to write to.
+	 * @param baseLength The length of the full checkpoint file.
+	 * @param baseChecksum The checksum at the end of the full checkpoint file.
+	 */
+	static void writeHeader(OutputStream out, long baseLength, int baseChecksum) throws IOException
+	{
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(FORMAT_VERSION);
+		data.writeLong(baseLength);
+		data.writeInt(baseChecksum);
+		data.flush();
+	}
+	
+	/**
+	 * Appends a record to the log, and syncs the log to the storage device.
+	 * @param log The log file.
+	 * @param record The changes written by GameStateSerializer.saveChanges.
+	 * @param length The length of the record.
+	 */
+	static void append(File log, byte[] record, int length) throws IOException
+	{
+		FileOutputStream out = new FileOutputStream(log, true);
+		try
+		{
+			DataOutputStream data = new DataOutputStream(out);
+			data.writeInt(length);
+			data.write(record, 0, length);
+			data.flush();
+			out.getFD().sync();
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Replays the records in the log onto a game that was loaded from the full checkpoint file. 
+	 * Nothing is replayed if the log does not exist, or was written for a different full 
+	 * checkpoint.
+	 * @param log The log file.
+	 * @param base The full checkpoint file.
+	 * @param gameManager The game that was loaded from the full checkpoint file.
+	 * @return The number of records that were replayed.
+	 * @throws IOException if the log cannot be read, or contains a complete record that is invalid.
+	 */
+	static int replay(File log, File base, GameManager gameManager) throws IOException
+	{
+		long remaining = log.length();
+		final long baseLength = base.length();
+		if (remaining < HEADER_LENGTH || baseLength < 4)
+		{
+			return 0;
+		}
+		
+		final int baseChecksum;
+		RandomAccessFile baseFile = new RandomAccessFile(base, "r");
+		try
+		{
+			baseFile.seek(baseLength - 4);
+			baseChecksum = baseFile.readInt();
+		}
+		finally
+		{
+			baseFile.close();
+		}
+		
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(log)));
+		try
+		{
+			if (in.readInt() != MAGIC)
+				throw new IOException("The file is not a checkpoint log: " + log);
+			final int version = in.readInt();
+			if (version != FORMAT_VERSION)
+				throw new IOException("Unsupported checkpoint log version: " + version);
+			if (in.readLong() != baseLength || in.readInt() != baseChecksum)
+			{
+				// The log was written for an earlier full checkpoint.
+				return 0;
+			}
+			remaining -= HEADER_LENGTH;
+			
+			int count = 0;
+			byte[] record = new byte[0];
+			CRC32 checksum = new CRC32();
+			while (remaining >= 4)
+			{
+				final int length = in.readInt();
+				remaining -= 4;
+				if (length < 4 || length > remaining)
+				{
+					break;
+				}
+				
+				if (record.length < length)
+				{
+					record = new byte[length];
+				}
+				in.readFully(record, 0, length);
+				remaining -= length;
+				
+				// Checks the record's checksum before any of it is replayed, so that a damaged 
+				// record does not leave the game partly updated.
+				checksum.reset();
+				checksum.update(record, 0, length - 4);
+				if ((int)checksum.getValue() != readChecksum(record, length))
+				{
+					break;
+				}
+				
+				GameStateSerializer.loadChanges(gameManager, new ByteArrayInputStream(record, 0, length));
+				++count;
+			}
+			return count;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+	
+	/**
+	 * Returns the checksum that GameStateWriter.finish() wrote in the last four bytes of a
+	 * saved game or record.
+	 * @param data The saved game or record.
+	 * @param length The length of the saved game or record.
+	 * @return The checksum.
+	 */
+	static int readChecksum(byte[] data, int length)
+	{
+		return ((data[length - 4] & 0xFF) << 24) | ((data[length - 3] & 0xFF) << 16) | 
+				((data[length - 2] & 0xFF) << 8) | (data[length - 1] & 0xFF);
+	}
+}
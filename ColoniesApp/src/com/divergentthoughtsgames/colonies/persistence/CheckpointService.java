@@ -0,0 +1,403 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.platform.Log;
+
+
+/**
+ * Saves the game without blocking the game or user interface threads on disk I/O. A 
+ * checkpoint has two steps: checkpoint() encodes the game state into an in-memory snapshot
+ * on the calling thread, at a tick boundary; the snapshot is then written on a background 
+ * thread.
+ * <p>
+ * The first checkpoint of a game is a full checkpoint, which saves the whole game to the 
+ * checkpoint file. The file is replaced atomically: the snapshot is written to a temporary
+ * file, which is synced and then renamed over the checkpoint file, so the file always holds 
+ * a complete saved game. Later checkpoints are incremental: only the Organisms and colonies 
+ * that have changed since the previous checkpoint are encoded, and the record is appended 
+ * to a log next to the checkpoint file. load() reads the checkpoint file and replays the log. 
+ * The log is compacted by taking a new full checkpoint once it holds the maximum number of 
+ * records, or has grown to half the size of the checkpoint file.
+ * <p>
+ * Snapshot buffers are reused. If a full checkpoint is taken while earlier snapshots are 
+ * still waiting to be written, the earlier snapshots are discarded, since they would be 
+ * replaced immediately.
+ * @author Christopher D. Canfield
+ */
+public final class CheckpointService
+{
+	/** The default maximum number of incremental checkpoints between full checkpoints. **/
+	public static final int DEFAULT_MAX_INCREMENTAL_CHECKPOINTS = 16;
+	
+	private static final String LOG_TAG = "CheckpointService";
+	
+	private final File file;
+	private final File logFile;
+	private final int maxIncrementalCheckpoints;
+	
+	// The thread that writes snapshots to the files.
+	private final ExecutorService writer;
+	
+	// The snapshots that are waiting to be written, in the order they were taken. Also used as
+	// the lock for itself.
+	private final Queue<Snapshot> pendingSnapshots = new LinkedList<Snapshot>();
+	
+	// Snapshot buffers that are not in use.
+	private final Queue<Snapshot> freeSnapshots = new ConcurrentLinkedQueue<Snapshot>();
+	
+	// The state of the checkpoints that have been taken. Only used by the thread that 
+	// calls checkpoint().
+	private GameManager checkpointedGame;
+	private int incrementalCheckpoints;
+	private long baseLength;
+	private long logLength;
+	
+	// Set when a snapshot could not be taken or written, so that the next checkpoint is full.
+	private volatile boolean fullCheckpointRequired;
+	
+	// Whether records can be appended to the log: false until a full checkpoint has been 
+	// written, and after any write fails. Only used by the writer thread.
+	private boolean logWritable;
+	
+	/**
+	 * Creates a CheckpointService that saves the game to the file, with the default maximum 
+	 * number of incremental checkpoints between full checkpoints.
+	 * @param file The checkpoint file.
+	 * @throws IllegalArgumentException if file is null.
+	 */
+	public CheckpointService(File file)
+	{
+		this(file, DEFAULT_MAX_INCREMENTAL_CHECKPOINTS);
+	}
+	
+	/**
+	 * Creates a CheckpointService that saves the game to the file.
+	 * @param file The checkpoint file. The log of incremental checkpoints is written next to it.
+	 * @param maxIncrementalCheckpoints The maximum number of incremental checkpoints between 
+	 * full checkpoints, or 0 to make every checkpoint a full checkpoint.
+	 * @throws IllegalArgumentException if file is null, or maxIncrementalCheckpoints is negative.
+	 */
+	public CheckpointService(File file, int maxIncrementalCheckpoints)
+	{
+		if (file == null) throw new IllegalArgumentException("Argument 'file' cannot be null.");
+		if (maxIncrementalCheckpoints < 0) 
+			throw new IllegalArgumentException("Argument 'maxIncrementalCheckpoints' cannot be negative.");
+		
+		this.file = file;
+		this.logFile = new File(file.getPath() + ".log");
+		this.maxIncrementalCheckpoints = maxIncrementalCheckpoints;
+		this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "Checkpoint");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Takes a snapshot of the game, and writes it on a background thread. Must be called at
+	 * a tick boundary: either on the thread that updates the game, between calls to 
+	 * processUpdates, or while the game is stopped. Returns once the snapshot has been taken;
+	 * the game can continue while the snapshot is written.
+	 * @param gameManager The game to save.
+	 * @return The write, which completes when the snapshot has been written or discarded.
+	 * @throws IOException if the game state cannot be encoded.
+	 */
+	public Future<Void> checkpoint(GameManager gameManager) throws IOException
+	{
+		if (gameManager == null) throw new IllegalArgumentException("Argument 'gameManager' cannot be null.");
+		
+		Snapshot snapshot = this.freeSnapshots.poll();
+		if (snapshot == null)
+		{
+			snapshot = new Snapshot();
+		}
+		snapshot.reset();
+		snapshot.full = isFullCheckpointDue(gameManager);
+		
+		boolean encoded = false;
+		try
+		{
+			if (snapshot.full)
+			{
+				this.fullCheckpointRequired = false;
+				GameStateSerializer.save(gameManager, snapshot);
+				gameManager.markCheckpoint();
+				this.checkpointedGame = gameManager;
+				this.incrementalCheckpoints = 0;
+				this.baseLength = snapshot.size();
+				this.logLength = 0;
+			}
+			else
+			{
+				GameStateSerializer.saveChanges(gameManager, snapshot);
+				++this.incrementalCheckpoints;
+				this.logLength += snapshot.size() + 4;
+			}
+			encoded = true;
+		}
+		finally
+		{
+			if (!encoded)
+			{
+				// The game's changes may have been partly marked as checkpointed.
+				this.fullCheckpointRequired = true;
+				this.freeSnapshots.add(snapshot);
+			}
+		}
+		
+		synchronized (this.pendingSnapshots)
+		{
+			if (snapshot.full)
+			{
+				this.freeSnapshots.addAll(this.pendingSnapshots);
+				this.pendingSnapshots.clear();
+			}
+			this.pendingSnapshots.add(snapshot);
+		}
+		
+		return this.writer.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws IOException
+			{
+				writeNextSnapshot();
+				return null;
+			}
+		});
+	}
+	
+	private boolean isFullCheckpointDue(GameManager gameManager)
+	{
+		return this.fullCheckpointRequired || 
+				gameManager != this.checkpointedGame || 
+				this.incrementalCheckpoints >= this.maxIncrementalCheckpoints || 
+				this.logLength > this.baseLength / 2;
+	}
+	
+	/**
+	 * Waits for all snapshots that have been taken to be written.
+	 * @param timeout The maximum time to wait.
+	 * @param unit The unit of the timeout.
+	 * @return True if the writes finished, or false if the timeout elapsed first.
+	 * @throws InterruptedException if the calling thread was interrupted while waiting.
+	 */
+	public boolean awaitWrites(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		// Tasks run in order on the single writer thread, so a new, empty task completes 
+		// after all earlier writes.
+		Future<?> marker = this.writer.submit(new Runnable() {
+			@Override
+			public void run() {}
+		});
+		try
+		{
+			marker.get(timeout, unit);
+			return true;
+		}
+		catch (TimeoutException e)
+		{
+			return false;
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Programming error: the marker task cannot fail.", e);
+		}
+	}
+	
+	/**
+	 * Reads the game from the checkpoint file, and replays the log of incremental checkpoints. 
+	 * Waits for any snapshots that are still being written, so that the most recent checkpoint 
+	 * is loaded. The next checkpoint taken of the loaded game is a full checkpoint.
+	 * @return The restored game.
+	 * @throws IOException if the file does not exist, or does not contain a valid saved game.
+	 */
+	public GameManager load() throws IOException
+	{
+		try
+		{
+			awaitWrites(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		
+		final GameManager gameManager;
+		FileInputStream in = new FileInputStream(this.file);
+		try
+		{
+			gameManager = GameStateSerializer.load(in);
+		}
+		finally
+		{
+			in.close();
+		}
+		
+		CheckpointLog.replay(this.logFile, this.file, gameManager);
+		return gameManager;
+	}
+	
+	/**
+	 * Gets the checkpoint file, which holds the last full checkpoint.
+	 * @return The checkpoint file.
+	 */
+	public File getFile()
+	{
+		return this.file;
+	}
+	
+	/**
+	 * Gets the log file, which holds the incremental checkpoints taken since the last full checkpoint.
+	 * @return The log file.
+	 */
+	public File getLogFile()
+	{
+		return this.logFile;
+	}
+	
+	/**
+	 * Stops the writer thread once all snapshots that have been taken are written.
+	 */
+	public void shutdown()
+	{
+		this.writer.shutdown();
+	}
+	
+	/**
+	 * Writes the oldest pending snapshot, if any. A full checkpoint replaces the checkpoint
+	 * file and starts a new log; an incremental checkpoint is appended to the log. Runs on 
+	 * the writer thread.
+	 */
+	private void writeNextSnapshot() throws IOException
+	{
+		final Snapshot snapshot;
+		synchronized (this.pendingSnapshots)
+		{
+			snapshot = this.pendingSnapshots.poll();
+		}
+		if (snapshot == null)
+		{
+			return;
+		}
+		
+		try
+		{
+			if (snapshot.full)
+			{
+				this.logWritable = false;
+				replaceFile(this.file, snapshot.buffer(), snapshot.size());
+				
+				ByteArrayOutputStream header = new ByteArrayOutputStream(CheckpointLog.HEADER_LENGTH);
+				CheckpointLog.writeHeader(header, snapshot.size(), 
+						CheckpointLog.readChecksum(snapshot.buffer(), snapshot.size()));
+				replaceFile(this.logFile, header.toByteArray(), header.size());
+				this.logWritable = true;
+			}
+			else if (this.logWritable)
+			{
+				CheckpointLog.append(this.logFile, snapshot.buffer(), snapshot.size());
+			}
+			// Otherwise, an earlier write failed, so the record's changes cannot be applied to 
+			// the saved game; the next checkpoint is a full checkpoint.
+		}
+		catch (IOException e)
+		{
+			this.logWritable = false;
+			this.fullCheckpointRequired = true;
+			Log.e(LOG_TAG, "Checkpoint write failed", e);
+			throw e;
+		}
+		finally
+		{
+			this.freeSnapshots.add(snapshot);
+		}
+	}
+	
+	/**
+	 * Writes the data to a temporary file, syncs it, and renames it over the target file.
+	 */
+	private static void replaceFile(File target, byte[] data, int length) throws IOException
+	{
+		final File tempFile = new File(target.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(tempFile);
+		try
+		{
+			out.write(data, 0, length);
+			out.flush();
+			out.getFD().sync();
+		}
+		finally
+		{
+			out.close();
+		}
+		
+		if (!tempFile.renameTo(target))
+		{
+			// Some platforms cannot rename over an existing file.
+			if (!target.delete() || !tempFile.renameTo(target))
+			{
+				throw new IOException("Unable to rename " + tempFile + " to " + target);
+			}
+		}
+	}
+	
+	
+	/**
+	 * A reusable buffer holding an encoded full or incremental checkpoint.
+	 */
+	private static final class Snapshot extends ByteArrayOutputStream
+	{
+		// Whether the snapshot is a full checkpoint.
+		boolean full;
+		
+		Snapshot()
+		{
+			super(64 * 1024);
+		}
+		
+		byte[] buffer()
+		{
+			return this.buf;
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+
+/**
+ * Reads the binary saved game format written by GameStateWriter. Bytes are read from the
+ * channel into a ByteBuffer in large blocks, so the GameStateReader may read past the end 
+ * of the saved game.
+ * @author Christopher D. Canfield
+ */
+public final class GameStateReader
+{
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private final CRC32 checksum = new CRC32();
+	
+	// The shared strings that have been read, in the order they were first written.
+	private final List<String> sharedStrings = new ArrayList<String>();
+	
+	/**
+	 * Creates a GameStateReader that reads from the stream.
+	 * @param in The stream. It is not closed by the GameStateReader.
+	 * @throws IllegalArgumentException if in is null.
+	 */
+	public GameStateReader(InputStream in)
+	{
+		if (in == null) throw new IllegalArgumentException("Argument 'in' cannot be null.");
+		this.channel = Channels.newChannel(in);
+		this.buffer.limit(0);
+	}
+	
+	/**
+	 * Creates a GameStateReader that reads from the channel.
+	 * @param channel The channel. It is not closed by the GameStateReader.
+	 * @throws IllegalArgumentException if channel is null.
+	 */
+	public GameStateReader(ReadableByteChannel channel)
+	{
+		if (channel == null) throw new IllegalArgumentException("Argument 'channel' cannot be null.");
+		this.channel = channel;
+		this.buffer.limit(0);
+	}
+	
+	public int readByte() throws IOException
+	{
+		require(1);
+		return this.buffer.get();
+	}
+	
+	public boolean readBoolean() throws IOException
+	{
+		return readByte() != 0;
+	}
+	
+	public int readInt() throws IOException
+	{
+		require(4);
+		return this.buffer.getInt();
+	}
+	
+	public long readLong() throws IOException
+	{
+		require(8);
+		return this.buffer.getLong();
+	}
+	
+	public float readFloat() throws IOException
+	{
+		require(4);
+		return this.buffer.getFloat();
+	}
+	
+	/**
+	 * Reads a non-negative int that was written by writeVarInt.
+	 * @return The value.
+	 * @throws IOException if the value is not a valid int.
+	 */
+	public int readVarInt() throws IOException
+	{
+		final long value = readVarLong();
+		if (value < 0 || value > Integer.MAX_VALUE)
+		{
+			throw new IOException("Invalid saved game state: varint out of range: " + value);
+		}
+		return (int)value;
+	}
+	
+	public long readVarLong() throws IOException
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			final int b = readByte();
+			value |= (long)(b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("Invalid saved game state: varint is too long.");
+	}
+	
+	public long readSignedVarLong() throws IOException
+	{
+		final long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * Reads an enum constant that was written by writeEnum.
+	 * @param values The enum's constants, in ordinal order.
+	 * @return The enum constant, or null.
+	 * @throws IOException if the ordinal is not valid.
+	 */
+	public <E extends Enum<E>> E readEnum(E[] values) throws IOException
+	{
+		final int value = readVarInt();
+		if (value > values.length)
+		{
+			throw new IOException("Invalid saved game state: ordinal out of range: " + (value - 1));
+		}
+		return (value == 0) ? null : values[value - 1];
+	}
+	
+	public String readString() throws IOException
+	{
+		final int length = readVarInt() - 1;
+		if (length < 0)
+		{
+			return null;
+		}
+		
+		final byte[] bytes = new byte[length];
+		int offset = 0;
+		while (offset < length)
+		{
+			if (!this.buffer.hasRemaining())
+			{
+				require(1);
+			}
+			final int count = Math.min(length - offset, this.buffer.remaining());
+			this.buffer.get(bytes, offset, count);
+			offset += count;
+		}
+		return new String(bytes, "UTF-8");
+	}
+	
+	/**
+	 * Reads a string that was written by writeSharedString.
+	 * @return The string, or null.
+	 * @throws IOException if the string refers to a shared string that has not been read.
+	 */
+	public String readSharedString() throws IOException
+	{
+		final int reference = readVarInt();
+		if (reference == 0)
+		{
+			return null;
+		}
+		else if (reference == 1)
+		{
+			final String value = readString();
+			this.sharedStrings.add(value);
+			return value;
+		}
+		
+		final int index = reference - 2;
+		if (index >= this.sharedStrings.size())
+		{
+			throw new IOException("Invalid saved game state: unknown shared string: " + index);
+		}
+		return this.sharedStrings.get(index);
+	}
+	
+	/**
+	 * Reads the checksum written by GameStateWriter.finish(), and compares it to the checksum
+	 * of the values that have been read.
+	 * @throws IOException if the checksums do not match.
+	 */
+	public void verifyChecksum() throws IOException
+	{
+		discardReadBytes();
+		final int expected = (int)this.checksum.getValue();
+		if (readInt() != expected)
+		{
+			throw new IOException("Invalid saved game state: checksum mismatch.");
+		}
+	}
+	
+	/**
+	 * Ensures that the buffer holds at least the specified number of unread bytes.
+	 */
+	private void require(int bytes) throws IOException
+	{
+		if (this.buffer.remaining() >= bytes)
+		{
+			return;
+		}
+		
+		this.checksum.update(this.buffer.array(), 0, this.buffer.position());
+		this.buffer.compact();
+		while (this.buffer.position() < bytes)
+		{
+			if (this.channel.read(this.buffer) < 0)
+			{
+				throw new EOFException("Unexpected end of saved game state.");
+			}
+		}
+		this.buffer.flip();
+	}
+	
+	/**
+	 * Adds the bytes that have been read to the checksum, and removes them from the buffer.
+	 */
+	private void discardReadBytes()
+	{
+		this.checksum.update(this.buffer.array(), 0, this.buffer.position());
+		this.buffer.compact();
+		this.buffer.flip();
+	}
+}
@@ -0,0 +1,178 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+
+
+/**
+ * Saves and restores the game state in the binary saved game format. A saved game has 
+ * a header, containing the format's magic number and version; the game state, written
+ * by GameManager.writeState; and a CRC32 checksum of the header and state.
+ * <p>
+ * The changes made to a game since it was last saved can be written by saveChanges, in a 
+ * record with its own header and checksum, and replayed onto the loaded game by loadChanges.
+ * <p>
+ * Games saved with Java serialization by earlier versions cannot be loaded.
+ * @author Christopher D. Canfield
+ */
+public final class GameStateSerializer
+{
+	/** The first four bytes of a binary saved game: "COLN". **/
+	public static final int MAGIC = 0x434F4C4E;
+	
+	/** The first four bytes of a record written by saveChanges: "COLD". **/
+	public static final int CHANGES_MAGIC = 0x434F4C44;
+	
+	/** The version of the binary saved game format that is written by save. **/
+	public static final int FORMAT_VERSION = 1;
+	
+	private GameStateSerializer() {}
+	
+	/**
+	 * Writes the GameManager to the stream. The stream is flushed, but not closed.
+	 * @param gameManager The GameManager to save.
+	 * @param out The stream to write to.
+	 * @return The number of bytes written.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public static long save(GameManager gameManager, OutputStream out) throws IOException
+	{
+		if (gameManager == null)
+			throw new IllegalArgumentException("Argument 'gameManager' cannot be null.");
+		if (out == null)
+			throw new IllegalArgumentException("Argument 'out' cannot be null.");
+		
+		GameStateWriter writer = new GameStateWriter(out);
+		writer.writeInt(MAGIC);
+		writer.writeVarInt(FORMAT_VERSION);
+		gameManager.writeState(writer);
+		writer.finish();
+		out.flush();
+		return writer.getBytesWritten();
+	}
+	
+	/**
+	 * Reads a GameManager that was written by save. The stream is not closed, but may have 
+	 * been read past the end of the saved game.
+	 * @param in The stream to read from.
+	 * @return The restored GameManager.
+	 * @throws IOException if the stream cannot be read, or does not contain a valid saved game.
+	 */
+	public static GameManager load(InputStream in) throws IOException
+	{
+		if (in == null)
+			throw new IllegalArgumentException("Argument 'in' cannot be null.");
+		
+		GameStateReader reader = new GameStateReader(in);
+		if (reader.readInt() != MAGIC)
+		{
+			throw new IOException("The stream does not contain a saved game.");
+		}
+		final int version = reader.readVarInt();
+		if (version > FORMAT_VERSION)
+		{
+			throw new IOException("Unsupported saved game version: " + version);
+		}
+		
+		try
+		{
+			GameManager gameManager = GameManager.readState(reader);
+			reader.verifyChecksum();
+			return gameManager;
+		}
+		catch (IllegalArgumentException e)
+		{
+			// The constructors of the restored objects reject invalid values.
+			IOException ioe = new IOException("Invalid saved game state: " + e.getMessage());
+			ioe.initCause(e);
+			throw ioe;
+		}
+	}
+	
+	/**
+	 * Writes the changes made to the GameManager since its last checkpoint, and marks its
+	 * current state as checkpointed. The stream is flushed, but not closed.
+	 * @param gameManager The GameManager whose changes are saved.
+	 * @param out The stream to write to.
+	 * @return The number of bytes written.
+	 * @throws IOException if the stream cannot be written.
+	 * @see GameManager#markCheckpoint()
+	 */
+	public static long saveChanges(GameManager gameManager, OutputStream out) throws IOException
+	{
+		if (gameManager == null)
+			throw new IllegalArgumentException("Argument 'gameManager' cannot be null.");
+		if (out == null)
+			throw new IllegalArgumentException("Argument 'out' cannot be null.");
+		
+		GameStateWriter writer = new GameStateWriter(out);
+		writer.writeInt(CHANGES_MAGIC);
+		writer.writeVarInt(FORMAT_VERSION);
+		gameManager.writeChanges(writer);
+		writer.finish();
+		out.flush();
+		return writer.getBytesWritten();
+	}
+	
+	/**
+	 * Replays a record that was written by saveChanges onto the GameManager. The record must
+	 * have been written by the game that the GameManager was loaded from, immediately after
+	 * the state that the GameManager holds. The stream is not closed.
+	 * @param gameManager The GameManager to update.
+	 * @param in The stream to read from.
+	 * @throws IOException if the stream cannot be read, or does not contain a valid record.
+	 */
+	public static void loadChanges(GameManager gameManager, InputStream in) throws IOException
+	{
+		if (gameManager == null)
+			throw new IllegalArgumentException("Argument 'gameManager' cannot be null.");
+		if (in == null)
+			throw new IllegalArgumentException("Argument 'in' cannot be null.");
+		
+		GameStateReader reader = new GameStateReader(in);
+		if (reader.readInt() != CHANGES_MAGIC)
+		{
+			throw new IOException("The stream does not contain saved game changes.");
+		}
+		final int version = reader.readVarInt();
+		if (version > FORMAT_VERSION)
+		{
+			throw new IOException("Unsupported saved game version: " + version);
+		}
+		
+		try
+		{
+			gameManager.readChanges(reader);
+			reader.verifyChecksum();
+		}
+		catch (IllegalArgumentException e)
+		{
+			IOException ioe = new IOException("Invalid saved game changes: " + e.getMessage());
+			ioe.initCause(e);
+			throw ioe;
+		}
+	}
+}
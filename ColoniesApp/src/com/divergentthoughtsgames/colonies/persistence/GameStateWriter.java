@@ -0,0 +1,256 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+
+/**
+ * Writes the binary saved game format. Values are packed into a ByteBuffer, which is written
+ * to the channel whenever it fills. Integers can be written at a fixed width or as variable
+ * length integers (varints), which use one byte per seven bits of the value; signed varints
+ * are zigzag encoded, so that small negative values are also short. Strings that are written
+ * more than once, such as Organism names, can be written as shared strings: only the first 
+ * occurrence is written in full, and later occurrences refer back to it.
+ * <p>
+ * finish() must be called after the last value, to write the checksum that GameStateReader 
+ * uses to detect incomplete or damaged files.
+ * @author Christopher D. Canfield
+ */
+public final class GameStateWriter
+{
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private final CRC32 checksum = new CRC32();
+	
+	// The index of each shared string that has been written.
+	private final Map<String, Integer> sharedStrings = new HashMap<String, Integer>();
+	
+	private long bytesWritten;
+	
+	/**
+	 * Creates a GameStateWriter that writes to the stream.
+	 * @param out The stream. It is not flushed or closed by the GameStateWriter.
+	 * @throws IllegalArgumentException if out is null.
+	 */
+	public GameStateWriter(OutputStream out)
+	{
+		if (out == null) throw new IllegalArgumentException("Argument 'out' cannot be null.");
+		this.channel = Channels.newChannel(out);
+	}
+	
+	/**
+	 * Creates a GameStateWriter that writes to the channel.
+	 * @param channel The channel. It is not closed by the GameStateWriter.
+	 * @throws IllegalArgumentException if channel is null.
+	 */
+	public GameStateWriter(WritableByteChannel channel)
+	{
+		if (channel == null) throw new IllegalArgumentException("Argument 'channel' cannot be null.");
+		this.channel = channel;
+	}
+	
+	public void writeByte(int value) throws IOException
+	{
+		require(1);
+		this.buffer.put((byte)value);
+	}
+	
+	public void writeBoolean(boolean value) throws IOException
+	{
+		writeByte(value ? 1 : 0);
+	}
+	
+	public void writeInt(int value) throws IOException
+	{
+		require(4);
+		this.buffer.putInt(value);
+	}
+	
+	public void writeLong(long value) throws IOException
+	{
+		require(8);
+		this.buffer.putLong(value);
+	}
+	
+	public void writeFloat(float value) throws IOException
+	{
+		require(4);
+		this.buffer.putFloat(value);
+	}
+	
+	/**
+	 * Writes a non-negative int as a varint.
+	 * @param value The value.
+	 * @throws IllegalArgumentException if value is negative.
+	 */
+	public void writeVarInt(int value) throws IOException
+	{
+		if (value < 0) throw new IllegalArgumentException("Argument 'value' cannot be negative. Found: " + value);
+		writeVarLong(value);
+	}
+	
+	/**
+	 * Writes a long as a varint. Negative values take ten bytes; use writeSignedVarLong 
+	 * for values that may be negative.
+	 * @param value The value.
+	 */
+	public void writeVarLong(long value) throws IOException
+	{
+		require(10);
+		final ByteBuffer buffer = this.buffer;
+		while ((value & ~0x7FL) != 0)
+		{
+			buffer.put((byte)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte)value);
+	}
+	
+	/**
+	 * Writes a long as a zigzag encoded varint, which is short for values near zero.
+	 * @param value The value.
+	 */
+	public void writeSignedVarLong(long value) throws IOException
+	{
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+	
+	/**
+	 * Writes an enum constant as its ordinal.
+	 * @param value The enum constant, or null.
+	 */
+	public void writeEnum(Enum<?> value) throws IOException
+	{
+		writeVarInt((value == null) ? 0 : value.ordinal() + 1);
+	}
+	
+	/**
+	 * Writes a string as UTF-8.
+	 * @param value The string, or null.
+	 */
+	public void writeString(String value) throws IOException
+	{
+		if (value == null)
+		{
+			writeVarInt(0);
+			return;
+		}
+		
+		final byte[] bytes = value.getBytes("UTF-8");
+		writeVarInt(bytes.length + 1);
+		int offset = 0;
+		while (offset < bytes.length)
+		{
+			if (!this.buffer.hasRemaining())
+			{
+				drain();
+			}
+			final int length = Math.min(bytes.length - offset, this.buffer.remaining());
+			this.buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+	
+	/**
+	 * Writes a string that is expected to be written more than once. The first time a string 
+	 * is written, it is written in full; after that, only its index is written.
+	 * @param value The string, or null.
+	 */
+	public void writeSharedString(String value) throws IOException
+	{
+		if (value == null)
+		{
+			writeVarInt(0);
+			return;
+		}
+		
+		final Integer index = this.sharedStrings.get(value);
+		if (index != null)
+		{
+			writeVarInt(index + 2);
+		}
+		else
+		{
+			this.sharedStrings.put(value, this.sharedStrings.size());
+			writeVarInt(1);
+			writeString(value);
+		}
+	}
+	
+	/**
+	 * Writes the checksum of everything written so far, and writes any buffered bytes to the 
+	 * channel. No values may be written after finish() is called.
+	 */
+	public void finish() throws IOException
+	{
+		drain();
+		this.buffer.putInt((int)this.checksum.getValue());
+		this.buffer.flip();
+		while (this.buffer.hasRemaining())
+		{
+			this.channel.write(this.buffer);
+		}
+		this.bytesWritten += 4;
+		this.buffer.clear();
+	}
+	
+	/**
+	 * Gets the number of bytes written to the channel, including bytes that are still buffered.
+	 * @return The number of bytes written.
+	 */
+	public long getBytesWritten()
+	{
+		return this.bytesWritten + this.buffer.position();
+	}
+	
+	private void require(int bytes) throws IOException
+	{
+		if (this.buffer.remaining() < bytes)
+		{
+			drain();
+		}
+	}
+	
+	/**
+	 * Writes the buffered bytes to the channel, and adds them to the checksum.
+	 */
+	private void drain() throws IOException
+	{
+		this.buffer.flip();
+		this.checksum.update(this.buffer.array(), 0, this.buffer.limit());
+		this.bytesWritten += this.buffer.limit();
+		while (this.buffer.hasRemaining())
+		{
+			this.channel.write(this.buffer);
+		}
+		this.buffer.clear();
+	}
+}
@@ -0,0 +1,412 @@
+package com.divergentthoughtsgames.colonies.persistence;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.logic.DynamicAttributes;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.Organism;
+import com.divergentthoughtsgames.colonies.logic.WorldGrid;
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+
+
+/**
+ * A saved world whose per-cell Organism state is stored in fixed-size records, which are
+ * memory mapped when the file is opened. Opening the file only maps it and validates the 
+ * header, so it takes the same time for any size of world; the operating system reads the 
+ * pages of cell records as they are accessed. The cells of a large world can therefore be 
+ * shown immediately, while the game is restored.
+ * <p>
+ * The file has three parts: a header of HEADER_SIZE bytes; a RECORD_SIZE byte record for 
+ * each cell of the world grid, in row-major order; and the complete game, in the binary 
+ * saved game format, which restore() reads. A cell record holds the index of the colony 
+ * that the cell's Organism belongs to, plus one (0 if the cell is empty), as a short; the 
+ * Organism's happiness, as the Happiness ordinal plus one, as a byte; a reserved byte; and 
+ * the Organism's age in ticks (an int, limited to Integer.MAX_VALUE), health and hunger 
+ * (floats). All values are big-endian.
+ * <p>
+ * The header has a checksum, and the saved game has its own; the cell records are not 
+ * checked, since that would require reading all of them.
+ * @author Christopher D. Canfield
+ */
+public final class MappedWorldFile
+{
+	/** The first four bytes of a mapped world file: "COLM". **/
+	public static final int MAGIC = 0x434F4C4D;
+	
+	/** The version of the mapped world file format. **/
+	public static final int FORMAT_VERSION = 1;
+	
+	/** The size of the header, in bytes. The cell records start on a page boundary. **/
+	public static final int HEADER_SIZE = 4096;
+	
+	/** The size of a cell record, in bytes. **/
+	public static final int RECORD_SIZE = 16;
+	
+	// The offsets of the values in a cell record.
+	private static final int COLONY = 0;
+	private static final int HAPPINESS = 2;
+	private static final int AGE_TICKS = 4;
+	private static final int HEALTH = 8;
+	private static final int HUNGER = 12;
+	
+	// The number of bytes of the header that are covered by its checksum.
+	private static final int HEADER_CHECKED_SIZE = 60;
+	
+	// The cell records are mapped in segments, since a single mapping is limited to 2 GB.
+	private static final int CELLS_PER_SEGMENT = (1 << 30) / RECORD_SIZE;
+	
+	private final RandomAccessFile file;
+	private final int rows;
+	private final int columns;
+	private final long gameTicks;
+	private final long saveOffset;
+	private final long saveLength;
+	private final MappedByteBuffer[] segments;
+	
+	private MappedWorldFile(RandomAccessFile file, int rows, int columns, long gameTicks, 
+			long saveOffset, long saveLength, FileChannel.MapMode mode) throws IOException
+	{
+		this.file = file;
+		this.rows = rows;
+		this.columns = columns;
+		this.gameTicks = gameTicks;
+		this.saveOffset = saveOffset;
+		this.saveLength = saveLength;
+		
+		final long cellCount = (long)rows * columns;
+		this.segments = new MappedByteBuffer[(int)((cellCount + CELLS_PER_SEGMENT - 1) / CELLS_PER_SEGMENT)];
+		for (int i = 0; i < this.segments.length; ++i)
+		{
+			final long firstCell = (long)i * CELLS_PER_SEGMENT;
+			final long segmentCells = Math.min(CELLS_PER_SEGMENT, cellCount - firstCell);
+			this.segments[i] = file.getChannel().map(mode, HEADER_SIZE + firstCell * RECORD_SIZE, segmentCells * RECORD_SIZE);
+		}
+	}
+	
+	/**
+	 * Saves the game to the file. The file is written to a temporary file, which is synced 
+	 * and then renamed over the file. Must be called between game ticks.
+	 * @param gameManager The game to save.
+	 * @param target The file to write.
+	 * @return The number of bytes written.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static long save(GameManager gameManager, File target) throws IOException
+	{
+		if (gameManager == null) throw new IllegalArgumentException("Argument 'gameManager' cannot be null.");
+		if (target == null) throw new IllegalArgumentException("Argument 'target' cannot be null.");
+		
+		final WorldGrid grid = gameManager.getGameLogicManager().getWorldGrid();
+		final long saveOffset = HEADER_SIZE + grid.getCellCount() * RECORD_SIZE;
+		final File tempFile = new File(target.getPath() + ".tmp");
+		
+		RandomAccessFile file = new RandomAccessFile(tempFile, "rw");
+		try
+		{
+			// Empty cells are all zeros, which the file is filled with when it is extended.
+			file.setLength(0);
+			file.setLength(saveOffset);
+			
+			FileChannel channel = file.getChannel();
+			channel.position(saveOffset);
+			OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+			final long saveLength = GameStateSerializer.save(gameManager, out);
+			
+			MappedWorldFile cells = new MappedWorldFile(file, grid.getRows(), grid.getColumns(), 
+					gameManager.getGameTicks(), saveOffset, saveLength, FileChannel.MapMode.READ_WRITE);
+			gameManager.getGameLogicManager().writeCells(cells);
+			for (MappedByteBuffer segment : cells.segments)
+			{
+				segment.force();
+			}
+			
+			ByteBuffer header = cells.createHeader();
+			channel.position(0);
+			while (header.hasRemaining())
+			{
+				channel.write(header);
+			}
+			channel.force(true);
+		}
+		finally
+		{
+			file.close();
+		}
+		
+		if (!tempFile.renameTo(target))
+		{
+			// Some platforms cannot rename over an existing file.
+			if (!target.delete() || !tempFile.renameTo(target))
+			{
+				throw new IOException("Unable to rename " + tempFile + " to " + target);
+			}
+		}
+		return target.length();
+	}
+	
+	/**
+	 * Opens and maps a file that was written by save. Only the header is read.
+	 * @param source The file to open.
+	 * @return The opened file, which must be closed.
+	 * @throws IOException if the file cannot be read, or is not a valid mapped world file.
+	 */
+	public static MappedWorldFile open(File source) throws IOException
+	{
+		if (source == null) throw new IllegalArgumentException("Argument 'source' cannot be null.");
+		
+		RandomAccessFile file = new RandomAccessFile(source, "r");
+		boolean opened = false;
+		try
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_CHECKED_SIZE + 4);
+			FileChannel channel = file.getChannel();
+			while (header.hasRemaining())
+			{
+				if (channel.read(header) < 0)
+					throw new IOException("The file is not a mapped world file: " + source);
+			}
+			header.flip();
+			
+			if (header.getInt(0) != MAGIC)
+				throw new IOException("The file is not a mapped world file: " + source);
+			CRC32 checksum = new CRC32();
+			checksum.update(header.array(), 0, HEADER_CHECKED_SIZE);
+			if ((int)checksum.getValue() != header.getInt(HEADER_CHECKED_SIZE))
+				throw new IOException("Invalid mapped world file: header checksum mismatch.");
+			final int version = header.getInt(4);
+			if (version != FORMAT_VERSION)
+				throw new IOException("Unsupported mapped world file version: " + version);
+			
+			final int recordSize = header.getInt(8);
+			final int rows = header.getInt(12);
+			final int columns = header.getInt(16);
+			final long gameTicks = header.getLong(24);
+			final long saveOffset = header.getLong(32);
+			final long saveLength = header.getLong(40);
+			if (recordSize != RECORD_SIZE || rows <= 0 || columns <= 0 || 
+					saveOffset != HEADER_SIZE + (long)rows * columns * RECORD_SIZE || 
+					file.length() != saveOffset + saveLength)
+			{
+				throw new IOException("Invalid mapped world file: the file's size does not match its header.");
+			}
+			
+			MappedWorldFile mapped = new MappedWorldFile(file, rows, columns, gameTicks, saveOffset, saveLength, 
+					FileChannel.MapMode.READ_ONLY);
+			opened = true;
+			return mapped;
+		}
+		finally
+		{
+			if (!opened)
+			{
+				file.close();
+			}
+		}
+	}
+	
+	/**
+	 * Restores the complete game from the file.
+	 * @return The restored game.
+	 * @throws IOException if the saved game is invalid.
+	 */
+	public GameManager restore() throws IOException
+	{
+		FileChannel channel = this.file.getChannel();
+		channel.position(this.saveOffset);
+		return GameStateSerializer.load(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+	}
+	
+	/**
+	 * Closes the file. The cell records must not be read after the file has been closed; the 
+	 * mapping itself is released when it is garbage collected.
+	 */
+	public void close() throws IOException
+	{
+		this.file.close();
+	}
+	
+	/**
+	 * Writes an Organism's cell record. Called by GameLogicManager.writeCells.
+	 * @param colonyIndex The index of the Organism's colony.
+	 * @param organism The Organism.
+	 * @throws IllegalArgumentException if colonyIndex is negative, or too large to be stored.
+	 */
+	public void putOrganism(int colonyIndex, Organism organism)
+	{
+		if (colonyIndex < 0 || colonyIndex >= 0xFFFF)
+			throw new IllegalArgumentException("Argument 'colonyIndex' is out of range: " + colonyIndex);
+		
+		final GridPosition position = organism.getPosition();
+		final ByteBuffer segment = segment(position.getRow(), position.getColumn());
+		final int offset = offset(position.getRow(), position.getColumn());
+		final DynamicAttributes attributes = organism.getDynamicAttributes();
+		final Happiness happiness = attributes.getHappiness();
+		
+		segment.putShort(offset + COLONY, (short)(colonyIndex + 1));
+		segment.put(offset + HAPPINESS, (byte)((happiness == null) ? 0 : happiness.ordinal() + 1));
+		segment.putInt(offset + AGE_TICKS, (int)Math.min(attributes.getAgeTicks(), Integer.MAX_VALUE));
+		segment.putFloat(offset + HEALTH, attributes.getHealth());
+		segment.putFloat(offset + HUNGER, attributes.getHunger());
+	}
+	
+	public int getRows()
+	{
+		return this.rows;
+	}
+	
+	public int getColumns()
+	{
+		return this.columns;
+	}
+	
+	/**
+	 * Gets the game tick count when the world was saved.
+	 * @return The game tick count.
+	 */
+	public long getGameTicks()
+	{
+		return this.gameTicks;
+	}
+	
+	/**
+	 * Gets the length of the complete saved game, in bytes.
+	 * @return The length of the saved game.
+	 */
+	public long getSaveLength()
+	{
+		return this.saveLength;
+	}
+	
+	/**
+	 * Specifies whether the cell holds an Organism.
+	 * @param row The cell's row.
+	 * @param column The cell's column.
+	 * @return Whether the cell holds an Organism.
+	 */
+	public boolean isOccupied(int row, int column)
+	{
+		return getColonyIndex(row, column) != -1;
+	}
+	
+	/**
+	 * Gets the index of the colony that the cell's Organism belongs to.
+	 * @param row The cell's row.
+	 * @param column The cell's column.
+	 * @return The colony index, or -1 if the cell is empty.
+	 */
+	public int getColonyIndex(int row, int column)
+	{
+		return (segment(row, column).getShort(offset(row, column) + COLONY) & 0xFFFF) - 1;
+	}
+	
+	/**
+	 * Gets the happiness of the cell's Organism.
+	 * @param row The cell's row.
+	 * @param column The cell's column.
+	 * @return The Organism's happiness, or null if the cell is empty.
+	 */
+	public Happiness getHappiness(int row, int column)
+	{
+		final int value = segment(row, column).get(offset(row, column) + HAPPINESS);
+		return (value == 0) ? null : Happiness.values()[value - 1];
+	}
+	
+	/**
+	 * Gets the age of the cell's Organism, in ticks.
+	 * @param row The cell's row.
+	 * @param column The cell's column.
+	 * @return The Organism's age, or 0 if the cell is empty.
+	 */
+	public int getAgeTicks(int row, int column)
+	{
+		return segment(row, column).getInt(offset(row, column) + AGE_TICKS);
+	}
+	
+	/**
+	 * Gets the health of the cell's Organism.
+	 * @param row The cell's row.
+	 * @param column The cell's column.
+	 * @return The Organism's health, or 0 if the cell is empty.
+	 */
+	public float getHealth(int row, int column)
+	{
+		return segment(row, column).getFloat(offset(row, column) + HEALTH);
+	}
+	
+	/**
+	 * Gets the hunger of the cell's Organism.
+	 * @param row The cell's row.
+	 * @param column The cell's column.
+	 * @return The Organism's hunger, or 0 if the cell is empty.
+	 */
+	public float getHunger(int row, int column)
+	{
+		return segment(row, column).getFloat(offset(row, column) + HUNGER);
+	}
+	
+	private ByteBuffer segment(int row, int column)
+	{
+		checkPosition(row, column);
+		return this.segments[(int)(((long)row * this.columns + column) / CELLS_PER_SEGMENT)];
+	}
+	
+	private int offset(int row, int column)
+	{
+		return (int)(((long)row * this.columns + column) % CELLS_PER_SEGMENT) * RECORD_SIZE;
+	}
+	
+	private void checkPosition(int row, int column)
+	{
+		if (row < 0 || row >= this.rows || column < 0 || column >= this.columns)
+			throw new IndexOutOfBoundsException("Position is outside of the world grid: " + row + ", " + column);
+	}
+	
+	private ByteBuffer createHeader()
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_CHECKED_SIZE + 4);
+		header.putInt(0, MAGIC);
+		header.putInt(4, FORMAT_VERSION);
+		header.putInt(8, RECORD_SIZE);
+		header.putInt(12, this.rows);
+		header.putInt(16, this.columns);
+		header.putLong(24, this.gameTicks);
+		header.putLong(32, this.saveOffset);
+		header.putLong(40, this.saveLength);
+		
+		CRC32 checksum = new CRC32();
+		checksum.update(header.array(), 0, HEADER_CHECKED_SIZE);
+		header.putInt(HEADER_CHECKED_SIZE, (int)checksum.getValue());
+		return header;
+	}
+}
@@ -0,0 +1,35 @@
+package com.divergentthoughtsgames.colonies.platform;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+/**
+ * Plays sounds and music for a GameManager. Implemented by each platform that
+ * supports audio; the simulation runs silently when no AudioSink is set.
+ * @author Christopher D. Canfield
+ */
+public interface AudioSink
+{
+	/**
+	 * Stops all audio and releases any resources held by the AudioSink.
+	 */
+	public void release();
+}
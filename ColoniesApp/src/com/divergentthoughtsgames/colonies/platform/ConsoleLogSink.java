@@ -0,0 +1,62 @@
+package com.divergentthoughtsgames.colonies.platform;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+/**
+ * Writes log messages to standard out and standard error. Used when the simulation
+ * runs on a plain JVM.
+ * @author Christopher D. Canfield
+ */
+public class ConsoleLogSink implements LogSink
+{
+	private final boolean debugEnabled;
+	
+	/**
+	 * @param debugEnabled Whether debug messages should be written.
+	 */
+	public ConsoleLogSink(boolean debugEnabled)
+	{
+		this.debugEnabled = debugEnabled;
+	}
+	
+	@Override
+	public boolean isDebugEnabled()
+	{
+		return this.debugEnabled;
+	}
+
+	@Override
+	public void debug(String tag, String message)
+	{
+		System.out.println(tag + ": " + message);
+	}
+
+	@Override
+	public void error(String tag, String message, Throwable t)
+	{
+		System.err.println(tag + ": " + message);
+		if (t != null)
+		{
+			t.printStackTrace();
+		}
+	}
+}
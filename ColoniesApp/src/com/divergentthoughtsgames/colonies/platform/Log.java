@@ -0,0 +1,82 @@
+package com.divergentthoughtsgames.colonies.platform;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+/**
+ * Logging used by the simulation core. Messages are forwarded to the installed
+ * LogSink, which is a ConsoleLogSink with debug messages disabled until
+ * setSink is called.
+ * @author Christopher D. Canfield
+ */
+public final class Log
+{
+	private static volatile LogSink sink = new ConsoleLogSink(false);
+	
+	private Log() {}
+	
+	/**
+	 * Sets the LogSink that receives all log messages.
+	 * @param logSink The LogSink.
+	 * @throws IllegalArgumentException if logSink is null.
+	 */
+	public static void setSink(LogSink logSink)
+	{
+		if (logSink == null)
+			throw new IllegalArgumentException("Argument 'logSink' cannot be null.");
+		
+		sink = logSink;
+	}
+	
+	/**
+	 * Specifies whether debug messages are written by the current LogSink.
+	 * @return True if debug messages are written.
+	 */
+	public static boolean isDebugEnabled()
+	{
+		return sink.isDebugEnabled();
+	}
+	
+	/**
+	 * Writes a debug message, if debug messages are enabled.
+	 * @param tag The source of the message.
+	 * @param message The message.
+	 */
+	public static void d(String tag, String message)
+	{
+		final LogSink logSink = sink;
+		if (logSink.isDebugEnabled())
+		{
+			logSink.debug(tag, message);
+		}
+	}
+	
+	/**
+	 * Writes an error message.
+	 * @param tag The source of the message.
+	 * @param message The message.
+	 * @param t The exception that caused the error, or null.
+	 */
+	public static void e(String tag, String message, Throwable t)
+	{
+		sink.error(tag, message, t);
+	}
+}
@@ -0,0 +1,52 @@
+package com.divergentthoughtsgames.colonies.platform;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+
+/**
+ * Destination for log messages written through Log. Implemented by each platform
+ * that hosts the simulation (Android, command line).
+ * @author Christopher D. Canfield
+ */
+public interface LogSink
+{
+	/**
+	 * Specifies whether debug messages should be written. Callers that build 
+	 * debug messages on hot paths should check this first.
+	 * @return True if debug messages are written.
+	 */
+	public boolean isDebugEnabled();
+	
+	/**
+	 * Writes a debug message.
+	 * @param tag The source of the message.
+	 * @param message The message.
+	 */
+	public void debug(String tag, String message);
+	
+	/**
+	 * Writes an error message.
+	 * @param tag The source of the message.
+	 * @param message The message.
+	 * @param t The exception that caused the error, or null.
+	 */
+	public void error(String tag, String message, Throwable t);
+}
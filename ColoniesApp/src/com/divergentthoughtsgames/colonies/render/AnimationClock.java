@@ -0,0 +1,319 @@
+package com.divergentthoughtsgames.colonies.render;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * Plays the animations of every cell in the grid from a single clock, in place of a timer per
+ * cell. An animation is a list of sprites, each shown for a number of milliseconds; the total
+ * duration of each animation is computed once, when it is added. The animation each cell is 
+ * playing, the time that it started, and an animation that replaces it at a later time are 
+ * held in primitive arrays. Cells are given different start times, so that their animations 
+ * are not in step. The renderer calls advance() for each visible cell once per frame, and 
+ * redraws the cells whose sprite changed. Not thread safe.
+ * @author Christopher D Canfield
+ */
+public final class AnimationClock
+{
+	/** The sprite value for a cell that has no animation. **/
+	public static final int NO_SPRITE = -1;
+	/** The animation value for a cell that has no animation. **/
+	public static final int NO_ANIMATION = -1;
+	
+	// The frames of all animations: the sprite, and the time that the frame ends, measured 
+	// from the start of its animation.
+	private int[] frameSprites = new int[16];
+	private int[] frameEndTimes = new int[16];
+	private int frameCount;
+	
+	// The first frame, frame count, total duration and looping flag of each animation.
+	private int[] firstFrames = new int[4];
+	private int[] frameCounts = new int[4];
+	private int[] durations = new int[4];
+	private boolean[] isLooping = new boolean[4];
+	private int animationCount;
+	
+	// The animation each cell is playing and the time it started, the animation that will 
+	// replace it and the time that it will, and the sprite shown after the last advance.
+	private int[] animations = new int[0];
+	private long[] startTimes = new long[0];
+	private int[] pendingAnimations = new int[0];
+	private long[] pendingTimes = new long[0];
+	private int[] sprites = new int[0];
+	
+	/**
+	 * Adds an animation.
+	 * @param sprites The sprite shown in each frame.
+	 * @param frameDurations The number of milliseconds that each frame is shown.
+	 * @param isLooping True if the animation repeats; otherwise, its last frame is shown once 
+	 * it has finished.
+	 * @return The animation's number.
+	 * @throws IllegalArgumentException if the arrays are null, empty, or of different lengths, 
+	 * or if the animation's duration is not positive.
+	 */
+	public int addAnimation(int[] sprites, int[] frameDurations, boolean isLooping)
+	{
+		if (sprites == null || sprites.length == 0)
+			throw new IllegalArgumentException("Argument 'sprites' cannot be null or empty.");
+		if (frameDurations == null || frameDurations.length != sprites.length)
+			throw new IllegalArgumentException("Argument 'frameDurations' must have one duration per sprite.");
+		
+		int duration = 0;
+		for (int frameDuration : frameDurations)
+		{
+			if (frameDuration < 0)
+				throw new IllegalArgumentException("Frame durations cannot be negative. Found: " + frameDuration);
+			duration += frameDuration;
+		}
+		if (duration <= 0)
+			throw new IllegalArgumentException("The animation's duration must be positive.");
+		
+		ensureFrameCapacity(this.frameCount + sprites.length);
+		final int firstFrame = this.frameCount;
+		int endTime = 0;
+		for (int i = 0; i < sprites.length; ++i)
+		{
+			endTime += frameDurations[i];
+			this.frameSprites[firstFrame + i] = sprites[i];
+			this.frameEndTimes[firstFrame + i] = endTime;
+		}
+		this.frameCount += sprites.length;
+		
+		ensureAnimationCapacity(this.animationCount + 1);
+		final int animation = this.animationCount++;
+		this.firstFrames[animation] = firstFrame;
+		this.frameCounts[animation] = sprites.length;
+		this.durations[animation] = duration;
+		this.isLooping[animation] = isLooping;
+		return animation;
+	}
+	
+	/**
+	 * Gets the total duration of an animation.
+	 * @param animation The animation's number.
+	 * @return The duration, in milliseconds.
+	 */
+	public int getDuration(int animation)
+	{
+		checkAnimation(animation);
+		return this.durations[animation];
+	}
+	
+	/**
+	 * Sets the number of cells, and clears every cell's animation.
+	 * @param cellCount The number of cells.
+	 */
+	public void setCellCount(int cellCount)
+	{
+		if (cellCount < 0)
+			throw new IllegalArgumentException("Argument 'cellCount' cannot be negative. Found: " + cellCount);
+		
+		if (cellCount != this.animations.length)
+		{
+			this.animations = new int[cellCount];
+			this.startTimes = new long[cellCount];
+			this.pendingAnimations = new int[cellCount];
+			this.pendingTimes = new long[cellCount];
+			this.sprites = new int[cellCount];
+		}
+		for (int cell = 0; cell < cellCount; ++cell)
+		{
+			this.animations[cell] = NO_ANIMATION;
+			this.pendingAnimations[cell] = NO_ANIMATION;
+			this.sprites[cell] = NO_SPRITE;
+		}
+	}
+	
+	public int getCellCount()
+	{
+		return this.animations.length;
+	}
+	
+	/**
+	 * Starts playing an animation in a cell, replacing any animation that it was playing or 
+	 * was going to play. The animation's first frame is shown until the start time.
+	 * @param cell The cell number.
+	 * @param animation The animation's number.
+	 * @param startTime The time that the animation starts, in milliseconds.
+	 */
+	public void start(int cell, int animation, long startTime)
+	{
+		checkAnimation(animation);
+		this.animations[cell] = animation;
+		this.startTimes[cell] = startTime;
+		this.pendingAnimations[cell] = NO_ANIMATION;
+	}
+	
+	/**
+	 * Replaces a cell's animation at a later time. The cell plays its current animation until 
+	 * then. Replaces any animation that the cell was already going to play.
+	 * @param cell The cell number.
+	 * @param animation The animation's number.
+	 * @param time The time that the animation replaces the current one, in milliseconds.
+	 */
+	public void replace(int cell, int animation, long time)
+	{
+		checkAnimation(animation);
+		this.pendingAnimations[cell] = animation;
+		this.pendingTimes[cell] = time;
+	}
+	
+	/**
+	 * Stops a cell's animation; the cell shows no sprite.
+	 * @param cell The cell number.
+	 */
+	public void stop(int cell)
+	{
+		this.animations[cell] = NO_ANIMATION;
+		this.pendingAnimations[cell] = NO_ANIMATION;
+	}
+	
+	/**
+	 * Specifies whether a cell is playing, or is going to play, an animation.
+	 * @param cell The cell number.
+	 * @return True if the cell has an animation.
+	 */
+	public boolean isAnimated(int cell)
+	{
+		return this.animations[cell] != NO_ANIMATION || this.pendingAnimations[cell] != NO_ANIMATION;
+	}
+	
+	/**
+	 * Advances a cell's animation to the specified time, replacing it with the pending 
+	 * animation once that is due.
+	 * @param cell The cell number.
+	 * @param time The current time, in milliseconds.
+	 * @return True if the cell's sprite changed since the last call.
+	 */
+	public boolean advance(int cell, long time)
+	{
+		if (this.pendingAnimations[cell] != NO_ANIMATION && time >= this.pendingTimes[cell])
+		{
+			this.animations[cell] = this.pendingAnimations[cell];
+			this.startTimes[cell] = this.pendingTimes[cell];
+			this.pendingAnimations[cell] = NO_ANIMATION;
+		}
+		
+		final int animation = this.animations[cell];
+		final int sprite = (animation == NO_ANIMATION) ? NO_SPRITE : 
+				getSprite(animation, time - this.startTimes[cell]);
+		if (sprite != this.sprites[cell])
+		{
+			this.sprites[cell] = sprite;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Gets the sprite that a cell showed after the last call to advance.
+	 * @param cell The cell number.
+	 * @return The sprite, or NO_SPRITE.
+	 */
+	public int getSprite(int cell)
+	{
+		return this.sprites[cell];
+	}
+	
+	/**
+	 * Gets the sprite shown by an animation at a time after its start.
+	 */
+	private int getSprite(int animation, long elapsedTime)
+	{
+		final int firstFrame = this.firstFrames[animation];
+		final int lastFrame = firstFrame + this.frameCounts[animation] - 1;
+		if (elapsedTime < 0)
+		{
+			return this.frameSprites[firstFrame];
+		}
+		
+		final int duration = this.durations[animation];
+		final long time;
+		if (this.isLooping[animation])
+		{
+			time = elapsedTime % duration;
+		}
+		else if (elapsedTime >= duration)
+		{
+			return this.frameSprites[lastFrame];
+		}
+		else
+		{
+			time = elapsedTime;
+		}
+		
+		// Find the first frame that ends after the time.
+		int low = firstFrame;
+		int high = lastFrame;
+		while (low < high)
+		{
+			final int middle = (low + high) >>> 1;
+			if (this.frameEndTimes[middle] <= time)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return this.frameSprites[low];
+	}
+	
+	private void checkAnimation(int animation)
+	{
+		if (animation < 0 || animation >= this.animationCount)
+			throw new IllegalArgumentException("Unknown animation: " + animation);
+	}
+	
+	private void ensureFrameCapacity(int capacity)
+	{
+		if (capacity > this.frameSprites.length)
+		{
+			final int newCapacity = Math.max(capacity, this.frameSprites.length * 2);
+			int[] newSprites = new int[newCapacity];
+			int[] newEndTimes = new int[newCapacity];
+			System.arraycopy(this.frameSprites, 0, newSprites, 0, this.frameCount);
+			System.arraycopy(this.frameEndTimes, 0, newEndTimes, 0, this.frameCount);
+			this.frameSprites = newSprites;
+			this.frameEndTimes = newEndTimes;
+		}
+	}
+	
+	private void ensureAnimationCapacity(int capacity)
+	{
+		if (capacity > this.firstFrames.length)
+		{
+			final int newCapacity = Math.max(capacity, this.firstFrames.length * 2);
+			int[] newFirstFrames = new int[newCapacity];
+			int[] newFrameCounts = new int[newCapacity];
+			int[] newDurations = new int[newCapacity];
+			boolean[] newIsLooping = new boolean[newCapacity];
+			System.arraycopy(this.firstFrames, 0, newFirstFrames, 0, this.animationCount);
+			System.arraycopy(this.frameCounts, 0, newFrameCounts, 0, this.animationCount);
+			System.arraycopy(this.durations, 0, newDurations, 0, this.animationCount);
+			System.arraycopy(this.isLooping, 0, newIsLooping, 0, this.animationCount);
+			this.firstFrames = newFirstFrames;
+			this.frameCounts = newFrameCounts;
+			this.durations = newDurations;
+			this.isLooping = newIsLooping;
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package com.divergentthoughtsgames.colonies.render;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * The part of the world grid that is shown on the screen: the size of a cell in pixels, and
+ * the scroll position. The cell size is chosen so that the whole grid fits the view, but is
+ * never smaller than the minimum cell size; larger grids are scrolled. The renderer draws only
+ * the cells between the first and end rows and columns. Not thread safe.
+ * @author Christopher D Canfield
+ */
+public final class GridViewport
+{
+	private final int rows;
+	private final int columns;
+	private final int minCellSize;
+	
+	private int width;
+	private int height;
+	private int cellSize;
+	
+	// The offset of the grid from the view's top left corner, in pixels. A grid that is
+	// smaller than the view is centered; a larger grid has a negative offset when scrolled.
+	private int left;
+	private int top;
+	
+	/**
+	 * Creates a viewport for a grid. The viewport has no area until setViewSize is called.
+	 * @param rows The number of rows in the world grid.
+	 * @param columns The number of columns in the world grid.
+	 * @param minCellSize The minimum size of a cell, in pixels.
+	 * @throws IllegalArgumentException if rows, columns or minCellSize is less than one.
+	 */
+	public GridViewport(int rows, int columns, int minCellSize)
+	{
+		if (rows < 1)
+			throw new IllegalArgumentException("Argument 'rows' must be at least one. Found: " + rows);
+		if (columns < 1)
+			throw new IllegalArgumentException("Argument 'columns' must be at least one. Found: " + columns);
+		if (minCellSize < 1)
+			throw new IllegalArgumentException("Argument 'minCellSize' must be at least one. Found: " + minCellSize);
+		
+		this.rows = rows;
+		this.columns = columns;
+		this.minCellSize = minCellSize;
+		this.cellSize = minCellSize;
+	}
+	
+	/**
+	 * Creates a copy of a viewport.
+	 * @param other The viewport to copy.
+	 * @throws IllegalArgumentException if other is null.
+	 */
+	public GridViewport(GridViewport other)
+	{
+		if (other == null)
+			throw new IllegalArgumentException("Argument 'other' cannot be null.");
+		
+		this.rows = other.rows;
+		this.columns = other.columns;
+		this.minCellSize = other.minCellSize;
+		this.width = other.width;
+		this.height = other.height;
+		this.cellSize = other.cellSize;
+		this.left = other.left;
+		this.top = other.top;
+	}
+	
+	public int getRows()
+	{
+		return this.rows;
+	}
+	
+	public int getColumns()
+	{
+		return this.columns;
+	}
+	
+	public int getWidth()
+	{
+		return this.width;
+	}
+	
+	public int getHeight()
+	{
+		return this.height;
+	}
+	
+	/**
+	 * Sets the size of the view, and chooses the cell size. The grid is scrolled back to its
+	 * top left corner.
+	 * @param width The width of the view, in pixels.
+	 * @param height The height of the view, in pixels.
+	 */
+	public void setViewSize(int width, int height)
+	{
+		this.width = Math.max(0, width);
+		this.height = Math.max(0, height);
+		this.cellSize = Math.max(this.minCellSize, Math.min(this.width / this.columns, this.height / this.rows));
+		this.left = (this.width > getGridWidth()) ? (this.width - getGridWidth()) / 2 : 0;
+		this.top = (this.height > getGridHeight()) ? (this.height - getGridHeight()) / 2 : 0;
+	}
+	
+	public int getCellSize()
+	{
+		return this.cellSize;
+	}
+	
+	/**
+	 * Scrolls the grid, if it is larger than the view. The grid is not scrolled past its edges.
+	 * @param dx The distance to scroll right, in pixels.
+	 * @param dy The distance to scroll down, in pixels.
+	 * @return True if the grid moved.
+	 */
+	public boolean scrollBy(int dx, int dy)
+	{
+		final int left = scroll(this.left, dx, this.width, getGridWidth());
+		final int top = scroll(this.top, dy, this.height, getGridHeight());
+		if (left == this.left && top == this.top)
+		{
+			return false;
+		}
+		this.left = left;
+		this.top = top;
+		return true;
+	}
+	
+	private static int scroll(int offset, int distance, int viewSize, int gridSize)
+	{
+		if (gridSize <= viewSize)
+		{
+			return offset;
+		}
+		return Math.max(viewSize - gridSize, Math.min(0, offset - distance));
+	}
+	
+	/**
+	 * Gets the first row that is at least partly on the screen.
+	 * @return The first visible row.
+	 */
+	public int getFirstRow()
+	{
+		return clamp(toRow(0), this.rows);
+	}
+	
+	/**
+	 * Gets the row after the last row that is at least partly on the screen.
+	 * @return One past the last visible row.
+	 */
+	public int getEndRow()
+	{
+		return clamp(toRow(this.height - 1) + 1, this.rows);
+	}
+	
+	/**
+	 * Gets the first column that is at least partly on the screen.
+	 * @return The first visible column.
+	 */
+	public int getFirstColumn()
+	{
+		return clamp(toColumn(0), this.columns);
+	}
+	
+	/**
+	 * Gets the column after the last column that is at least partly on the screen.
+	 * @return One past the last visible column.
+	 */
+	public int getEndColumn()
+	{
+		return clamp(toColumn(this.width - 1) + 1, this.columns);
+	}
+	
+	/**
+	 * Converts a vertical position in the view to a row, which may be outside the grid.
+	 * @param y The vertical position, in pixels.
+	 * @return The row.
+	 */
+	public int toRow(int y)
+	{
+		return floorDivide(y - this.top, this.cellSize);
+	}
+	
+	/**
+	 * Converts a horizontal position in the view to a column, which may be outside the grid.
+	 * @param x The horizontal position, in pixels.
+	 * @return The column.
+	 */
+	public int toColumn(int x)
+	{
+		return floorDivide(x - this.left, this.cellSize);
+	}
+	
+	/**
+	 * Gets the row at a vertical position in the view.
+	 * @param y The vertical position, in pixels.
+	 * @return The row, or -1 if the position is not on the grid.
+	 */
+	public int getRowAt(int y)
+	{
+		final int row = toRow(y);
+		return (row >= 0 && row < this.rows && y >= 0 && y < this.height) ? row : -1;
+	}
+	
+	/**
+	 * Gets the column at a horizontal position in the view.
+	 * @param x The horizontal position, in pixels.
+	 * @return The column, or -1 if the position is not on the grid.
+	 */
+	public int getColumnAt(int x)
+	{
+		final int column = toColumn(x);
+		return (column >= 0 && column < this.columns && x >= 0 && x < this.width) ? column : -1;
+	}
+	
+	/**
+	 * Gets the position of a row's top edge in the view.
+	 * @param row The row.
+	 * @return The position, in pixels.
+	 */
+	public int getCellTop(int row)
+	{
+		return this.top + row * this.cellSize;
+	}
+	
+	/**
+	 * Gets the position of a column's left edge in the view.
+	 * @param column The column.
+	 * @return The position, in pixels.
+	 */
+	public int getCellLeft(int column)
+	{
+		return this.left + column * this.cellSize;
+	}
+	
+	private int getGridWidth()
+	{
+		return this.columns * this.cellSize;
+	}
+	
+	private int getGridHeight()
+	{
+		return this.rows * this.cellSize;
+	}
+	
+	private static int clamp(int value, int end)
+	{
+		return Math.max(0, Math.min(end, value));
+	}
+	
+	private static int floorDivide(int value, int divisor)
+	{
+		final int quotient = value / divisor;
+		return (value < 0 && quotient * divisor != value) ? quotient - 1 : quotient;
+	}
+}
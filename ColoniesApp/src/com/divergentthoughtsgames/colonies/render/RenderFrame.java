@@ -0,0 +1,267 @@
+package com.divergentthoughtsgames.colonies.render;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * A compact picture of the world grid for the renderer: the colony color and animation state 
+ * of each cell, held in primitive arrays in row-major order, plus the set of cells that have 
+ * changed since the set was last cleared. Not thread safe; the RenderPipeline passes frames
+ * between threads.
+ * @author Christopher D Canfield
+ */
+public final class RenderFrame
+{
+	/** The cell has no Organism. **/
+	public static final byte EMPTY = 0;
+	/** The cell's Organism was just born. **/
+	public static final byte GROWING = 1;
+	/** The cell's Organism is content. **/
+	public static final byte CONTENT = 2;
+	/** The cell's Organism is happy. **/
+	public static final byte HAPPY = 3;
+	/** The cell's Organism is unhappy. **/
+	public static final byte UNHAPPY = 4;
+	/** The cell's Organism is dead. **/
+	public static final byte DEAD = 5;
+	/** The cell's Organism was popped by the player. **/
+	public static final byte POPPED = 6;
+	
+	private final int rows;
+	private final int columns;
+	
+	// The colony color and animation state of each cell, in row-major order.
+	private final int[] colors;
+	private final byte[] states;
+	
+	// The cells that have changed, in the order that they first changed, and a flag per cell
+	// so that each is listed once.
+	private final int[] dirtyCells;
+	private final boolean[] dirty;
+	private int dirtyCount;
+	
+	// The game tick that the frame was last published at.
+	private long gameTick;
+	
+	/**
+	 * Creates an empty frame.
+	 * @param rows The number of rows in the world grid.
+	 * @param columns The number of columns in the world grid.
+	 * @throws IllegalArgumentException if rows or columns is less than one.
+	 */
+	public RenderFrame(int rows, int columns)
+	{
+		if (rows < 1)
+			throw new IllegalArgumentException("Argument 'rows' must be at least one. Found: " + rows);
+		if (columns < 1)
+			throw new IllegalArgumentException("Argument 'columns' must be at least one. Found: " + columns);
+		
+		this.rows = rows;
+		this.columns = columns;
+		final int cellCount = rows * columns;
+		this.colors = new int[cellCount];
+		this.states = new byte[cellCount];
+		this.dirtyCells = new int[cellCount];
+		this.dirty = new boolean[cellCount];
+	}
+	
+	public int getRows()
+	{
+		return this.rows;
+	}
+	
+	public int getColumns()
+	{
+		return this.columns;
+	}
+	
+	/**
+	 * Converts a row and column to the frame's cell number.
+	 * @param row The row.
+	 * @param column The column.
+	 * @return The cell number.
+	 * @throws IndexOutOfBoundsException if the row or column is outside the frame.
+	 */
+	public int toCell(int row, int column)
+	{
+		if (row < 0 || row >= this.rows || column < 0 || column >= this.columns)
+			throw new IndexOutOfBoundsException("Position " + row + "," + column + " is outside the frame. Size: " + 
+					this.rows + "x" + this.columns);
+		return row * this.columns + column;
+	}
+	
+	public int getRow(int cell)
+	{
+		return cell / this.columns;
+	}
+	
+	public int getColumn(int cell)
+	{
+		return cell % this.columns;
+	}
+	
+	/**
+	 * Gets the color of the colony whose Organism occupies the cell.
+	 * @param cell The cell number.
+	 * @return The colony color, or 0 if the cell has never been occupied.
+	 */
+	public int getColor(int cell)
+	{
+		return this.colors[cell];
+	}
+	
+	/**
+	 * Gets the animation state of the cell.
+	 * @param cell The cell number.
+	 * @return One of the state constants.
+	 */
+	public byte getState(int cell)
+	{
+		return this.states[cell];
+	}
+	
+	/**
+	 * Sets the colony color and animation state of a cell, and marks it as changed if either differs.
+	 * @param cell The cell number.
+	 * @param color The colony color.
+	 * @param state One of the state constants.
+	 */
+	public void setCell(int cell, int color, byte state)
+	{
+		if (this.colors[cell] != color || this.states[cell] != state)
+		{
+			this.colors[cell] = color;
+			this.states[cell] = state;
+			markDirty(cell);
+		}
+	}
+	
+	/**
+	 * Sets the animation state of a cell, keeping its color, and marks it as changed if the state differs.
+	 * @param cell The cell number.
+	 * @param state One of the state constants.
+	 */
+	public void setState(int cell, byte state)
+	{
+		setCell(cell, this.colors[cell], state);
+	}
+	
+	/**
+	 * Specifies whether the cell has changed since the changed cells were last cleared.
+	 * @param cell The cell number.
+	 * @return True if the cell has changed.
+	 */
+	public boolean isDirty(int cell)
+	{
+		return this.dirty[cell];
+	}
+	
+	/**
+	 * Gets the number of cells that have changed since clearDirty was last called.
+	 * @return The number of changed cells.
+	 */
+	public int getDirtyCount()
+	{
+		return this.dirtyCount;
+	}
+	
+	/**
+	 * Gets a cell that has changed since clearDirty was last called.
+	 * @param i The position of the cell among the changed cells, from 0 to getDirtyCount() - 1.
+	 * @return The cell number.
+	 */
+	public int getDirtyCell(int i)
+	{
+		if (i < 0 || i >= this.dirtyCount)
+			throw new IndexOutOfBoundsException("Index: " + i + ", dirty count: " + this.dirtyCount);
+		return this.dirtyCells[i];
+	}
+	
+	/**
+	 * Clears the set of changed cells.
+	 */
+	public void clearDirty()
+	{
+		for (int i = 0; i < this.dirtyCount; ++i)
+		{
+			this.dirty[this.dirtyCells[i]] = false;
+		}
+		this.dirtyCount = 0;
+	}
+	
+	/**
+	 * Gets the game tick that the frame's changes were published at.
+	 * @return The game tick count.
+	 */
+	public long getGameTick()
+	{
+		return this.gameTick;
+	}
+	
+	void setGameTick(long gameTick)
+	{
+		this.gameTick = gameTick;
+	}
+	
+	/**
+	 * Copies the changed cells to the target, which must be the same size, marks them as 
+	 * changed in the target, and clears this frame's set of changed cells. 
+	 */
+	void moveChangesTo(RenderFrame target)
+	{
+		for (int i = 0; i < this.dirtyCount; ++i)
+		{
+			final int cell = this.dirtyCells[i];
+			target.colors[cell] = this.colors[cell];
+			target.states[cell] = this.states[cell];
+			target.markDirty(cell);
+			this.dirty[cell] = false;
+		}
+		this.dirtyCount = 0;
+		target.gameTick = this.gameTick;
+	}
+	
+	/**
+	 * Copies every cell to the target, which must be the same size, and marks the cells that
+	 * are not empty as changed in the target.
+	 */
+	void copyTo(RenderFrame target)
+	{
+		System.arraycopy(this.colors, 0, target.colors, 0, this.colors.length);
+		System.arraycopy(this.states, 0, target.states, 0, this.states.length);
+		for (int cell = 0; cell < this.states.length; ++cell)
+		{
+			if (this.states[cell] != EMPTY)
+			{
+				target.markDirty(cell);
+			}
+		}
+		target.gameTick = this.gameTick;
+	}
+	
+	private void markDirty(int cell)
+	{
+		if (!this.dirty[cell])
+		{
+			this.dirty[cell] = true;
+			this.dirtyCells[this.dirtyCount++] = cell;
+		}
+	}
+}
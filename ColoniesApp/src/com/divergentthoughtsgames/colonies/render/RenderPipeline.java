@@ -0,0 +1,240 @@
+package com.divergentthoughtsgames.colonies.render;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import com.divergentthoughtsgames.colonies.GameManager;
+import com.divergentthoughtsgames.colonies.event.AllOrganismsRequestedResponse;
+import com.divergentthoughtsgames.colonies.event.EventListener;
+import com.divergentthoughtsgames.colonies.event.EventManager;
+import com.divergentthoughtsgames.colonies.event.GameEvent;
+import com.divergentthoughtsgames.colonies.event.HappinessChanges;
+import com.divergentthoughtsgames.colonies.event.OrganismBornData;
+import com.divergentthoughtsgames.colonies.event.OrganismBornEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismDecayedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismDiedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismHappinessChangedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismPoppedEvent;
+import com.divergentthoughtsgames.colonies.event.OrganismRecords;
+import com.divergentthoughtsgames.colonies.logic.GridPosition;
+import com.divergentthoughtsgames.colonies.logic.WorldGrid;
+import com.divergentthoughtsgames.colonies.logic.attributes.Happiness;
+
+/**
+ * Turns the world change events into frames for the renderer. The events are applied to a 
+ * back frame on the game thread as they are dispatched; once per game tick, publish() moves 
+ * the cells that changed into the front frame. The renderer calls pull() at most once per 
+ * screen refresh to take the cells that changed since its last pull, however many events the
+ * simulation sent for them. The pull is not limited to the part of the grid on the screen: it
+ * copies every changed cell in the world grid, so its cost grows with the number of cells that
+ * changed, up to the size of the whole world grid rather than the size of the screen.
+ * @author Christopher D Canfield
+ */
+public final class RenderPipeline implements EventListener
+{
+	private final EventManager eventManager;
+	private final WorldGrid worldGrid;
+	
+	// Written only by the game thread.
+	private final RenderFrame back;
+	// Shared with the renderer; guarded by its own lock.
+	private final RenderFrame front;
+	
+	/**
+	 * Creates a pipeline for the game's world grid, and subscribes it to the world change events.
+	 * @param gameManager The GameManager.
+	 * @throws IllegalArgumentException if gameManager is null.
+	 */
+	public RenderPipeline(GameManager gameManager)
+	{
+		if (gameManager == null)
+			throw new IllegalArgumentException("Argument 'gameManager' cannot be null.");
+		
+		this.eventManager = gameManager.getEventManager();
+		this.worldGrid = gameManager.getGameLogicManager().getWorldGrid();
+		this.back = new RenderFrame(this.worldGrid.getRows(), this.worldGrid.getColumns());
+		this.front = new RenderFrame(this.worldGrid.getRows(), this.worldGrid.getColumns());
+		
+		this.eventManager.subscribe(OrganismBornEvent.ID, this);
+		this.eventManager.subscribe(OrganismDiedEvent.ID, this);
+		this.eventManager.subscribe(OrganismDecayedEvent.ID, this);
+		this.eventManager.subscribe(OrganismPoppedEvent.ID, this);
+		this.eventManager.subscribe(OrganismHappinessChangedEvent.ID, this);
+		this.eventManager.subscribe(AllOrganismsRequestedResponse.ID, this);
+	}
+	
+	public int getRows()
+	{
+		return this.back.getRows();
+	}
+	
+	public int getColumns()
+	{
+		return this.back.getColumns();
+	}
+	
+	/**
+	 * Unsubscribes the pipeline from the world change events.
+	 */
+	public void release()
+	{
+		this.eventManager.unsubscribe(OrganismBornEvent.ID, this);
+		this.eventManager.unsubscribe(OrganismDiedEvent.ID, this);
+		this.eventManager.unsubscribe(OrganismDecayedEvent.ID, this);
+		this.eventManager.unsubscribe(OrganismPoppedEvent.ID, this);
+		this.eventManager.unsubscribe(OrganismHappinessChangedEvent.ID, this);
+		this.eventManager.unsubscribe(AllOrganismsRequestedResponse.ID, this);
+	}
+	
+	/**
+	 * Creates a frame that holds the current published picture, with every occupied cell 
+	 * marked as changed, for a renderer that is starting to pull from the pipeline.
+	 * @return The frame.
+	 */
+	public RenderFrame newFrame()
+	{
+		RenderFrame frame = new RenderFrame(this.front.getRows(), this.front.getColumns());
+		synchronized (this.front)
+		{
+			this.front.copyTo(frame);
+		}
+		return frame;
+	}
+	
+	/**
+	 * Publishes the changes applied since the last call, making them available to pull().
+	 * Called by the game thread once per game tick.
+	 * @param gameTick The current game tick count.
+	 */
+	public void publish(long gameTick)
+	{
+		this.back.setGameTick(gameTick);
+		synchronized (this.front)
+		{
+			this.back.moveChangesTo(this.front);
+		}
+	}
+	
+	/**
+	 * Copies the cells that have changed since the last pull into the target frame, and 
+	 * marks them as changed in the target. Called by the renderer, which draws the target's 
+	 * changed cells and then clears them.
+	 * @param target The renderer's frame, created by newFrame().
+	 * @return True if any cells changed.
+	 */
+	public boolean pull(RenderFrame target)
+	{
+		synchronized (this.front)
+		{
+			if (this.front.getDirtyCount() == 0)
+			{
+				return false;
+			}
+			this.front.moveChangesTo(target);
+			return true;
+		}
+	}
+	
+	@Override
+	public void notify(GameEvent<?> event)
+	{
+		if (event instanceof OrganismBornEvent)
+		{
+			OrganismBornData data = ((OrganismBornEvent)event).getData();
+			this.back.setCell(toCell(data.getLocation()), data.getAttributes().getColor(), RenderFrame.GROWING);
+		}
+		else if (event instanceof OrganismDiedEvent)
+		{
+			this.back.setState(toCell(((OrganismDiedEvent)event).getData()), RenderFrame.DEAD);
+		}
+		else if (event instanceof OrganismDecayedEvent)
+		{
+			this.back.setState(toCell(((OrganismDecayedEvent)event).getData()), RenderFrame.EMPTY);
+		}
+		else if (event instanceof OrganismPoppedEvent)
+		{
+			// Taps on empty cells are sent as pops too; only an Organism can be popped.
+			final GridPosition position = ((OrganismPoppedEvent)event).getData();
+			if (this.worldGrid.contains(position) && this.back.getState(toCell(position)) != RenderFrame.EMPTY)
+			{
+				this.back.setState(toCell(position), RenderFrame.POPPED);
+			}
+		}
+		else if (event instanceof OrganismHappinessChangedEvent)
+		{
+			// An Organism reports its happiness on the tick that it dies, and the batched report
+			// is sent after the deaths and pops queued that tick, so only living cells are updated.
+			HappinessChanges changes = ((OrganismHappinessChangedEvent)event).getData();
+			for (int i = 0; i < changes.size(); ++i)
+			{
+				final int index = changes.getCell(i);
+				final int cell = toCell(this.worldGrid.getRow(index), this.worldGrid.getColumn(index));
+				if (isAlive(this.back.getState(cell)))
+				{
+					this.back.setState(cell, toState(changes.getHappiness(i)));
+				}
+			}
+		}
+		else if (event instanceof AllOrganismsRequestedResponse)
+		{
+			OrganismRecords records = ((AllOrganismsRequestedResponse)event).getData();
+			for (int i = 0; i < records.size(); ++i)
+			{
+				final int cell = records.getCell(i);
+				final byte state = records.isDead(i) ? RenderFrame.DEAD : toState(records.getHappiness(i));
+				this.back.setCell(toCell(this.worldGrid.getRow(cell), this.worldGrid.getColumn(cell)), 
+						records.getStaticAttributes(i).getColor(), state);
+			}
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unhandled event received by notify: " + event);
+		}
+	}
+	
+	private int toCell(GridPosition position)
+	{
+		return toCell(position.getRow(), position.getColumn());
+	}
+	
+	private int toCell(int row, int column)
+	{
+		return this.back.toCell(row, column);
+	}
+	
+	private static boolean isAlive(byte state)
+	{
+		return state == RenderFrame.GROWING || state == RenderFrame.CONTENT || 
+				state == RenderFrame.HAPPY || state == RenderFrame.UNHAPPY;
+	}
+	
+	private static byte toState(Happiness happiness)
+	{
+		if (happiness == Happiness.Happy)
+		{
+			return RenderFrame.HAPPY;
+		}
+		else if (happiness == Happiness.Unhappy)
+		{
+			return RenderFrame.UNHAPPY;
+		}
+		return RenderFrame.CONTENT;
+	}
+}
@@ -32,6 +32,7 @@ import com.divergentthoughtsgames.colonies.event.EventManager;
 import com.divergentthoughtsgames.colonies.event.GameEvent;
 import com.divergentthoughtsgames.colonies.event.GamePausedEvent;
 import com.divergentthoughtsgames.colonies.event.GameUnpausedEvent;
+import com.divergentthoughtsgames.colonies.platform.AudioSink;
 
 
 /**
@@ -39,7 +40,7 @@ import com.divergentthoughtsgames.colonies.event.GameUnpausedEvent;
  * EventManager. Not yet implemented as of 2013-05-02.
  * @author Christopher D Canfield
  */
-public class SoundManager implements EventListener
+public class SoundManager implements EventListener, AudioSink
 {
 	private transient MediaPlayer mediaPlayer;
 	
@@ -66,6 +67,14 @@ public class SoundManager implements EventListener
 		eventManager.subscribe(GameUnpausedEvent.ID, this);
 	}
 
+	@Override
+	public void release()
+	{
+		EventManager eventManager = this.gameManager.getEventManager();
+		eventManager.unsubscribe(GamePausedEvent.ID, this);
+		eventManager.unsubscribe(GameUnpausedEvent.ID, this);
+	}
+
 	@Override
 	public void notify(GameEvent<?> event)
 	{
@@ -24,7 +24,6 @@ import java.util.Random;
 
 import com.divergentthoughtsgames.colonies.R;
 
-import android.graphics.PorterDuff;
 import android.graphics.drawable.AnimationDrawable;
 import android.os.Handler;
 import android.os.SystemClock;
@@ -36,6 +35,22 @@ import android.widget.ImageView;
  */
 public final class AnimationUtilities
 {
+	/** The Organism growth animations. **/
+	public static final int[] GROW_ANIMATION_IDS = {
+		R.anim.organism_grow_0, R.anim.organism_grow_1, R.anim.organism_grow_2, R.anim.organism_grow_3 };
+	/** The content happiness Organism animations. **/
+	public static final int[] CONTENT_ANIMATION_IDS = {
+		R.anim.organism_content_active, R.anim.organism_content_calm, 
+		R.anim.organism_content_long_0, R.anim.organism_content_long_1 };
+	/** The happy happiness Organism animations. **/
+	public static final int[] HAPPY_ANIMATION_IDS = {
+		R.anim.organism_happy_active, R.anim.organism_happy_calm, 
+		R.anim.organism_happy_long_0, R.anim.organism_happy_long_1 };
+	/** The unhappy happiness Organism animations. **/
+	public static final int[] UNHAPPY_ANIMATION_IDS = {
+		R.anim.organism_unhappy_active, R.anim.organism_unhappy_calm, 
+		R.anim.organism_unhappy_long_0, R.anim.organism_unhappy_long_1 };
+	
 	private AnimationUtilities() {}
 	
 	
@@ -68,57 +83,6 @@ public final class AnimationUtilities
 		}, SystemClock.uptimeMillis() + millisFromNow);
 	}
 	
-	/**
-	 * Replaces an ImageView's background AnimationDrawable with the specified resource id in the
-	 * future. Calls start() on the AnimationDrawable once it has been replaced. 
-	 * @param handler The Handler for the Activity in which the animation will run.
-	 * @param imageView An ImageView that has a background that can be casted to AnimationDrawable.
-	 * @param animationResourceId The animation's resource id.
-	 * @param color The color to apply to the AnimationDrawable. 
-	 * @param millisFromNow The number of milliseconds to wait before replacing the animation. 
-	 */
-	public static void replaceAnimationInFuture(final Handler handler, final ImageView imageView, 
-			final int animationResourceId, final int color, long millisFromNow)
-	{
-		handler.postAtTime(new Runnable() 
-		{
-			@Override
-			public void run()
-			{
-				imageView.setBackgroundResource(animationResourceId);
-				imageView.getBackground().mutate().setColorFilter(color, PorterDuff.Mode.MULTIPLY);
-				((AnimationDrawable)(imageView.getBackground())).start();
-			}
-		}, SystemClock.uptimeMillis() + millisFromNow);
-	}
-	
-	
-	/**
-	 * Gets a resource ID for a random Organism growth animation.
-	 * @return An animation resource ID.
-	 */
-	public static int getRandomGrowOrganismAnimationId()
-	{
-		Random rand = new Random();
-		int randNumber = rand.nextInt(4);
-		
-		if (randNumber == 0)
-		{
-			return R.anim.organism_grow_0;
-		}
-		else if (randNumber == 1)
-		{
-			return R.anim.organism_grow_1;
-		}
-		else if (randNumber == 2)
-		{
-			return R.anim.organism_grow_2;
-		}
-		else
-		{
-			return R.anim.organism_grow_3;
-		}
-	}
 	
 	/**
 	 * Gets the resource ID for a random content happiness Organism animation.
@@ -127,92 +91,6 @@ public final class AnimationUtilities
 	public static int getRandomContentOrganismAnimationId()
 	{
 		Random rand = new Random();
-		int randNumber = rand.nextInt(4);
-		
-		if (randNumber == 0)
-		{
-			return R.anim.organism_content_active;
-		}
-		else if (randNumber == 1)
-		{
-			return R.anim.organism_content_calm;
-		}
-		else if (randNumber == 2)
-		{
-			return R.anim.organism_content_long_0;
-		}
-		else
-		{
-			return R.anim.organism_content_long_1;
-		}
-	}
-	
-	/**
-	 * Gets the resource ID for a random happy happiness Organism animation.
-	 * @return An animation resource ID.
-	 */
-	public static int getRandomHappyOrganismAnimationId()
-	{
-		Random rand = new Random();
-		int randNumber = rand.nextInt(4);
-		
-		if (randNumber == 0)
-		{
-			return R.anim.organism_happy_active;
-		}
-		else if (randNumber == 1)
-		{
-			return R.anim.organism_happy_calm;
-		}
-		else if (randNumber == 2)
-		{
-			return R.anim.organism_happy_long_0;
-		}
-		else
-		{
-			return R.anim.organism_happy_long_1;
-		}
-	}
-	
-	/**
-	 * Gets the resource ID for a random unhappy happiness Organism animation.
-	 * @return An animation resource ID.
-	 */
-	public static int getRandomUnhappyOrganismAnimationId()
-	{
-		Random rand = new Random();
-		int randNumber = rand.nextInt(4);
-		
-		if (randNumber == 0)
-		{
-			return R.anim.organism_unhappy_active;
-		}
-		else if (randNumber == 1)
-		{
-			return R.anim.organism_unhappy_long_1;
-		}
-		else if (randNumber == 2)
-		{
-			return R.anim.organism_unhappy_long_0;
-		}
-		else
-		{
-			return R.anim.organism_unhappy_calm;
-		}
-	}
-	
-	/**
-	 * Gets the duration of the frames of animation in an AnimationDrawable, in milliseconds.
-	 * @param drawable
-	 * @return The duration of the frames in the AnimationDrawable, in milliseconds.
-	 */
-	public static long getAnimationDuration(AnimationDrawable drawable)
-	{
-		long duration = 0;
-		for (int i = 0; i < drawable.getNumberOfFrames(); ++i)
-		{
-			duration += drawable.getDuration(i);
-		}
-		return duration;
+		return CONTENT_ANIMATION_IDS[rand.nextInt(CONTENT_ANIMATION_IDS.length)];
 	}
 }
@@ -0,0 +1,185 @@
+package com.divergentthoughtsgames.colonies.util;
+
+/*
+Copyright 2013 Christopher D. Canfield
+
+
+This file is part of Colonies.
+
+Colonies is free software: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+Colonies is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.IOException;
+import java.util.Random;
+
+import com.divergentthoughtsgames.colonies.persistence.GameStateReader;
+import com.divergentthoughtsgames.colonies.persistence.GameStateWriter;
+
+
+/**
+ * A fast, splittable pseudorandom number generator, using the SplitMix64 algorithm of 
+ * java.util.SplittableRandom (which is not available on Android). Each generator is 
+ * intended to be confined to one thread: unlike java.util.Random, it does not update 
+ * an atomic seed, so it does no synchronization. Independent generators for other 
+ * threads or components are created with split(). Generators created from the same 
+ * seed, and split in the same order, produce the same sequences of values.
+ * 
+ * Extends java.util.Random so that it can be passed to code that expects a Random; 
+ * all of Random's methods other than nextGaussian draw from the SplitMix64 sequence.
+ * @author Christopher D. Canfield
+ */
+public final class SplitRandom extends Random
+{
+	private static final long serialVersionUID = -4266306372734460475L;
+	
+	// The default gamma: the odd integer closest to 2^64 / phi.
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	// The current state, which is advanced by gamma for each value.
+	private long state;
+	
+	// The increment added to the state for each value. Always odd.
+	private final long gamma;
+	
+	
+	/**
+	 * Creates a generator from a seed.
+	 * @param seed The seed.
+	 */
+	public SplitRandom(long seed)
+	{
+		this(seed, GOLDEN_GAMMA);
+	}
+	
+	private SplitRandom(long seed, long gamma)
+	{
+		super(0);
+		this.state = seed;
+		this.gamma = gamma;
+	}
+	
+	/**
+	 * Creates a new generator whose values are statistically independent of this 
+	 * generator's. Advances this generator's state.
+	 * @return The new generator.
+	 */
+	public SplitRandom split()
+	{
+		return new SplitRandom(nextLong(), mixGamma(nextState()));
+	}
+	
+	/**
+	 * Writes the generator's state in the binary saved game format.
+	 * @param out The writer.
+	 */
+	public void writeState(GameStateWriter out) throws IOException
+	{
+		out.writeLong(this.state);
+		out.writeLong(this.gamma);
+	}
+	
+	/**
+	 * Reads a generator that was written by writeState. The restored generator continues
+	 * the sequence of the generator that was written.
+	 * @param in The reader.
+	 * @return The restored generator.
+	 */
+	public static SplitRandom readState(GameStateReader in) throws IOException
+	{
+		final long state = in.readLong();
+		final long gamma = in.readLong();
+		if ((gamma & 1) == 0)
+		{
+			throw new IOException("Invalid saved game state: SplitRandom gamma must be odd.");
+		}
+		return new SplitRandom(state, gamma);
+	}
+	
+	/**
+	 * Writes the part of the generator's state that changes as values are drawn. Used by 
+	 * incremental checkpoints, since a generator's gamma never changes.
+	 * @param out The writer.
+	 */
+	public void writeChanges(GameStateWriter out) throws IOException
+	{
+		out.writeLong(this.state);
+	}
+	
+	/**
+	 * Restores the state that was written by writeChanges.
+	 * @param in The reader.
+	 */
+	public void readChanges(GameStateReader in) throws IOException
+	{
+		this.state = in.readLong();
+	}
+	
+	/**
+	 * Resets the generator's state. The gamma of a split generator is unchanged.
+	 * Called by the java.util.Random constructor, before the generator's fields are set.
+	 */
+	@Override
+	public void setSeed(long seed)
+	{
+		this.state = seed;
+	}
+	
+	@Override
+	public long nextLong()
+	{
+		return mix64(nextState());
+	}
+	
+	@Override
+	public int nextInt()
+	{
+		return mix32(nextState());
+	}
+	
+	@Override
+	protected int next(int bits)
+	{
+		return (int)(mix64(nextState()) >>> (64 - bits));
+	}
+	
+	private long nextState()
+	{
+		return (this.state += this.gamma);
+	}
+	
+	private static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	private static int mix32(long z)
+	{
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+	
+	/**
+	 * Creates an odd gamma with enough bit transitions that the split sequence is well mixed.
+	 */
+	private static long mixGamma(long z)
+	{
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		final int transitions = Long.bitCount(z ^ (z >>> 1));
+		return (transitions < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
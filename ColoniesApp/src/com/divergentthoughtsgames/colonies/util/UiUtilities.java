@@ -22,8 +22,6 @@ along with Colonies.  If not, see <http://www.gnu.org/licenses/>.
 
 import java.util.Random;
 
-import android.graphics.Color;
-
 /**
  * A collection of user interface utilities.
  * @author Christopher D. Canfield
@@ -64,6 +62,6 @@ public final class UiUtilities
 		green = (green + mask) / 2;
 		blue = (blue + mask) / 2;
 		
-		return Color.argb(alpha, red, green, blue);
+		return (alpha << 24) | (red << 16) | (green << 8) | blue;
 	}
 }